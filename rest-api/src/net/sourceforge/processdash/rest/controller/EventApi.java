@@ -23,12 +23,20 @@
 
 package net.sourceforge.processdash.rest.controller;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpStatus;
 
 import net.sourceforge.processdash.rest.rs.GET;
+import net.sourceforge.processdash.rest.rs.HttpException;
 import net.sourceforge.processdash.rest.rs.ParamParser;
 import net.sourceforge.processdash.rest.rs.Path;
 import net.sourceforge.processdash.rest.service.RestEventService;
@@ -39,6 +47,13 @@ import net.sourceforge.processdash.util.HTMLUtils;
 @Path("/events/")
 public class EventApi {
 
+    /** A request attribute that marks a request we suspended.  Attributes
+     * survive the async dispatch that resumes the request, and unlike
+     * getDispatcherType(), this works with servers that predate the
+     * Servlet 3.0 API. */
+    private static final String SUSPENDED_ATTR = EventApi.class.getName()
+            + ".suspended";
+
     @GET
     public Map getEvents(HttpServletRequest req) {
         // fetch parameters from the request
@@ -46,7 +61,27 @@ public class EventApi {
         int wait = ParamParser.INTEGER.parse(req, "maxWait", 60) * 1000;
 
         // retrieve the events that have occurred since the given time
-        List<RestEvent> events = RestEventService.get().eventsAfter(id, wait);
+        RestEventService svc = RestEventService.get();
+        List<RestEvent> events;
+        if (req.getAttribute(SUSPENDED_ATTR) != null) {
+            // we are resuming a suspended request. Return whatever events
+            // are present, even if the wait timed out without finding any
+            events = svc.eventsAfter(id);
+
+        } else if (wait > 0 && isAsyncSupported(req)) {
+            // if no events are present, suspend the request until they
+            // arrive. This releases the request thread while we wait
+            events = svc.eventsAfter(id);
+            if (events.isEmpty()) {
+                suspendUntilEventsAfter(req, id, wait);
+                return null;
+            }
+
+        } else {
+            // if asynchronous requests are not supported, block until events
+            // arrive
+            events = svc.eventsAfter(id, wait);
+        }
 
         // construct a URL to retrieve the next batch of events
         if (!events.isEmpty())
@@ -58,4 +93,78 @@ public class EventApi {
         return new JsonMap("events", events, "nextUri", nextUri, "stat", "ok");
     }
 
+    private void suspendUntilEventsAfter(HttpServletRequest req, long id,
+            long wait) {
+        final RestEventService svc = RestEventService.get();
+        final AsyncContext async = req.startAsync();
+        req.setAttribute(SUSPENDED_ATTR, Boolean.TRUE);
+        async.setTimeout(wait);
+
+        // when events arrive, dispatch the request back to this servlet.
+        // The waiter is only run once, and a timeout only dispatches if it
+        // was able to cancel the waiter, so only one dispatch can occur.
+        final Runnable resume = new Runnable() {
+            public void run() {
+                async.dispatch();
+            }
+        };
+        async.addListener(new AsyncListener() {
+            public void onTimeout(AsyncEvent e) {
+                if (svc.cancelAwait(resume))
+                    async.dispatch();
+            }
+
+            public void onError(AsyncEvent e) {
+                svc.cancelAwait(resume);
+            }
+
+            public void onComplete(AsyncEvent e) {
+                svc.cancelAwait(resume);
+            }
+
+            public void onStartAsync(AsyncEvent e) {}
+        });
+
+        // events may have arrived while we were setting up. If so, resume
+        // immediately
+        if (!svc.awaitEventsAfter(id, resume))
+            async.dispatch();
+    }
+
+
+    /**
+     * Deliver events as a stream of Server-Sent Events. The stream remains
+     * open until the client disconnects or the maxWait period elapses; an
+     * EventSource in the browser will reconnect automatically, passing the
+     * ID of the last event it saw.
+     */
+    @GET
+    @Path("stream/")
+    public Map streamEvents(HttpServletRequest req, HttpServletResponse resp)
+            throws IOException {
+        if (!isAsyncSupported(req))
+            throw new HttpException(HttpStatus.NOT_IMPLEMENTED_501);
+
+        // fetch parameters from the request
+        long id = ParamParser.LONG.parse(req, "after", 0L);
+        id = ParamParser.LONG.parse(req.getHeader("Last-Event-ID"), id);
+        int wait = ParamParser.INTEGER.parse(req, "maxWait", 300) * 1000;
+
+        // begin streaming events to the client
+        new EventStream(req, resp, id, wait).start();
+        return null;
+    }
+
+
+    private boolean isAsyncSupported(HttpServletRequest req) {
+        try {
+            return req.isAsyncSupported();
+        } catch (Throwable t) {
+            // earlier versions of the dashboard embed a web server that does
+            // not support the Servlet 3.0 API. When running in an earlier
+            // version, this will throw a NoSuchMethodError.
+            return false;
+        }
+    }
+
 }
@@ -0,0 +1,153 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// REST API Add-on for the Process Dashboard
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.rest.controller;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.json.simple.JSONObject;
+
+import net.sourceforge.processdash.rest.service.RestEventService;
+import net.sourceforge.processdash.rest.to.RestEvent;
+
+/**
+ * Writes REST events to a client in the Server-Sent Events format.
+ * <p>
+ * The request is placed in asynchronous mode, so no thread is held while the
+ * stream is idle. When new events arrive, a thread from the web server's pool
+ * writes them to the client and registers to wait for the next batch.
+ */
+class EventStream implements Runnable, AsyncListener {
+
+    private RestEventService svc;
+
+    private AsyncContext async;
+
+    private PrintWriter out;
+
+    private long lastId;
+
+    private volatile boolean closed;
+
+
+    EventStream(HttpServletRequest req, HttpServletResponse resp, long lastId,
+            long timeout) throws IOException {
+        this.svc = RestEventService.get();
+        this.lastId = lastId;
+        this.closed = false;
+
+        resp.setContentType("text/event-stream");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-cache");
+        this.out = resp.getWriter();
+
+        this.async = req.startAsync();
+        async.setTimeout(timeout);
+        async.addListener(this);
+    }
+
+    /** Send any pending events, then wait for more to arrive */
+    void start() {
+        // ask the client to reconnect promptly if the stream is closed
+        out.write("retry: 1000\n\n");
+        deliver();
+    }
+
+    /** Called by the event service when new events are available */
+    public void run() {
+        if (closed)
+            return;
+        try {
+            async.start(new Runnable() {
+                public void run() {
+                    deliver();
+                }
+            });
+        } catch (IllegalStateException ise) {
+            // the request was completed while this notification was pending
+            closed = true;
+        }
+    }
+
+    private synchronized void deliver() {
+        do {
+            if (closed)
+                return;
+
+            List<RestEvent> events = svc.eventsAfter(lastId);
+            for (RestEvent e : events) {
+                out.write("id: ");
+                out.write(Long.toString(e.getId()));
+                out.write("\ndata: ");
+                out.write(JSONObject.toJSONString(e));
+                out.write("\n\n");
+                lastId = e.getId();
+            }
+            out.flush();
+
+            // PrintWriter swallows exceptions, so check whether the client
+            // has gone away
+            if (out.checkError()) {
+                close();
+                return;
+            }
+
+            // register to be notified of the next batch of events. If more
+            // events arrived while we were writing, send them now.
+        } while (!svc.awaitEventsAfter(lastId, this));
+    }
+
+    private void close() {
+        closed = true;
+        svc.cancelAwait(this);
+        try {
+            async.complete();
+        } catch (IllegalStateException ise) {
+            // the request has already been completed
+        }
+    }
+
+    public void onTimeout(AsyncEvent e) {
+        close();
+    }
+
+    public void onError(AsyncEvent e) {
+        close();
+    }
+
+    public void onComplete(AsyncEvent e) {
+        closed = true;
+        svc.cancelAwait(this);
+    }
+
+    public void onStartAsync(AsyncEvent e) {}
+
+}
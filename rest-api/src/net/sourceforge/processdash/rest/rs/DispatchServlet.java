@@ -94,6 +94,8 @@ public class DispatchServlet extends HttpServlet {
 
         boolean wantsRequest;
 
+        boolean wantsResponse;
+
         Object target;
 
         Set<String> httpMethods;
@@ -146,6 +148,8 @@ public class DispatchServlet extends HttpServlet {
                 // methods with no GET/POST/etc annotation are ignored
                 continue;
             handler.wantsRequest = methodWantsServletRequest(m);
+            handler.wantsResponse = handler.wantsRequest
+                    && methodWantsServletResponse(m);
 
             // build a string representing the desired path
             StringBuilder path = new StringBuilder();
@@ -191,6 +195,12 @@ public class DispatchServlet extends HttpServlet {
                 && parameterTypes[0].equals(HttpServletRequest.class);
     }
 
+    private boolean methodWantsServletResponse(Method m) {
+        Class<?>[] parameterTypes = m.getParameterTypes();
+        return parameterTypes.length > 1
+                && parameterTypes[1].equals(HttpServletResponse.class);
+    }
+
 
     private void findAndRunHandler(HttpServletRequest req,
             HttpServletResponse resp) throws IOException {
@@ -236,11 +246,15 @@ public class DispatchServlet extends HttpServlet {
     private void runHandler(HttpServletRequest req, HttpServletResponse resp,
             Matcher matcher, Handler handler) throws IOException {
         // build a parameter list for the method. This is always the servlet
-        // request, followed by the path parameters in the order they appeared
-        int off = handler.wantsRequest ? 1 : 0;
+        // request (and optionally the response), followed by the path
+        // parameters in the order they appeared
+        int off = (handler.wantsRequest ? 1 : 0)
+                + (handler.wantsResponse ? 1 : 0);
         Object[] args = new Object[matcher.groupCount() + off];
         if (handler.wantsRequest)
             args[0] = req;
+        if (handler.wantsResponse)
+            args[1] = resp;
         for (int i = matcher.groupCount(); i > 0; i--)
             args[i - 1 + off] = URLDecoder.decode(matcher.group(i), "UTF-8");
 
@@ -248,6 +262,12 @@ public class DispatchServlet extends HttpServlet {
             // invoke the handler and get the resulting object
             Map result = (Map) handler.method.invoke(handler.target, args);
 
+            // a null result indicates that the handler has taken over the
+            // response; for example, by writing a stream or by suspending the
+            // request to be completed asynchronously
+            if (result == null)
+                return;
+
             // send a response to the client
             resp.setContentType("application/json");
             JSONObject.writeJSONString(result, resp.getWriter());
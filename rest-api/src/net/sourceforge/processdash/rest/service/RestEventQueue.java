@@ -0,0 +1,294 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// REST API Add-on for the Process Dashboard
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.rest.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sourceforge.processdash.rest.to.RestEvent;
+
+/**
+ * Holds the most recent event for each event key, in order of event ID, and
+ * keeps track of the clients that are waiting for new events to arrive.
+ * <p>
+ * Events are stored in a ring buffer sorted by ID, so the events after a
+ * given ID can be found with a binary search. When an event supersedes an
+ * earlier event with the same key, the earlier event's slot is cleared. Empty
+ * slots at the head of the ring are reclaimed immediately; others are
+ * squeezed out when the ring fills up.
+ * <p>
+ * Clients can wait for events in one of two ways. A thread can block in
+ * {@link #waitForEventsAfter(long, long)}; or a client can register a
+ * callback with {@link #addWaiter(long, Runnable)}, which holds no thread
+ * while it waits. Both are released by {@link #fireEventsArrived()}.
+ */
+class RestEventQueue {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The IDs of the events in the ring, including cleared slots */
+    private long[] ids;
+
+    /** The events in the ring, or null for slots that have been cleared */
+    private RestEvent[] events;
+
+    /** The physical position of the oldest slot in the ring */
+    private int head;
+
+    /** The number of slots in use, including cleared slots */
+    private int size;
+
+    /** The most recent event for each key */
+    private Map<String, RestEvent> latest;
+
+    /** Callbacks that are waiting for new events */
+    private List<Waiter> waiters;
+
+    private static final Logger logger = Logger.getLogger(RestEventQueue.class
+            .getName());
+
+
+    RestEventQueue() {
+        ids = new long[INITIAL_CAPACITY];
+        events = new RestEvent[INITIAL_CAPACITY];
+        head = size = 0;
+        latest = new HashMap<String, RestEvent>();
+        waiters = new ArrayList<Waiter>();
+    }
+
+
+    /**
+     * Add an event to this queue, replacing any previous event with the same
+     * key. Waiting clients are not notified until
+     * {@link #fireEventsArrived()} is called.
+     */
+    synchronized void add(String key, RestEvent event) {
+        RestEvent previous = latest.put(key, event);
+        if (previous != null)
+            clear(previous);
+        insert(event);
+    }
+
+    /** Return the number of events in this queue */
+    synchronized int size() {
+        return latest.size();
+    }
+
+    /** Return the events with an ID larger than the given value, in order */
+    synchronized List<RestEvent> getEventsAfter(long id) {
+        List<RestEvent> result = new ArrayList<RestEvent>();
+        for (int i = indexAfter(id); i < size; i++) {
+            RestEvent e = events[slot(i)];
+            if (e != null)
+                result.add(e);
+        }
+        return result;
+    }
+
+    /**
+     * Return the events with an ID larger than the given value. If there are
+     * none, block the calling thread until some arrive, or until maxWait
+     * milliseconds have elapsed.
+     */
+    synchronized List<RestEvent> waitForEventsAfter(long id, long maxWait) {
+        if (!hasEventsAfter(id)) {
+            try {
+                wait(maxWait);
+            } catch (InterruptedException e) {
+            }
+        }
+        return getEventsAfter(id);
+    }
+
+    /**
+     * Register a callback to be run once, when events with an ID larger than
+     * the given value arrive.
+     * 
+     * @return true if the callback was registered; false if matching events
+     *         are already available, in which case the callback will not be
+     *         run
+     */
+    synchronized boolean addWaiter(long id, Runnable callback) {
+        if (hasEventsAfter(id))
+            return false;
+        waiters.add(new Waiter(id, callback));
+        return true;
+    }
+
+    /**
+     * Unregister a callback that was added by {@link #addWaiter}.
+     * 
+     * @return true if the callback was unregistered; false if it was not
+     *         registered, or if it has already been run
+     */
+    synchronized boolean removeWaiter(Runnable callback) {
+        for (Iterator<Waiter> i = waiters.iterator(); i.hasNext();) {
+            if (i.next().callback == callback) {
+                i.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return the number of callbacks that are currently registered */
+    synchronized int getWaiterCount() {
+        return waiters.size();
+    }
+
+    /**
+     * Wake the threads that are blocked waiting for events, and run the
+     * callbacks for any clients whose events have arrived.
+     */
+    void fireEventsArrived() {
+        List<Runnable> ready = new ArrayList<Runnable>();
+        synchronized (this) {
+            notifyAll();
+            if (waiters.isEmpty())
+                return;
+            List<Waiter> stillWaiting = new ArrayList<Waiter>();
+            for (Waiter w : waiters) {
+                if (hasEventsAfter(w.afterId))
+                    ready.add(w.callback);
+                else
+                    stillWaiting.add(w);
+            }
+            waiters = stillWaiting;
+        }
+
+        // run the callbacks outside of our lock, so they are free to call
+        // back into this object
+        for (Runnable r : ready) {
+            try {
+                r.run();
+            } catch (Throwable t) {
+                logger.log(Level.WARNING, "Unable to resume event waiter", t);
+            }
+        }
+    }
+
+
+    private boolean hasEventsAfter(long id) {
+        for (int i = indexAfter(id); i < size; i++) {
+            if (events[slot(i)] != null)
+                return true;
+        }
+        return false;
+    }
+
+    /** Return the logical index of the first slot with an ID larger than the
+     * given value, or <code>size</code> if there is no such slot */
+    private int indexAfter(long id) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ids[slot(mid)] <= id)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private int slot(int index) {
+        return (head + index) & (ids.length - 1);
+    }
+
+    private void clear(RestEvent event) {
+        long id = event.getId();
+        int i = indexAfter(id - 1);
+        if (i < size && ids[slot(i)] == id)
+            events[slot(i)] = null;
+
+        // reclaim cleared slots at the head of the ring
+        while (size > 0 && events[head] == null) {
+            head = (head + 1) & (ids.length - 1);
+            size--;
+        }
+    }
+
+    private void insert(RestEvent event) {
+        if (size == ids.length)
+            compact();
+
+        // events are almost always created in order, so they can be appended
+        // to the ring. But an event could be created on one thread and
+        // added after an event that was created later on another thread; in
+        // that case, shift newer events down to make room.
+        long id = event.getId();
+        int pos = size;
+        while (pos > 0 && ids[slot(pos - 1)] > id) {
+            ids[slot(pos)] = ids[slot(pos - 1)];
+            events[slot(pos)] = events[slot(pos - 1)];
+            pos--;
+        }
+        ids[slot(pos)] = id;
+        events[slot(pos)] = event;
+        size++;
+    }
+
+    /** Copy the live events into a new ring, growing it if necessary */
+    private void compact() {
+        int live = latest.size();
+        int capacity = ids.length;
+        while (live * 2 > capacity)
+            capacity *= 2;
+
+        long[] newIds = new long[capacity];
+        RestEvent[] newEvents = new RestEvent[capacity];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            RestEvent e = events[slot(i)];
+            if (e != null) {
+                newIds[n] = ids[slot(i)];
+                newEvents[n] = e;
+                n++;
+            }
+        }
+        ids = newIds;
+        events = newEvents;
+        head = 0;
+        size = n;
+    }
+
+
+    private static class Waiter {
+
+        long afterId;
+
+        Runnable callback;
+
+        Waiter(long afterId, Runnable callback) {
+            this.afterId = afterId;
+            this.callback = callback;
+        }
+
+    }
+
+}
@@ -29,11 +29,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Vector;
 
@@ -65,13 +61,13 @@ public class RestEventService {
 
 
 
-    private Map<String, RestEvent> events;
+    private RestEventQueue events;
 
     private Timer eventArrivedTimer;
 
 
     private RestEventService() {
-        events = new LinkedHashMap<String, RestEvent>();
+        events = new RestEventQueue();
         eventArrivedTimer = new Timer(10, new ActionListener() {
             public void actionPerformed(ActionEvent e) {
                 eventArrived();
@@ -86,32 +82,44 @@ public class RestEventService {
         listenForUserNotificationEvents();
     }
 
+    /**
+     * Retrieve the events whose ID is larger than the given value. If no
+     * such events exist, block the calling thread until one arrives or until
+     * maxWait milliseconds have elapsed.
+     */
     public List<RestEvent> eventsAfter(long id, long maxWait) {
-        // retrieve the events whose ID is larger than the given value
-        List<RestEvent> result = new ArrayList<RestEvent>();
-        synchronized (events) {
-            getEventsAfter(id, result);
-            if (result.isEmpty()) {
-                // if no events were found, wait for some to arrive
-                try {
-                    events.wait(maxWait);
-                } catch (Exception e) {
-                }
-                getEventsAfter(id, result);
-            }
-        }
+        return events.waitForEventsAfter(id, maxWait);
+    }
 
-        // sort the events in numerical order and return them
-        if (result.size() > 1)
-            Collections.sort(result);
-        return result;
+    /**
+     * Retrieve the events whose ID is larger than the given value, without
+     * waiting.
+     */
+    public List<RestEvent> eventsAfter(long id) {
+        return events.getEventsAfter(id);
     }
 
-    private void getEventsAfter(long id, List<RestEvent> result) {
-        for (RestEvent e : events.values()) {
-            if (e.getId() > id)
-                result.add(e);
-        }
+    /**
+     * Arrange for a callback to be run once, when events with an ID larger
+     * than the given value are available. The callback will be run on the
+     * thread that delivers event notifications, so it should return quickly.
+     * 
+     * @return true if the callback was registered; false if such events are
+     *         already available, in which case the callback will not be run
+     */
+    public boolean awaitEventsAfter(long id, Runnable callback) {
+        return events.addWaiter(id, callback);
+    }
+
+    /**
+     * Cancel a callback that was registered with
+     * {@link #awaitEventsAfter(long, Runnable)}.
+     * 
+     * @return true if the callback was cancelled; false if it was not
+     *         registered, or if it has already been run
+     */
+    public boolean cancelAwait(Runnable callback) {
+        return events.removeWaiter(callback);
     }
 
 
@@ -232,17 +240,12 @@ public class RestEventService {
 
 
     private void addEvent(String key, RestEvent event) {
-        synchronized (events) {
-            events.remove(key);
-            events.put(key, event);
-            eventArrivedTimer.restart();
-        }
+        events.add(key, event);
+        eventArrivedTimer.restart();
     }
 
     private void eventArrived() {
-        synchronized (events) {
-            events.notifyAll();
-        }
+        events.fireEventsArrived();
     }
 
 }
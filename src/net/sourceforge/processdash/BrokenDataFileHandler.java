@@ -34,6 +34,7 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -63,6 +64,7 @@ import net.sourceforge.processdash.ui.lib.BoxUtils;
 import net.sourceforge.processdash.ui.lib.ErrorReporter;
 import net.sourceforge.processdash.ui.lib.JLinkLabel;
 import net.sourceforge.processdash.ui.lib.JOptionPaneTweaker;
+import net.sourceforge.processdash.util.DashboardBackupFactory;
 import net.sourceforge.processdash.util.FileUtils;
 import net.sourceforge.processdash.util.RobustFileOutputStream;
 import net.sourceforge.processdash.util.StringUtils;
@@ -357,20 +359,21 @@ public class BrokenDataFileHandler {
         if (!backupDir.isDirectory())
             return null;
 
-        // find a list of ZIP file in that directory, and look inside each
+        // find a list of backups in that directory, and look inside each
         // one (starting with the most recent) for a copy of the given file.
-        File[] backupZipFiles = backupDir.listFiles(new FilenameFilter() {
-            public boolean accept(File location, String name) {
-                return name.startsWith("pdash-") && name.endsWith(".zip");
-            }
-        });
-        Arrays.sort(backupZipFiles);
-        for (int i = backupZipFiles.length; i-- > 0;) {
+        List<URL> backups;
+        try {
+            backups = DashboardBackupFactory.getDashboardBackupURLs(f
+                    .getParentFile());
+        } catch (IOException ioe) {
+            return null;
+        }
+        for (URL backup : backups) {
             InputStream zipFileIn = null;
             try {
-                File zip = backupZipFiles[i];
+                String backupName = new File(backup.getPath()).getName();
                 ZipInputStream in = new ZipInputStream(new BufferedInputStream(
-                        zipFileIn = new FileInputStream(zip)));
+                        zipFileIn = backup.openStream()));
                 ZipEntry e;
                 while ((e = in.getNextEntry()) != null) {
                     if (e.getName().equalsIgnoreCase(f.getName())) {
@@ -384,7 +387,7 @@ public class BrokenDataFileHandler {
                         // otherwise, we've found a viable historical file.
                         System.out.println("*************** REPAIRING CORRUPT "
                                 + f.getName() + " with data from backup/"
-                                + zip.getName() + " *****************");
+                                + backupName + " *****************");
                         pb.unread(b);
                         return pb;
                     }
@@ -88,6 +88,8 @@ public class FileBackupManager {
             "backup.compressionLevel", 1));
         DashboardBackupFactory.setKeepBackupsNumDays(Settings.getInt(
             "backup.keepBackupsNumDays", 42));
+        DashboardBackupFactory.setChunkedStore(Settings.getBool(
+            "backup.chunkedStore", false));
         Date effectiveDate = EVCalculator.getFixedEffectiveDate();
         if (effectiveDate != null)
             DashboardBackupFactory.setHistLogTimestamp(effectiveDate.getTime());
@@ -52,6 +52,7 @@ import java.net.URL;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -565,14 +566,30 @@ public class ProcessDashboard extends JFrame implements WindowListener,
                     (serializedDefinitions));
             } catch (Exception e) {}
 
+        // load the definitions that were parsed during the previous launch
+        final File startupImage = getStartupImageFile();
+        if (startupImage != null && data.loadStartupImage(startupImage)) {
+            // record that the image is still in use, so it won't be pruned
+            startupImage.setLastModified(System.currentTimeMillis());
+            pt.click("Loaded startup image");
+        }
+
         // open all the datafiles that were specified in the properties file.
         data.startInconsistency();
         try {
             if (v != null) {
-                String a[];
+                List<String[]> datafiles = new ArrayList<String[]>();
                 for (int i = 0; i < v.size(); i++) {
-                    a = (String[])v.elementAt (i);
-                    openDatafile(a[0], a[1]);
+                    String[] a = (String[]) v.elementAt(i);
+                    datafiles.add(new String[] { a[0],
+                            property_directory + a[1] });
+                }
+                Exception[] errors = data.openDatafiles(datafiles);
+                for (int i = 0; i < errors.length; i++) {
+                    if (errors[i] != null) {
+                        String[] a = (String[]) v.elementAt(i);
+                        handleDatafileError(a[0], a[1], errors[i]);
+                    }
                 }
             }
         }catch (Exception e) { logErr("open datafiles failed!", e); };
@@ -592,6 +609,8 @@ public class ProcessDashboard extends JFrame implements WindowListener,
         }
         registerEnvironmentalData();
         pt.click("Opened data files");
+        if (startupImage != null)
+            saveStartupImage(startupImage);
         data.fixMisparentedData();
         pt.click("Fixed misparented data");
         timeLog.setTimingForbiddenPaths(getBrokenDataPaths());
@@ -1871,14 +1890,83 @@ public class ProcessDashboard extends JFrame implements WindowListener,
     public void openDatafile (String prefix, String dataFile) {
         try {
             data.openDatafile (prefix, property_directory + dataFile);
-        } catch (FileNotFoundException fnfe) {
-            brokenData.logMissingDataFileError(prefix, fnfe.getMessage());
         } catch (Exception exc) {
+            handleDatafileError(prefix, dataFile, exc);
+        }
+    }
+
+    private void handleDatafileError(String prefix, String dataFile,
+            Exception exc) {
+        if (exc instanceof FileNotFoundException) {
+            brokenData.logMissingDataFileError(prefix, exc.getMessage());
+        } else {
             logErr("when opening datafile, '" + dataFile + "' for path '"
                     + prefix + "', caught exception:", exc);
         }
     }
 
+    private File getStartupImageFile() {
+        if (!Settings.getBool("dataset.startupImage.enabled", true))
+            return null;
+
+        // datasets that are read-only, or that were opened by the quick
+        // launcher, are usually opened once from a temporary directory. An
+        // image for them would never be used again.
+        if (Settings.isReadOnly()
+                || System.getProperty(QuickLauncher.QUICK_LAUNCH_MODE_PROP)
+                        != null
+                || isTemporaryDirectory(new File(property_directory)))
+            return null;
+
+        File appDir = DirectoryPreferences.getApplicationDirectory(true);
+        File imageDir = new File(appDir, "startupImage");
+        return new File(imageDir, FileUtils.makeSafeIdentifier(new File(
+                property_directory).getAbsolutePath()) + ".img");
+    }
+
+    private static boolean isTemporaryDirectory(File dir) {
+        try {
+            String tempDir = new File(System.getProperty("java.io.tmpdir"))
+                    .getCanonicalPath() + File.separator;
+            return dir.getCanonicalPath().startsWith(tempDir);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void saveStartupImage(final File imageFile) {
+        Thread t = new Thread("Startup image writer") {
+            public void run() {
+                try {
+                    imageFile.getParentFile().mkdirs();
+                    data.saveStartupImage(imageFile);
+                } catch (Exception e) {
+                    logger.log(Level.WARNING, "Unable to save startup image", e);
+                }
+                pruneStartupImages(imageFile.getParentFile(), Settings.getInt(
+                    "dataset.startupImage.maxAgeDays", 30));
+            }
+        };
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+    }
+
+    /** Delete the startup images of datasets that have not been opened for
+     * a given number of days.  Each image is written or touched whenever its
+     * dataset is opened, so its timestamp records when it was last used. */
+    private static void pruneStartupImages(File imageDir, int maxAgeDays) {
+        File[] images = imageDir.listFiles();
+        if (images == null || maxAgeDays < 1)
+            return;
+
+        long cutoff = System.currentTimeMillis() - maxAgeDays * DateUtils.DAYS;
+        for (File f : images) {
+            if (f.getName().endsWith(".img") && f.lastModified() < cutoff)
+                f.delete();
+        }
+    }
+
     private void registerEnvironmentalData() {
         try {
             Map env = new HashMap();
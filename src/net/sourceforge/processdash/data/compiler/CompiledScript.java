@@ -39,6 +39,9 @@ public class CompiledScript implements Serializable {
     private List instructions = new ArrayList();
     private boolean committed = false;
 
+    /** The compiled form of this script, built the first time it is run */
+    private transient volatile ExpressionTree tree = null;
+
     CompiledScript() {}
 
     CompiledScript(CompiledScript s) {
@@ -61,6 +64,24 @@ public class CompiledScript implements Serializable {
     {
         if (!committed) throw new IllegalStateException();
 
+        ExpressionTree t = getExpressionTree();
+        if (t != ExpressionTree.NOT_COMPILABLE)
+            t.run(stack, context);
+        else
+            runInterpreted(stack, context);
+    }
+
+    ExpressionTree getExpressionTree() {
+        ExpressionTree t = tree;
+        if (t == null)
+            tree = t = ExpressionTree.build(instructions);
+        return t;
+    }
+
+    /** Run this script by interpreting its instructions one at a time. */
+    void runInterpreted(Stack stack, ExpressionContext context)
+        throws ExecutionException
+    {
         synchronized (stack) {
             synchronized (context) {
                 Iterator iter = instructions.iterator();
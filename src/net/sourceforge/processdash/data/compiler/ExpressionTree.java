@@ -0,0 +1,347 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sourceforge.processdash.data.ImmutableDoubleData;
+import net.sourceforge.processdash.data.NumberData;
+import net.sourceforge.processdash.data.SimpleData;
+
+
+/**
+ * A compiled form of a {@link CompiledScript}, which evaluates the script
+ * as a tree of nodes instead of interpreting its instructions against a
+ * stack.
+ * <p>
+ * Scripts are compiled by simulating the instruction stack once, and
+ * recording the node that each instruction would have pushed.  The
+ * resulting tree evaluates operands in the same order as the interpreter,
+ * and produces the same values and descriptors, but it does not dispatch
+ * through a list of instructions or acquire any locks.  Nested arithmetic
+ * operators pass intermediate results to each other as primitive doubles,
+ * rather than allocating a {@link NumberData} object for every step.
+ * <p>
+ * Scripts that use an unrecognized instruction, or that do not leave
+ * exactly one value on the stack, cannot be compiled.  These continue to
+ * run in the interpreter.
+ */
+class ExpressionTree {
+
+    /** A placeholder indicating that a script could not be compiled. */
+    static final ExpressionTree NOT_COMPILABLE = new ExpressionTree(null);
+
+    private Node root;
+
+    private ExpressionTree(Node root) {
+        this.root = root;
+    }
+
+    /** Evaluate the expression, and push its value onto the given stack. */
+    public void run(Stack stack, ExpressionContext context)
+            throws ExecutionException {
+        root.push(stack, context);
+    }
+
+
+    /**
+     * Compile a list of instructions into a tree.
+     *
+     * @return the compiled tree, or {@link #NOT_COMPILABLE} if the
+     *     instructions cannot be represented as a tree.
+     */
+    static ExpressionTree build(List instructions) {
+        List<Object> stack = new ArrayList<Object>();
+        for (Object instr : instructions) {
+            if (instr instanceof PushConstant) {
+                stack.add(new Constant(((PushConstant) instr).getConstant()));
+
+            } else if (instr instanceof PushObject) {
+                stack.add(new Constant(((PushObject) instr).getValue()));
+
+            } else if (instr instanceof PushVariable) {
+                stack.add(new Variable(((PushVariable) instr).getDataName()));
+
+            } else if (instr == FunctionCall.PUSH_STACK_MARKER) {
+                stack.add(STACK_MARKER);
+
+            } else if (instr instanceof BinaryOperator) {
+                Node right = pop(stack), left = pop(stack);
+                if (left == null || right == null)
+                    return NOT_COMPILABLE;
+                else if (instr instanceof BinaryMathOperator)
+                    stack.add(new MathOperation((BinaryMathOperator) instr,
+                            left, right));
+                else
+                    stack.add(new BinaryOperation((BinaryOperator) instr,
+                            left, right));
+
+            } else if (instr instanceof UnaryOperator) {
+                Node operand = pop(stack);
+                if (operand == null)
+                    return NOT_COMPILABLE;
+                stack.add(new UnaryOperation((UnaryOperator) instr, operand));
+
+            } else if (instr instanceof FunctionCall) {
+                int markerPos = stack.lastIndexOf(STACK_MARKER);
+                if (markerPos == -1)
+                    return NOT_COMPILABLE;
+                List<Object> argList = stack.subList(markerPos + 1,
+                    stack.size());
+                Node[] args = argList.toArray(new Node[argList.size()]);
+                stack.subList(markerPos, stack.size()).clear();
+                stack.add(new Call((FunctionCall) instr, args));
+
+            } else {
+                return NOT_COMPILABLE;
+            }
+        }
+
+        if (stack.size() == 1 && stack.get(0) instanceof Node)
+            return new ExpressionTree((Node) stack.get(0));
+        else
+            return NOT_COMPILABLE;
+    }
+
+    private static Node pop(List<Object> stack) {
+        if (stack.isEmpty())
+            return null;
+        Object result = stack.remove(stack.size() - 1);
+        return (result instanceof Node ? (Node) result : null);
+    }
+
+    private static final Object STACK_MARKER = new Object();
+
+
+
+    private static abstract class Node {
+
+        /** Evaluate this node and return its value. */
+        abstract Object eval(ExpressionContext context)
+                throws ExecutionException;
+
+        /** Evaluate this node and push its value (and descriptor, if it
+         * has one) onto the stack. */
+        void push(Stack stack, ExpressionContext context)
+                throws ExecutionException {
+            stack.push(eval(context));
+        }
+
+    }
+
+
+    private static class Constant extends Node {
+
+        private Object value;
+
+        Constant(Object value) {
+            this.value = value;
+        }
+
+        Object eval(ExpressionContext context) {
+            return value;
+        }
+
+    }
+
+
+    private static class Variable extends Node {
+
+        private String dataName;
+
+        Variable(String dataName) {
+            this.dataName = dataName;
+        }
+
+        Object eval(ExpressionContext context) {
+            return context.get(dataName);
+        }
+
+        void push(Stack stack, ExpressionContext context) {
+            stack.push(context.get(dataName), context.resolveName(dataName));
+        }
+
+    }
+
+
+    private static class Call extends Node {
+
+        private FunctionCall function;
+
+        private Node[] args;
+
+        Call(FunctionCall function, Node[] args) {
+            this.function = function;
+            this.args = args;
+        }
+
+        private Object call(ExpressionContext context)
+                throws ExecutionException {
+            ArrayList arguments = new ArrayList(args.length);
+            for (Node arg : args)
+                arguments.add(arg.eval(context));
+            return function.call(arguments, context);
+        }
+
+        Object eval(ExpressionContext context) throws ExecutionException {
+            Object result = call(context);
+            if (result instanceof Function.DescribedValue)
+                return ((Function.DescribedValue) result).getValue();
+            else
+                return result;
+        }
+
+        void push(Stack stack, ExpressionContext context)
+                throws ExecutionException {
+            Object result = call(context);
+            if (result instanceof Function.DescribedValue)
+                stack.push(((Function.DescribedValue) result).getValue(),
+                    ((Function.DescribedValue) result).getDescriptor());
+            else
+                stack.push(result);
+        }
+
+    }
+
+
+    private static class UnaryOperation extends Node {
+
+        private UnaryOperator operator;
+
+        private Node operand;
+
+        UnaryOperation(UnaryOperator operator, Node operand) {
+            this.operator = operator;
+            this.operand = operand;
+        }
+
+        Object eval(ExpressionContext context) throws ExecutionException {
+            Object value = operand.eval(context);
+            return operator.operate(asSimpleData(value));
+        }
+
+    }
+
+
+    private static class BinaryOperation extends Node {
+
+        private BinaryOperator operator;
+
+        private Node left, right;
+
+        BinaryOperation(BinaryOperator operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        Object eval(ExpressionContext context) throws ExecutionException {
+            Object leftVal = left.eval(context);
+            Object rightVal = right.eval(context);
+            return operator.operate(asSimpleData(leftVal),
+                asSimpleData(rightVal));
+        }
+
+    }
+
+
+    /**
+     * An arithmetic operation.  This follows the same rules as
+     * {@link BinaryMathOperator}, but when an operand is another arithmetic
+     * operation, the intermediate result is passed as a double.
+     * (Intermediate results are always numbers, so the conversion is
+     * lossless: a bad value is NaN, and a divide by zero is infinite.
+     * Finite operands never produce NaN, so the final result can be
+     * boxed back into the same value the interpreter would produce.)
+     */
+    private static class MathOperation extends Node {
+
+        private BinaryMathOperator operator;
+
+        private Node left, right;
+
+        MathOperation(BinaryMathOperator operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        Object eval(ExpressionContext context) throws ExecutionException {
+            double result = evalDouble(context);
+            if (Double.isNaN(result))
+                return ImmutableDoubleData.BAD_VALUE;
+            else if (result == Double.POSITIVE_INFINITY)
+                return ImmutableDoubleData.DIVIDE_BY_ZERO;
+            else
+                return new ImmutableDoubleData(result, false, true);
+        }
+
+        double evalDouble(ExpressionContext context)
+                throws ExecutionException {
+            // Like the interpreter, evaluate the right operand before
+            // checking the type of the left one.
+            double leftVal = 0, rightVal = 0;
+            Object leftObj = null, rightObj = null;
+            if (left instanceof MathOperation)
+                leftVal = ((MathOperation) left).evalDouble(context);
+            else
+                leftObj = left.eval(context);
+            if (right instanceof MathOperation)
+                rightVal = ((MathOperation) right).evalDouble(context);
+            else
+                rightObj = right.eval(context);
+            if (!(left instanceof MathOperation))
+                leftVal = asDouble(leftObj);
+            if (!(right instanceof MathOperation))
+                rightVal = asDouble(rightObj);
+
+            if (Double.isNaN(leftVal) || Double.isNaN(rightVal))
+                return Double.NaN;
+            if (Double.isInfinite(leftVal) || Double.isInfinite(rightVal))
+                return Double.POSITIVE_INFINITY;
+            return operator.calc(leftVal, rightVal);
+        }
+
+        private static double asDouble(Object value)
+                throws ExecutionException {
+            SimpleData data = asSimpleData(value);
+            if (data instanceof NumberData)
+                return ((NumberData) data).getDouble();
+            else
+                return Double.NaN;
+        }
+
+    }
+
+
+    private static SimpleData asSimpleData(Object value)
+            throws ExecutionException {
+        if (value == null || value instanceof SimpleData)
+            return (SimpleData) value;
+        else
+            throw new ExecutionException("ClassCastException");
+    }
+
+}
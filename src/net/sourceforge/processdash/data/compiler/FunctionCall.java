@@ -25,6 +25,7 @@ package net.sourceforge.processdash.data.compiler;
 
 import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
 
 class FunctionCall implements Instruction {
 
@@ -102,10 +103,6 @@ class FunctionCall implements Instruction {
     public void execute(Stack stack, ExpressionContext context)
         throws ExecutionException
     {
-        if (f == null)
-            throw new ExecutionException("No definition for function " +
-                                         functionName);
-
         ArrayList arguments = new ArrayList();
         Object arg = null;
         while (true) {
@@ -121,7 +118,7 @@ class FunctionCall implements Instruction {
             arguments.add(0, arg);
         }
 
-        Object result = f.call(arguments, context);
+        Object result = call(arguments, context);
         if (result instanceof Function.DescribedValue)
             stack.push(((Function.DescribedValue) result).getValue(),
                        ((Function.DescribedValue) result).getDescriptor());
@@ -129,5 +126,17 @@ class FunctionCall implements Instruction {
             stack.push(result);
     }
 
+    /** Invoke the function on a list of arguments that has already been
+     * assembled, and return its result. */
+    Object call(List arguments, ExpressionContext context)
+        throws ExecutionException
+    {
+        if (f == null)
+            throw new ExecutionException("No definition for function " +
+                                         functionName);
+
+        return f.call(arguments, context);
+    }
+
     public String toString() { return functionName; }
 }
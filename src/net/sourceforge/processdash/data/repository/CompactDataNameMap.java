@@ -0,0 +1,384 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * A concurrent map from data names to values, which avoids storing a full
+ * copy of each data name.
+ * <p>
+ * Data names are highly repetitive: a large dataset may contain hundreds of
+ * thousands of names like "/Project/Team/Component/Code/Time", where the
+ * path prefix is shared by dozens of names and the final segment is one of
+ * a small vocabulary of metric names.  This map splits each name after its
+ * final slash, and stores canonical instances of the prefix and the leaf.
+ * Full name strings are only materialized when a caller asks for them.
+ * <p>
+ * The map is an open-addressed hash table held in parallel arrays, so a
+ * probe compares hash codes without dereferencing any objects.  Lookups do
+ * not allocate memory or acquire locks; modifications are synchronized.
+ * Removed entries are left in place with a null value until the next
+ * rehash, so a removal never disturbs a concurrent reader.  The table is
+ * rehashed when most of its slots hold removed entries, which also drops
+ * the canonical segments that no remaining name uses.
+ * <p>
+ * Callers that hold onto a data name can ask for a {@link #canonicalName
+ * canonical instance} of it, so that every holder shares one string.  The
+ * map remembers that instance alongside the name's segments, and a lookup
+ * with that instance matches by reference.
+ */
+class CompactDataNameMap<V> {
+
+    private static class Slots<V> {
+
+        /** The hash code of the name in each slot, or 0 for an empty slot.
+         * A slot's hash is written last, to publish its prefix and leaf. */
+        final AtomicIntegerArray hashes;
+
+        /** The prefix, leaf, value, and canonical full name of each slot.
+         * They are stored side by side, so a probe that finds a match reads
+         * one region of memory rather than separate arrays.  The full name
+         * is null until a caller asks for a canonical instance. */
+        final AtomicReferenceArray<Object> entries;
+
+        final int mask;
+
+        Slots(int length) {
+            hashes = new AtomicIntegerArray(length);
+            entries = new AtomicReferenceArray<Object>(length * 4);
+            mask = length - 1;
+        }
+
+        String prefix(int i) {
+            return (String) entries.get(i * 4);
+        }
+
+        String leaf(int i) {
+            return (String) entries.get(i * 4 + 1);
+        }
+
+        V value(int i) {
+            return (V) entries.get(i * 4 + 2);
+        }
+
+        void setValue(int i, V value) {
+            entries.set(i * 4 + 2, value);
+        }
+
+        String name(int i) {
+            return (String) entries.get(i * 4 + 3);
+        }
+
+        void setName(int i, String name) {
+            entries.set(i * 4 + 3, name);
+        }
+
+        String fullName(int i) {
+            String name = name(i);
+            return (name != null ? name : prefix(i).concat(leaf(i)));
+        }
+
+        boolean matches(int i, String name) {
+            // most callers pass the canonical instance, when one exists
+            if (name(i) == name)
+                return true;
+            String prefix = prefix(i), leaf = leaf(i);
+            int prefixLen = prefix.length();
+            // compare the leaf first, since there are few distinct leaves
+            // and their contents are likely to be cached
+            return name.length() == prefixLen + leaf.length()
+                    && name.startsWith(leaf, prefixLen)
+                    && name.startsWith(prefix);
+        }
+
+        void set(int i, int hash, String prefix, String leaf, String name,
+                V value) {
+            entries.set(i * 4, prefix);
+            entries.set(i * 4 + 1, leaf);
+            entries.set(i * 4 + 2, value);
+            entries.set(i * 4 + 3, name);
+            hashes.set(i, hash);
+        }
+
+    }
+
+
+    private volatile Slots<V> slots;
+
+    /** The number of slots in use, including slots whose value has been
+     * removed. Guarded by this object's monitor. */
+    private int used;
+
+    private AtomicInteger size;
+
+    /** A table of canonical prefix and leaf instances.  It is rebuilt from
+     * the live names whenever the slots are rehashed, so segments that are
+     * no longer used by any name are discarded. */
+    private volatile ConcurrentHashMap<String, String> segments;
+
+
+    public CompactDataNameMap(int capacity) {
+        slots = new Slots<V>(tableSizeFor(capacity));
+        used = 0;
+        size = new AtomicInteger(0);
+        segments = newSegmentTable(capacity);
+    }
+
+
+    /** Return the value associated with a given data name, or null. */
+    public V get(String name) {
+        int h = hash(name);
+        Slots<V> t = slots;
+        for (int i = h & t.mask;; i = (i + 1) & t.mask) {
+            int eh = t.hashes.get(i);
+            if (eh == 0)
+                return null;
+            else if (eh == h && t.matches(i, name))
+                return t.value(i);
+        }
+    }
+
+    public boolean containsKey(String name) {
+        return get(name) != null;
+    }
+
+    /**
+     * Associate a value with a data name, if no value is currently present.
+     *
+     * @return the value that was already present, or null if the new value
+     *         was added
+     */
+    public synchronized V putIfAbsent(String name, V value) {
+        int h = hash(name);
+        Slots<V> t = slots;
+        int i = h & t.mask;
+        for (int eh; (eh = t.hashes.get(i)) != 0; i = (i + 1) & t.mask) {
+            if (eh == h && t.matches(i, name)) {
+                V current = t.value(i);
+                if (current != null)
+                    return current;
+                t.setValue(i, value);
+                size.incrementAndGet();
+                return null;
+            }
+        }
+        int pos = name.lastIndexOf('/') + 1;
+        t.set(i, h, intern(name.substring(0, pos)),
+            intern(name.substring(pos)), null, value);
+        size.incrementAndGet();
+        if (++used * 4 >= t.hashes.length() * 3)
+            rehash();
+        return null;
+    }
+
+    /**
+     * Remove the given data name, if it is currently mapped to value.
+     * 
+     * @return true if a value was removed
+     */
+    public boolean remove(String name, V value) {
+        return removeImpl(name, value) != null;
+    }
+
+    /** Remove the given data name and return the value that was present */
+    public V remove(String name) {
+        return removeImpl(name, null);
+    }
+
+    private synchronized V removeImpl(String name, V value) {
+        int h = hash(name);
+        Slots<V> t = slots;
+        for (int i = h & t.mask;; i = (i + 1) & t.mask) {
+            int eh = t.hashes.get(i);
+            if (eh == 0)
+                return null;
+            if (eh == h && t.matches(i, name)) {
+                V result = t.value(i);
+                if (result == null || (value != null && value != result))
+                    return null;
+                t.setValue(i, null);
+                t.setName(i, null);
+                // compact the table once most of its slots hold removed
+                // names, so their segments can be discarded
+                if (size.decrementAndGet() * 4 < used && used > 64)
+                    rehash();
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Return a canonical instance of a data name in this map.
+     * <p>
+     * The first caller to ask for a given name supplies the canonical
+     * instance, and later callers receive that instance in place of their
+     * equal string.  This lets long-lived holders of a name (listeners,
+     * compiled expressions, and the like) share a single copy of it.
+     *
+     * @return the canonical instance of the name, or the name itself if it
+     *         is not present in this map
+     */
+    public String canonicalName(String name) {
+        int h = hash(name);
+        Slots<V> t = slots;
+        for (int i = h & t.mask;; i = (i + 1) & t.mask) {
+            int eh = t.hashes.get(i);
+            if (eh == 0)
+                return name;
+            if (eh == h && t.matches(i, name)) {
+                if (t.value(i) == null)
+                    return name;
+                if (t.entries.compareAndSet(i * 4 + 3, null, name))
+                    return name;
+                String result = t.name(i);
+                return (result == null ? name : result);
+            }
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public synchronized void clear() {
+        slots = new Slots<V>(slots.hashes.length());
+        used = 0;
+        size.set(0);
+        segments = newSegmentTable(16);
+    }
+
+    /**
+     * Return a snapshot of the names in this map.  The snapshot is safe to
+     * iterate while other threads are modifying the map.
+     */
+    public List<String> keySnapshot() {
+        Slots<V> t = slots;
+        List<String> result = new ArrayList<String>(size() + 16);
+        for (int i = 0; i <= t.mask; i++) {
+            if (t.hashes.get(i) != 0 && t.value(i) != null)
+                result.add(t.fullName(i));
+        }
+        return result;
+    }
+
+    /**
+     * Return a snapshot of the names in this map whose final segment (the
+     * portion after the last slash) equals the given leaf.  Since leaves are
+     * canonicalized, this compares references and materializes only the
+     * matching names.
+     */
+    public List<String> keySnapshot(String leaf) {
+        String canonicalLeaf = segments.get(leaf);
+        if (canonicalLeaf == null)
+            return new ArrayList<String>();
+
+        Slots<V> t = slots;
+        List<String> result = new ArrayList<String>();
+        for (int i = 0; i <= t.mask; i++) {
+            if (t.hashes.get(i) != 0 && t.leaf(i) == canonicalLeaf
+                    && t.value(i) != null)
+                result.add(t.fullName(i));
+        }
+        return result;
+    }
+
+    /** Return a snapshot of the values in this map. */
+    public List<V> valueSnapshot() {
+        Slots<V> t = slots;
+        List<V> result = new ArrayList<V>(size() + 16);
+        for (int i = 0; i <= t.mask; i++) {
+            V value = t.value(i);
+            if (value != null)
+                result.add(value);
+        }
+        return result;
+    }
+
+    /**
+     * Return the canonical instance of a name segment.  The prefix and leaf
+     * of every name in this map are canonicalized with this method.
+     */
+    public String intern(String segment) {
+        String result = segments.putIfAbsent(segment, segment);
+        return (result == null ? segment : result);
+    }
+
+    private void rehash() {
+        Slots<V> old = slots;
+        int newSize = size.get();
+        Slots<V> t = new Slots<V>(tableSizeFor(newSize * 3 / 2 + 2));
+        ConcurrentHashMap<String, String> newSegments =
+            newSegmentTable(newSize);
+        int count = 0;
+        for (int j = 0; j <= old.mask; j++) {
+            V value = old.value(j);
+            if (value != null) {
+                int h = old.hashes.get(j);
+                int i = h & t.mask;
+                while (t.hashes.get(i) != 0)
+                    i = (i + 1) & t.mask;
+                String prefix = old.prefix(j), leaf = old.leaf(j);
+                t.set(i, h, prefix, leaf, old.name(j), value);
+                newSegments.put(prefix, prefix);
+                newSegments.put(leaf, leaf);
+                count++;
+            }
+        }
+        used = count;
+        slots = t;
+        segments = newSegments;
+    }
+
+    private static ConcurrentHashMap<String, String> newSegmentTable(
+            int capacity) {
+        return new ConcurrentHashMap<String, String>(
+                Math.max(16, capacity / 8), 0.75f, 16);
+    }
+
+    private static int hash(String name) {
+        // spread the bits, since similar names would otherwise produce long
+        // runs of adjacent hash codes in our linear-probed table
+        int h = name.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        // reserve zero to mark empty slots
+        return (h == 0 ? 1 : h);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = 16;
+        while (n < capacity * 4 / 3 + 1)
+            n <<= 1;
+        return n;
+    }
+
+}
@@ -114,7 +114,6 @@ public class CompiledFunction implements SaveableData, AliasedData,
             return; // break out of infinite loops.
         }
 
-        SimpleData oldValue = value;
         SimpleData newValue = null;
         String newAlias = null;
         SubscribingExpressionContext context = null;
@@ -161,19 +160,10 @@ public class CompiledFunction implements SaveableData, AliasedData,
         context.removeOldSubscriptions();
         currentSubscriptions.trimToSize();
 
-        if (oldValue != VALUE_NEVER_QUERIED && !eq(oldValue, value))
-            data.valueRecalculated(name, this);
-
-    }
-
-    private boolean eq(SimpleData a, SimpleData b) {
-        if (a == b)
-            return true;
-        if (a == null || b == null)
-            return false;
-        return (a.isEditable() == b.isEditable()
-                && a.isDefined() == b.isDefined()
-                && a.equals(b));
+        // Note that we do not announce our new value here.  Our listeners
+        // were notified when we became dirty, as part of the same batch of
+        // changes that reached us.  A second notification would cause any
+        // values that depend on ours to be calculated twice.
     }
 
     public void dataValueChanged(DataEvent e) {
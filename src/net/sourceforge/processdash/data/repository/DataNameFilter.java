@@ -29,6 +29,20 @@ public interface DataNameFilter {
         public boolean acceptPrefixLocalName(String prefix, String localName);
     }
 
+    /**
+     * A filter which only accepts data names whose final segment (the
+     * portion after the last slash) has a particular value.  Repository
+     * listeners implementing this interface are located and notified
+     * through an index, rather than by scanning the repository.
+     *
+     * @since 2.7.6
+     */
+    public interface LeafName extends PrefixLocal {
+        /** @return the final segment of all accepted data names, or null if
+         *     this filter does not currently require a particular leaf */
+        public String getLeafName();
+    }
+
     public interface ExplicitOnly extends DataNameFilter {}
 
     public Object EXPLICIT_ONLY = new ExplicitOnly() {};
@@ -0,0 +1,219 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * An index of data names by their final segment, or "leaf."
+ * <p>
+ * Many repository listeners (most notably the {@link SearchFunction}s that
+ * implement <code>[Search]</code> lists) are only interested in data names
+ * that end with a particular tag.  Finding those names by scanning the
+ * repository is expensive, and is repeated for every search function that
+ * is created.  This index records the matching names the first time a leaf
+ * is requested, then keeps that list current as names are added and
+ * removed.  Listeners that implement {@link DataNameFilter.LeafName} are
+ * also registered here instead of in the {@link PrefixHierarchy}, so they
+ * only hear about the names they are looking for.
+ * <p>
+ * Only leaves that have been requested are indexed, so the index does not
+ * hold a copy of every name in the repository.
+ */
+class DataNameIndex {
+
+    /** The map of data elements in the repository */
+    private CompactDataNameMap<?> data;
+
+    /** The explicit data names that end with each requested leaf */
+    private Map<String, Set<String>> namesByLeaf;
+
+    /** For each map of inherited definitions, the definitions whose local
+     * names end with each requested leaf */
+    private Map<Map, Map<String, List<Map.Entry>>> definitionsByLeaf;
+
+    /** Listeners registered for each leaf.  These arrays are replaced (never
+     * modified) when listeners are added or removed, so events can be
+     * dispatched without holding a lock. */
+    private Map<String, Registration[]> listenersByLeaf;
+
+
+    public DataNameIndex(CompactDataNameMap<?> data) {
+        this.data = data;
+        this.namesByLeaf = new HashMap<String, Set<String>>();
+        this.definitionsByLeaf =
+            new IdentityHashMap<Map, Map<String, List<Map.Entry>>>();
+        this.listenersByLeaf = new HashMap<String, Registration[]>();
+    }
+
+
+    /** Return the portion of a data name after its last slash.  For a name
+     * with no slash, this is the entire name. */
+    public static String getLeafName(String dataName) {
+        return dataName.substring(dataName.lastIndexOf('/') + 1);
+    }
+
+
+    /** Record the fact that a name has been added to the data map */
+    public synchronized void nameAdded(String dataName) {
+        Set<String> names = namesByLeaf.get(getLeafName(dataName));
+        if (names != null)
+            names.add(dataName);
+    }
+
+    /** Record the fact that a name has been removed from the data map */
+    public synchronized void nameRemoved(String dataName) {
+        Set<String> names = namesByLeaf.get(getLeafName(dataName));
+        if (names != null)
+            names.remove(dataName);
+    }
+
+    /**
+     * Return the names in the data map that end with the given leaf.
+     */
+    public synchronized List<String> getNames(String leaf) {
+        Set<String> names = namesByLeaf.get(leaf);
+        if (names == null) {
+            // Build the list while holding our lock.  Callers update the
+            // data map before informing us of a change, so any change made
+            // after this snapshot will reach the new set.
+            names = new HashSet<String>(data.keySnapshot(leaf));
+            namesByLeaf.put(leaf, names);
+        }
+        return new ArrayList<String>(names);
+    }
+
+    /**
+     * Return the entries in a map of inherited definitions whose local names
+     * end with the given leaf.
+     * <p>
+     * Maps of inherited definitions are immutable and shared by every
+     * datafile that includes the same template, so the result for each map
+     * is only computed once.
+     */
+    public synchronized List<Map.Entry> getDefinitions(Map definitions,
+            String leaf) {
+        Map<String, List<Map.Entry>> byLeaf = definitionsByLeaf
+                .get(definitions);
+        if (byLeaf == null) {
+            byLeaf = new HashMap<String, List<Map.Entry>>();
+            definitionsByLeaf.put(definitions, byLeaf);
+        }
+        List<Map.Entry> result = byLeaf.get(leaf);
+        if (result == null) {
+            result = new ArrayList<Map.Entry>();
+            for (Iterator i = definitions.entrySet().iterator(); i.hasNext();) {
+                Map.Entry e = (Map.Entry) i.next();
+                if (leaf.equals(getLeafName((String) e.getKey())))
+                    result.add(e);
+            }
+            if (result.isEmpty())
+                result = Collections.EMPTY_LIST;
+            byLeaf.put(leaf, result);
+        }
+        return result;
+    }
+
+
+    /**
+     * Register a listener for names that begin with the given prefix and end
+     * with the given leaf.
+     */
+    public synchronized void addListener(RepositoryListener rl, String prefix,
+            String leaf) {
+        Registration[] old = listenersByLeaf.get(leaf);
+        int len = (old == null ? 0 : old.length);
+        Registration[] listeners = new Registration[len + 1];
+        if (old != null)
+            System.arraycopy(old, 0, listeners, 0, len);
+        listeners[len] = new Registration(rl, prefix == null ? "" : prefix);
+        listenersByLeaf.put(leaf, listeners);
+    }
+
+    /** Remove a listener from all of the leaves it was registered for. */
+    public synchronized void removeListener(RepositoryListener rl) {
+        for (Iterator<Map.Entry<String, Registration[]>> i = listenersByLeaf
+                .entrySet().iterator(); i.hasNext();) {
+            Map.Entry<String, Registration[]> e = i.next();
+            List<Registration> remaining = new ArrayList<Registration>();
+            for (Registration r : e.getValue())
+                if (r.listener != rl)
+                    remaining.add(r);
+
+            if (remaining.isEmpty())
+                i.remove();
+            else if (remaining.size() < e.getValue().length)
+                e.setValue(remaining.toArray(new Registration[remaining
+                        .size()]));
+        }
+    }
+
+    public void dispatchAdded(String dataName) {
+        dispatch(true, dataName);
+    }
+
+    public void dispatchRemoved(String dataName) {
+        dispatch(false, dataName);
+    }
+
+    private void dispatch(boolean added, String dataName) {
+        Registration[] listeners;
+        synchronized (this) {
+            if (listenersByLeaf.isEmpty())
+                return;
+            listeners = listenersByLeaf.get(getLeafName(dataName));
+        }
+        if (listeners == null)
+            return;
+
+        for (Registration r : listeners) {
+            if (dataName.startsWith(r.prefix)) {
+                if (added)
+                    r.listener.dataAdded(dataName);
+                else
+                    r.listener.dataRemoved(dataName);
+            }
+        }
+    }
+
+    private static class Registration {
+        RepositoryListener listener;
+        String prefix;
+
+        Registration(RepositoryListener listener, String prefix) {
+            this.listener = listener;
+            this.prefix = prefix;
+        }
+    }
+
+}
@@ -58,20 +58,27 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.Vector;
 import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -118,6 +125,7 @@ import net.sourceforge.processdash.util.CppFilterReader;
 import net.sourceforge.processdash.util.EscapeString;
 import net.sourceforge.processdash.util.HashTree;
 import net.sourceforge.processdash.util.PatternList;
+import net.sourceforge.processdash.util.PatternListIndex;
 import net.sourceforge.processdash.util.RobustFileOutputStream;
 import net.sourceforge.processdash.util.ThreadThrottler;
 
@@ -132,9 +140,18 @@ public class DataRepository implements Repository, DataContext,
 
     public static final String anonymousPrefix = "///Anonymous";
 
-    /** a mapping of data names (Strings) to data values (DataElements) */
-    Hashtable<String, DataElement> data = new Hashtable(8000);
-//    HashTree data = new HashTree(8000);
+    /** a mapping of data names (Strings) to data values (DataElements).
+     * 
+     * This map is consulted on every data lookup, from many threads at once
+     * (web report handlers, the data notifier, the janitor, etc). A
+     * concurrent map is used so lookups never block; operations that need
+     * a picture of the full key set take a snapshot of the keys, which is
+     * safe to iterate while other threads are adding and removing elements.
+     * The map stores names in prefix-shared form, so the repository does
+     * not hold a full copy of every data name, except for the canonical
+     * instances handed out by {@link #createDataName(String, String)}. */
+    CompactDataNameMap<DataElement> data =
+        new CompactDataNameMap<DataElement>(8000);
 
     /** a backwards mapping of the above hashtable for data values that happen
      *  to be DataListeners.  key is a DataListener, value is a String. */
@@ -146,6 +163,10 @@ public class DataRepository implements Repository, DataContext,
 
     PrefixHierarchy repositoryListenerList = new PrefixHierarchy();
 
+    /** An index of data names by leaf, and the repository listeners that
+     * are looking for particular leaves */
+    DataNameIndex dataNameIndex = new DataNameIndex(data);
+
     Vector datafiles = new Vector();
     HashTree datafilePrefixMap = new HashTree();
     boolean bundleQualifiersEnabled = false;
@@ -201,12 +222,54 @@ public class DataRepository implements Repository, DataContext,
         boolean isImported = false;
         volatile int dirtyCount;
 
+        /** The elements whose datafile is this object.  This is maintained
+         * by {@link DataElement#setDatafile(DataFile)}. */
+        Set<DataElement> elements;
+
+        /** The elements that have changed since this file was last saved, or
+         * null if changes have been made which require the entire file to be
+         * rewritten.  This starts out null, so the first save after a file is
+         * opened will compact any journal written by an earlier session.
+         * Guarded by the changedElementsLock. */
+        private Set<DataElement> changedElements;
+        private final Object changedElementsLock = new Object();
+
+        /** The number of lines that have been appended to the file since it
+         * was last written in full.  Guarded by this object's monitor. */
+        int journalLength;
+
         public DataFile(String prefix, File file) {
             this.prefix = prefix;
             this.file = file;
             this.fileTimestamp = (file == null ? 0 : file.lastModified());
             this.canWrite = (file == null ? false : file.canWrite());
             this.dirtyCount = 0;
+            this.elements = Collections.newSetFromMap(
+                new ConcurrentHashMap<DataElement, Boolean>());
+            this.changedElements = null;
+            this.journalLength = 0;
+        }
+
+        /** Record a change to an element that belongs (or used to belong) to
+         * this datafile.  A null element indicates a change that can only be
+         * saved by rewriting the entire file. */
+        void recordChange(DataElement element) {
+            synchronized (changedElementsLock) {
+                if (element == null)
+                    changedElements = null;
+                else if (changedElements != null)
+                    changedElements.add(element);
+            }
+        }
+
+        /** Return the changes recorded since the last call to this method,
+         * or null if the entire file must be rewritten. */
+        Set<DataElement> takeChanges() {
+            synchronized (changedElementsLock) {
+                Set<DataElement> result = changedElements;
+                changedElements = new HashSet<DataElement>();
+                return result;
+            }
         }
 
         public void invalidate() {
@@ -224,8 +287,10 @@ public class DataRepository implements Repository, DataContext,
     /** The DataElement class tracks the state of a single piece of data. */
     private class DataElement {
 
-        /** The name of this element */
-        private String name;
+        /** The name of this element, split into a prefix (including the
+         * final slash) and a leaf.  Both strings are canonical instances
+         * shared with other elements. */
+        private String prefix, leaf;
 
         /** True if the name of this element matches the name of a default
          * value inherited by our {@link DataFile}.
@@ -248,7 +313,8 @@ public class DataRepository implements Repository, DataContext,
         /** The datafile to which this element should be saved.
          * 
          * If this value is null, the element will not be saved out to any
-         * datafile.
+         * datafile.  This field should only be changed by calling
+         * {@link #setDatafile(DataFile)}.
          */
         DataFile datafile = null;
 
@@ -279,13 +345,38 @@ public class DataRepository implements Repository, DataContext,
 
         /** Create a new data element */
         public DataElement(DataFile datafile, String name, boolean isDefaultName) {
-            this.datafile = datafile;
-            this.name = name;
+            setDatafile(datafile);
+            int pos = name.lastIndexOf('/') + 1;
+            this.prefix = data.intern(name.substring(0, pos));
+            this.leaf = data.intern(name.substring(pos));
             this.isDefaultName = isDefaultName;
             this.timestamp = currentGeneration;
             this.disposalLockCount = 0;
         }
 
+        public String getName() {
+            return prefix.concat(leaf);
+        }
+
+        /** @return true if this element has the given name.  Unlike
+         * comparing to {@link #getName()}, this does not build a string. */
+        public boolean hasName(String name) {
+            return name.length() == prefix.length() + leaf.length()
+                    && name.startsWith(prefix) && name.endsWith(leaf);
+        }
+
+        /** Change the datafile this element belongs to, and update the
+         * element sets of the old and new datafiles. */
+        public synchronized void setDatafile(DataFile f) {
+            if (datafile == f)
+                return;
+            if (datafile != null)
+                datafile.elements.remove(this);
+            datafile = f;
+            if (f != null)
+                f.elements.add(this);
+        }
+
         public boolean isDefaultName() {
             return isDefaultName;
         }
@@ -355,7 +446,7 @@ public class DataRepository implements Repository, DataContext,
                 if (dataListeners == null || dataListeners.remove(dl) == false)
                     return;
             }
-            maybeDelete(name, this, true);
+            maybeDelete(null, this, true);
         }
 
         public void removeDataListeners(Set listenersToRemove) {
@@ -364,7 +455,7 @@ public class DataRepository implements Repository, DataContext,
                         || dataListeners.removeAll(listenersToRemove) == false)
                     return;
             }
-            maybeDelete(name, this, true);
+            maybeDelete(null, this, true);
         }
 
         public boolean hasListeners() {
@@ -383,32 +474,35 @@ public class DataRepository implements Repository, DataContext,
 
     private class DataNotifier extends Thread {
 
-        /** A list of the notifications we need to perform.
-         *
-         * the <B>keys</B> in the hashtable are DataListeners that need to be
-         * notified of changes in data.
+        /** The data elements that have changed since the last batch of
+         * notifications was assembled.
          *
-         * the <b>values</b> are separate hashtables.  The keys of these
-         * subhashtables name data elements that have changed, which the
-         * listener is interested in.  The values in these subhashtables
-         * are the named DataElements.
+         * The <b>keys</b> in the map are the names of changed elements, and
+         * the <b>values</b> are the DataElements themselves.  Repeated
+         * changes to a single element between batches are coalesced into a
+         * single entry.  Guarded by this object's monitor.
          */
-        Hashtable notifications = null;
+        private Map<String, DataElement> pendingChanges;
 
-        /** A list of active listeners.  (An active listener is one that is going
-         * to perform a recalculation as soon as it is notified of a data change.
-         * That recalculation will probably trigger other data notifications.)
-         *
-         * The <b>keys</b> in the hashtable are the names of the data elements
-         * which will be recalculated when we notify the DataListener which
-         * is stored as the <b>value</b> in the hashtable.
-         *
-         * This data structure is basically a backward mapping of the
-         * DataRepository's <code>activeData</code> structure, for only those
-         * DataListeners which appear in the <code>notifications</code> list
-         * above.
+        /** The dependency graph for the batch of notifications currently
+         * being delivered, or null if no batch is in progress.  Guarded by
+         * this object's monitor once the batch begins delivery.
          */
-        Hashtable activeListeners = null;
+        private DependencyGraph<DataElement> currentBatch;
+
+        /** True while this thread is assembling or delivering a batch */
+        private boolean busy = false;
+
+        /** True while this thread is waiting for changes to arrive */
+        private boolean idle = false;
+
+        /** The name of the calculated element whose active listener is
+         * currently being notified by this thread.  When that listener
+         * reacts by announcing a change to its own value, we can ignore the
+         * announcement: the current batch already includes the listeners
+         * that depend on that value.
+         */
+        private String currentlyNotifying;
 
         /**
          * A collection of objects that are listening for changes to any data
@@ -419,18 +513,24 @@ public class DataRepository implements Repository, DataContext,
          */
         List<Object> patternedListeners;
 
+        /**
+         * A compiled index of the patterned listeners.  This is rebuilt
+         * whenever a patterned listener is added or removed, so data change
+         * events can be dispatched without holding a lock or testing every
+         * pattern.
+         */
+        volatile PatternListIndex<DataListener> patternIndex;
+
         /** a list of misbehaved data which appears to be circularly defined. */
         Set circularData;
 
-        private volatile boolean suspended = false;
-
         private volatile boolean running = true;
 
         public DataNotifier() {
             super("DataNotifier");
-            notifications = new Hashtable();
-            activeListeners = new Hashtable();
+            pendingChanges = new LinkedHashMap<String, DataElement>();
             patternedListeners = new ArrayList();
+            rebuildPatternIndex();
             circularData = Collections.synchronizedSet(new HashSet());
             setPriority(MIN_PRIORITY);
             setDaemon(true);
@@ -441,6 +541,7 @@ public class DataRepository implements Repository, DataContext,
             synchronized (patternedListeners) {
                 patternedListeners.add(p);
                 patternedListeners.add(dl);
+                rebuildPatternIndex();
             }
         }
 
@@ -450,218 +551,211 @@ public class DataRepository implements Repository, DataContext,
                     if (patternedListeners.get(i) == p
                             && patternedListeners.get(i + 1) == dl) {
                         patternedListeners.subList(i, i + 2).clear();
+                        rebuildPatternIndex();
                         break;
                     }
                 }
             }
         }
 
-//      public void highPriority() {
-//        setPriority(NORM_PRIORITY);
-//      }
-//      public void lowPriority()  {
-//        setPriority((MIN_PRIORITY + NORM_PRIORITY)/2);
-//      }
+        private void rebuildPatternIndex() {
+            List<PatternList> patterns = new ArrayList<PatternList>();
+            List<DataListener> listeners = new ArrayList<DataListener>();
+            for (int i = 0; i < patternedListeners.size(); i += 2) {
+                patterns.add((PatternList) patternedListeners.get(i));
+                listeners.add((DataListener) patternedListeners.get(i + 1));
+            }
+            patternIndex = new PatternListIndex<DataListener>(patterns,
+                    listeners);
+        }
 
-        /** Determine all the notifications that will need to be made as
-         * a result of a change to given <code>DataElement</code> with
-         * the given <code>name</code>, and add those notifications to
-         * our internal data structures.
+        /** Record the fact that the given <code>DataElement</code> with
+         * the given <code>name</code> has changed.  Its listeners (and the
+         * listeners of any values calculated from it) will be notified as
+         * part of the next batch.
          */
         public void dataChanged(String name, DataElement d) {
             if (name == null || circularData.contains(name)) return;
+            if (Thread.currentThread() == this
+                    && name.equals(currentlyNotifying)) return;
             if (d == null) d = (DataElement) data.get(name);
             if (d == null) return;
 
-            List dataListenerList = d.dataListeners;
-
-            boolean isOriginalList = true;
-            synchronized (patternedListeners) {
-                for (int i = 0; i < patternedListeners.size(); i += 2) {
-                    PatternList p = (PatternList) patternedListeners.get(i);
-                    if (p.matches(name)) {
-                        if (isOriginalList) {
-                            List modifiableList = new ArrayList();
-                            if (dataListenerList != null)
-                                modifiableList.addAll(dataListenerList);
-                            dataListenerList = modifiableList;
-                            isOriginalList = false;
-                        }
-                        dataListenerList.add(patternedListeners.get(i + 1));
-                    }
-                }
-            }
-
-            if (dataListenerList == null || dataListenerList.isEmpty())
-                return;
-
-            for (int i = dataListenerList.size();  i-- > 0; ) try {
-                DataListener dl = (DataListener) dataListenerList.get(i);
-                if (dataListenersForDeferredRemoval.contains(dl))
-                    continue;
-
-                String listenerName = (String) activeData.get(dl);
-                boolean notifyActiveListener = (listenerName != null
-                        && activeListeners.put(listenerName, dl) == null);
-
-                getElementsForDataListener(dl).put(name, d);
-                if (notifyActiveListener)
-                    dataChanged(listenerName, null);
-            } catch (IndexOutOfBoundsException ie) {
-                // Someone has been messing with dataListenerList while we're
-                // iterating through it. No matter...the worst that can happen
-                // is that we will notify someone who doesn't care anymore, and
-                // that is harmless.
-            }
-
-            if (suspended) synchronized (this) { notify(); }
-        }
-
-        private Hashtable getElementsForDataListener(DataListener dl) {
-            Hashtable elements = null;
-            synchronized (notifications) {
-                elements = ((Hashtable) notifications.get(dl));
-                if (elements == null) {
-                    notifications.put(dl, elements = new Hashtable(2));
-                }
+            synchronized (this) {
+                pendingChanges.put(name, d);
+                if (idle) notifyAll();
             }
-            return elements;
         }
 
+        /** Immediately send one data listener an event about one element,
+         * on the calling thread. */
         public void addEvent(String name, DataElement d, DataListener dl) {
             if (name == null || dl == null) return;
-
-            String listenerName = (String) activeData.get(dl);
-            if (listenerName != null)
-                activeListeners.put(listenerName, dl);
-
-            getElementsForDataListener(dl).put(name, d);
-
-            fireEvent(dl);
+            deliverEvents(dl, Collections.singletonMap(name, d));
         }
 
         public void removeDataListener(String name, DataListener dl) {
-            Hashtable h = (Hashtable) notifications.get(dl);
-            if (h != null)
-                h.remove(name);
+            synchronized (this) {
+                if (currentBatch != null) {
+                    Map elements = currentBatch.getEvents(dl);
+                    if (elements != null)
+                        elements.remove(name);
+                }
+            }
         }
 
         public void deleteDataListener(DataListener dl) {
-            notifications.remove(dl);
-            String listenerName = (String) activeData.get(dl);
-            if (listenerName != null)
-                activeListeners.remove(listenerName);
+            synchronized (this) {
+                if (currentBatch != null)
+                    currentBatch.removeEvents(dl);
+            }
         }
 
-        /** Send one data listener a data changed event, indicating all of
-         * the items they are listening to that have changed.
-         * 
-         * @param dl the listener to notify.
+        /** Collect the pending changes, and notify all of the listeners
+         * affected by them.
+         *
+         * Each affected listener is notified exactly once, and active
+         * listeners are notified before any listeners that depend on the
+         * values they calculate.
+         *
+         * @return false if there were no pending changes
          */
-        private void fireEvent(DataListener dl) {
-            if (dl == null) return;
-
-            Hashtable elements = ((Hashtable) notifications.get(dl));
-            if (elements == null) return;
-
-            String listenerName = (String) activeData.get(dl);
-            if (listenerName != null && circularData.contains(listenerName)) {
-                notifications.remove(dl);
-                return;
+        private boolean processBatch() {
+            Map<String, DataElement> changes;
+            synchronized (this) {
+                if (pendingChanges.isEmpty())
+                    return false;
+                changes = pendingChanges;
+                pendingChanges = new LinkedHashMap<String, DataElement>();
+                busy = true;
             }
 
-            synchronized (elements) {
-                if (notifications.get(dl) == null) return;
+            try {
+                DependencyGraph<DataElement> graph = buildGraph(changes);
+                Set<String> circularNames = new HashSet<String>();
+                List<DataListener> order = graph.sort(circularNames);
+                for (String name : circularNames) {
+                    // circular dependencies between active data listeners
+                    // exist. Break the circular dependency and abort.
+                    logger.log(Level.WARNING, "Infinite recursion "
+                            + "encountered while recalculating {0} "
+                            + "- ABORTING", name);
+                    circularData.add(name);
+                }
 
-                Thread t = (Thread) elements.get(CIRCULARITY_TOKEN);
+                synchronized (this) {
+                    currentBatch = graph;
+                }
+                for (DataListener dl : order) {
+                    String listenerName = (String) activeData.get(dl);
+                    if (listenerName != null
+                            && circularData.contains(listenerName))
+                        continue;
 
-                if (t != null) {
-                    if (t != Thread.currentThread()) {
-                        //System.out.println("waiting for other thread...");
-                        try { elements.wait(1000); } catch (InterruptedException ie) {}
-                        //System.out.println("waiting done.");
-                        return;
-                    } else {
-                        // circular dependencies between active data listeners
-                        // exist. Break the circular dependency and abort.
-                        if (listenerName != null) {
-                            logger.log(Level.WARNING, "Infinite recursion "
-                                      + "encountered while recalculating {0} "
-                                      + "- ABORTING", listenerName);
-                            circularData.add(listenerName);
-                        }
-                        return;
+                    Map<String, DataElement> elements;
+                    synchronized (this) {
+                        elements = graph.removeEvents(dl);
+                    }
+                    if (elements == null || elements.isEmpty())
+                        continue;
+
+                    currentlyNotifying = listenerName;
+                    try {
+                        deliverEvents(dl, elements);
+                    } finally {
+                        currentlyNotifying = null;
                     }
                 }
 
-                // record the fact that we are the thread currently handling this
-                // element notification list
-                elements.put(CIRCULARITY_TOKEN, Thread.currentThread());
+            } finally {
+                synchronized (this) {
+                    currentBatch = null;
+                    busy = false;
+                    // wake any threads that are waiting in flush()
+                    notifyAll();
+                }
             }
+            return true;
+        }
 
-            try {                 // run through the elements to see if any are
-                                  // also expected to change, and do those first.
-                for (Iterator i = elements.keySet().iterator(); i.hasNext();) {
-                    String name = (String) i.next();
-                    if (name == CIRCULARITY_TOKEN) continue;
-                    DataListener activeListener =
-                        (DataListener) activeListeners.get(name);
-                    if (activeListener != null)
-                        fireEvent(activeListener);
-                }
-            } catch (ConcurrentModificationException cme) {
-                // The loop above is designed to optimize the event delivery
-                // process. It attempts impose minimal overhead by iterating
-                // over the list of elements directly instead of making a copy.
-                // That opens the door to the slight possibility of a
-                // ConcurrentModificationException.  If one occurs, just proceed
-                // without optimizing the delivery of this particular event.
-                logger.log(Level.FINEST, "Caught cme while optimizing event "
-                          + "delivery for {0}", listenerName);
-            } finally {
-                Hashtable currentElements;
-                synchronized (notifications) {
-                    currentElements = (Hashtable) notifications.remove(dl);
-                    if (currentElements != elements && currentElements != null) {
-                        // Eeek!  While we've been doing the work above, someone
-                        // changed the notifications map behind our back, and
-                        // replaced the element list with a different one. (I'm
-                        // not sure if this can ever happen, but it doesn't hurt
-                        // to be paranoid.)  Undo the damage.
-                        notifications.put(dl, currentElements);
+        /** Build a graph of the listeners affected by a set of changes,
+         * following active listeners to the listeners of the values that
+         * they calculate. */
+        private DependencyGraph<DataElement> buildGraph(
+                Map<String, DataElement> changes) {
+            DependencyGraph<DataElement> graph =
+                new DependencyGraph<DataElement>();
+            List<String> names = new ArrayList<String>(changes.keySet());
+            List<DataElement> elements =
+                new ArrayList<DataElement>(changes.values());
+            for (String name : names)
+                graph.addChangedElement(name);
+
+            for (int i = 0; i < names.size(); i++) {
+                String name = names.get(i);
+                DataElement d = elements.get(i);
+                for (DataListener dl : getListeners(name, d)) {
+                    if (dataListenersForDeferredRemoval.contains(dl))
+                        continue;
+                    graph.addEvent(dl, name, d);
+
+                    String listenerName = (String) activeData.get(dl);
+                    if (listenerName == null
+                            || circularData.contains(listenerName))
+                        continue;
+                    graph.addProducer(listenerName, dl);
+                    if (graph.addChangedElement(listenerName)) {
+                        DataElement ld = (DataElement) data.get(listenerName);
+                        if (ld != null) {
+                            names.add(listenerName);
+                            elements.add(ld);
+                        }
                     }
                 }
-                elements.remove(CIRCULARITY_TOKEN);
-                if (listenerName != null)
-                    activeListeners.remove(listenerName);
-                if (currentElements == null) {
-                    // this is an indication that the data listener in question
-                    // has apparently been deleted in the time since we started
-                    // this method.  We can skip the task of delivering events.
-                    return;
-                }
             }
+            return graph;
+        }
+
+        /** Return the listeners that are interested in a particular
+         * element, including listeners registered via patterns. */
+        private List<DataListener> getListeners(String name, DataElement d) {
+            List<DataListener> result = new ArrayList<DataListener>();
+            Vector dataListenerList = d.dataListeners;
+            if (dataListenerList != null)
+                for (Object dl : dataListenerList.toArray())
+                    result.add((DataListener) dl);
+
+            PatternListIndex<DataListener> index = patternIndex;
+            if (index.size() > 0)
+                result.addAll(index.getMatches(name));
+            return result;
+        }
 
+        /** Send one data listener a data changed event, indicating all of
+         * the items they are listening to that have changed.
+         *
+         * @param dl the listener to notify.
+         * @param elements the changed elements, keyed by name
+         */
+        private void deliverEvents(DataListener dl,
+                Map<String, DataElement> elements) {
             try {
-                // Now, send the data changed event to this data listener.
                 if (elements.size() == 1) {
                     // if there is only one changed element, we can use the
                     // singular form of the data notification method, and avoid
                     // creating a Vector object.
-                    Map.Entry e = (Map.Entry) elements.entrySet().iterator().next();
-                    String name = (String) e.getKey();
-                    DataElement d = (DataElement) e.getValue();
-                    dl.dataValueChanged(d.getDataChangedEvent(name));
+                    Map.Entry<String, DataElement> e =
+                        elements.entrySet().iterator().next();
+                    dl.dataValueChanged(e.getValue().getDataChangedEvent(
+                        e.getKey()));
                 } else if (elements.size() > 1) {
                     // Build a list of data events to send
                     Vector dataEvents = new Vector();
-                    for (Iterator i = elements.entrySet().iterator(); i.hasNext();) {
-                        Map.Entry e = (Map.Entry) i.next();
-                        String name = (String) e.getKey();
-                        DataElement d = (DataElement) e.getValue();
-                        dataEvents.addElement(d.getDataChangedEvent(name));
-                        dl.dataValuesChanged(dataEvents);
-                    }
+                    for (Map.Entry<String, DataElement> e : elements
+                            .entrySet())
+                        dataEvents.addElement(e.getValue()
+                                .getDataChangedEvent(e.getKey()));
+                    dl.dataValuesChanged(dataEvents);
                 }
             } catch (RemoteException rem) {
                 logger.log(Level.WARNING,
@@ -672,56 +766,44 @@ public class DataRepository implements Repository, DataContext,
                 // it has unregistered for those changes.  Such mistakes can happen
                 // due to multithreading, but no harm is done as long as the
                 // exception is caught here.
-            } finally {
-                // notify other threads that might have seen our CIRCULARITY
-                // TOKEN and are waiting for us to finish.
-                synchronized (elements) { elements.notifyAll(); }
-            }
-        }
-
-        private boolean fireEvent() {
-            if (!notifications.isEmpty()) {
-                try {
-                    fireEvent((DataListener) notifications.keys().nextElement());
-                    return true;
-                } catch (java.util.NoSuchElementException e) {
-                }
             }
-            return false;
         }
 
         public void run() {
             while (running) try {
-                if (fireEvent() == false)
+                if (processBatch() == false)
                     doWait();
             } catch (Exception e) {}
         }
 
         private synchronized void doWait() {
-            suspended = true;
+            if (!pendingChanges.isEmpty())
+                return;
+            idle = true;
             try { wait(); } catch (InterruptedException i) {}
-            suspended = false;
+            idle = false;
         }
 
+        /** Wait for all pending notifications to be delivered.
+         *
+         * @return false if no notifications were pending
+         */
         public boolean flush() {
-            if (notifications.isEmpty())
+            // the notifier thread can't wait for itself to finish.
+            if (Thread.currentThread() == this)
                 return false;
 
-            boolean done = false;
-            do {
-                if (!done) {
-                    synchronized (this) {
-                        this.notifyAll();
-                    }
+            synchronized (this) {
+                if (!busy && pendingChanges.isEmpty())
+                    return false;
+
+                while (running && (busy || !pendingChanges.isEmpty())) {
+                    notifyAll();
                     try {
-                        Thread.sleep(20);
+                        wait(1000);
                     } catch (InterruptedException ie) {}
                 }
-
-                done = notifications.isEmpty();
-
-            } while (!done);
-
+            }
             return true;
         }
 
@@ -730,7 +812,6 @@ public class DataRepository implements Repository, DataContext,
             interrupt();
         }
     }
-    private static final String CIRCULARITY_TOKEN = "CIRCULARITY_TOKEN";
 
     DataNotifier dataNotifier;
 
@@ -1516,7 +1597,11 @@ public class DataRepository implements Repository, DataContext,
         private void cleanup(DataElement e) {
             synchronized (e) {
                 if (e.disposalLockCount == 0) {
-                    data.remove(e.name);
+                    String name = e.getName();
+                    if (data.remove(name, e)) {
+                        dataNameIndex.nameRemoved(name);
+                        e.setDatafile(null);
+                    }
                     e.disposeValue();
                 }
             }
@@ -1588,7 +1673,11 @@ public class DataRepository implements Repository, DataContext,
         for (Iterator i = files.iterator(); i.hasNext();) {
             DataFile datafile = (DataFile) i.next();
             try {
-                if (forceResave || datafile.dirtyCount > 0)
+                if (forceResave) {
+                    // a forced save must rewrite the file, not journal it
+                    datafile.recordChange(null);
+                    saveDatafile(datafile);
+                } else if (datafile.dirtyCount > 0)
                     saveDatafile(datafile);
             } catch (Exception e) {
                 logger.log(Level.SEVERE,
@@ -1732,7 +1821,6 @@ public class DataRepository implements Repository, DataContext,
             // move - but none of that stuff should be moving.
             if (value instanceof SimpleData) {
                 newName = newPrefix + name.substring(oldPrefixLen);
-                newName = intern(newName, false);
                 //System.out.println("renaming " + name + " to " + newName);
                 putValue(newName, value.getSimpleValue(), IS_NOT_DEFAULT_VAL);
                 putValue(name, null, IS_NOT_DEFAULT_VAL);
@@ -1791,12 +1879,14 @@ public class DataRepository implements Repository, DataContext,
         }
 
         // make the change.
-        d.datafile = f;
+        d.setDatafile(f);
         d.isDefaultName = isDefaultName;
         logger.log(Level.INFO, "Reparented data element {0}", dataName);
 
         // now mark both datafiles as modified, so they will be saved.
+        curr.recordChange(d);
         curr.dirtyCount++;
+        f.recordChange(d);
         f.dirtyCount++;
     }
 
@@ -1822,8 +1912,9 @@ public class DataRepository implements Repository, DataContext,
         if (disableSerialization) return;
         try {
             ObjectInputStream i = new ObjectInputStream(in);
-            Hashtable a, b, c, d, e;
-            a = (Hashtable) i.readObject();
+            Map a;
+            Hashtable b, c, d, e;
+            a = (Map) i.readObject();
             b = (Hashtable) i.readObject();
             c = (Hashtable) i.readObject();
             d = (Hashtable) i.readObject();
@@ -1840,6 +1931,89 @@ public class DataRepository implements Repository, DataContext,
     }
 
 
+    /** The startup image in use, or null */
+    private volatile StartupImage startupImage;
+
+    /**
+     * Load a binary image of the definitions that were parsed during an
+     * earlier launch.  Datafiles that are opened after this call will be
+     * read from the image if it holds an up-to-date copy; otherwise they
+     * are parsed from text, and recorded so they can be written into a new
+     * image by {@link #saveStartupImage(File)}.
+     * <p>
+     * This should be called after templates and define declarations have
+     * been registered, and before any datafiles are opened.
+     * 
+     * @return true if the image was up to date, and was used
+     * @since 2.7.6
+     */
+    public boolean loadStartupImage(File imageFile) {
+        StartupImage image = new StartupImage(DataRepository.class
+                .getPackage().getImplementationVersion(),
+                TemplateLoader.getTemplateTimestamp(), getDatasetEncoding(),
+                getDefineDeclarationsHash());
+        Map<String, Object[]> includes = null;
+        if (image.load(imageFile))
+            includes = image.getIncludedFiles();
+
+        if (includes != null) {
+            synchronized (includedFileLock) {
+                for (Entry<String, Object[]> e : includes.entrySet()) {
+                    String datafile = e.getKey();
+                    if (includedFileCache.containsKey(datafile))
+                        continue;
+                    Map definitions = (Map) e.getValue()[0];
+                    List globalValues = (List) e.getValue()[1];
+                    includedFileCache.put(datafile,
+                        Collections.unmodifiableMap(definitions));
+                    putGlobalValues(globalValues);
+                }
+            }
+        }
+
+        startupImage = image;
+        return includes != null;
+    }
+
+    /**
+     * Write a new startup image, if the one that was loaded is missing or
+     * out of date.  After this call, datafiles are no longer recorded.
+     * 
+     * @since 2.7.6
+     */
+    public void saveStartupImage(File imageFile) throws IOException {
+        StartupImage image = startupImage;
+        if (image == null)
+            return;
+        startupImage = null;
+
+        Map<String, Map> includedDefinitions = new HashMap<String, Map>();
+        for (Object e : includedFileCache.entrySet()) {
+            Entry<String, Object> entry = (Entry<String, Object>) e;
+            if (entry.getValue() instanceof Map)
+                includedDefinitions.put(entry.getKey(),
+                    (Map) entry.getValue());
+        }
+
+        List<File> files = new ArrayList<File>();
+        synchronized (datafiles) {
+            for (Iterator i = datafiles.iterator(); i.hasNext();) {
+                DataFile dataFile = (DataFile) i.next();
+                if (dataFile.file != null && !dataFile.isRemoved)
+                    files.add(dataFile.file);
+            }
+        }
+
+        if (image.save(imageFile, includedDefinitions, files))
+            logger.fine("Saved startup image " + imageFile);
+    }
+
+    private int getDefineDeclarationsHash() {
+        return new TreeMap(defineDeclarations).hashCode() * 31
+                + globalDefineDeclarations.toString().hashCode();
+    }
+
+
     /** Dump data in the legacy text format, that was originally used for
      * import/export operations. */
     public static final int DUMP_STYLE_TEXT = 0;
@@ -1957,7 +2131,7 @@ public class DataRepository implements Repository, DataContext,
                 if (datafile.inheritedDefinitions != null)
                     inheritedDataNames.addAll(datafile.inheritedDefinitions.keySet());
                 for (DataElement element : elementsToRemove) {
-                    String localName = element.name.substring(prefix.length() + 1);
+                    String localName = element.getName().substring(prefix.length() + 1);
                     inheritedDataNames.remove(localName);
                 }
 
@@ -1965,11 +2139,11 @@ public class DataRepository implements Repository, DataContext,
                                       // elements' values.
                 for (DataElement element : elementsToRemove) {
                     element.disposeValue();
-                    element.datafile = null;
+                    element.setDatafile(null);
                 }
                                       // remove the data elements.
                 for (DataElement element : elementsToRemove) {
-                    removeValue(element.name);
+                    removeValue(element.getName());
                 }
 
                                       // fire removal events for all of the inherited
@@ -1978,7 +2152,7 @@ public class DataRepository implements Repository, DataContext,
                 for (Iterator i = inheritedDataNames.iterator(); i.hasNext();) {
                     String localName = (String) i.next();
                     String name = prefix + "/" + localName;
-                    repositoryListenerList.dispatchRemoved(name);
+                    dispatchDataRemoved(name);
                 }
             }
 
@@ -2017,7 +2191,7 @@ public class DataRepository implements Repository, DataContext,
     private class DataElementAlreadyExistsException extends Exception {
         public DataElement elem;
         public DataElementAlreadyExistsException(DataElement elem) {
-            //System.out.println("DataElementAlreadyExistsException"+elem.name);
+            //System.out.println("DataElementAlreadyExistsException"+elem.getName());
             this.elem = elem;
         }
 
@@ -2046,19 +2220,18 @@ public class DataRepository implements Repository, DataContext,
                                 // Add the element to the table
         DataElement d = new DataElement(datafile, name, isDefaultName);
         d.setValue(value, isDefaultValue);
-        synchronized (data) {
-            DataElement displaced = (DataElement) data.put(name, d);
-            if (displaced != null) {
-                // restore the displaced data element. Then throw an exception
-                // to our caller indicating that they cannot add the element,
-                // because it already exists.
-                data.put(name, displaced);
-                throw new DataElementAlreadyExistsException(displaced);
-            }
+        DataElement displaced = data.putIfAbsent(name, d);
+        if (displaced != null) {
+            // the new element will be discarded, so disown it from its
+            // datafile. Then throw an exception to our caller indicating
+            // that they cannot add the element, because it already exists.
+            d.setDatafile(null);
+            throw new DataElementAlreadyExistsException(displaced);
         }
+        dataNameIndex.nameAdded(name);
 
         if (notify && !isDefaultName && !name.startsWith(anonymousPrefix))
-            repositoryListenerList.dispatchAdded(name);
+            dispatchDataAdded(name);
 
         return d;
     }
@@ -2083,14 +2256,14 @@ public class DataRepository implements Repository, DataContext,
 
                                     // notify any repository listeners
             if (!name.startsWith(anonymousPrefix))
-                repositoryListenerList.dispatchRemoved(name);
+                dispatchDataRemoved(name);
 
                       // flag the element's datafile as having been modified
             if (removedElement.datafile != null)
-                datafileModified(removedElement.datafile);
+                datafileModified(removedElement.datafile, removedElement);
 
                                       // disown the element from its datafile,
-            removedElement.datafile = null;
+            removedElement.setDatafile(null);
             removedElement.disposeValue();
             removedElement.setValue(null, false);  // erase its previous value,
             maybeDelete(name, removedElement, true); // and discard if appropriate.
@@ -2414,11 +2587,11 @@ public class DataRepository implements Repository, DataContext,
 
                     if (PHANTOM_DATAFILES.contains(d.datafile)) {
                         // move the item OUT of the phantom datafile so it will be saved.
-                        d.datafile = guessDataFile(name, REQUIRE_WRITABLE);
+                        d.setDatafile(guessDataFile(name, REQUIRE_WRITABLE));
                         d.isDefaultName = false;
                     }
 
-                    datafileModified(d.datafile);
+                    datafileModified(d.datafile, d);
                 }
 
                                       // possibly throw away the old value.
@@ -2451,11 +2624,12 @@ public class DataRepository implements Repository, DataContext,
                 }
 
                 try {
-                    add(name, isDefaultName, value, isDefaultValue, f, DO_NOTIFY);
+                    DataElement added = add(name, isDefaultName, value,
+                        isDefaultValue, f, DO_NOTIFY);
                     if (!isDefaultValue
                             && (isDefaultName || value != null)
                             && checkDatafileModification)
-                        datafileModified(f);
+                        datafileModified(f, added);
                 } catch (DataElementAlreadyExistsException e) {
                     // this rare occurrence means that some other thread created this
                     // DataElement in the time since we tried to retrieve it and found
@@ -2603,18 +2777,34 @@ public class DataRepository implements Repository, DataContext,
 
 
     private static final String includeTag = "#include ";
-    private final Hashtable includedFileCache = new Hashtable();
+    private final ConcurrentHashMap includedFileCache = new ConcurrentHashMap();
+
+    /** Datafiles may be opened from several threads at once, so the loading
+     * of included files is serialized by this lock.  The definitions for an
+     * included file are only published to the includedFileCache when they
+     * are complete; while they are being built, they are held in the
+     * loadingIncludedFiles map, which is guarded by this lock. */
+    private final Object includedFileLock = new Object();
+    private final Map loadingIncludedFiles = new HashMap();
 
     private Map getIncludedFileDefinitions(String datafile) {
         //debug("getIncludedFileDefinitions("+datafile+")");
         datafile = followDatafileRedirections(datafile);
         Object definitions = includedFileCache.get(datafile);
         if (definitions instanceof DefinitionFactory) {
-            definitions = ((DefinitionFactory) definitions).getDefinitions(this);
-            definitions = Collections.unmodifiableMap((Map) definitions);
-            includedFileCache.put(datafile, definitions);
-            definitionsDirty = true;
+            synchronized (includedFileLock) {
+                definitions = includedFileCache.get(datafile);
+                if (definitions instanceof DefinitionFactory) {
+                    definitions = ((DefinitionFactory) definitions)
+                            .getDefinitions(this);
+                    definitions = Collections.unmodifiableMap((Map) definitions);
+                    includedFileCache.put(datafile, definitions);
+                    definitionsDirty = true;
+                }
+            }
         }
+        if (definitions == null && Thread.holdsLock(includedFileLock))
+            definitions = loadingIncludedFiles.get(datafile);
         return (Map) definitions;
     }
 
@@ -2643,38 +2833,66 @@ public class DataRepository implements Repository, DataContext,
 
         Map result = getIncludedFileDefinitions(datafile);
         if (result == null) {
-            result = new HashMap();
-
-            // Lookup any applicable default data definitions.
-            DefinitionFactory defaultDefns =
-                (DefinitionFactory) defaultDefinitions.get(datafile);
-            if (defaultDefns != null)
-                result.putAll(defaultDefns.getDefinitions(DataRepository.this));
-
-            if (!isImaginaryDatafileName(datafile))
-                loadDatafile(datafile, findDatafile(datafile), result,
-                        DO_FOLLOW_INCLUDES, DO_CLOSE, "UTF-8");
-
-            // Although we aren't technically done creating this datafile,
-            // we need to store it in the cache before calling
-            // insertRollupDefinitions to avoid entering an infinite loop.
-            includedFileCache.put(datafile, result);
-
-            // check to see if the datafile requests a rollup
-            Object rollupIDval = result.get("Use_Rollup");
-            if (rollupIDval instanceof StringData) {
-                String rollupID = ((StringData) rollupIDval).getString();
-                insertRollupDefinitions(result, rollupID);
+            synchronized (includedFileLock) {
+                result = getIncludedFileDefinitions(datafile);
+                if (result == null) {
+                    try {
+                        result = loadIncludedFileDefinitionsImpl(datafile);
+                    } finally {
+                        loadingIncludedFiles.remove(datafile);
+                    }
+                }
             }
+        }
 
-            // prepare renaming operations for later use
-            DataRenamingOperation.initRenamingOperations(result);
+        return result;
+    }
 
-            result = Collections.unmodifiableMap(result);
-            includedFileCache.put(datafile, result);
-            definitionsDirty = true;
+    private Map loadIncludedFileDefinitionsImpl(String datafile)
+        throws FileNotFoundException, IOException, InvalidDatafileFormat
+    {
+        Map result = new HashMap();
+
+        // Lookup any applicable default data definitions.
+        DefinitionFactory defaultDefns =
+            (DefinitionFactory) defaultDefinitions.get(datafile);
+        if (defaultDefns != null)
+            result.putAll(defaultDefns.getDefinitions(DataRepository.this));
+
+        List globalValues = new ArrayList();
+        if (!isImaginaryDatafileName(datafile)) {
+            loadDatafile(datafile, new InputStreamReader(
+                findDatafile(datafile), "UTF-8"), result,
+                DO_FOLLOW_INCLUDES, DO_CLOSE, globalValues);
+            if (DEFER_GLOBAL_VALUES.get() != null)
+                deferredGlobalValues.addAll(globalValues);
+            else
+                putGlobalValues(globalValues);
         }
 
+        // Although we aren't technically done creating this datafile,
+        // we need to make it visible before calling
+        // insertRollupDefinitions to avoid entering an infinite loop.
+        loadingIncludedFiles.put(datafile, result);
+
+        // check to see if the datafile requests a rollup
+        Object rollupIDval = result.get("Use_Rollup");
+        if (rollupIDval instanceof StringData) {
+            String rollupID = ((StringData) rollupIDval).getString();
+            insertRollupDefinitions(result, rollupID);
+        }
+
+        // prepare renaming operations for later use
+        DataRenamingOperation.initRenamingOperations(result);
+
+        result = Collections.unmodifiableMap(result);
+        includedFileCache.put(datafile, result);
+        definitionsDirty = true;
+
+        StartupImage image = startupImage;
+        if (image != null)
+            image.recordIncludedFile(datafile, globalValues);
+
         return result;
     }
 
@@ -2758,14 +2976,18 @@ public class DataRepository implements Repository, DataContext,
         private String inheritedDatafile = null;
         private boolean followIncludes;
         private Map dest;
-        public FileLoader(Map dest, boolean followIncludes) {
+        private List globalValues;
+        public FileLoader(Map dest, boolean followIncludes, List globalValues) {
             this.dest = dest;
             this.followIncludes = followIncludes;
+            this.globalValues = globalValues;
         }
         public String getInheritedDatafile() { return inheritedDatafile; }
 
         private void putVal(String name, Object value) {
-            if (name.startsWith("/"))
+            if (name.startsWith("/") && globalValues != null)
+                globalValues.add(new Object[] { name, value });
+            else if (name.startsWith("/"))
                 putGlobalValue(name, value);
             else if ((value == null || value.equals("null")
                     || value.equals("=null")) && followIncludes)
@@ -2896,13 +3118,22 @@ public class DataRepository implements Repository, DataContext,
             boolean followIncludes, boolean close, String encoding)
         throws FileNotFoundException, IOException, InvalidDatafileFormat {
         return loadDatafile(file, new InputStreamReader(datafile, encoding),
-            dest, followIncludes, close);
+            dest, followIncludes, close, null);
     }
     private String loadDatafile(String filename, Reader datafile, Map dest,
             boolean followIncludes, boolean close)
         throws FileNotFoundException, IOException, InvalidDatafileFormat {
+        return loadDatafile(filename, datafile, dest, followIncludes, close,
+            null);
+    }
+    /** @param globalValues if non-null, a list that should receive the
+     *      global values declared by the file, instead of storing them
+     *      directly into the repository */
+    private String loadDatafile(String filename, Reader datafile, Map dest,
+            boolean followIncludes, boolean close, List globalValues)
+        throws FileNotFoundException, IOException, InvalidDatafileFormat {
 
-        FileLoader loader = new FileLoader(dest, followIncludes);
+        FileLoader loader = new FileLoader(dest, followIncludes, globalValues);
         try {
             // Initialize data, file, and read buffer.
             BufferedReader in = new BufferedReader(datafile);
@@ -3122,6 +3353,24 @@ public class DataRepository implements Repository, DataContext,
         return false;
     }
 
+    private void putGlobalValues(List globalValues) {
+        for (Iterator i = globalValues.iterator(); i.hasNext();) {
+            Object[] globalValue = (Object[]) i.next();
+            putGlobalValue((String) globalValue[0], globalValue[1]);
+        }
+    }
+
+    private void putDeferredGlobalValues() {
+        List globalValues;
+        synchronized (deferredGlobalValues) {
+            if (deferredGlobalValues.isEmpty())
+                return;
+            globalValues = new ArrayList(deferredGlobalValues);
+            deferredGlobalValues.clear();
+        }
+        putGlobalValues(globalValues);
+    }
+
     private void putGlobalValue(String name, Object valueObj) {
         DataElement e = (DataElement) data.get(name);
         if (e != null && e.getValue() != null)
@@ -3139,7 +3388,7 @@ public class DataRepository implements Repository, DataContext,
                 putValue(name, o, IS_DEFAULT_VAL);
         } else if (!(valueObj instanceof DataRenamingOperation)) {
             if (globalDataIsMounted)
-                repositoryListenerList.dispatchAdded(name);
+                dispatchDataAdded(name);
         }
     }
 
@@ -3171,38 +3420,223 @@ public class DataRepository implements Repository, DataContext,
 
     public void openDatafile(String dataPrefix, String datafilePath)
         throws FileNotFoundException, IOException, InvalidDatafileFormat {
+        mountParsedDatafile(parseDatafile(dataPrefix, datafilePath,
+            getDatasetEncoding()));
+    }
 
-        logger.log(Level.FINE, "Opening datafile {0}", datafilePath);
+    /**
+     * Open several datafiles.  The files are read and parsed on a pool of
+     * worker threads, then mounted into the repository one at a time, in
+     * the order they were given.  The result is the same as calling
+     * {@link #openDatafile(String, String)} for each file in turn.
+     * 
+     * @param datafiles a list of two-element arrays, holding the data prefix
+     *     and the datafile path for each file to open
+     * @return an array parallel to the datafiles list, holding the exception
+     *     that prevented each file from opening, or null for files that were
+     *     opened successfully
+     * @since 2.7.6
+     */
+    public Exception[] openDatafiles(List<String[]> datafiles) {
+        Exception[] result = new Exception[datafiles.size()];
+        int numThreads = Math.min(datafiles.size(), Settings.getInt(
+            DATAFILE_THREADS_SETTING, Runtime.getRuntime()
+                    .availableProcessors()));
+
+        if (numThreads < 2) {
+            for (int i = 0; i < result.length; i++) {
+                String[] df = datafiles.get(i);
+                try {
+                    openDatafile(df[0], df[1]);
+                } catch (Exception e) {
+                    result[i] = e;
+                }
+            }
+            return result;
+        }
 
-        String encoding = getDatasetEncoding();
+        // load the parser tables before any worker threads need them
+        new Parser(new Lexer(new PushbackReader(new StringReader(""), 1)));
 
-        Hashtable values = new Hashtable();
+        // parse files ahead of the one we are mounting, but keep a bounded
+        // number in memory at once
+        final String encoding = getDatasetEncoding();
+        ExecutorService workers = Executors.newFixedThreadPool(numThreads,
+            DATAFILE_THREAD_FACTORY);
+        int window = numThreads * 4;
+        LinkedList<Future<ParsedDatafile>> pending =
+            new LinkedList<Future<ParsedDatafile>>();
+        int nextToParse = 0;
+        try {
+            for (int i = 0; i < result.length; i++) {
+                while (pending.size() < window && nextToParse < result.length) {
+                    final String[] df = datafiles.get(nextToParse++);
+                    pending.add(workers.submit(new Callable<ParsedDatafile>() {
+                        public ParsedDatafile call() throws Exception {
+                            DEFER_GLOBAL_VALUES.set(Boolean.TRUE);
+                            try {
+                                return parseDatafile(df[0], df[1], encoding);
+                            } finally {
+                                DEFER_GLOBAL_VALUES.remove();
+                            }
+                        }}));
+                }
+
+                Future<ParsedDatafile> next = pending.removeFirst();
+                ParsedDatafile parsed;
+                try {
+                    parsed = getParsedDatafile(next);
+                } catch (InterruptedException ie) {
+                    // stop opening files, and leave the interrupt for our
+                    // caller to see
+                    Thread.currentThread().interrupt();
+                    next.cancel(true);
+                    for (Future<ParsedDatafile> f : pending)
+                        f.cancel(true);
+                    for (int j = i; j < result.length; j++)
+                        result[j] = ie;
+                    break;
+                } catch (Exception e) {
+                    result[i] = e;
+                    continue;
+                }
+
+                try {
+                    mountParsedDatafile(parsed);
+                } catch (Exception e) {
+                    result[i] = e;
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        // store global values from included files that were loaded by
+        // workers whose datafiles could not be mounted
+        putDeferredGlobalValues();
+        return result;
+    }
+
+    private ParsedDatafile getParsedDatafile(Future<ParsedDatafile> f)
+            throws Exception {
+        // a finished future would not notice the interrupt on its own
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        try {
+            return f.get();
+        } catch (java.util.concurrent.ExecutionException ee) {
+            Throwable t = ee.getCause();
+            if (t instanceof Exception)
+                throw (Exception) t;
+            else
+                throw (Error) t;
+        }
+    }
+
+    /** The results of reading a datafile, which are ready to be mounted */
+    private class ParsedDatafile {
+        DataFile dataFile;
+        Hashtable values;
+        List globalValues;
+        boolean dataModified;
+    }
+
+    /** Read and parse a datafile. This can be called from several threads
+     * at once.  Values in the repository are not changed, although any
+     * included files that are loaded are added to the included file cache.
+     * On worker threads, global values declared by those included files are
+     * deferred until the next datafile is mounted. */
+    private ParsedDatafile parseDatafile(String dataPrefix,
+            String datafilePath, String encoding)
+        throws FileNotFoundException, IOException, InvalidDatafileFormat {
+
+        logger.log(Level.FINE, "Opening datafile {0}", datafilePath);
+
+        ParsedDatafile result = new ParsedDatafile();
+        result.values = new Hashtable();
+        result.globalValues = new ArrayList();
+
+        DataFile dataFile = result.dataFile =
+            new DataFile(dataPrefix, new File(datafilePath));
+
+        // if the startup image has an up-to-date copy of this file, use it
+        StartupImage image = startupImage;
+        long fileLength = (image == null ? 0 : dataFile.file.length());
+        Object[] cached = (image == null ? null : image.getDatafile(
+            dataFile.file, dataFile.fileTimestamp, fileLength));
+        if (cached != null) {
+            dataFile.inheritsFrom = (String) cached[0];
+            result.values = (Hashtable) cached[1];
+            result.globalValues = (List) cached[2];
+        } else {
+            dataFile.inheritsFrom =
+                loadDatafile(null, new InputStreamReader(new FileInputStream(
+                    dataFile.file), encoding), result.values,
+                    DO_NOT_FOLLOW_INCLUDES, DO_CLOSE, result.globalValues);
+            if (image != null)
+                image.recordDatafile(dataFile.file, dataFile.fileTimestamp,
+                    fileLength, dataFile.inheritsFrom, result.values,
+                    result.globalValues);
+        }
 
-        DataFile dataFile = new DataFile(dataPrefix, new File(datafilePath));
-        dataFile.inheritsFrom =
-            loadDatafile(null, new FileInputStream(dataFile.file),
-                         values, DO_NOT_FOLLOW_INCLUDES, DO_CLOSE, encoding);
         if (dataFile.inheritsFrom != null)
             dataFile.inheritedDefinitions =
                 loadIncludedFileDefinitions(dataFile.inheritsFrom);
 
         // perform any renaming operations that were requested in the datafile
-        boolean dataModified = DataRenamingOperation.performRenames(values,
-                dataFile.inheritedDefinitions);
+        result.dataModified = DataRenamingOperation.performRenames(
+            result.values, dataFile.inheritedDefinitions);
+
+        return result;
+    }
+
+    private void mountParsedDatafile(ParsedDatafile parsed)
+        throws InvalidDatafileFormat {
+        DataFile dataFile = parsed.dataFile;
+
+                                // store any global values declared by
+                                // included files that workers have loaded,
+                                // then the ones this file declared
+        putDeferredGlobalValues();
+        putGlobalValues(parsed.globalValues);
 
                                 // only add the datafile element if the
                                 // loadDatafile process was successful
         addDataFile(dataFile);
 
                                 // mount the data in the repository.
-        mountData(dataFile, dataPrefix, values);
+        mountData(dataFile, dataFile.prefix, parsed.values);
 
-        logger.log(Level.FINE, "Done opening datafile {0}", datafilePath);
+        logger.log(Level.FINE, "Done opening datafile {0}",
+            dataFile.file.getPath());
 
-        if (dataModified)       // possibly mark the file as modified.
+        if (parsed.dataModified) // possibly mark the file as modified.
             datafileModified(dataFile);
     }
 
+    /** Set on worker threads that parse datafiles.  Global values declared
+     * by included files that they load are added to deferredGlobalValues,
+     * to be stored by the thread that mounts the datafiles. */
+    private static final ThreadLocal<Boolean> DEFER_GLOBAL_VALUES =
+        new ThreadLocal<Boolean>();
+
+    private final List deferredGlobalValues =
+        Collections.synchronizedList(new ArrayList());
+
+    /** The number of threads that should be used to parse datafiles when
+     * several are opened at once */
+    public static final String DATAFILE_THREADS_SETTING =
+        "dataset.openThreads";
+
+    private static final ThreadFactory DATAFILE_THREAD_FACTORY =
+        new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "DataRepository datafile reader");
+                t.setDaemon(true);
+                return t;
+            }
+        };
+
     public static String getDatasetEncoding() {
         return Settings.getBool(USE_UTF8_SETTING, false) ?
             "UTF-8" : Charset.defaultCharset().name();
@@ -3273,7 +3707,7 @@ public class DataRepository implements Repository, DataContext,
                                 NOT_MODIFYING_DATAFILE);
                         d = (DataElement)data.get(dataName);
                         if (d != null) {
-                            d.datafile = dataFile;
+                            d.setDatafile(dataFile);
                             d.isDefaultName = defaultData.containsKey(localName);
                         }
                     }
@@ -3327,9 +3761,9 @@ public class DataRepository implements Repository, DataContext,
 
                     if (d != null) {
                         // a matching data element exists.
-                        d.datafile = dataFile;
+                        d.setDatafile(dataFile);
                         d.isDefaultName = true;
-                        dataName = d.name;
+                        dataName = d.getName();
 
                         if (instantiatedDataMatches(valueObj, d.getValue())) {
                             // the data element already has the proper value. (This
@@ -3357,7 +3791,7 @@ public class DataRepository implements Repository, DataContext,
                     // DataRepository, added events are never sent for data elements
                     // with default names (because it cannot tell whether the item is
                     // springing forth for the first time, or a subsequent time).
-                    repositoryListenerList.dispatchAdded(dataName);
+                    dispatchDataAdded(dataName);
 
                     if (registerDataNames && (valueObj instanceof DoubleData
                             || valueObj instanceof CompiledScript))
@@ -3461,7 +3895,7 @@ public class DataRepository implements Repository, DataContext,
             // reassociate the null element with the new data file (instead
             // of the old one)
             DataElement e = getImportedFileNullElement(dataFile);
-            e.datafile = dataFile;
+            e.setDatafile(dataFile);
 
             // discard elements that were present in the old data file, that
             // no longer exist
@@ -3469,7 +3903,7 @@ public class DataRepository implements Repository, DataContext,
 
             // send a dataChanged event for the null element, indicating that
             // the imported file has changed.
-            dataNotifier.dataChanged(e.name, e);
+            dataNotifier.dataChanged(e.getName(), e);
         }
     }
 
@@ -3509,27 +3943,35 @@ public class DataRepository implements Repository, DataContext,
     }
 
     private void datafileModified(DataFile datafile) {
-        if (datafile != null && ++datafile.dirtyCount > MAX_DIRTY)
-            saveDatafile(datafile);
+        datafileModified(datafile, null);
+    }
+
+    /** Record that a datafile has been modified, and save it if enough
+     * changes have accumulated.
+     * 
+     * @param datafile the datafile that was modified
+     * @param element the element whose change modified the datafile, or null
+     *     if the change was not specific to a single element
+     */
+    private void datafileModified(DataFile datafile, DataElement element) {
+        if (datafile != null) {
+            datafile.recordChange(element);
+            if (++datafile.dirtyCount > MAX_DIRTY)
+                saveDatafile(datafile);
+        }
     }
 
     private List<DataElement> getElementsForDatafile(DataFile datafile) {
         List result = new ArrayList();
-        synchronized (data) {
-            for (DataElement elem : data.values()) {
-                if (elem != null && elem.datafile == datafile)
-                    result.add(elem);
-            }
+        for (DataElement elem : datafile.elements) {
+            if (elem.datafile == datafile && data.get(elem.getName()) == elem)
+                result.add(elem);
         }
         return result;
     }
 
     private Iterator getInternalKeys() {
-        List l = new ArrayList();
-        synchronized (data) {
-            l.addAll(data.keySet());
-        }
-        return l.iterator();
+        return data.keySnapshot().iterator();
     }
 
     public Iterator getKeys() {
@@ -3543,15 +3985,20 @@ public class DataRepository implements Repository, DataContext,
         private Set explicitDataNames;
         private List files;
         private DataNameFilter.PrefixLocal prefixLocalFilter;
+        private String leaf;
 
         private DataFile workingDatafile;
         private Iterator workingDefaultLocalNames;
         private Iterator workingExplicitNames;
 
         public AllDataNamesIterator(Object prefix, Object hints) {
-            synchronized (data) {
-                explicitDataNames = new HashSet(data.keySet());
-            }
+            // if the caller is only interested in names ending with a
+            // particular leaf, use the name index to find them.
+            leaf = getLeafName(hints);
+            if (leaf != null)
+                explicitDataNames = new HashSet(dataNameIndex.getNames(leaf));
+            else
+                explicitDataNames = new HashSet(data.keySnapshot());
             if (hints instanceof DataNameFilter.ExplicitOnly) {
                 files = Collections.EMPTY_LIST;
             } else {
@@ -3567,6 +4014,8 @@ public class DataRepository implements Repository, DataContext,
                     i.remove();
                 else if (prefixesMightMatch(prefix, f.prefix) == false)
                     i.remove();
+                else if (leaf != null && getDefaultNames(f).isEmpty())
+                    i.remove();
             }
 
             if (hints instanceof String)
@@ -3676,11 +4125,20 @@ public class DataRepository implements Repository, DataContext,
                 workingDefaultLocalNames = null;
             } else {
                 workingDatafile = (DataFile) files.remove(0);
-                workingDefaultLocalNames = workingDatafile
-                        .inheritedDefinitions.entrySet().iterator();
+                workingDefaultLocalNames = getDefaultNames(workingDatafile)
+                        .iterator();
             }
             workingExplicitNames = null;
         }
+        private Collection getDefaultNames(DataFile f) {
+            if (leaf != null && f.inheritsFrom != null)
+                // definitions inherited from a template are shared, and
+                // never change, so their index entries can be cached.
+                return dataNameIndex.getDefinitions(f.inheritedDefinitions,
+                    leaf);
+            else
+                return f.inheritedDefinitions.entrySet();
+        }
         private void loadWorkingExplicitNames() {
             if (workingDatafile != null) {
                 if (ORDER_NAMES_BY_PREFIX)
@@ -3710,6 +4168,11 @@ public class DataRepository implements Repository, DataContext,
 
     protected boolean saveDisabled = false;
 
+    /** If this setting is true, small changes to a large datafile will be
+     * saved by appending lines to the end of the file, rather than by
+     * rewriting it. */
+    public static final String JOURNAL_SAVES_SETTING = "dataset.journalSaves";
+
     /** Saves a set of data to the appropriate data file.
      * 
      * @param datafile the datafile to save
@@ -3728,52 +4191,27 @@ public class DataRepository implements Repository, DataContext,
         synchronized (datafile) { try {
             // debug("saveDatafile");
 
-            Set valuesToSave = new TreeSet();
-
-            // if the data file has an include statement, lookup the associated
-            // default values defined by the included file.
-            Map defaultValues = datafile.inheritedDefinitions;
-            if (defaultValues == null)
-                defaultValues = Collections.EMPTY_MAP;
-
             // optimistically mark the datafile as "clean" at the beginning of
             // the save operation.  This way, if the datafile is modified
             // during the save operation, the dirty changes will take effect,
             // and the datafile will be saved again in the future.
             datafile.dirtyCount = 0;
+            Set<DataElement> changes = datafile.takeChanges();
 
-            int prefixLength = datafile.prefix.length() + 1;
-
-            for (Iterator i = getInternalKeys(); i.hasNext();) {
-                String name = (String) i.next();
-                DataElement element = (DataElement)data.get(name);
-
-                if (element == null
-                        || element.datafile != datafile
-                        || element.isDefaultValue())
-                    // if there is no such element, if it doesn't belong to this
-                    // DataFile, or if it has a default value, skip it.
-                    continue;
-
-                SaveableData value = element.getValue();
-                String valStr = null;
-                boolean editable = true;
-
-                if (value != null) {
-                    valStr = value.saveString();
-                    editable = value.isEditable();
-                } else if (element.isDefaultName()) {
-                    // store the fact that the default is overwritten with null
-                    valStr = "null";
-                }
-
-                if (valStr == null || valStr.length() == 0)
-                    continue;
+            // if only a few elements have changed, try appending them to
+            // the end of the file.
+            if (changes != null && shouldJournal(datafile, changes.size())
+                    && appendChanges(datafile, changes)) {
+                saveSuccessful = true;
+                return;
+            }
 
-                name = name.substring(prefixLength).replace('=', EQUALS_SIGN_REPL);
-                if (name.startsWith("["))
-                    name = '\\' + name;
-                valuesToSave.add(name + (editable ? "=" : "==") + valStr);
+            Set valuesToSave = new TreeSet();
+            int prefixLength = datafile.prefix.length() + 1;
+            for (DataElement element : datafile.elements) {
+                String line = getSaveLine(datafile, element, prefixLength);
+                if (line != null)
+                    valuesToSave.add(line);
             }
 
             // see if this datafile should have a bundle qualifier
@@ -3830,6 +4268,7 @@ public class DataRepository implements Repository, DataContext,
                 out.flush();
                 out.close();
 
+                datafile.journalLength = 0;
                 saveSuccessful = true;
                 System.err.println("Saved " + datafile.file.getPath());
             } catch (IOException e) {
@@ -3839,12 +4278,127 @@ public class DataRepository implements Repository, DataContext,
             }
 
         } finally {
-            // if we couldn't successfully save the datafile, mark it as dirty.
-            if (!saveSuccessful)
+            // if we couldn't successfully save the datafile, mark it as dirty
+            // and arrange for the entire file to be rewritten.
+            if (!saveSuccessful) {
                 datafile.dirtyCount = 1000;
+                datafile.recordChange(null);
+            }
         } }
     }
 
+    /** Compute the line that should be written to a datafile to save the
+     * value of an element.
+     * 
+     * @return the line to write, or null if the element should not appear
+     *     in the datafile
+     */
+    private String getSaveLine(DataFile datafile, DataElement element,
+            int prefixLength) {
+        String name = element.getName();
+        if (element.datafile != datafile
+                || data.get(name) != element
+                || element.isDefaultValue())
+            // if the element doesn't belong to this DataFile, if it is no
+            // longer in the repository, or if it has a default value, skip it.
+            return null;
+
+        SaveableData value = element.getValue();
+        String valStr = null;
+        boolean editable = true;
+
+        if (value != null) {
+            valStr = value.saveString();
+            editable = value.isEditable();
+        } else if (element.isDefaultName()) {
+            // store the fact that the default is overwritten with null
+            valStr = "null";
+        }
+
+        if (valStr == null || valStr.length() == 0)
+            return null;
+
+        return getSaveName(name.substring(prefixLength))
+                + (editable ? "=" : "==") + valStr;
+    }
+
+    private String getSaveName(String localName) {
+        String result = localName.replace('=', EQUALS_SIGN_REPL);
+        if (result.startsWith("["))
+            result = '\\' + result;
+        return result;
+    }
+
+    /** Decide whether changes to a datafile should be appended to the end of
+     * the file.  The journal is allowed to grow to one quarter of the size
+     * of the datafile; after that, the file is rewritten in full. */
+    private boolean shouldJournal(DataFile datafile, int numChanges) {
+        return numChanges > 0
+                && Settings.getBool(JOURNAL_SAVES_SETTING, false)
+                && datafile.journalLength + numChanges
+                        <= datafile.elements.size() / 4;
+    }
+
+    /** Append lines to the end of a datafile to record the values of
+     * elements that have changed.  When the file is loaded, these lines will
+     * override the values that appear earlier in the file.
+     * 
+     * @return true if the changes were saved; false if the changes cannot be
+     *     represented in a journal, or if the file could not be written.
+     */
+    private boolean appendChanges(DataFile datafile, Set<DataElement> changes) {
+        // compute the new line for each changed name. An element that no
+        // longer belongs in the file is recorded with a null value, unless a
+        // default value exists for its name; the journal cannot express the
+        // removal of an override, so that change requires a full rewrite.
+        int prefixLength = datafile.prefix.length() + 1;
+        Map<String, String> lines = new TreeMap<String, String>();
+        for (DataElement element : changes) {
+            String name = element.getName();
+            if (!name.startsWith(datafile.prefix)
+                    || name.length() < prefixLength)
+                return false;
+            String localName = name.substring(prefixLength);
+            String line = getSaveLine(datafile, element, prefixLength);
+            if (line != null) {
+                lines.put(localName, line);
+            } else if (datafile.inheritedDefinitions != null
+                    && datafile.inheritedDefinitions.containsKey(localName)) {
+                return false;
+            } else if (!lines.containsKey(localName)) {
+                lines.put(localName, getSaveName(localName) + "=null");
+            }
+        }
+
+        // write all of the lines with a single call, to minimize the chance
+        // that a partial line could be left at the end of the file
+        StringBuilder buf = new StringBuilder();
+        String newline = System.getProperty("line.separator");
+        for (String line : lines.values())
+            buf.append(line).append(newline);
+
+        FileOutputStream out = null;
+        try {
+            byte[] bytes = buf.toString().getBytes(getDatasetEncoding());
+            out = new FileOutputStream(datafile.file, true);
+            out.write(bytes);
+            out.close();
+            out = null;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Encountered exception while appending to "
+                    + datafile.file.getPath() + "; rewriting file instead", e);
+            return false;
+        } finally {
+            if (out != null)
+                try { out.close(); } catch (IOException ioe) {}
+        }
+
+        datafile.journalLength += lines.size();
+        System.err.println("Saved " + lines.size() + " changes to "
+                + datafile.file.getPath());
+        return true;
+    }
+
     private static class NullByteWatcher extends FilterOutputStream {
         boolean armed = true;
         public NullByteWatcher(OutputStream out) {
@@ -3904,7 +4458,7 @@ public class DataRepository implements Repository, DataContext,
         if (notify)
             dataNotifier.addEvent(name, d, dl);
 
-        return d.name;
+        return (d.hasName(name) ? data.canonicalName(name) : d.getName());
     }
 
     public String addActiveDataListener
@@ -3919,7 +4473,13 @@ public class DataRepository implements Repository, DataContext,
         return result;
     }
 
-    /** @since 2.4.0.1 */
+    /**
+     * Register a listener for changes to any data element whose name matches
+     * a PatternList.  The patterns are compiled when the listener is added,
+     * so the PatternList should not be modified afterward.
+     * 
+     * @since 2.4.0.1
+     */
     public void addDataListener(PatternList p, DataListener dl) {
         dataNotifier.addPatternedListener(p, dl);
     }
@@ -3956,6 +4516,8 @@ public class DataRepository implements Repository, DataContext,
     };
 
 
+    /** @param name the name of the element, or null to look it up only if
+     *      the element is discarded */
     private void maybeDelete(String name, DataElement d,
             boolean deleteDefaultValues) {
 
@@ -3964,8 +4526,14 @@ public class DataRepository implements Repository, DataContext,
             return;
 
         if (d.dataListeners == null) {    // if no one cares about this element
-            if (d.getValue() == null)         // and it has no value,
-                data.remove(name);            // throw it away.
+            if (d.getValue() == null) {       // and it has no value,
+                if (name == null)
+                    name = d.getName();
+                if (data.remove(name, d)) {    // throw it away.
+                    dataNameIndex.nameRemoved(name);
+                    d.setDatafile(null);
+                }
+            }
 
         } else if (d.dataListeners.isEmpty()) {
                            // if no one cares about this element any longer,
@@ -4040,7 +4608,11 @@ public class DataRepository implements Repository, DataContext,
         //debug("addRepositoryListener:" + prefix);
 
                                 // add the listener to our repository list.
-        repositoryListenerList.addListener(rl, prefix);
+        String leaf = getLeafName(rl);
+        if (leaf != null)
+            dataNameIndex.addListener(rl, prefix, leaf);
+        else
+            repositoryListenerList.addListener(rl, prefix);
 
                                 // notify the listener of all the elements
                                 // already in the repository.
@@ -4103,9 +4675,31 @@ public class DataRepository implements Repository, DataContext,
     public void removeRepositoryListener(RepositoryListener rl) {
         // debug("removeRepositoryListener");
         repositoryListenerList.removeListener(rl);
+        dataNameIndex.removeListener(rl);
         // debug("removeRepositoryListener done");
     }
 
+    private void dispatchDataAdded(String dataName) {
+        repositoryListenerList.dispatchAdded(dataName);
+        dataNameIndex.dispatchAdded(dataName);
+    }
+
+    private void dispatchDataRemoved(String dataName) {
+        repositoryListenerList.dispatchRemoved(dataName);
+        dataNameIndex.dispatchRemoved(dataName);
+    }
+
+    /** If the given object is a filter that only accepts names ending with
+     * a particular leaf, return that leaf.  Otherwise return null. */
+    private static String getLeafName(Object filter) {
+        if (filter instanceof DataNameFilter.LeafName) {
+            String leaf = ((DataNameFilter.LeafName) filter).getLeafName();
+            if (leaf != null && leaf.length() > 0)
+                return leaf;
+        }
+        return null;
+    }
+
     private volatile int inconsistencyDepth = 0;
     private Set consistencyListeners =
         Collections.synchronizedSet(new HashSet());
@@ -4278,14 +4872,12 @@ public class DataRepository implements Repository, DataContext,
     }
 
     private static String intern(String s, boolean recommendNew) {
-        if (INTERN_MAP != null) {
-            DataElement e = (DataElement) INTERN_MAP.get(s);
-            if (e != null)
-                return e.name;
-        }
+        if (INTERN_MAP != null)
+            return INTERN_MAP.canonicalName(s);
         return s;
     }
-    private static Map INTERN_MAP = null;
+    private static CompactDataNameMap INTERN_MAP = null;
+
 
     // the following boolean constants are declared to provide readability
     // in the code above.
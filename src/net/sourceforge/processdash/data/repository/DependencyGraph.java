@@ -0,0 +1,177 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * The dependency graph affected by a batch of data changes.
+ * <p>
+ * Each node in the graph is a {@link DataListener} that must be notified
+ * about the batch, along with the names of the changed elements it listens
+ * to.  Some listeners are "active": they calculate the value of another data
+ * element, so notifying them effectively changes that element as well.  An
+ * edge runs from each active listener to the listeners of the element it
+ * calculates.
+ * <p>
+ * The {@link #sort(Set)} method orders the nodes so each listener is
+ * notified exactly once, after every calculation it depends on.  Edges that
+ * would close a cycle are discarded, and the names of the calculations that
+ * close them are reported to the caller.
+ *
+ * @param <E> the type of object describing a changed element
+ */
+class DependencyGraph<E> {
+
+    /** The listeners in this graph, mapped to the changed elements (and
+     * their names) that each listener needs to hear about. */
+    private Map<DataListener, Map<String, E>> events;
+
+    /** The names of calculated elements in this graph, mapped to the active
+     * listeners that calculate them. */
+    private Map<String, DataListener> producers;
+
+    /** The names of all elements known to be changed in this graph. */
+    private Set<String> changedNames;
+
+
+    public DependencyGraph() {
+        events = new LinkedHashMap<DataListener, Map<String, E>>();
+        producers = new HashMap<String, DataListener>();
+        changedNames = new HashSet<String>();
+    }
+
+    /**
+     * Record the fact that an element has changed.
+     *
+     * @return true if the element was not already known to be changed.
+     */
+    public boolean addChangedElement(String name) {
+        return changedNames.add(name);
+    }
+
+    /** Record the fact that a listener needs to hear about a change */
+    public void addEvent(DataListener dl, String name, E element) {
+        Map<String, E> elements = events.get(dl);
+        if (elements == null)
+            events.put(dl, elements = new LinkedHashMap<String, E>(4));
+        elements.put(name, element);
+    }
+
+    /**
+     * Record the fact that an active listener calculates the element with
+     * the given name.
+     */
+    public void addProducer(String name, DataListener dl) {
+        producers.put(name, dl);
+    }
+
+    /** Return the changed elements that a given listener listens to. */
+    public Map<String, E> getEvents(DataListener dl) {
+        return events.get(dl);
+    }
+
+    /**
+     * Remove a listener from this graph.
+     *
+     * @return the changed elements the listener would have heard about
+     */
+    public Map<String, E> removeEvents(DataListener dl) {
+        return events.remove(dl);
+    }
+
+    /**
+     * Return the listeners in this graph, in an order that places every
+     * active listener before the listeners that depend on its value.
+     *
+     * @param circularNames a set that will receive the names of calculated
+     *     elements that were found to depend on their own value.
+     */
+    public List<DataListener> sort(Set<String> circularNames) {
+        List<DataListener> result = new ArrayList<DataListener>(events.size());
+        Map<DataListener, Boolean> visited =
+            new IdentityHashMap<DataListener, Boolean>();
+        for (DataListener dl : events.keySet())
+            visit(dl, visited, result, circularNames);
+        return result;
+    }
+
+    /**
+     * Perform a depth-first traversal of the listeners that a given listener
+     * depends on, adding them to the result in postorder.
+     *
+     * The visited map holds FALSE for a listener that is still on the
+     * traversal stack, and TRUE for a listener that has been added to the
+     * result.  Reaching a listener that is still on the stack means we have
+     * found a cycle.  The stack is kept in a list rather than on the call
+     * stack, so a long chain of calculations cannot overflow it.
+     */
+    private void visit(DataListener dl, Map<DataListener, Boolean> visited,
+            List<DataListener> result, Set<String> circularNames) {
+        if (visited.containsKey(dl))
+            return;
+
+        List<DataListener> stack = new ArrayList<DataListener>();
+        List<Iterator<String>> pendingNames = new ArrayList<Iterator<String>>();
+        visited.put(dl, Boolean.FALSE);
+        stack.add(dl);
+        pendingNames.add(events.get(dl).keySet().iterator());
+
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            Iterator<String> names = pendingNames.get(top);
+            if (!names.hasNext()) {
+                // all of this listener's dependencies are in the result
+                DataListener done = stack.remove(top);
+                pendingNames.remove(top);
+                visited.put(done, Boolean.TRUE);
+                result.add(done);
+                continue;
+            }
+
+            String name = names.next();
+            DataListener producer = producers.get(name);
+            if (producer == null || !events.containsKey(producer))
+                continue;
+            Boolean state = visited.get(producer);
+            if (state == Boolean.FALSE) {
+                circularNames.add(name);
+            } else if (state == null) {
+                visited.put(producer, Boolean.FALSE);
+                stack.add(producer);
+                pendingNames.add(events.get(producer).keySet().iterator());
+            }
+        }
+    }
+
+}
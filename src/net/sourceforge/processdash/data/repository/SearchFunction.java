@@ -26,8 +26,9 @@ package net.sourceforge.processdash.data.repository;
 
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 
@@ -38,7 +39,7 @@ import net.sourceforge.processdash.data.compiler.CompiledScript;
 
 
 public class SearchFunction implements SaveableData, RepositoryListener,
-        DataListener, Comparator, DataNameFilter.PrefixLocal
+        DataListener, Comparator, DataNameFilter.LeafName
 {
     protected SearchFactory factory;
     protected String name = null, prefix = null;
@@ -49,8 +50,8 @@ public class SearchFunction implements SaveableData, RepositoryListener,
     protected int chopTagLength;
     private volatile boolean valueQueried = false;
 
-    /** a list of the conditions created by this SearchFunction. */
-    protected Set condList = Collections.synchronizedSet(new HashSet());
+    /** the conditions created by this SearchFunction, keyed by prefix. */
+    protected Map condList = Collections.synchronizedMap(new HashMap());
 
 
     public SearchFunction(SearchFactory factory, String name, String start,
@@ -148,6 +149,16 @@ public class SearchFunction implements SaveableData, RepositoryListener,
         return (localName.equals(tag2) || localName.endsWith(tag));
     }
 
+    public String getLeafName() {
+        // storeTag() gives every tag a leading slash, unless the tag is
+        // empty or begins with a space.  Those tags can match the end of
+        // any leaf, so only tags with a slash can be looked up in an index.
+        if (tag.startsWith("/"))
+            return DataNameIndex.getLeafName(tag);
+        else
+            return null;
+    }
+
     public void dataAdded(String dataName) {
         String dataPrefix = getTagPrefix(dataName);
         if (dataPrefix == null) return;
@@ -177,7 +188,9 @@ public class SearchFunction implements SaveableData, RepositoryListener,
             data.putValue(condName, condition);
 
             // Keep a list of the conditions we're watching.
-            condList.add(condName);
+            String oldCondName = (String) condList.put(dataPrefix, condName);
+            if (oldCondName != null)
+                data.removeDataListener(oldCondName, this);
 
             // Listen for changes to this condition expression.
             data.addActiveDataListener(condName, this, name, false);
@@ -202,18 +215,9 @@ public class SearchFunction implements SaveableData, RepositoryListener,
             return;             // Guard against infinite loops.
         */
 
-        String condNamePrefix = dataPrefix + "/" + CONDITION_NAME;
-
-        Iterator i = condList.iterator();
-        String condName;
-        while (i.hasNext()) {
-            condName = (String) i.next();
-            if (condName.startsWith(condNamePrefix)) {
-                data.removeDataListener(condName, this);
-                condList.remove(condName);
-                break;
-            }
-        }
+        String condName = (String) condList.remove(dataPrefix);
+        if (condName != null)
+            data.removeDataListener(condName, this);
 
         // Note that it isn't necessary for us to removeDataListener(dataName)
         // because the element associated with dataName is disappearing even
@@ -235,7 +239,8 @@ public class SearchFunction implements SaveableData, RepositoryListener,
 
 
     private boolean isCondition(String name) {
-        return (condList.contains(name));
+        String condPrefix = getConditionPrefix(name);
+        return (condPrefix != null && name.equals(condList.get(condPrefix)));
     }
 
     private boolean handleDataEvent(DataEvent e) {
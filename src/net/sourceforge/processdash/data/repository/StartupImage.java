@@ -0,0 +1,453 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.repository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sourceforge.processdash.util.RobustFileOutputStream;
+
+
+/**
+ * A binary image of the parsed definitions that were needed to open a
+ * dataset, which can be used to avoid parsing text files on the next launch.
+ * <p>
+ * The image holds the definitions of each included datafile, and the raw
+ * parsed contents of each project datafile (including compiled scripts).
+ * The image as a whole is only used if it was written by the same version
+ * of the dashboard, for the same set of templates, encoding, and #define
+ * declarations.  Each project datafile entry is only used if the file's
+ * size and modification time still match.  Anything else is parsed from
+ * text, and recorded so it can be written into the next image.
+ * <p>
+ * The image file is read into memory, and each entry is deserialized only
+ * when it is requested.  Entries can be requested and recorded from several
+ * threads at once.
+ */
+class StartupImage {
+
+    private static final int MAGIC = 0x50444952; // "PDIR"
+
+    private static final int FORMAT_VERSION = 1;
+
+
+    /** The header values an image must have to be usable */
+    private String version;
+
+    private long templateTimestamp;
+
+    private String encoding;
+
+    private int definesHash;
+
+    /** The contents of the image that was loaded, or null */
+    private ByteBuffer buffer;
+
+    /** The position and length of the included file definitions */
+    private int definitionsPos, definitionsLen;
+
+    /** The entries for project datafiles in the loaded image */
+    private Map<String, Entry> loadedEntries;
+
+    /** Datafile entries that were parsed from text during this session */
+    private Map<String, Entry> freshEntries;
+
+    /** The names of included files used during this session, and the
+     * global values that each one declared */
+    private Map<String, List> includedFiles;
+
+    private volatile boolean dirty;
+
+    private static final Logger logger = Logger.getLogger(StartupImage.class
+            .getName());
+
+
+    StartupImage(String version, long templateTimestamp, String encoding,
+            int definesHash) {
+        this.version = (version == null ? "" : version);
+        this.templateTimestamp = templateTimestamp;
+        this.encoding = encoding;
+        this.definesHash = definesHash;
+        this.loadedEntries = Collections.EMPTY_MAP;
+        this.freshEntries = new ConcurrentHashMap<String, Entry>();
+        this.includedFiles = Collections.synchronizedMap(
+            new LinkedHashMap<String, List>());
+        this.dirty = true;
+    }
+
+
+    /**
+     * Read the given image file into memory, and read its index.
+     * 
+     * @return true if the image is usable; false if it is missing, stale, or
+     *         damaged.
+     */
+    boolean load(File file) {
+        if (!file.isFile())
+            return false;
+
+        try {
+            // read the image onto the heap.  A memory-mapped file could not
+            // be replaced by save() on Windows until the mapping was
+            // garbage collected.
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            ByteBuffer buf;
+            try {
+                byte[] contents = new byte[(int) raf.length()];
+                raf.readFully(contents);
+                buf = ByteBuffer.wrap(contents);
+            } finally {
+                raf.close();
+            }
+
+            DataInputStream in = new DataInputStream(new BufferInputStream(
+                    buf.duplicate()));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION
+                    || !version.equals(in.readUTF())
+                    || in.readLong() != templateTimestamp
+                    || !encoding.equals(in.readUTF())
+                    || in.readInt() != definesHash) {
+                logger.fine("Startup image is out of date");
+                return false;
+            }
+
+            definitionsPos = in.readInt();
+            definitionsLen = in.readInt();
+            int numEntries = in.readInt();
+            Map<String, Entry> entries = new HashMap<String, Entry>(
+                    numEntries * 2);
+            for (int i = 0; i < numEntries; i++) {
+                Entry e = new Entry();
+                e.path = in.readUTF();
+                e.modTime = in.readLong();
+                e.length = in.readLong();
+                e.pos = in.readInt();
+                e.len = in.readInt();
+                entries.put(e.path, e);
+            }
+            if (in.readInt() != MAGIC)
+                throw new IOException("Index is damaged");
+
+            this.buffer = buf;
+            this.loadedEntries = entries;
+            this.dirty = false;
+            return true;
+
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Unable to read startup image "
+                    + file, e);
+            this.buffer = null;
+            this.loadedEntries = Collections.EMPTY_MAP;
+            return false;
+        }
+    }
+
+
+    /**
+     * Read the definitions of the included files from the loaded image.
+     * 
+     * @return a map whose keys are the names of included files, and whose
+     *         values are two-element arrays holding the definitions
+     *         of the file and a list of global values it declared.  Returns
+     *         null if the definitions could not be read.
+     */
+    Map<String, Object[]> getIncludedFiles() {
+        if (buffer == null)
+            return null;
+        try {
+            Map<String, Object[]> result = (Map<String, Object[]>) readObject(
+                definitionsPos, definitionsLen);
+            for (Map.Entry<String, Object[]> e : result.entrySet())
+                includedFiles.put(e.getKey(), (List) e.getValue()[1]);
+            return result;
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Unable to read included file "
+                    + "definitions from startup image", e);
+            buffer = null;
+            loadedEntries = Collections.EMPTY_MAP;
+            dirty = true;
+            return null;
+        }
+    }
+
+    /**
+     * Record an included file that was used during this session, along with
+     * the global values it declared.
+     */
+    void recordIncludedFile(String name, List globalValues) {
+        if (includedFiles.put(name, globalValues) == null)
+            dirty = true;
+    }
+
+    /**
+     * Find the parsed contents of a datafile in the loaded image.
+     * 
+     * @return an array holding the name of the file the datafile inherits
+     *         from, a map of its parsed values, and a list of the global
+     *         values it declared; or null if the image does not contain an
+     *         up-to-date entry for the file.
+     */
+    Object[] getDatafile(File file, long modTime, long length) {
+        Entry e = loadedEntries.get(file.getPath());
+        if (e == null || e.modTime != modTime || e.length != length) {
+            dirty = true;
+            return null;
+        }
+
+        try {
+            return (Object[]) readObject(e.pos, e.len);
+        } catch (Exception ex) {
+            logger.log(Level.FINE, "Unable to read startup image entry for "
+                    + file, ex);
+            dirty = true;
+            return null;
+        }
+    }
+
+    /**
+     * Record the parsed contents of a datafile, so they can be written into
+     * the next image.  This should be called before the values are mounted
+     * or modified.
+     */
+    void recordDatafile(File file, long modTime, long length,
+            String inheritsFrom, Map values, List globalValues) {
+        Entry e = new Entry();
+        e.path = file.getPath();
+        e.modTime = modTime;
+        e.length = length;
+        try {
+            e.data = serialize(new Object[] { inheritsFrom, values,
+                    globalValues });
+            freshEntries.put(e.path, e);
+        } catch (IOException ioe) {
+            // some value in this file can't be serialized. It will be parsed
+            // from text on the next launch.
+            logger.log(Level.FINE, "Cannot record " + file
+                    + " in startup image", ioe);
+        }
+        dirty = true;
+    }
+
+
+    /**
+     * Write a new image.
+     * 
+     * @param includedDefinitions
+     *            the definitions of the included files that were recorded
+     * @param datafiles
+     *            the project datafiles that should be included in the image.
+     *            Files that have changed since they were parsed are omitted.
+     * @return true if a new image was written
+     */
+    boolean save(File file, Map<String, Map> includedDefinitions,
+            Collection<File> datafiles) throws IOException {
+        if (!dirty)
+            return false;
+
+        // serialize the definitions of included files, omitting any that
+        // contain unserializable values
+        Map<String, Object[]> includes = new LinkedHashMap<String, Object[]>();
+        synchronized (includedFiles) {
+            for (Map.Entry<String, List> e : includedFiles.entrySet()) {
+                Map defns = includedDefinitions.get(e.getKey());
+                if (defns == null)
+                    continue;
+                Object[] include = new Object[] { new HashMap(defns),
+                        e.getValue() };
+                try {
+                    serialize(include);
+                    includes.put(e.getKey(), include);
+                } catch (IOException ioe) {
+                    logger.log(Level.FINE, "Cannot record " + e.getKey()
+                            + " in startup image", ioe);
+                }
+            }
+        }
+        byte[] definitions = serialize(includes);
+
+        // find the up-to-date entries for each datafile
+        List<Entry> entries = new ArrayList<Entry>();
+        for (File f : datafiles) {
+            String path = f.getPath();
+            Entry e = freshEntries.get(path);
+            if (e == null)
+                e = loadedEntries.get(path);
+            if (e != null && e.modTime == f.lastModified()
+                    && e.length == f.length())
+                entries.add(e);
+        }
+
+        // build the index
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(indexBytes);
+        index.writeInt(MAGIC);
+        index.writeInt(FORMAT_VERSION);
+        index.writeUTF(version);
+        index.writeLong(templateTimestamp);
+        index.writeUTF(encoding);
+        index.writeInt(definesHash);
+        int headerLen = index.size() + 12;
+        int indexLen = headerLen + 4;
+        for (Entry e : entries)
+            indexLen += utfLength(e.path) + 8 + 8 + 4 + 4;
+
+        int pos = indexLen;
+        index.writeInt(pos);
+        index.writeInt(definitions.length);
+        pos += definitions.length;
+        index.writeInt(entries.size());
+        for (Entry e : entries) {
+            index.writeUTF(e.path);
+            index.writeLong(e.modTime);
+            index.writeLong(e.length);
+            index.writeInt(pos);
+            index.writeInt(e.getLength());
+            pos += e.getLength();
+        }
+        index.writeInt(MAGIC);
+        if (index.size() != indexLen)
+            throw new IOException("Unexpected index length");
+
+        // write the image
+        OutputStream out = new RobustFileOutputStream(file);
+        try {
+            indexBytes.writeTo(out);
+            out.write(definitions);
+            for (Entry e : entries)
+                e.writeTo(out);
+        } catch (IOException ioe) {
+            ((RobustFileOutputStream) out).abort();
+            throw ioe;
+        }
+        out.close();
+        return true;
+    }
+
+    private Object readObject(int pos, int len) throws IOException,
+            ClassNotFoundException {
+        ObjectInputStream in = new ObjectInputStream(new BufferInputStream(
+                slice(pos, len)));
+        return in.readObject();
+    }
+
+    private ByteBuffer slice(int pos, int len) {
+        // each caller gets its own view of the buffer, so entries can be
+        // read by several threads at once
+        ByteBuffer result = buffer.duplicate();
+        result.position(pos);
+        result.limit(pos + len);
+        return result;
+    }
+
+    private static byte[] serialize(Object o) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(o);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static int utfLength(String s) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeUTF(s);
+        return bytes.size();
+    }
+
+
+    private class Entry {
+
+        String path;
+
+        long modTime, length;
+
+        /** The position and length of an entry in the loaded image */
+        int pos, len;
+
+        /** The bytes of an entry that was recorded during this session */
+        byte[] data;
+
+        int getLength() {
+            return (data != null ? data.length : len);
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            if (data != null) {
+                out.write(data);
+            } else {
+                byte[] buf = new byte[len];
+                slice(pos, len).get(buf);
+                out.write(buf);
+            }
+        }
+    }
+
+
+    private static class BufferInputStream extends InputStream {
+
+        private ByteBuffer buf;
+
+        BufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return (buf.hasRemaining() ? buf.get() & 0xff : -1);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buf.hasRemaining())
+                return -1;
+            len = Math.min(len, buf.remaining());
+            buf.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+
+package net.sourceforge.processdash.ev;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the work that must be postponed while task lists are being
+ * recalculated on a background thread.
+ * 
+ * When a rollup recalculates its task lists in parallel, listener
+ * notifications and steps that use objects shared between task lists are
+ * recorded here instead of being performed on the worker thread.  The
+ * rollup then runs them on its own thread, one task list at a time, in the
+ * same order the serial recalculation would have used.
+ * 
+ * @since 2.7.6
+ */
+class DeferredRecalcEvents {
+
+    private static final ThreadLocal<List<Runnable>> PENDING =
+        new ThreadLocal<List<Runnable>>();
+
+
+    /** Begin collecting deferred work on the current thread */
+    static void begin() {
+        PENDING.set(new ArrayList<Runnable>());
+    }
+
+    /** Stop collecting deferred work on the current thread, and return the
+     * work that was collected, in the order it was requested */
+    static List<Runnable> end() {
+        List<Runnable> result = PENDING.get();
+        PENDING.remove();
+        return result;
+    }
+
+    /** @return true if work is being deferred on the current thread */
+    static boolean isDeferring() {
+        return PENDING.get() != null;
+    }
+
+    /**
+     * Defer a piece of work, if the current thread is collecting it.
+     * 
+     * @return true if the work was deferred, false if the caller should
+     *    perform it immediately
+     */
+    static boolean defer(Runnable r) {
+        List<Runnable> pending = PENDING.get();
+        if (pending == null)
+            return false;
+        pending.add(r);
+        return true;
+    }
+
+    /** Perform a list of deferred work items, in order */
+    static void run(List<Runnable> work) {
+        if (work != null)
+            for (Runnable r : work)
+                r.run();
+    }
+
+}
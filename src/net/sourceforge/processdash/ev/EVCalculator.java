@@ -61,6 +61,32 @@ public abstract class EVCalculator {
     public abstract void recalculate();
 
 
+    /**
+     * Update the results of the last recalculation to reflect changes in
+     * the time logged to a few tasks, without recalculating everything.
+     *
+     * Derived values such as forecast dates and confidence intervals are
+     * not updated; callers should still perform a full recalculation from
+     * time to time.
+     *
+     * @param tasks the tasks whose logged time has changed
+     * @return true if the changes were applied, false if a full
+     *     recalculation is needed instead.
+     */
+    public boolean recalculateActualTime(Collection<EVTask> tasks) {
+        return false;
+    }
+
+
+    /**
+     * Messaged before a call to {@link #recalculate()}, when the only
+     * changes since the last recalculation were to planned times.
+     * Calculators can use this hint to reuse data that planned times do not
+     * affect.
+     */
+    public void planTimeChanged() {}
+
+
     public List getEVLeaves() {
         return evLeaves;
     }
@@ -27,10 +27,13 @@ package net.sourceforge.processdash.ev;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import net.sourceforge.processdash.Settings;
 import net.sourceforge.processdash.ev.ci.AbstractConfidenceInterval;
@@ -58,6 +61,13 @@ public class EVCalculatorData extends EVCalculator {
     private EVForecastDateCalculator replanDateCalculator;
     private EVForecastDateCalculator forecastDateCalculator;
 
+    /** The time log entries applied to each task by the last full
+     * recalculation, so later changes can be applied incrementally */
+    private Map<EVTask, LoggedTime> loggedTime;
+    private boolean loggedTimeRezero;
+    private Date loggedTimeStartDate;
+    private boolean reuseLoggedTime;
+
     @SuppressWarnings("deprecation")
     public EVCalculatorData(EVTaskList taskList) {
         this.taskList = taskList;
@@ -102,15 +112,28 @@ public class EVCalculatorData extends EVCalculator {
         schedule.cleanUp();
         schedule.recalcCumPlanTimes();
 
+        // if only plan times have changed, the time log entries read by the
+        // previous calculation can be applied again, without rereading them.
+        boolean replayLoggedTime = reuseLoggedTime && canReplayLoggedTime();
+        reuseLoggedTime = false;
+        if (!replayLoggedTime) {
+            loggedTime = new HashMap<EVTask, LoggedTime>();
+            loggedTimeRezero = rezeroAtStartDate;
+            loggedTimeStartDate = scheduleStartDate;
+        }
+
         // find time logged to tasks before the start of the schedule.
         TimeLog log = timeLog;
         try {
-            if (rezeroAtStartDate)
+            if (replayLoggedTime)
+                replayActualPreTime();
+            else if (rezeroAtStartDate)
                 saveActualPreTime(log);
         } catch (IOException ioe) {
             ioe.printStackTrace();
             schedule.getMetrics().addError
                 ("Unable to retrieve time log data.", taskRoot);
+            loggedTime = null;
         }
 
         // calculate planned and actual earned values, planned dates, and
@@ -127,11 +150,15 @@ public class EVCalculatorData extends EVCalculator {
 
         // record actual time spent on tasks.
         try {
-            saveActualScheduleTime(log);
+            if (replayLoggedTime)
+                replayActualScheduleTime();
+            else
+                saveActualScheduleTime(log);
         } catch (IOException ioe) {
             ioe.printStackTrace();
             schedule.getMetrics().addError
                 ("Unable to retrieve time log data.", taskRoot);
+            loggedTime = null;
         }
         schedule.recalcCumActualTimes();
 
@@ -258,14 +285,25 @@ public class EVCalculatorData extends EVCalculator {
                 if (d == null || d.compareTo(scheduleStartDate) >= 0) continue;
 
                 EVTask task = taskRoot.getTaskForPath(entry.getPath());
-                if (task != null && !task.isLevelOfEffortTask())
-                    task.actualPreTime += entry.getElapsedTime();
+                if (task != null) {
+                    getLoggedTime(task).preTime += entry.getElapsedTime();
+                    if (!task.isLevelOfEffortTask())
+                        task.actualPreTime += entry.getElapsedTime();
+                }
             }
         } catch (IONoSuchElementException ion) {
             throw ion.getIOException();
         }
     }
 
+    private void replayActualPreTime() {
+        for (Map.Entry<EVTask, LoggedTime> e : loggedTime.entrySet()) {
+            EVTask task = e.getKey();
+            if (!task.isLevelOfEffortTask())
+                task.actualPreTime += e.getValue().preTime;
+        }
+    }
+
 
     private double calcTaskValues(List evLeaves) {
         double cumPlanValue = 0;
@@ -346,26 +384,41 @@ public class EVCalculatorData extends EVCalculator {
         EVTask task = taskRoot.getTaskForPath(entry.getPath());
         if (task == null) return;
 
+        getLoggedTime(task).add(d, entry.getElapsedTime());
+        saveActualScheduleTime(task, d, entry.getElapsedTime());
+    }
+
+    private void replayActualScheduleTime() {
+        for (Map.Entry<EVTask, LoggedTime> e : loggedTime.entrySet()) {
+            EVTask task = e.getKey();
+            LoggedTime t = e.getValue();
+            for (int i = 0;  i < t.size;  i++)
+                saveActualScheduleTime(task, new Date(t.starts[i]),
+                    t.elapsed[i]);
+        }
+    }
+
+    private void saveActualScheduleTime(EVTask task, Date d, long elapsed) {
         if (task.isLevelOfEffortTask()) {
             // for level of effort tasks, ignore time logged outside the
             // effective period of the schedule.
             if (d.compareTo(scheduleStartDate) > 0
                     && d.compareTo(effectiveDate) < 0) {
-                task.actualNodeTime += entry.getElapsedTime();
-                schedule.getMetrics().addIndirectTime(entry.getElapsedTime());
-                schedule.saveActualIndirectTime(d, entry.getElapsedTime());
+                task.actualNodeTime += elapsed;
+                schedule.getMetrics().addIndirectTime(elapsed);
+                schedule.saveActualIndirectTime(d, elapsed);
             }
             return;
         }
 
-        task.actualNodeTime += entry.getElapsedTime();
+        task.actualNodeTime += elapsed;
         if (task.actualStartDate == null ||
             task.actualStartDate.compareTo(d) > 0)
             task.actualStartDate = d;
 
         if (task.isUserPruned()) return;
 
-        schedule.saveActualTime(d, entry.getElapsedTime());
+        schedule.saveActualTimeDeferred(d, elapsed);
 
         if (checkForFutureTimeLogDates) {
             long delta = d.getTime() - effectiveDate.getTime();
@@ -380,6 +433,197 @@ public class EVCalculatorData extends EVCalculator {
     }
 
 
+    @Override
+    public void planTimeChanged() {
+        reuseLoggedTime = true;
+    }
+
+    private boolean canReplayLoggedTime() {
+        if (loggedTime == null
+                || loggedTimeRezero != rezeroAtStartDate
+                || !loggedTimeStartDate.equals(scheduleStartDate))
+            return false;
+        for (EVTask task : loggedTime.keySet())
+            if (!isInTaskTree(task))
+                return false;
+        return true;
+    }
+
+    private boolean isInTaskTree(EVTask task) {
+        while (task.parent != null)
+            task = task.parent;
+        return task == taskRoot;
+    }
+
+    private LoggedTime getLoggedTime(EVTask task) {
+        LoggedTime result = loggedTime.get(task);
+        if (result == null)
+            loggedTime.put(task, result = new LoggedTime());
+        return result;
+    }
+
+
+    @Override
+    public boolean recalculateActualTime(Collection<EVTask> tasks) {
+        if (loggedTime == null)
+            return false;
+
+        // read the current time log entries for each task, and make certain
+        // the changes can be applied without a full recalculation.
+        Map<EVTask, LoggedTime> newTimes = new HashMap<EVTask, LoggedTime>();
+        try {
+            for (EVTask task : tasks) {
+                if (!canRecalculateActualTime(task))
+                    return false;
+
+                LoggedTime oldTime = loggedTime.get(task);
+                if (oldTime == null)
+                    oldTime = new LoggedTime();
+                LoggedTime newTime = readLoggedTime(task);
+
+                // time logged before the start of the schedule alters the
+                // plan value of the task.
+                if (newTime.preTime != oldTime.preTime)
+                    return false;
+
+                // the start date of the task can move earlier, but if it
+                // moves later, the start dates of its parents are unknown.
+                Date oldStart = oldTime.getStartDate();
+                Date newStart = newTime.getStartDate();
+                if (oldStart != null
+                        && (newStart == null || newStart.after(oldStart)))
+                    return false;
+
+                newTimes.put(task, newTime);
+            }
+        } catch (IOException ioe) {
+            return false;
+        }
+
+        schedule.prepForEvents();
+        for (Map.Entry<EVTask, LoggedTime> e : newTimes.entrySet()) {
+            EVTask task = e.getKey();
+            LoggedTime newTime = e.getValue();
+            LoggedTime oldTime = loggedTime.put(task, newTime);
+
+            // the task's node time was replaced with the value from the data
+            // repository.  Restore the value from the last calculation, then
+            // back out the old entries and apply the new ones.
+            double nodeTime = 0;
+            if (oldTime != null) {
+                nodeTime = oldTime.getTotalTime();
+                task.actualNodeTime = nodeTime;
+                for (int i = 0;  i < oldTime.size;  i++)
+                    saveActualScheduleTime(task, new Date(oldTime.starts[i]),
+                        -oldTime.elapsed[i]);
+            } else {
+                task.actualNodeTime = 0;
+            }
+            for (int i = 0;  i < newTime.size;  i++)
+                saveActualScheduleTime(task, new Date(newTime.starts[i]),
+                    newTime.elapsed[i]);
+
+            // pass the difference along to the task's ancestors.
+            double delta = task.actualNodeTime - nodeTime;
+            boolean direct = !task.isUserPruned();
+            for (EVTask t = task;  t != null;  t = t.parent) {
+                t.actualTime += delta;
+                t.actualCurrentTime += delta;
+                if (direct)
+                    t.actualDirectTime += delta;
+                t.actualStartDate = minStartDate(t.actualStartDate,
+                    task.actualStartDate);
+            }
+        }
+
+        schedule.recalcCumActualTimes();
+        schedule.getMetrics().recalcScheduleTime(schedule);
+        schedule.firePreparedEvents();
+        return true;
+    }
+
+    private boolean canRecalculateActualTime(EVTask task) {
+        if (task.fullName == null || task.fullName.length() == 0
+                || !isInTaskTree(task))
+            return false;
+
+        // level of effort time depends on the effective date, which is
+        // only updated by a full recalculation.
+        if (task.isLevelOfEffortTask())
+            return false;
+
+        // the actual time of completed tasks, and of parent nodes in the
+        // plan, contributes to the cost metrics.
+        if (task.dateCompleted != null || !task.isEVLeaf())
+            return false;
+        return (task.planDate != null || task.isUserPruned());
+    }
+
+    /** Read the time log entries that were logged against a task */
+    private LoggedTime readLoggedTime(EVTask task) throws IOException {
+        LoggedTime result = new LoggedTime();
+        try {
+            Iterator entries = timeLog.filter(task.fullName, null, null);
+            while (entries.hasNext()) {
+                TimeLogEntry entry = (TimeLogEntry) entries.next();
+                Date d = entry.getStartTime();
+                if (d == null
+                        || taskRoot.getTaskForPath(entry.getPath()) != task)
+                    continue;
+                if (beforeZeroDate(d))
+                    result.preTime += entry.getElapsedTime();
+                else
+                    result.add(d, entry.getElapsedTime());
+            }
+        } catch (IONoSuchElementException ion) {
+            throw ion.getIOException();
+        }
+        return result;
+    }
+
+    /** The time log entries that were logged against a single task */
+    private static class LoggedTime {
+
+        /** The total time logged before the start of the schedule, if the
+         * schedule is rezeroed at its start date */
+        double preTime;
+
+        /** The start time and elapsed time of each other entry */
+        long[] starts = new long[2];
+        long[] elapsed = new long[2];
+        int size;
+
+        void add(Date start, long elapsedTime) {
+            if (size == starts.length) {
+                long[] newStarts = new long[size * 2];
+                long[] newElapsed = new long[size * 2];
+                System.arraycopy(starts, 0, newStarts, 0, size);
+                System.arraycopy(elapsed, 0, newElapsed, 0, size);
+                starts = newStarts;
+                elapsed = newElapsed;
+            }
+            starts[size] = start.getTime();
+            elapsed[size] = elapsedTime;
+            size++;
+        }
+
+        double getTotalTime() {
+            double result = 0;
+            for (int i = 0;  i < size;  i++)
+                result += elapsed[i];
+            return result;
+        }
+
+        Date getStartDate() {
+            if (size == 0)
+                return null;
+            long result = Long.MAX_VALUE;
+            for (int i = 0;  i < size;  i++)
+                result = Math.min(result, starts[i]);
+            return new Date(result);
+        }
+    }
+
 
     private void recalcMetrics(EVTask task, EVMetrics metrics) {
         if (task.planDate != null)
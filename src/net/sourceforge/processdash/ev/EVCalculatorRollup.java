@@ -33,7 +33,16 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 import java.util.Vector;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sourceforge.processdash.Settings;
 import net.sourceforge.processdash.ev.ci.ConfidenceInterval;
 import net.sourceforge.processdash.ev.ci.ConfidenceIntervalProvider;
 import net.sourceforge.processdash.ev.ci.ConfidenceIntervalSum;
@@ -64,27 +73,12 @@ public class EVCalculatorRollup extends EVCalculator {
         evLeaves = null;
 
         // Recalculate all the subschedules.
-        for (int i = evTaskLists.size();   i-- > 0; ) {
-            EVTaskList taskList = (EVTaskList) evTaskLists.get(i);
-
-            // install rollup-level confidence interval providers, then ask
-            // the task list to recalculate.
-            tweakConfidenceIntervalProviders(taskList);
-            taskList.recalc();
-
-            // On rare occasions, some task lists might create a new calculator
-            // as a result of a recalc operation. If this has occurred,
-            // reinstall our interval providers and recalc again.
-            if (tweakConfidenceIntervalProviders(taskList))
-                taskList.recalc();
-
-            // Some types of task lists perform a recalc by completely
-            // replacing their root task and schedule. Give them the
-            // benefit of the doubt and make certain that we are using
-            // the correct root and schedule
-            taskRoot.replace(i, (EVTask) taskList.getRoot());
-            schedule.replaceSchedule(i, taskList);
-        }
+        int numThreads = getNumRecalcThreads();
+        if (numThreads > 1 && !DeferredRecalcEvents.isDeferring())
+            recalcSubSchedulesInParallel(numThreads);
+        else
+            for (int i = evTaskLists.size();   i-- > 0; )
+                recalcSubSchedule(i);
 
         // Calculate confidence intervals, if possible.
         createConfidenceIntervals();
@@ -109,6 +103,142 @@ public class EVCalculatorRollup extends EVCalculator {
         writeOverspentFallbackDates();
     }
 
+    private void recalcSubSchedule(int i) {
+        EVTaskList taskList = (EVTaskList) evTaskLists.get(i);
+        recalcTaskList(taskList);
+
+        // Some types of task lists perform a recalc by completely
+        // replacing their root task and schedule. Give them the
+        // benefit of the doubt and make certain that we are using
+        // the correct root and schedule
+        taskRoot.replace(i, (EVTask) taskList.getRoot());
+        schedule.replaceSchedule(i, taskList);
+    }
+
+    private void recalcTaskList(EVTaskList taskList) {
+        // install rollup-level confidence interval providers, then ask
+        // the task list to recalculate.
+        tweakConfidenceIntervalProviders(taskList);
+        taskList.recalc();
+
+        // On rare occasions, some task lists might create a new calculator
+        // as a result of a recalc operation. If this has occurred,
+        // reinstall our interval providers and recalc again.
+        if (tweakConfidenceIntervalProviders(taskList))
+            taskList.recalc();
+    }
+
+    /** Return the number of threads that should recalculate subschedules */
+    private int getNumRecalcThreads() {
+        int result = Settings.getInt("ev.rollupRecalcThreads", -1);
+        if (result < 1)
+            result = Runtime.getRuntime().availableProcessors();
+        result = Math.min(result, MAX_RECALC_THREADS);
+        return Math.min(result, evTaskLists.size());
+    }
+
+    /**
+     * Recalculate the subschedules on the shared pool of worker threads.
+     * 
+     * Each task list is recalculated by a single worker.  Listener
+     * notifications, and the recalculation of task labelers that may be
+     * shared between task lists, are deferred; they are performed on this
+     * thread afterward, in the same order the serial loop would have used.
+     * Subschedules that are rollups themselves recalculate their own
+     * children serially on the worker thread.
+     */
+    @SuppressWarnings("unchecked")
+    private void recalcSubSchedulesInParallel(int numThreads) {
+        final int size = evTaskLists.size();
+        final List<Runnable>[] deferred = new List[size];
+        final AtomicInteger nextPos = new AtomicInteger();
+
+        // submit one job per thread we are allowed to use.  Each job claims
+        // task lists in the order used by the serial loop until none remain.
+        List<Future<?>> results = new ArrayList<Future<?>>(numThreads);
+        for (int t = 0;   t < numThreads;   t++) {
+            results.add(RECALC_EXECUTOR.submit(new Callable<Object>() {
+                public Object call() {
+                    int j;
+                    while ((j = nextPos.getAndIncrement()) < size)
+                        deferred[j] = recalcSubScheduleDeferred(size - 1 - j);
+                    return null;
+                }}));
+        }
+
+        // wait for all of the workers to finish before anything else
+        // looks at the task lists.
+        Throwable error = null;
+        for (Future<?> f : results) {
+            try {
+                f.get();
+            } catch (ExecutionException ee) {
+                if (error == null)
+                    error = ee.getCause();
+            } catch (InterruptedException ie) {
+                for (Future<?> g : results)
+                    g.cancel(false);
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(ie);
+            }
+        }
+        if (error instanceof RuntimeException)
+            throw (RuntimeException) error;
+        else if (error instanceof Error)
+            throw (Error) error;
+
+        // finish each task list in the order used by the serial loop.
+        for (int j = 0;   j < size;   j++) {
+            int i = size - 1 - j;
+            DeferredRecalcEvents.run(deferred[j]);
+            EVTaskList taskList = evTaskLists.get(i);
+            taskRoot.replace(i, (EVTask) taskList.getRoot());
+            schedule.replaceSchedule(i, taskList);
+        }
+    }
+
+    /** Recalculate a subschedule on a worker thread, and return the work
+     * that it deferred */
+    private List<Runnable> recalcSubScheduleDeferred(int i) {
+        List<Runnable> result;
+        DeferredRecalcEvents.begin();
+        try {
+            recalcTaskList(evTaskLists.get(i));
+        } finally {
+            result = DeferredRecalcEvents.end();
+        }
+        return result;
+    }
+
+    private static final int MAX_RECALC_THREADS = 8;
+
+    /** Return true if the current thread is recalculating a subschedule
+     * on behalf of a parallel rollup recalc */
+    public static boolean isRecalcThread() {
+        // recalcSubScheduleDeferred() collects deferred work in a thread
+        // local for exactly as long as it is recalculating a subschedule
+        return DeferredRecalcEvents.isDeferring();
+    }
+
+    private static final ThreadFactory RECALC_THREAD_FACTORY =
+        new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "EV Rollup Recalc");
+                t.setDaemon(true);
+                return t;
+            }
+        };
+
+    /** The threads shared by all rollup recalcs.  Idle threads exit after a
+     * minute, so the pool costs nothing between recalcs. */
+    private static final ThreadPoolExecutor RECALC_EXECUTOR =
+        new ThreadPoolExecutor(MAX_RECALC_THREADS, MAX_RECALC_THREADS, 60,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                RECALC_THREAD_FACTORY);
+    static {
+        RECALC_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
     @Override
     public void setBaselineDataSource(EVSnapshot baselineDataSource) {
         super.setBaselineDataSource(baselineDataSource);
@@ -461,14 +591,8 @@ public class EVCalculatorRollup extends EVCalculator {
         if (COST_ONLY) { createCostInterval(); return; }
 
         // System.out.println("Creating both intervals");
-        List subs = schedule.subSchedules;
-        EVScheduleRandom[] randSchedules = new EVScheduleRandom[subs.size()];
-        for (int i = 0;   i < randSchedules.length;   i++)
-            randSchedules[i] = new EVScheduleRandom((EVSchedule) subs.get(i));
-
-        EVScheduleRollup sr = new EVScheduleRollup(randSchedules);
-        EVScheduleConfidenceIntervals ci = new EVScheduleConfidenceIntervals
-            (sr, Arrays.asList(randSchedules));
+        EVScheduleConfidenceIntervals ci = new EVScheduleConfidenceIntervals(
+                new RandomRollupFactory(schedule.subSchedules), false);
 
         EVMetricsRollup metrics = (EVMetricsRollup) schedule.getMetrics();
         metrics.setCostConfidenceInterval(ci.getCostInterval());
@@ -480,6 +604,29 @@ public class EVCalculatorRollup extends EVCalculator {
 
 
 
+    /** Creates rollups of randomized copies of a list of schedules */
+    private static class RandomRollupFactory implements
+            EVScheduleConfidenceIntervals.ScheduleFactory {
+
+        private List subSchedules;
+
+        RandomRollupFactory(List subSchedules) {
+            this.subSchedules = subSchedules;
+        }
+
+        public EVSchedule createSchedule(List randomObjects) {
+            EVScheduleRandom[] randSchedules =
+                new EVScheduleRandom[subSchedules.size()];
+            for (int i = 0;   i < randSchedules.length;   i++)
+                randSchedules[i] = new EVScheduleRandom(
+                        (EVSchedule) subSchedules.get(i));
+            randomObjects.addAll(Arrays.asList(randSchedules));
+            return new EVScheduleRollup(randSchedules);
+        }
+    }
+
+
+
     private static boolean RECENTER = true;
     private boolean allSchedulesHaveTimeErrInterval() {
         if (schedule.subSchedules.isEmpty())
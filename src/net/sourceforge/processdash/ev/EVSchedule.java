@@ -545,6 +545,9 @@ public class EVSchedule implements TableModel {
     EVSnapshot baselineSnapshot = null;
     SortedMap<Date, String> periodNotes;
 
+    /** The end times of each period, for binary searches by date */
+    private long[] periodEndTimes;
+
     private static final String NOTE_NEEDS_CALC = null;
 
     public EVSchedule() { this(20.0); }
@@ -941,6 +944,15 @@ public class EVSchedule implements TableModel {
 
     public synchronized Period get(Date when) {
         long time = when.getTime();
+        int pos = countPeriodsEndingBefore(time, false);
+        if (pos != -1) {
+            if (pos < periods.size())
+                return (time > get(pos).getBeginDate().getTime() ? get(pos)
+                        : null);
+            else
+                return getLast();
+        }
+
         Period p;
         for (int i = periods.size();  i-- > 0; ) {
             p = get(i);
@@ -950,6 +962,63 @@ public class EVSchedule implements TableModel {
         return null;
     }
 
+    /** Return the number of leading periods in this schedule which end
+     * before the given time (or at that time, if <tt>inclusive</tt> is
+     * true).
+     *
+     * This performs a binary search over an array of period end times.
+     * The array is rebuilt whenever the periods around the answer no
+     * longer agree with it, so callers do not need to report edits.
+     *
+     * @return the number of periods, or -1 if the periods are not in
+     *    chronological order (in which case the caller should fall back
+     *    to a linear scan)
+     */
+    private int countPeriodsEndingBefore(long time, boolean inclusive) {
+        for (int attempt = 0;  attempt < 2;  attempt++) {
+            long[] ends = periodEndTimes;
+            if (ends == null || ends.length != periods.size()) {
+                ends = rebuildPeriodEndTimes();
+                if (ends == null) return -1;
+            }
+
+            int lo = 0, hi = ends.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (ends[mid] < time || (inclusive && ends[mid] == time))
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+
+            // confirm the answer against the live periods on either side.
+            if (isPeriodEndBefore(lo - 1, time, inclusive, true)
+                    && isPeriodEndBefore(lo, time, inclusive, false))
+                return lo;
+            periodEndTimes = null;
+        }
+        return -1;
+    }
+
+    private boolean isPeriodEndBefore(int pos, long time, boolean inclusive,
+            boolean expected) {
+        if (pos < 0 || pos >= periods.size())
+            return true;
+        long end = get(pos).endDate.getTime();
+        boolean before = (end < time || (inclusive && end == time));
+        return before == expected;
+    }
+
+    private long[] rebuildPeriodEndTimes() {
+        long[] result = new long[periods.size()];
+        for (int i = 0;  i < result.length;  i++) {
+            result[i] = get(i).endDate.getTime();
+            if (i > 0 && result[i] < result[i-1])
+                return (periodEndTimes = null);
+        }
+        return (periodEndTimes = result);
+    }
+
     public synchronized List<Period> getPeriods() {
         return new ArrayList<Period>(periods);
     }
@@ -1114,18 +1183,63 @@ public class EVSchedule implements TableModel {
     public synchronized void saveActualIndirectTime(Date when, double actualTime) {
         saveActualTaskInfo(when, 0, 0, actualTime, 0, false);
     }
+    /** Record actual direct time in the period containing the given date,
+     * without updating the cumulative actual time of the periods that
+     * follow.  This is much faster when recording a large number of time
+     * log entries, but the caller must call {@link #recalcCumActualTimes()}
+     * after the final entry has been recorded.
+     */
+    synchronized void saveActualTimeDeferred(Date when, double actualTime) {
+        saveActualTaskInfo(when, 0, 0, actualTime, 0, true, false);
+    }
     protected synchronized void saveActualTaskInfo(Date when,
                                                 double planValue,
                                                 double earnedValue,
                                                 double actualTime,
                                                 double actualCost,
                                                 boolean direct) {
+        saveActualTaskInfo(when, planValue, earnedValue, actualTime,
+            actualCost, direct, true);
+    }
+    private void saveActualTaskInfo(Date when, double planValue,
+            double earnedValue, double actualTime, double actualCost,
+            boolean direct, boolean updateCumActualTime) {
         //System.out.println("saveActualTaskInfo("+when+","+planValue+")");
         if (when == null || when == NEVER) return;
 
+        double cumActualTime = (updateCumActualTime ? actualTime : 0);
+
+        // find the first period that ends *after* the given date.
+        int pos = countPeriodsEndingBefore(when.getTime(), true);
+        if (pos != -1 && pos < periods.size()) {
+            Period p = get(pos);
+            if (direct) {
+                // add the values to the cumulative totals of this period
+                // and all the periods that follow.
+                if (planValue != 0 || earnedValue != 0 || cumActualTime != 0
+                        || actualCost != 0) {
+                    for (int i = pos;  i < periods.size();  i++) {
+                        Period q = get(i);
+                        q.cumPlanValue += planValue;
+                        q.cumEarnedValue += earnedValue;
+                        q.cumActualDirectTime += cumActualTime;
+                        q.cumActualCost += actualCost;
+                    }
+                }
+            }
+            if (when.compareTo(p.getBeginDate()) >= 0) {
+                if (direct)
+                    p.actualDirectTime += actualTime;
+                else
+                    p.actualIndirectTime += actualTime;
+            }
+            return;
+        }
+
+        // if the periods are out of order, scan them individually.
         boolean foundDate = false;
         Period p;
-        for (int i = periods.size();  i-- > 0; ) {
+        for (int i = periods.size();  pos == -1 && i-- > 0; ) {
             p = get(i);
             // if this period ends *after* the task's completion date,
             // add the task's planValue to this period's cumPlanValue.
@@ -1134,7 +1248,7 @@ public class EVSchedule implements TableModel {
                 if (direct) {
                     p.cumPlanValue += planValue;
                     p.cumEarnedValue += earnedValue;
-                    p.cumActualDirectTime += actualTime;
+                    p.cumActualDirectTime += cumActualTime;
                     p.cumActualCost += actualCost;
                 }
                 if (when.compareTo(p.getBeginDate()) >= 0) {
@@ -1158,7 +1272,7 @@ public class EVSchedule implements TableModel {
                 if (direct) {
                     p.cumPlanValue += planValue;
                     p.cumEarnedValue += earnedValue;
-                    p.cumActualDirectTime  += actualTime;
+                    p.cumActualDirectTime  += cumActualTime;
                     p.cumActualCost += actualCost;
                 }
                 if (when.compareTo(p.getBeginDate()) >= 0) {
@@ -1694,6 +1808,13 @@ public class EVSchedule implements TableModel {
         listenerList.remove(TableModelListener.class, l);
     }
     public void fireTableChanged(TableModelEvent e) {
+        final TableModelEvent event = e;
+        if (DeferredRecalcEvents.defer(new Runnable() {
+                public void run() {
+                    fireTableChanged(event);
+                }}))
+            return;
+
         Object [] listeners = listenerList.getListenerList();
         // Process the listeners last to first, notifying
         // those that are interested in this event
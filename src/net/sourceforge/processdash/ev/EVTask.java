@@ -32,6 +32,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -82,6 +83,9 @@ public class EVTask implements Cloneable, DataListener {
 
     EVTask parent = null;
     ArrayList<EVTask> children = new ArrayList<EVTask>();
+    /** An index of the full names of our children, used to speed up
+     * {@link #getTaskForPath(String)}.  Built on demand. */
+    private volatile ChildPathIndex childPathIndex;
     String flag, sortTag;
     List<String> taskIDs = null;
     String relaunchSourceID = null;
@@ -248,6 +252,7 @@ public class EVTask implements Cloneable, DataListener {
     protected void forceAdd(EVTask child) {
         child.parent = this;
         children.add(child);
+        childrenChanged();
     }
 
     /** Add a child task to this EVTask. */
@@ -257,14 +262,17 @@ public class EVTask implements Cloneable, DataListener {
 
         child.parent = this;
         children.add(pos, child);
+        childrenChanged();
         return true;
     }
 
     /** Remove a child task from this EVTask */
     public int remove(EVTask child) {
         int pos = indexOfNode(children, child);
-        if (pos != -1)
+        if (pos != -1) {
             children.remove(pos);
+            childrenChanged();
+        }
         return pos;
     }
 
@@ -279,6 +287,7 @@ public class EVTask implements Cloneable, DataListener {
     void replace(int pos, EVTask newChild) {
         children.set(pos, newChild);
         newChild.parent = this;
+        childrenChanged();
     }
 
     public void moveUp(int childPos) {
@@ -288,6 +297,7 @@ public class EVTask implements Cloneable, DataListener {
 
             children.set(childPos-1, b);
             children.set(childPos,   a);
+            childrenChanged();
         }
     }
 
@@ -375,6 +385,7 @@ public class EVTask implements Cloneable, DataListener {
                                         data, hierarchy, listener));
                 addedChild = true;
             }
+            childrenChanged();
         }
         return addedChild;
     }
@@ -654,7 +665,8 @@ public class EVTask implements Cloneable, DataListener {
         }
     }
 
-    protected void setActualTime(SimpleData time) {
+    /** @return false if the value was ignored because it is a calculation */
+    protected boolean setActualTime(SimpleData time) {
         if (time instanceof NumberData) {
             // look in the repository to see if this value is a simple
             // number, or a calculation.  We aren't interested in
@@ -664,7 +676,7 @@ public class EVTask implements Cloneable, DataListener {
             Object val = data.getValue(dataName);
             if (val != null &&
                 (!(val instanceof DoubleData) ||
-                 val instanceof NumberFunction)) return;
+                 val instanceof NumberFunction)) return false;
 
             actualNodeTime = ((NumberData) time).getDouble();
             if (Double.isNaN(actualNodeTime) ||
@@ -673,6 +685,7 @@ public class EVTask implements Cloneable, DataListener {
         } else {
             actualNodeTime = 0;
         }
+        return true;
     }
 
     /** Messaged to indicate that the user has entered a new value for the
@@ -1685,6 +1698,30 @@ public class EVTask implements Cloneable, DataListener {
     // DataListener interface
     //
 
+    /** Flags describing the data changes received by {@link #handleEvent}
+     * since the listener was last notified */
+    static final int ACTUAL_TIME_CHANGED = 1;
+    static final int PLAN_TIME_CHANGED = 2;
+    static final int OTHER_DATA_CHANGED = 4;
+    /** A calculated actual time changed.  Calculated times are ignored by
+     * {@link #setActualTime(SimpleData)}, so this flag can be disregarded
+     * by listeners that recalculate incrementally. */
+    static final int CALCULATED_TIME_CHANGED = 8;
+    private int pendingDataChanges;
+
+    /** Return the kinds of data changes received since the last call to
+     * this method, and reset them.  The return value is a bitwise OR of
+     * the <tt>*_CHANGED</tt> flags. */
+    synchronized int takeDataChanges() {
+        int result = pendingDataChanges;
+        pendingDataChanges = 0;
+        return result;
+    }
+
+    private synchronized void recordDataChange(int change) {
+        pendingDataChanges |= change;
+    }
+
     public void dataValueChanged(DataEvent e) {
         if (handleEvent(e)) notifyListener(true);
     }
@@ -1702,11 +1739,14 @@ public class EVTask implements Cloneable, DataListener {
         String dataName = e.getName();
         if (!dataName.startsWith(fullName+"/")) return false;
         dataName = dataName.substring(fullName.length()+1);
-        if (PLAN_TIME_DATA_NAME.equals(dataName))
+        int change = OTHER_DATA_CHANGED;
+        if (PLAN_TIME_DATA_NAME.equals(dataName)) {
             setPlanTime(e.getValue());
-        else if (ACT_TIME_DATA_NAME.equals(dataName))
-            setActualTime(e.getValue());
-        else if (NODE_TYPE_DATA_NAME.equals(dataName))
+            change = PLAN_TIME_CHANGED;
+        } else if (ACT_TIME_DATA_NAME.equals(dataName)) {
+            change = (setActualTime(e.getValue()) ? ACTUAL_TIME_CHANGED
+                    : CALCULATED_TIME_CHANGED);
+        } else if (NODE_TYPE_DATA_NAME.equals(dataName))
             setNodeType(e.getValue());
         else if (DATE_COMPLETED_DATA_NAME.equals(dataName))
             setActualDate(e.getValue());
@@ -1714,6 +1754,7 @@ public class EVTask implements Cloneable, DataListener {
             setLevelOfEffort(e.getValue());
         else
             return false;
+        recordDataChange(change);
         return true;
     }
 
@@ -1735,6 +1776,7 @@ public class EVTask implements Cloneable, DataListener {
         for (int i=children.size();   i-- > 0; )
             getChild(i).destroy();
         children.clear();
+        childrenChanged();
     }
 
     public void saveToXML(StringBuffer result) {
@@ -1891,9 +1933,18 @@ public class EVTask implements Cloneable, DataListener {
         }
 
         // see if any of our children would like to claim fullPath as theirs.
-        for (int i = children.size();   i-- > 0;  ) { // dispatch loop
-            EVTask result = getChild(i).getTaskForPath(fullPath);
-            if (result != null) return result;
+        if (children.size() < ChildPathIndex.MIN_CHILDREN) {
+            for (int i = children.size();   i-- > 0;  ) { // dispatch loop
+                EVTask result = getChild(i).getTaskForPath(fullPath);
+                if (result != null) return result;
+            }
+        } else {
+            // only consult the children whose names could claim fullPath.
+            int[] candidates = getChildPathIndex().getCandidates(fullPath);
+            for (int i = candidates.length;   i-- > 0;  ) {
+                EVTask result = getChild(candidates[i]).getTaskForPath(fullPath);
+                if (result != null) return result;
+            }
         }
 
         // None of our children claimed the path.
@@ -1920,9 +1971,86 @@ public class EVTask implements Cloneable, DataListener {
         return pruningFlag == USER_PRUNED;
     }
 
+    /** Discard the index of child names.  This must be called whenever
+     * a child is added, removed, moved, or renamed. */
+    void childrenChanged() {
+        childPathIndex = null;
+    }
+
+    private ChildPathIndex getChildPathIndex() {
+        ChildPathIndex result = childPathIndex;
+        if (result == null || result.size != children.size())
+            childPathIndex = result = new ChildPathIndex(children);
+        return result;
+    }
+
+    /** Maps the full names of a list of children to their positions. */
+    private static class ChildPathIndex {
+
+        /** Lists with fewer children than this are scanned directly */
+        static final int MIN_CHILDREN = 8;
+
+        private static final int[] NONE = new int[0];
+
+        private int size;
+
+        /** The length of the shortest non-null child name */
+        private int minNameLength;
+
+        private Map<String, int[]> positions;
+
+        ChildPathIndex(List<EVTask> children) {
+            size = children.size();
+            minNameLength = Integer.MAX_VALUE;
+            positions = new HashMap<String, int[]>();
+            for (int i = 0;   i < size;   i++) {
+                String name = children.get(i).fullName;
+                if (name != null)
+                    minNameLength = Math.min(minNameLength, name.length());
+                int[] pos = positions.get(name);
+                if (pos == null) {
+                    pos = new int[] { i };
+                } else {
+                    int[] newPos = new int[pos.length + 1];
+                    System.arraycopy(pos, 0, newPos, 0, pos.length);
+                    newPos[pos.length] = i;
+                    pos = newPos;
+                }
+                positions.put(name, pos);
+            }
+        }
+
+        /** Return the positions, in ascending order, of the children whose
+         * full names either match the given path or are a parent of it.
+         * Children with a null name are always included, since they do
+         * not restrict the paths they can claim. */
+        int[] getCandidates(String fullPath) {
+            int[] result = merge(positions.get(fullPath), positions.get(null));
+            // prefixes shorter than the shortest name can't match anything
+            for (int slash = fullPath.indexOf('/', minNameLength);
+                    slash != -1;
+                    slash = fullPath.indexOf('/', slash + 1))
+                result = merge(result,
+                    positions.get(fullPath.substring(0, slash)));
+            return (result == null ? NONE : result);
+        }
+
+        private static int[] merge(int[] a, int[] b) {
+            if (a == null) return b;
+            if (b == null) return a;
+            int[] result = new int[a.length + b.length];
+            System.arraycopy(a, 0, result, 0, a.length);
+            System.arraycopy(b, 0, result, a.length, b.length);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+
     protected Object clone() {
         try {
-            return super.clone();
+            EVTask result = (EVTask) super.clone();
+            result.childPathIndex = null;
+            return result;
         } catch (CloneNotSupportedException e) {
             // can't happen?
             throw new RuntimeException(e);
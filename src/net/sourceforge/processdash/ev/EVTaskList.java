@@ -127,6 +127,22 @@ public class EVTaskList extends AbstractTreeTableModel
     /** timer for triggering recalculations */
     protected Timer recalcTimer = null;
 
+    /** timer for triggering incremental recalculations, after changes to
+     * the actual or planned time of individual tasks */
+    protected Timer incrementalRecalcTimer = null;
+    private Set<EVTask> actualTimeChangedTasks = new HashSet<EVTask>();
+    private boolean planTimeChanged;
+    private boolean planTimeRecalc;
+    private long lastFullRecalcTime;
+
+    /** the delay before a requested full recalculation */
+    private int recalcDelay = 1000;
+
+    /** true if recalcTimer is counting down to the full recalculation that
+     * follows incremental recalculations, rather than to one that was
+     * requested by a change */
+    private boolean trailingRecalcScheduled;
+
     protected double totalPlanValue;
     protected double totalActualTime;
     protected boolean showDirectTimeColumns;
@@ -149,9 +165,23 @@ public class EVTaskList extends AbstractTreeTableModel
         if (willNeedChangeNotification) {
             recalcListeners = Collections.synchronizedSet(new HashSet());
 
-            recalcTimer = new Timer(Integer.MAX_VALUE, this);
-            recalcTimer.setInitialDelay(1000);
+            recalcTimer = new Timer(Integer.MAX_VALUE, this) {
+                @Override
+                public void restart() {
+                    // a requested recalculation replaces a trailing one
+                    trailingRecalcScheduled = false;
+                    setInitialDelay(recalcDelay);
+                    super.restart();
+                }
+            };
+            recalcTimer.setInitialDelay(recalcDelay);
             recalcTimer.setRepeats(false);
+
+            if (Settings.getBool(INCREMENTAL_RECALC_SETTING, true)) {
+                incrementalRecalcTimer = new Timer(Integer.MAX_VALUE, this);
+                incrementalRecalcTimer.setInitialDelay(1000);
+                incrementalRecalcTimer.setRepeats(false);
+            }
         }
 
         if (displayName != null)
@@ -784,8 +814,109 @@ public class EVTaskList extends AbstractTreeTableModel
     EVTask.Listener evNodeListener = null;
     public void setNodeListener(EVTask.Listener l) { evNodeListener = l; }
     public void evNodeChanged(EVTask node, boolean needsRecalc) {
+        int changes = node.takeDataChanges();
         if (evNodeListener != null) evNodeListener.evNodeChanged(node, needsRecalc);
-        if (recalcTimer != null && needsRecalc) recalcTimer.restart();
+        if (recalcTimer != null && needsRecalc
+                && !queueIncrementalRecalc(node, changes))
+            recalcTimer.restart();
+    }
+
+    /** Setting which can be used to disable incremental recalculations */
+    public static final String INCREMENTAL_RECALC_SETTING =
+        "ev.incrementalRecalc";
+
+    /** Setting for the number of minutes that incremental recalculations
+     * can be used before a full recalculation refreshes forecast dates
+     * and confidence intervals */
+    public static final String FULL_RECALC_INTERVAL_SETTING =
+        "ev.fullRecalcInterval";
+
+    /**
+     * If the only changes to a node were to its actual or planned time,
+     * arrange for an incremental recalculation to handle them.
+     * 
+     * @return true if the changes were queued, false if a full
+     *     recalculation is needed
+     */
+    private boolean queueIncrementalRecalc(EVTask node, int changes) {
+        int handled = EVTask.ACTUAL_TIME_CHANGED | EVTask.PLAN_TIME_CHANGED
+                | EVTask.CALCULATED_TIME_CHANGED;
+        if (incrementalRecalcTimer == null || changes == 0
+                || (changes & ~handled) != 0)
+            return false;
+
+        synchronized (actualTimeChangedTasks) {
+            if ((changes & EVTask.ACTUAL_TIME_CHANGED) != 0)
+                actualTimeChangedTasks.add(node);
+            if ((changes & EVTask.PLAN_TIME_CHANGED) != 0)
+                planTimeChanged = true;
+        }
+        incrementalRecalcTimer.restart();
+        return true;
+    }
+
+    /**
+     * Apply changes queued by {@link #queueIncrementalRecalc(EVTask, int)}.
+     * Changes to logged time update just the affected tasks, their parents
+     * and the schedule.  Changes to planned time perform a recalculation
+     * that reuses the time log data read previously.  A full recalculation
+     * is performed if the calculator can't handle the changes, or if the
+     * last full recalculation is too old.
+     */
+    protected void recalcIncrementally() {
+        Set<EVTask> tasks;
+        boolean planChanged;
+        synchronized (actualTimeChangedTasks) {
+            tasks = new HashSet<EVTask>(actualTimeChangedTasks);
+            actualTimeChangedTasks.clear();
+            planChanged = planTimeChanged;
+            planTimeChanged = false;
+        }
+
+        // a pending full recalculation will pick up these changes.
+        if ((recalcTimer.isRunning() && !trailingRecalcScheduled)
+                || (tasks.isEmpty() && !planChanged))
+            return;
+
+        long maxAge = Settings.getInt(FULL_RECALC_INTERVAL_SETTING, 5)
+                * 60000L;
+        if (calculator == null
+                || System.currentTimeMillis() - lastFullRecalcTime > maxAge) {
+            recalc();
+
+        } else if (planChanged) {
+            planTimeRecalc = tasks.isEmpty();
+            recalc();
+            scheduleTrailingRecalc(maxAge);
+
+        } else {
+            isCalculating = true;
+            boolean handled = calculator.recalculateActualTime(tasks);
+            isCalculating = false;
+            if (handled) {
+                totalActualTime = ((EVTask) root).actualCurrentTime;
+                fireEvRecalculated();
+                scheduleTrailingRecalc(maxAge);
+            } else {
+                recalc();
+            }
+        }
+    }
+
+    /**
+     * Incremental recalculations leave forecast dates and confidence
+     * intervals as they were.  Arrange for a full recalculation to refresh
+     * them once the full recalculation interval has elapsed, even if no
+     * further changes arrive.
+     */
+    private void scheduleTrailingRecalc(long maxAge) {
+        if (recalcTimer.isRunning())
+            return;
+        long remaining = lastFullRecalcTime + maxAge
+                - System.currentTimeMillis();
+        recalcTimer.setInitialDelay((int) Math.max(remaining, recalcDelay));
+        trailingRecalcScheduled = true;
+        recalcTimer.start();
     }
 
     public void taskLabelsChanged() {
@@ -827,16 +958,26 @@ public class EVTaskList extends AbstractTreeTableModel
         }
     }
     void useFastRecalcInterval() {
-        if (recalcTimer != null)
-            recalcTimer.setInitialDelay(10);
+        recalcDelay = 10;
+        if (recalcTimer != null && !trailingRecalcScheduled)
+            recalcTimer.setInitialDelay(recalcDelay);
     }
     public void actionPerformed(ActionEvent e) {
         if (recalcTimer != null && e.getSource() == recalcTimer &&
             someoneCares())
             recalc();
+        else if (incrementalRecalcTimer != null
+                && e.getSource() == incrementalRecalcTimer && someoneCares())
+            recalcIncrementally();
     }
 
     protected void fireTreeStructureWillChange() {
+        if (DeferredRecalcEvents.defer(new Runnable() {
+                public void run() {
+                    fireTreeStructureWillChange();
+                }}))
+            return;
+
         EVTask r = (EVTask) root;
         fireTreeStructureWillChange(this, r.getPath(), null, null);
     }
@@ -862,12 +1003,24 @@ public class EVTaskList extends AbstractTreeTableModel
 
     public void recalc() {
         isCalculating = true;
-        if (calculator != null)
+        boolean planTimeOnly = planTimeRecalc;
+        planTimeRecalc = false;
+        if (!planTimeOnly) {
+            lastFullRecalcTime = System.currentTimeMillis();
+            if (trailingRecalcScheduled) {
+                // this recalculation makes the trailing one unnecessary
+                trailingRecalcScheduled = false;
+                recalcTimer.stop();
+                recalcTimer.setInitialDelay(recalcDelay);
+            }
+        }
+        if (calculator != null) {
+            if (planTimeOnly)
+                calculator.planTimeChanged();
             calculator.recalculate();
+        }
         if (dependencyCalculator != null)
             dependencyCalculator.recalculate(this);
-        if (taskLabeler != null)
-            taskLabeler.recalculate();
         totalPlanValue = schedule.getMetrics().totalPlan();
         EVTask taskRoot = (EVTask) root;
         totalActualTime = taskRoot.actualCurrentTime;
@@ -877,9 +1030,23 @@ public class EVTaskList extends AbstractTreeTableModel
         showBaselineColumns = (calculator != null
                 && calculator.getBaselineDataSource() != null);
         showNodeTypeColumn = taskRoot.isUsingNodeTypes();
-        showMilestoneColumn = showLabelsColumn = false;
-        scanForLabelsAndMilestones(taskRoot);
         nodeTypeSpecs = null;
+
+        // the task labeler is often shared with other task lists.  If this
+        // recalculation is running on a rollup's worker thread, let the
+        // rollup finish the calculation on its own thread.
+        if (!DeferredRecalcEvents.defer(new Runnable() {
+                public void run() {
+                    finishRecalc();
+                }}))
+            finishRecalc();
+    }
+
+    private void finishRecalc() {
+        if (taskLabeler != null)
+            taskLabeler.recalculate();
+        showMilestoneColumn = showLabelsColumn = false;
+        scanForLabelsAndMilestones((EVTask) root);
         isCalculating = false;
 
         fireEvRecalculated();
@@ -1023,8 +1190,13 @@ public class EVTaskList extends AbstractTreeTableModel
 
     public MilestoneList getMilestonesForTask(EVTask task) {
         List<Milestone> milestones = null;
-        if (milestoneProvider != null)
-            milestones = milestoneProvider.getMilestonesForTask(task);
+        if (milestoneProvider != null) {
+            // the provider can be shared by task lists that a rollup is
+            // recalculating in parallel
+            synchronized (milestoneProvider) {
+                milestones = milestoneProvider.getMilestonesForTask(task);
+            }
+        }
 
         if (milestones == null || milestones.isEmpty())
             return null;
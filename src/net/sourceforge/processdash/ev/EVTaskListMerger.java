@@ -613,6 +613,7 @@ public class EVTaskListMerger {
                 // we can display to the user
                 tempChild.name = newNode.name;
                 tempChild.fullName = newNode.fullName;
+                newNode.childrenChanged();
             } else {
                 newNode.remove(tempChild);
             }
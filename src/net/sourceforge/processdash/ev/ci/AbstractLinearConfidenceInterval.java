@@ -44,8 +44,11 @@ public abstract class AbstractLinearConfidenceInterval
     protected double stddev;
     protected double projection = Double.NaN;
 
-    double lastRangeProb = Double.NaN;
-    double lastRange = Double.NaN;
+    /** The most recently calculated range, along with the probability it
+     * was calculated for.  (These are stored in a single array, so threads
+     * running simulations against this interval always see a matching
+     * pair.) */
+    volatile double[] lastRange = null;
     double rangeRadical = Double.NaN;
 
 
@@ -129,7 +132,7 @@ public abstract class AbstractLinearConfidenceInterval
 
     public void setInput(double input) {
         super.setInput(input);
-        lastRange = lastRangeProb = Double.NaN;
+        lastRange = null;
 
         projection = beta0 + (beta1 * input);
         double term = input - x_avg;
@@ -141,9 +144,10 @@ public abstract class AbstractLinearConfidenceInterval
         double range;
 
         double rangeProb = 2 * Math.abs(0.5 - p);
+        double[] last = lastRange;
 
-        if (rangeProb == lastRangeProb)
-            range = lastRange;
+        if (last != null && rangeProb == last[0])
+            range = last[1];
 
         else if (Double.isNaN(rangeProb) ||
                  rangeProb >= 1.0 ||
@@ -154,8 +158,7 @@ public abstract class AbstractLinearConfidenceInterval
             double stud_t = TDistribution.quantile(0.5 + rangeProb / 2.0,
                                                numSamples - 2);
             range = stud_t * stddev * rangeRadical;
-            lastRange = range;
-            lastRangeProb = rangeProb;
+            lastRange = new double[] { rangeProb, range };
         }
 
         return (p > 0.5 ? projection + range : projection - range);
@@ -93,6 +93,19 @@ public class DoubleList {
     }
 
 
+    /** Release any capacity in the internal array beyond the number of
+     * values this list currently holds.
+     * @since 2.7.6
+     */
+    public synchronized void trimToSize() {
+        if (length < contents.length) {
+            double[] newContents = new double[length];
+            System.arraycopy(contents, 0, newContents, 0, length);
+            contents = newContents;
+        }
+    }
+
+
     /** Get a single <code>double</code> value from this list.
      * @return the <code>double</code> in position <code>pos</code>,
      * or <code>Double.NaN</code> if that position is invalid.
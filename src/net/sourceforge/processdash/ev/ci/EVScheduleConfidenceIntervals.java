@@ -23,11 +23,20 @@
 
 package net.sourceforge.processdash.ev.ci;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
 import net.sourceforge.processdash.Settings;
+import net.sourceforge.processdash.ev.EVCalculatorRollup;
 import net.sourceforge.processdash.ev.EVMetrics;
 import net.sourceforge.processdash.ev.EVMetricsRollup;
 import net.sourceforge.processdash.ev.EVSchedule;
@@ -41,11 +50,28 @@ public class EVScheduleConfidenceIntervals
         public void randomize(RandomEngine u);
     }
 
+    /**
+     * Creates independent copies of the objects in a simulation, so the
+     * simulation can be divided among several threads.
+     */
+    public interface ScheduleFactory {
+        /**
+         * Create a new schedule to simulate, and add the {@link Randomizable}
+         * objects that it is calculated from to the given list.  The objects
+         * returned by each call must not share any mutable state with the
+         * objects returned by other calls.
+         */
+        public EVSchedule createSchedule(List randomObjects);
+    }
+
     private static final int BOOTSTRAP_SIZE = 1000;
 
-    EVSchedule schedule;
-    List randomObjects;
-    EVMetrics metrics;
+    /** The fewest samples worth handing to a separate thread */
+    private static final int MIN_SAMPLES_PER_WORKER = 25;
+
+    private static final int MAX_WORKERS = 8;
+
+    int numRandomObjects;
     MonteCarloConfidenceInterval cost, date, optimizedDate;
     MonteCarloConfidenceInterval[] indivDates;
 
@@ -55,21 +81,83 @@ public class EVScheduleConfidenceIntervals
 
     public EVScheduleConfidenceIntervals(EVSchedule sched,
             List randomObjects, boolean keepIndivDates) {
-        this.schedule = sched;
-        this.randomObjects = randomObjects;
-        this.metrics = sched.getMetrics();
-        cost = new MonteCarloConfidenceInterval();
-        date = new MonteCarloConfidenceInterval();
-        if (metrics instanceof EVMetricsRollup)
-            optimizedDate = new MonteCarloConfidenceInterval();
+        init(randomObjects.size(), keepIndivDates,
+            sched.getMetrics() instanceof EVMetricsRollup);
+
+        Worker w = new Worker(sched, randomObjects,
+                MersenneTwister.DEFAULT_SEED);
+        runSimulation(new Worker[] { w }, getSampleCount());
+    }
+
+    /**
+     * Run a simulation, dividing the work among several threads.
+     * <p>
+     * The factory is asked for one schedule per thread.  Each thread draws
+     * from its own random number stream, and the samples are merged in a
+     * fixed order, so the results only depend on the number of threads.
+     * The number of threads can be set with the "ev.simulationThreads"
+     * setting; by default, one thread is used per processor.  Simulations
+     * that are started by a parallel rollup recalc run on the calling
+     * thread, since the rollup is already keeping the processors busy.
+     */
+    public EVScheduleConfidenceIntervals(ScheduleFactory factory,
+            boolean keepIndivDates) {
+        List randomObjects = new ArrayList();
+        EVSchedule sched = factory.createSchedule(randomObjects);
+        init(randomObjects.size(), keepIndivDates,
+            sched.getMetrics() instanceof EVMetricsRollup);
+
+        int sampleCount = getSampleCount();
+        int numWorkers = getNumWorkers(sampleCount);
+        Worker[] workers = new Worker[numWorkers];
+        workers[0] = new Worker(sched, randomObjects,
+                MersenneTwister.DEFAULT_SEED);
+        for (int i = 1; i < numWorkers; i++) {
+            randomObjects = new ArrayList();
+            sched = factory.createSchedule(randomObjects);
+            workers[i] = new Worker(sched, randomObjects,
+                    MersenneTwister.DEFAULT_SEED + i * SEED_INCREMENT);
+        }
+
+        runSimulation(workers, sampleCount);
+    }
+
+    private void init(int numRandomObjects, boolean keepIndivDates,
+            boolean isRollup) {
+        double sketchError = getSketchError();
+        cost = newInterval(sketchError);
+        date = newInterval(sketchError);
+        if (isRollup)
+            optimizedDate = newInterval(sketchError);
         if (keepIndivDates) {
-            indivDates = new MonteCarloConfidenceInterval[randomObjects.size()];
+            indivDates = new MonteCarloConfidenceInterval[numRandomObjects];
             for (int i = 0; i < indivDates.length; i++) {
-                indivDates[i] = new MonteCarloConfidenceInterval();
+                indivDates[i] = newInterval(sketchError);
             }
         }
+        this.numRandomObjects = numRandomObjects;
+    }
 
-        runSimulation();
+    private static MonteCarloConfidenceInterval newInterval(double sketchError) {
+        MonteCarloConfidenceInterval result = new MonteCarloConfidenceInterval();
+        if (sketchError > 0)
+            result.setSketchError(sketchError);
+        return result;
+    }
+
+    /** By default, every simulated sample is retained.  Users with very
+     * large schedules can trade a small amount of accuracy for memory by
+     * specifying a rank error for a quantile sketch. */
+    private static double getSketchError() {
+        String setting = Settings.getVal("ev.simulationSketchError");
+        if (setting == null)
+            return 0;
+        try {
+            double result = Double.parseDouble(setting);
+            return (result > 0 && result < 1 ? result : 0);
+        } catch (NumberFormatException nfe) {
+            return 0;
+        }
     }
 
     public ConfidenceInterval getCostInterval() {
@@ -89,18 +177,68 @@ public class EVScheduleConfidenceIntervals
     }
 
     private static final boolean USE_RATIO = true;
-    private void runSimulation() {
-        long start = System.currentTimeMillis();
-        RandomEngine random = new MersenneTwister();
-
+    private int getSampleCount() {
         int sampleCount = Settings.getInt("ev.simulationSize", BOOTSTRAP_SIZE);
         if (USE_RATIO && indivDates == null) {
-            double factor = Math.exp(0.75 * Math.log(randomObjects.size()));
+            double factor = Math.exp(0.75 * Math.log(numRandomObjects));
             sampleCount = (int) (sampleCount / factor);
             if (sampleCount < 100) sampleCount = 100;
         }
-        for (int i = 0;   i < sampleCount;   i++)
-            runOneTest(random);
+        return sampleCount;
+    }
+
+    private static int getNumWorkers(int sampleCount) {
+        if (EVCalculatorRollup.isRecalcThread())
+            return 1;
+        int result = Settings.getInt("ev.simulationThreads", -1);
+        if (result < 1)
+            result = Runtime.getRuntime().availableProcessors();
+        result = Math.min(result, MAX_WORKERS);
+        result = Math.min(result, sampleCount / MIN_SAMPLES_PER_WORKER);
+        return Math.max(result, 1);
+    }
+
+    private void runSimulation(Worker[] workers, int sampleCount) {
+        long start = System.currentTimeMillis();
+
+        // divide the samples among the workers.
+        for (int i = 0; i < workers.length; i++)
+            workers[i].sampleCount = sampleCount / workers.length
+                    + (i < sampleCount % workers.length ? 1 : 0);
+
+        // run the first worker on this thread, and the others in parallel.
+        Future[] results = new Future[workers.length];
+        for (int i = 1; i < workers.length; i++)
+            results[i] = SIMULATION_EXECUTOR.submit(workers[i]);
+        workers[0].run();
+        try {
+            for (int i = 1; i < results.length; i++)
+                results[i].get();
+        } catch (ExecutionException ee) {
+            // workers record their own errors, so this should not occur
+            throw new RuntimeException(ee.getCause());
+        } catch (InterruptedException ie) {
+            for (int i = 1; i < results.length; i++)
+                results[i].cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ie);
+        }
+
+        // merge the samples, in a consistent order.
+        for (Worker w : workers) {
+            if (w.error instanceof RuntimeException)
+                throw (RuntimeException) w.error;
+            else if (w.error instanceof Error)
+                throw (Error) w.error;
+
+            cost.addSamples(w.cost);
+            date.addSamples(w.date);
+            if (optimizedDate != null)
+                optimizedDate.addSamples(w.optimizedDate);
+            if (indivDates != null)
+                for (int i = 0; i < indivDates.length; i++)
+                    indivDates[i].addSamples(w.indivDates[i]);
+        }
 
         cost.samplesDone();
         date.samplesDone();
@@ -112,44 +250,113 @@ public class EVScheduleConfidenceIntervals
 
         long finish = System.currentTimeMillis();
         long elapsed = finish - start;
-        System.out.println("schedule simulation took " + elapsed + " ms.");
+        logger.fine("schedule simulation took " + elapsed + " ms, using "
+                + workers.length + " thread(s).");
         if (optimizedDate != null) date.debug = true;
     }
 
-    private void runOneTest(RandomEngine random) {
-        randomizeAll(random);
 
-        if (indivDates != null)
-            addIndivDateSamples();
-
-        double forecastCost = metrics.independentForecastCost();
-        cost.addSample(forecastCost-metrics.actual());
-        date.addSample(getTime(metrics.independentForecastDate()));
-        if (optimizedDate != null) {
-            Date optDate = schedule.getHypotheticalDate(forecastCost, true);
-            optimizedDate.addSample(getTime(optDate));
+    /**
+     * Runs part of a simulation, against a schedule and random number stream
+     * that are not shared with any other worker.
+     */
+    private class Worker implements Runnable {
+
+        EVSchedule schedule;
+        List randomObjects;
+        EVMetrics metrics;
+        RandomEngine random;
+        int sampleCount;
+
+        DoubleList cost, date, optimizedDate;
+        DoubleList[] indivDates;
+        Throwable error;
+
+        Worker(EVSchedule schedule, List randomObjects, int seed) {
+            this.schedule = schedule;
+            this.randomObjects = randomObjects;
+            this.metrics = schedule.getMetrics();
+            this.random = new MersenneTwister(seed);
         }
-    }
 
-    private void randomizeAll(RandomEngine random) {
-        Iterator i = randomObjects.iterator();
-        while (i.hasNext())
-            ((Randomizable) i.next()).randomize(random);
-    }
+        public void run() {
+            cost = new DoubleList(sampleCount);
+            date = new DoubleList(sampleCount);
+            if (EVScheduleConfidenceIntervals.this.optimizedDate != null)
+                optimizedDate = new DoubleList(sampleCount);
+            if (EVScheduleConfidenceIntervals.this.indivDates != null) {
+                indivDates = new DoubleList[randomObjects.size()];
+                for (int i = 0; i < indivDates.length; i++)
+                    indivDates[i] = new DoubleList(sampleCount);
+            }
 
-    private void addIndivDateSamples() {
-        for (int i = 0;  i < randomObjects.size(); i++) {
-            Object o = randomObjects.get(i);
-            if (o instanceof EVSchedule) {
-                EVSchedule s = (EVSchedule) o;
-                Date forecast = s.getMetrics().independentForecastDate();
-                indivDates[i].addSample(getTime(forecast));
+            try {
+                for (int i = 0;   i < sampleCount;   i++)
+                    runOneTest();
+            } catch (Throwable t) {
+                error = t;
             }
         }
+
+        private void runOneTest() {
+            randomizeAll();
+
+            if (indivDates != null)
+                addIndivDateSamples();
+
+            double forecastCost = metrics.independentForecastCost();
+            cost.add(forecastCost-metrics.actual());
+            date.add(getTime(metrics.independentForecastDate()));
+            if (optimizedDate != null) {
+                Date optDate = schedule.getHypotheticalDate(forecastCost, true);
+                optimizedDate.add(getTime(optDate));
+            }
+        }
+
+        private void randomizeAll() {
+            Iterator i = randomObjects.iterator();
+            while (i.hasNext())
+                ((Randomizable) i.next()).randomize(random);
+        }
+
+        private void addIndivDateSamples() {
+            for (int i = 0;  i < randomObjects.size(); i++) {
+                Object o = randomObjects.get(i);
+                if (o instanceof EVSchedule) {
+                    EVSchedule s = (EVSchedule) o;
+                    Date forecast = s.getMetrics().independentForecastDate();
+                    indivDates[i].add(getTime(forecast));
+                }
+            }
+        }
+
     }
 
-    private double getTime(Date d) {
+    private static double getTime(Date d) {
         return (d == null ? EVSchedule.NEVER.getTime() : d.getTime());
     }
 
+    /** The difference between the seeds of successive workers' random
+     * number streams (the golden ratio, which spreads the seeds out) */
+    private static final int SEED_INCREMENT = 0x9E3779B9;
+
+    /** The threads shared by all simulations.  The calling thread always
+     * runs one worker itself, so this pool never needs a thread for it. */
+    private static final ThreadPoolExecutor SIMULATION_EXECUTOR =
+        new ThreadPoolExecutor(MAX_WORKERS - 1, MAX_WORKERS - 1, 60,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "EV Schedule Simulation");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    static {
+        SIMULATION_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private static final Logger logger = Logger
+            .getLogger(EVScheduleConfidenceIntervals.class.getName());
+
 }
@@ -34,6 +34,7 @@ public class MonteCarloConfidenceInterval
 {
 
     protected DoubleList samples = null;
+    protected QuantileSketch sketch = null;
     protected double viability = NOMINAL;
     protected double acceptableError = 0.001;
 
@@ -41,6 +42,33 @@ public class MonteCarloConfidenceInterval
         samples = new DoubleList(getBaseNumSamples());
     }
 
+    /** Summarize samples with a {@link QuantileSketch} instead of retaining
+     * each one.  This bounds the memory used by the interval, at the cost
+     * of answering quantile queries within the given rank error.  This must
+     * be called before any samples are added.
+     *
+     * @param epsilon the acceptable rank error, as a fraction of the number
+     *     of samples; or zero to retain every sample.
+     * @since 2.7.6
+     */
+    public void setSketchError(double epsilon) {
+        if (epsilon > 0) {
+            sketch = new QuantileSketch(epsilon);
+            samples = null;
+        } else if (sketch != null) {
+            sketch = null;
+            samples = new DoubleList(getBaseNumSamples());
+        }
+    }
+
+    /** @return the number of samples in this interval */
+    public int getNumSamples() {
+        if (sketch != null)
+            return (int) sketch.getCount();
+        else
+            return samples.size();
+    }
+
     protected double getSample() { return Double.NaN; }
 
     protected int getBaseNumSamples() { return 100; }
@@ -65,14 +93,16 @@ public class MonteCarloConfidenceInterval
         double lastError = acceptableError * 2;
         while (true) {
             // grow the samples array
-            samples.ensureCapacity(numSamples);
+            if (samples != null)
+                samples.ensureCapacity(numSamples);
 
             // generate the new samples
-            for (int i = numSamples - samples.size();  i-- > 0; )
-                samples.add(getSample());
+            for (int i = numSamples - getNumSamples();  i-- > 0; )
+                addSample(getSample());
 
             // get the current 70% LPI
-            samples.sort();
+            if (samples != null)
+                samples.sort();
             result = getQuantile(0.15);
 
             // if we're within an acceptable error, or we've reached the
@@ -86,23 +116,40 @@ public class MonteCarloConfidenceInterval
             lastResult = result;
             lastError = error;
         }
+        if (samples != null)
+            samples.trimToSize();
     }
 
     public void addSample(double sample) {
-        samples.add(sample);
+        if (sketch != null)
+            sketch.add(sample);
+        else
+            samples.add(sample);
+    }
+
+    public void addSamples(DoubleList moreSamples) {
+        if (sketch != null)
+            sketch.addAll(moreSamples);
+        else
+            samples.addAll(moreSamples);
     }
 
     public void samplesDone() {
-        samples.sort();
+        if (samples != null) {
+            samples.sort();
+            samples.trimToSize();
+        }
     }
 
     public void setInput(double input) {}
     public void debugPrint(int numSamples) {
         for (int i = 0;   i < numSamples;   i++)
-            System.out.println("\t"+samples.get(i));
+            System.out.println("\t" + (samples != null ? samples.get(i)
+                    : sketch.getQuantile(i / (numSamples - 1.0))));
     }
 
     public double getQuantile(double percentage) {
+        if (sketch != null) return sketch.getQuantile(percentage);
         if (samples == null) return Double.NaN;
         if (!(percentage >= 0 && percentage <= 1)) return Double.NaN;
 
@@ -143,8 +190,7 @@ public class MonteCarloConfidenceInterval
     }
 
     public void calcViability(double expectedValue, double cutoffPercentile) {
-        int pos = samples.find(expectedValue);
-        double prob = 2 * Math.abs((((double) pos) / samples.size()) - 0.5);
+        double prob = 2 * Math.abs(getProbability(expectedValue) - 0.5);
         if (prob > cutoffPercentile)
             // the current probability is not acceptable.
             viability = SERIOUS_PROBLEM;
@@ -154,6 +200,8 @@ public class MonteCarloConfidenceInterval
     }
 
     public double getProbability(double highValue) {
+        if (sketch != null)
+            return sketch.getRank(highValue) / sketch.getCount();
         int pos = samples.find(highValue);
         double prob = ((double) pos) / samples.size();
         return prob;
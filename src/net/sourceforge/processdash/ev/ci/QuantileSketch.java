@@ -0,0 +1,300 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.ev.ci;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/** A compact, mergeable summary of a stream of <code>double</code>
+ * values, which can answer approximate quantile and rank queries.
+ *
+ * Values are collected into a buffer.  When the buffer fills, it is
+ * sorted, and every other value is promoted into the buffer at the next
+ * level, where each value stands for twice as many samples.  (Successive
+ * compactions alternate between keeping the odd and even values, so their
+ * errors tend to cancel out.)  Each level holds about
+ * <code>numLevels / epsilon</code> values, so memory use grows with the
+ * square of the logarithm of the number of samples, rather than linearly.
+ * The result is deterministic for a given sequence of values.
+ *
+ * The <code>epsilon</code> parameter sets the error bound, as a fraction
+ * of the number of samples.  Each compaction at level <i>h</i> can shift
+ * the rank of any value by at most 2<sup><i>h</i></sup>, so the sketch adds
+ * up these shifts, and only compacts a level when the total would stay
+ * within <code>epsilon * getCount()</code>.  Otherwise the level's buffer
+ * is enlarged instead.  As a result, {@link #getRank(double)} is always
+ * within {@link #getMaxRankError()} of the true rank.  The value returned
+ * by {@link #getQuantile(double)} is interpolated between retained values,
+ * so its rank can differ from the requested rank by that bound plus the
+ * span of the retained values it falls between.
+ */
+public class QuantileSketch {
+
+    /** The error bound, as a fraction of the number of samples */
+    private double epsilon;
+
+    /** The number of values each level can hold before it is compacted.
+     * This grows with the number of levels. */
+    private int capacity;
+
+    /** The total amount that compactions could have shifted the rank of
+     * any value */
+    private long maxRankError;
+
+    /** Buffers of values.  Each value at level <i>h</i> represents
+     * 2<sup><i>h</i></sup> samples. */
+    private double[][] levels;
+
+    private int[] sizes;
+
+    /** The total number of samples represented by this sketch */
+    private long count;
+
+    /** True if the next compaction should keep odd-numbered values */
+    private boolean keepOdd;
+
+    /** Sorted values, the number of samples preceding each value, and the
+     * rank at the center of the samples each value represents.  These are
+     * built when needed to answer queries. */
+    private double[] summaryValues;
+    private long[] summaryStarts;
+    private double[] summaryPositions;
+
+
+    public QuantileSketch(double epsilon) {
+        if (!(epsilon > 0 && epsilon < 1))
+            throw new IllegalArgumentException("epsilon must be in (0, 1)");
+        this.epsilon = epsilon;
+        capacity = 2 * (int) Math.ceil(2 / epsilon);
+        levels = new double[][] { new double[capacity] };
+        sizes = new int[1];
+        count = 0;
+        maxRankError = 0;
+    }
+
+
+    /** Return the number of samples represented by this sketch */
+    public long getCount() { return count; }
+
+
+    /** Return an upper bound on the difference between the rank returned
+     * by {@link #getRank(double)} and the true rank.  This never exceeds
+     * <code>epsilon * getCount()</code>. */
+    public synchronized long getMaxRankError() { return maxRankError; }
+
+
+    /** Return the number of values retained in memory by this sketch */
+    public synchronized int getRetainedCount() {
+        int result = 0;
+        for (int i = 0;   i < sizes.length;   i++)
+            result += sizes[i];
+        return result;
+    }
+
+
+    /** Add a single sample to this sketch */
+    public synchronized void add(double value) {
+        addAtLevel(0, value);
+        count++;
+    }
+
+
+    /** Add all of the samples from a list to this sketch */
+    public synchronized void addAll(DoubleList values) {
+        for (int i = 0;   i < values.size();   i++)
+            add(values.get(i));
+    }
+
+
+    /** Add all of the samples summarized by another sketch into this one */
+    public synchronized void merge(QuantileSketch other) {
+        synchronized (other) {
+            // the other sketch's error carries over into this one
+            count += other.count;
+            maxRankError += other.maxRankError;
+            for (int h = 0;   h < other.levels.length;   h++)
+                for (int i = 0;   i < other.sizes[h];   i++)
+                    addAtLevel(h, other.levels[h][i]);
+        }
+    }
+
+
+    private void addAtLevel(int h, double value) {
+        ensureLevel(h);
+        if (sizes[h] == levels[h].length)
+            makeRoom(h);
+        levels[h][sizes[h]++] = value;
+        summaryValues = null;
+    }
+
+
+    private void ensureLevel(int h) {
+        if (h < levels.length) return;
+
+        double[][] newLevels = new double[h + 1][];
+        System.arraycopy(levels, 0, newLevels, 0, levels.length);
+        // compacting every level at this capacity uses up the error budget
+        // at the rate that samples add to it
+        capacity = Math.max(capacity, (int) Math.ceil((h + 1) / epsilon));
+        for (int i = levels.length;   i <= h;   i++)
+            newLevels[i] = new double[capacity];
+        levels = newLevels;
+
+        int[] newSizes = new int[h + 1];
+        System.arraycopy(sizes, 0, newSizes, 0, sizes.length);
+        sizes = newSizes;
+    }
+
+
+    /** Make room in a full level.  A level that is smaller than the current
+     * capacity is enlarged to it.  Otherwise the level is compacted if the
+     * error that adds fits within our bound, or doubled in size if not. */
+    private void makeRoom(int h) {
+        long compactionError = 1L << h;
+        if (levels[h].length < capacity) {
+            resize(h, capacity);
+        } else if (maxRankError + compactionError <= epsilon * count) {
+            maxRankError += compactionError;
+            compact(h);
+        } else {
+            resize(h, levels[h].length * 2);
+        }
+    }
+
+
+    private void resize(int h, int length) {
+        double[] buf = new double[length];
+        System.arraycopy(levels[h], 0, buf, 0, sizes[h]);
+        levels[h] = buf;
+    }
+
+
+    /** Promote half of the values in the given level to the next level */
+    private void compact(int h) {
+        double[] buf = levels[h];
+        int n = sizes[h];
+        Arrays.sort(buf, 0, n);
+
+        // if the buffer holds an odd number of values, the smallest one
+        // stays behind so the remaining values can be paired up.
+        int start = n % 2;
+        int offset = (keepOdd ? 1 : 0);
+        keepOdd = !keepOdd;
+
+        double[] promoted = new double[(n - start) / 2];
+        for (int i = 0;   i < promoted.length;   i++)
+            promoted[i] = buf[start + offset + 2 * i];
+        sizes[h] = start;
+
+        for (int i = 0;   i < promoted.length;   i++)
+            addAtLevel(h + 1, promoted[i]);
+    }
+
+
+    /** Return an estimate of the value at the given quantile.  This uses
+     * the same linear interpolation as {@link MonteCarloConfidenceInterval},
+     * so a sketch that has not yet compacted any values produces the exact
+     * same result. */
+    public synchronized double getQuantile(double percentage) {
+        if (count == 0 || !(percentage >= 0 && percentage <= 1))
+            return Double.NaN;
+        buildSummary();
+
+        double pos = percentage * (count - 1);
+        double[] values = summaryValues, positions = summaryPositions;
+        int last = values.length - 1;
+        if (pos <= positions[0])
+            return values[0];
+        if (pos >= positions[last])
+            return values[last];
+
+        int r = Arrays.binarySearch(positions, pos);
+        if (r >= 0)
+            return values[r];
+        r = -r - 1;
+        int l = r - 1;
+        double frac = (pos - positions[l]) / (positions[r] - positions[l]);
+        return values[l] + frac * (values[r] - values[l]);
+    }
+
+
+    /** Return an estimate of the number of samples less than a value */
+    public synchronized double getRank(double value) {
+        if (count == 0)
+            return 0;
+        buildSummary();
+
+        // find the first retained value that is not less than the target
+        int lo = 0, hi = summaryValues.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (summaryValues[mid] < value)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return (lo < summaryStarts.length ? summaryStarts[lo] : count);
+    }
+
+
+    /** Build a sorted list of the retained values, along with the span of
+     * sample ranks each value represents. */
+    private void buildSummary() {
+        if (summaryValues != null) return;
+
+        int n = getRetainedCount();
+        double[] values = new double[n];
+        int[] weights = new int[n];
+        int pos = 0;
+        for (int h = 0;   h < levels.length;   h++)
+            for (int i = 0;   i < sizes[h];   i++) {
+                values[pos] = levels[h][i];
+                weights[pos] = 1 << h;
+                pos++;
+            }
+
+        // sort the values, carrying their weights along with them
+        Integer[] order = new Integer[n];
+        for (int i = 0;   i < n;   i++)
+            order[i] = i;
+        final double[] v = values;
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Double.compare(v[a], v[b]);
+            }});
+
+        summaryValues = new double[n];
+        summaryStarts = new long[n];
+        summaryPositions = new double[n];
+        long cum = 0;
+        for (int i = 0;   i < n;   i++) {
+            int j = order[i];
+            summaryValues[i] = values[j];
+            summaryStarts[i] = cum;
+            summaryPositions[i] = cum + (weights[j] - 1) / 2.0;
+            cum += weights[j];
+        }
+    }
+
+}
@@ -81,11 +81,6 @@ public class SimpleEVSimulation {
         protected int getBaseNumSamples() {
             return 5000;
         }
-
-
-        public int getNumSamples() {
-            return samples.size();
-        }
     }
 
     private static class IndivEVInterval extends EvInterval {
@@ -35,6 +35,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PushbackInputStream;
 import java.io.Writer;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.EventListener;
@@ -42,6 +44,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import org.w3c.dom.Element;
@@ -101,40 +104,30 @@ public class DefectLog {
      * @param id the ID number of the defect to find.
      * @return a matching defect, or null if none was found.
      */
-    public synchronized Defect getDefect(String id) {
-        Defect defectsRead[] = readDefects();
-        int pos = findDefect(defectsRead, id);
-        if (pos == -1)
-            return null;
-        else
-            return defectsRead[pos];
+    public Defect getDefect(String id) {
+        DefectStore store = getStore();
+        synchronized (store) {
+            loadStore(store);
+            return store.get(id);
+        }
     }
 
     /** Save data for the given defect to the defect log.
      *
      * @param d a new or changed defect.
      */
-    public synchronized void writeDefect(Defect d) {
-        Defect defectsRead[] = readDefects();
-
-        // Update data elements in the repository concerning defect counts.
-        // This will also assign the defect a number if it needs one.
-        updateData(defectsRead, d);
-
-        Defect defects[];
-        int pos = findDefect(defectsRead, d.number);
-        if (pos == -1) {            // new defect
-            int count = defectsRead.length + 1;
-            defects = new Defect[count];
-            defects[--count] = d;
-            while (count-- > 0)
-                defects[count] = defectsRead[count];
-        } else {
-            defects = defectsRead;
-            defects[pos] = d;
-        }
+    public void writeDefect(Defect d) {
+        DefectStore store = getStore();
+        synchronized (store) {
+            loadStore(store);
 
-        save(defects);
+            // Update data elements in the repository concerning defect counts.
+            // This will also assign the defect a number if it needs one.
+            updateData(store, d);
+
+            store.put(d);
+            saveStore(store);
+        }
 
         fireDefectChanged(d);
     }
@@ -144,17 +137,123 @@ public class DefectLog {
      * @param defectNumber the id number of the defect to delete.
      */
     public void deleteDefect(String defectNumber) {
-        Defect defects[] = readDefects();
+        Defect d;
+        DefectStore store = getStore();
+        synchronized (store) {
+            loadStore(store);
+            d = store.remove(defectNumber);
+            if (d == null)
+                return;
 
-        int pos = findDefect(defects, defectNumber);
-        if (pos != -1) {
-            Defect d = defects[pos];
-            defects[pos] = null;
             d.number = "DELETE";
-            updateData(defects, d);
-            save(defects);
+            updateData(store, d);
+            saveStore(store);
+        }
+
+        fireDefectChanged(d);
+    }
 
-            fireDefectChanged(d);
+    /**
+     * Begin a series of changes to this defect log.
+     * <p>
+     * Until a matching call to {@link #endBatch()}, changes will be held in
+     * memory rather than being written to the file after each change.  This
+     * makes it practical to write large numbers of defects.  Callers should
+     * call <code>endBatch()</code> in a <code>finally</code> block.
+     * 
+     * @since 2.7.6
+     */
+    public void beginBatch() {
+        DefectStore store = getStore();
+        synchronized (store) {
+            store.batchDepth++;
+        }
+    }
+
+    /**
+     * End a series of changes that was started by {@link #beginBatch()}.
+     * When the outermost batch ends, pending changes are written to the file.
+     * 
+     * @since 2.7.6
+     */
+    public void endBatch() {
+        DefectStore store = getStore();
+        synchronized (store) {
+            if (store.batchDepth > 0)
+                store.batchDepth--;
+            if (store.dirty)
+                saveStore(store);
+        }
+    }
+
+
+    /** The stores for each defect log file, indexed by absolute path */
+    private static final Map<String, StoreRef> STORES =
+        new HashMap<String, StoreRef>();
+
+    /** Queue that receives references whose stores have been collected */
+    private static final ReferenceQueue<DefectStore> CLEARED_STORES =
+        new ReferenceQueue<DefectStore>();
+
+    private static class StoreRef extends SoftReference<DefectStore> {
+        private String path;
+
+        StoreRef(String path, DefectStore store) {
+            super(store, CLEARED_STORES);
+            this.path = path;
+        }
+    }
+
+    private DefectStore store;
+
+    /** Find the shared store holding the contents of our file.  Many
+     * DefectLog objects are created for short-lived operations, so the
+     * stores are shared by all objects that point at the same file. */
+    private DefectStore getStore() {
+        if (store == null) {
+            String path = new File(defectLogFilename).getAbsolutePath();
+            synchronized (STORES) {
+                expungeClearedStores();
+                StoreRef ref = STORES.get(path);
+                store = (ref == null ? null : ref.get());
+                if (store == null) {
+                    store = new DefectStore(new File(path));
+                    STORES.put(path, new StoreRef(path, store));
+                }
+            }
+        }
+        return store;
+    }
+
+    /** Remove map entries whose stores have been garbage collected.  The
+     * caller must hold the lock on STORES. */
+    private static void expungeClearedStores() {
+        StoreRef ref;
+        while ((ref = (StoreRef) CLEARED_STORES.poll()) != null) {
+            // only remove the entry if it hasn't been replaced since
+            if (STORES.get(ref.path) == ref)
+                STORES.remove(ref.path);
+        }
+    }
+
+    /** Ensure the store reflects the current contents of the file */
+    private void loadStore(DefectStore store) {
+        if (store.dirty)
+            // we have changes that haven't been written yet.  They take
+            // precedence over any changes made by some other process.
+            return;
+        if (store.defects == null || store.fileHasChanged())
+            store.setContents(readDefectsFromFile());
+    }
+
+    /** Write the contents of the store to the file, unless a batch is in
+     * progress */
+    private void saveStore(DefectStore store) {
+        store.dirty = true;
+        if (store.batchDepth == 0) {
+            save(store.getLiveDefects());
+            store.dirty = false;
+            store.recordFileState();
         }
     }
 
@@ -253,18 +352,15 @@ public class DefectLog {
         return results;
     }
 
-    private int findDefect(Defect defects[], String defectNumber) {
-        if (defectNumber == null)
-            return -1;
-
-        for (int i = defects.length;  i-- > 0; )
-            if (defects[i] != null && defectNumber.equals(defects[i].number))
-                return i;
-
-        return -1;
+    public Defect[] readDefects() {
+        DefectStore store = getStore();
+        synchronized (store) {
+            loadStore(store);
+            return store.getDefects();
+        }
     }
 
-    public Defect[] readDefects() {
+    private Defect[] readDefectsFromFile() {
         // if the file does not exist or is empty, return an empty array
         File defectLogFile = new File(defectLogFilename);
         if (defectLogFile.length() == 0)
@@ -377,7 +473,7 @@ public class DefectLog {
      * <LI>Otherwise, it is considered to be a new defect whose number
      *     has already been assigned.
      *</UL>*/
-    private void updateData(Defect defects[], Defect d) {
+    private void updateData(DefectStore store, Defect d) {
         String old_phase_injected, new_phase_injected;
         String old_phase_removed, new_phase_removed;
         int old_fix_count, new_fix_count;
@@ -399,13 +495,7 @@ public class DefectLog {
             new_fix_count = d.fix_count;
 
                                       // assign the defect a unique number
-            int maxNum = 0;
-            for (int i = defects.length;  i-- > 0; )
-                if (defects[i] != null)
-                    try {
-                        maxNum = Math.max(maxNum, Integer.parseInt(defects[i].number));
-                    } catch (NumberFormatException nfe) {}
-            d.number = Integer.toString(maxNum + 1);
+            d.number = Integer.toString(store.getMaxNumber() + 1);
 
             // changed defect, or new defect with number already assigned
         } else {
@@ -413,11 +503,11 @@ public class DefectLog {
             new_phase_removed = d.phase_removed;
             new_fix_count = d.fix_count;
 
-            int pos = findDefect(defects, d.number);
-            if (pos != -1) {
-                old_phase_injected = defects[pos].phase_injected;
-                old_phase_removed = defects[pos].phase_removed;
-                old_fix_count = defects[pos].fix_count;
+            Defect old = store.peek(d.number);
+            if (old != null) {
+                old_phase_injected = old.phase_injected;
+                old_phase_removed = old.phase_removed;
+                old_fix_count = old.fix_count;
             }
         }
 
@@ -500,19 +590,20 @@ public class DefectLog {
     }
 
     public void performInternalRename(String oldPrefix, String newPrefix) {
-        Defect defects[] = readDefects();
-        int oldPrefixLen = oldPrefix.length();
-        Defect d;
+        DefectStore store = getStore();
+        synchronized (store) {
+            loadStore(store);
+            int oldPrefixLen = oldPrefix.length();
+
+            for (Defect d : store.getLiveDefects()) {
+                if (phaseMatches(d.phase_injected, oldPrefix))
+                    d.phase_injected= newPrefix + d.phase_injected.substring(oldPrefixLen);
+                if (phaseMatches(d.phase_removed, oldPrefix))
+                    d.phase_removed = newPrefix + d.phase_removed.substring(oldPrefixLen);
+            }
 
-        for (int i = defects.length;  i-- > 0; ) {
-            d = defects[i];
-            if (phaseMatches(d.phase_injected, oldPrefix))
-                d.phase_injected= newPrefix + d.phase_injected.substring(oldPrefixLen);
-            if (phaseMatches(d.phase_removed, oldPrefix))
-                d.phase_removed = newPrefix + d.phase_removed.substring(oldPrefixLen);
+            saveStore(store);
         }
-
-        save(defects);
     }
 
     private boolean phaseMatches(String phase, String prefix) {
@@ -552,7 +643,11 @@ public class DefectLog {
                 File logFile = new File(dir, logFilename);
                 String dataPath = e.getKey().path();
                 DefectLog dl = new DefectLog(logFile.getPath(), dataPath, data);
-                dl.save(dl.readDefects());
+                DefectStore store = dl.getStore();
+                synchronized (store) {
+                    dl.loadStore(store);
+                    dl.saveStore(store);
+                }
             }
         }
     }
@@ -560,7 +655,7 @@ public class DefectLog {
     public static void convertFileToXml(File f) {
         if (f.length() > 0) {
             DefectLog log = new DefectLog(f.getAbsolutePath(), null, null);
-            Defect[] defects = log.readDefects();
+            Defect[] defects = log.readDefectsFromFile();
             log.saveAsXML(defects);
         }
     }
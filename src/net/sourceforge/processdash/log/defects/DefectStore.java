@@ -0,0 +1,220 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.log.defects;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Holds the contents of a defect log file in memory, indexed by defect
+ * number.
+ * <p>
+ * The store remembers the timestamp and length of the file when it was last
+ * read or written, so changes made by other processes can be detected.
+ * Defects are copied on their way in and out of the store, because callers
+ * are accustomed to receiving freshly parsed objects that they can modify.
+ * <p>
+ * This class is not thread-safe; {@link DefectLog} synchronizes on the store
+ * before using it.
+ */
+class DefectStore {
+
+    private File file;
+
+    private long fileTimestamp;
+
+    private long fileLength;
+
+    /** The defects in the log, in file order.  Deleted defects are replaced
+     * with null until the list is next compacted. */
+    List<Defect> defects;
+
+    /** The position of each defect number in the list */
+    private Map<String, Integer> positions;
+
+    private int numDeleted;
+
+    /** The largest numeric defect number, or -1 if it must be recomputed */
+    private int maxNumber;
+
+    /** true if the store contains changes that have not been saved */
+    boolean dirty;
+
+    /** the number of batches in progress */
+    int batchDepth;
+
+
+    DefectStore(File file) {
+        this.file = file;
+    }
+
+    /** @return true if the file has been changed by someone else since we
+     *     last read or wrote it */
+    boolean fileHasChanged() {
+        return file.lastModified() != fileTimestamp
+                || file.length() != fileLength;
+    }
+
+    void recordFileState() {
+        fileTimestamp = file.lastModified();
+        fileLength = file.length();
+    }
+
+    /** Replace the contents of this store with defects read from the file */
+    void setContents(Defect[] newDefects) {
+        defects = new ArrayList<Defect>(newDefects.length + 10);
+        positions = new HashMap<String, Integer>();
+        for (Defect d : newDefects) {
+            if (d != null) {
+                positions.put(d.number, defects.size());
+                defects.add(d);
+            }
+        }
+        numDeleted = 0;
+        maxNumber = -1;
+        dirty = false;
+        recordFileState();
+    }
+
+    /** @return a copy of the defect with the given number, or null */
+    Defect get(String number) {
+        Defect d = peek(number);
+        return (d == null ? null : copy(d));
+    }
+
+    /** @return the stored defect with the given number, or null.  The
+     *     caller must not modify the result. */
+    Defect peek(String number) {
+        Integer pos = (number == null ? null : positions.get(number));
+        return (pos == null ? null : defects.get(pos));
+    }
+
+    /** Add a new defect, or replace the defect with the same number */
+    void put(Defect d) {
+        d = copy(d);
+        Integer pos = positions.get(d.number);
+        if (pos == null) {
+            positions.put(d.number, defects.size());
+            defects.add(d);
+        } else {
+            defects.set(pos, d);
+        }
+        if (maxNumber != -1)
+            maxNumber = Math.max(maxNumber, parseNumber(d.number));
+    }
+
+    /** Remove the defect with the given number, and return it */
+    Defect remove(String number) {
+        Integer pos = (number == null ? null : positions.remove(number));
+        if (pos == null)
+            return null;
+
+        Defect result = defects.set(pos, null);
+        numDeleted++;
+
+        // if the file contained duplicate numbers, an earlier defect with
+        // this number becomes visible again
+        for (int i = pos; i-- > 0;) {
+            Defect d = defects.get(i);
+            if (d != null && number.equals(d.number)) {
+                positions.put(number, i);
+                break;
+            }
+        }
+
+        maxNumber = -1;
+        return result;
+    }
+
+    /** @return the largest numeric defect number in the log */
+    int getMaxNumber() {
+        if (maxNumber == -1) {
+            int max = 0;
+            for (Defect d : defects)
+                if (d != null)
+                    max = Math.max(max, parseNumber(d.number));
+            maxNumber = max;
+        }
+        return maxNumber;
+    }
+
+    private static int parseNumber(String number) {
+        try {
+            return Integer.parseInt(number);
+        } catch (NumberFormatException nfe) {
+            return 0;
+        }
+    }
+
+    /** @return copies of the defects in this store */
+    Defect[] getDefects() {
+        Defect[] result = getLiveDefects();
+        for (int i = result.length; i-- > 0;)
+            result[i] = copy(result[i]);
+        return result;
+    }
+
+    /** @return the defects in this store, without copying them */
+    Defect[] getLiveDefects() {
+        if (numDeleted > 0) {
+            // compact the list, now that we need to walk it anyway
+            List<Defect> live = new ArrayList<Defect>(defects.size()
+                    - numDeleted + 10);
+            for (Defect d : defects)
+                if (d != null) {
+                    positions.put(d.number, live.size());
+                    live.add(d);
+                }
+            defects = live;
+            numDeleted = 0;
+        }
+        return defects.toArray(new Defect[defects.size()]);
+    }
+
+    /** Make a copy of a defect that shares no mutable state with it */
+    static Defect copy(Defect d) {
+        Defect result = (Defect) d.clone();
+        if (d.date != null)
+            result.date = new Date(d.date.getTime());
+        result.injected = copy(d.injected);
+        result.removed = copy(d.removed);
+        return result;
+    }
+
+    private static DefectPhase copy(DefectPhase p) {
+        if (p == null)
+            return null;
+        DefectPhase result = new DefectPhase(p.phaseName);
+        result.processName = p.processName;
+        result.phaseID = p.phaseID;
+        result.legacyPhase = p.legacyPhase;
+        return result;
+    }
+
+}
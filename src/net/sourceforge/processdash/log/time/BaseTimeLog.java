@@ -23,25 +23,182 @@
 
 package net.sourceforge.processdash.log.time;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Date;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
 
+import net.sourceforge.processdash.Settings;
 import net.sourceforge.processdash.util.EnumerIterator;
+import net.sourceforge.processdash.util.FileUtils;
+import net.sourceforge.processdash.util.RobustFileOutputStream;
 
+/**
+ * A time log which is stored in an XML file.
+ * <p>
+ * The XML file is the authoritative copy of the data.  But rather than
+ * parsing it for every query, this class loads it into an indexed
+ * {@link TimeLogSegment}, which is reused until the file changes.  The
+ * segment is also saved in a binary index file alongside the XML file, so
+ * the XML only needs to be parsed again when it is rewritten.
+ * <p>
+ * The index file records a checksum of the XML it was built from, so it is
+ * never trusted on the strength of file timestamps alone.  The cached
+ * segment is reused while the XML file's length and timestamp stay the
+ * same; but if the file was modified so recently that another write might
+ * not change its timestamp, the checksum is verified as well.
+ */
 public class BaseTimeLog implements TimeLog {
 
+    private static final String INDEX_SUFFIX = ".idx";
+
+    /** A marker at the start of the index file, identifying its format */
+    private static final long INDEX_FORMAT = -2;
+
+    /** Some filesystems record modification times with a granularity of a
+     * second or two */
+    private static final long TIMESTAMP_GRANULARITY = 2000;
+
+    private static final Logger logger = Logger.getLogger(BaseTimeLog.class
+            .getName());
+
     private File timeLogFile;
 
+    private File indexFile;
+
+    private TimeLogSegment segment;
+
+    private long segmentFileLength;
+
+    private long segmentFileTimestamp;
+
+    private long segmentFileChecksum;
+
+    /** True if the file was modified so recently before it was checked that
+     * a later write might not alter its timestamp */
+    private boolean segmentTimestampUncertain;
+
     public BaseTimeLog(File file) {
         timeLogFile = file;
+        String indexName = file.getName();
+        if (indexName.toLowerCase().endsWith(".xml"))
+            indexName = indexName.substring(0, indexName.length() - 4);
+        indexFile = new File(file.getParentFile(), indexName + INDEX_SUFFIX);
     }
 
     public EnumerIterator filter(String path, Date from, Date to) throws IOException {
-        EnumerIterator result = new TimeLogReader(timeLogFile);
-        if (path != null || from != null || to != null)
-            result = new TimeLogIteratorFilter(result, path, from, to);
-        return result;
+        return getSegment().filter(path, from, to, null);
+    }
+
+    /**
+     * Return the entries that match the given criteria, along with the
+     * entries that have the given IDs.  Entries are returned in the order
+     * they appear in the file.
+     */
+    EnumerIterator filter(String path, Date from, Date to, long[] extraIDs)
+            throws IOException {
+        return getSegment().filter(path, from, to, extraIDs);
+    }
+
+    /** Discard any cached data, forcing the file to be reread */
+    synchronized void invalidate() {
+        segment = null;
+    }
+
+    private synchronized TimeLogSegment getSegment() throws IOException {
+        long length = timeLogFile.length();
+        long timestamp = timeLogFile.lastModified();
+        boolean uncertain = timestamp > System.currentTimeMillis()
+                - TIMESTAMP_GRANULARITY;
+        if (segment != null && length == segmentFileLength
+                && timestamp == segmentFileTimestamp
+                && !segmentTimestampUncertain) {
+            segmentTimestampUncertain = uncertain;
+            return segment;
+        }
+
+        // the file might have changed.  Compare its contents to be certain.
+        long checksum = getChecksum();
+        if (segment == null || length != segmentFileLength
+                || checksum != segmentFileChecksum) {
+            TimeLogSegment newSegment = readIndexFile(length, checksum);
+            if (newSegment == null) {
+                newSegment = readTimeLogFile();
+                writeIndexFile(newSegment, length, checksum);
+            }
+            segment = newSegment;
+        }
+        segmentFileLength = length;
+        segmentFileTimestamp = timestamp;
+        segmentFileChecksum = checksum;
+        segmentTimestampUncertain = uncertain;
+        return segment;
+    }
+
+    /** @return a checksum of the XML file, or 0 if it does not exist */
+    private long getChecksum() throws IOException {
+        if (!timeLogFile.isFile())
+            return 0;
+        return FileUtils.computeChecksum(timeLogFile, new CRC32());
+    }
+
+    private TimeLogSegment readTimeLogFile() throws IOException {
+        try {
+            return new TimeLogSegment(new TimeLogReader(timeLogFile));
+        } catch (IONoSuchElementException ionsee) {
+            throw ionsee.getIOException();
+        }
+    }
+
+    /** Read the index file, if it was built from the current XML file */
+    private TimeLogSegment readIndexFile(long length, long checksum) {
+        if (length == 0 || !indexFile.isFile())
+            return null;
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(indexFile)));
+            if (in.readLong() != INDEX_FORMAT || in.readLong() != length
+                    || in.readLong() != checksum)
+                return null;
+            return new TimeLogSegment(in);
+        } catch (Exception e) {
+            // the index is damaged.  Fall back to the XML file.
+            logger.log(Level.FINE, "Could not read time log index "
+                    + indexFile, e);
+            return null;
+        } finally {
+            FileUtils.safelyClose(in);
+        }
+    }
+
+    private void writeIndexFile(TimeLogSegment segment, long length,
+            long checksum) {
+        if (length == 0 || Settings.isReadOnly())
+            return;
+
+        try {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new RobustFileOutputStream(
+                            indexFile)));
+            out.writeLong(INDEX_FORMAT);
+            out.writeLong(length);
+            out.writeLong(checksum);
+            segment.write(out);
+            out.close();
+        } catch (IOException ioe) {
+            // the index is only an optimization, so this is not fatal.
+            logger.log(Level.FINE, "Could not write time log index "
+                    + indexFile, ioe);
+        }
     }
 
 }
@@ -398,7 +398,7 @@ public class TimeLogModifications implements CommittableModifiableTimeLog {
             // optimization if there are no modifications to perform
             return parent.filter(path, from, to);
 
-        Iterator baseEntries = parent.filter(null, null, null);
+        Iterator baseEntries = getBaseEntries(path, from, to);
         Iterator modifiedEntries = new ModifiedEntriesFilter(baseEntries);
         Iterator addedEntries = new AddedEntriesFilter();
         EnumerIterator allEntries = new IteratorConcatenator(modifiedEntries,
@@ -409,6 +409,44 @@ public class TimeLogModifications implements CommittableModifiableTimeLog {
             return new TimeLogIteratorFilter(allEntries, path, from, to);
     }
 
+    /**
+     * Retrieve the parent entries that could possibly match a query, once
+     * our modifications have been applied.
+     */
+    private Iterator getBaseEntries(String path, Date from, Date to)
+            throws IOException {
+        // renaming operations could move entries into the requested path,
+        // so we can only narrow the search by date in that case.
+        if (!batchRenames.isEmpty())
+            path = null;
+
+        if (!(parent instanceof BaseTimeLog)
+                || (path == null && from == null && to == null))
+            return parent.filter(null, null, null);
+
+        // An indexed parent can find the entries that match the query. But
+        // a modified entry might match even if the original did not, so we
+        // ask for those entries too.  The caller will filter the results
+        // after applying our changes.
+        long[] modifiedIDs;
+        synchronized (this) {
+            modifiedIDs = new long[modifications.size()];
+            int i = 0;
+            for (Iterator iter = modifications.values().iterator(); iter
+                    .hasNext();) {
+                ChangeFlagged mod = (ChangeFlagged) iter.next();
+                if (mod.getChangeFlag() == ChangeFlagged.MODIFIED)
+                    modifiedIDs[i++] = ((TimeLogEntry) mod).getID();
+            }
+            if (i < modifiedIDs.length) {
+                long[] trimmed = new long[i];
+                System.arraycopy(modifiedIDs, 0, trimmed, 0, i);
+                modifiedIDs = trimmed;
+            }
+        }
+        return ((BaseTimeLog) parent).filter(path, from, to, modifiedIDs);
+    }
+
     protected class AddedEntriesFilter extends IteratorFilter {
         public AddedEntriesFilter() {
             super(modifications.values().iterator());
@@ -0,0 +1,568 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.log.time;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import net.sourceforge.processdash.log.ChangeFlagged;
+import net.sourceforge.processdash.util.EnumerIterator;
+
+
+/**
+ * An immutable, indexed copy of the entries in a time log file.
+ * <p>
+ * Entries are held in parallel arrays rather than as objects, and each
+ * distinct path is stored only once.  Two indexes support the queries made
+ * by {@link TimeLog#filter(String, Date, Date)}:
+ * <ul>
+ * <li>The distinct paths are sorted, so the paths that match a hierarchy
+ * prefix fall in a contiguous range.  A second array lists the entries for
+ * each path.</li>
+ * <li>A permutation of the entries sorts them by start time, so a date range
+ * can be found with a binary search.</li>
+ * </ul>
+ * Queries return entries in their original file order, just as a
+ * {@link TimeLogReader} would.
+ * <p>
+ * Segments can be written to and read from a compact binary stream, so the
+ * XML time log only needs to be parsed when it changes.
+ */
+class TimeLogSegment {
+
+    private static final int MAGIC = 0x544c4f47; // "TLOG"
+
+    private static final int VERSION = 1;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    /** Bits in the binary format that accompany an entry's change flag */
+    private static final int FLAG_MASK = 0x0f, HAS_DATE = 0x10,
+            HAS_COMMENT = 0x20;
+
+    private int size;
+
+    private long[] ids;
+
+    private long[] startTimes;
+
+    private long[] elapsedTimes;
+
+    private long[] interruptTimes;
+
+    private byte[] flags;
+
+    private int[] pathRefs;
+
+    private String[] comments;
+
+    /** The distinct paths in this segment, in sorted order */
+    private String[] paths;
+
+    /** Entry positions, sorted by path.  The entries for path <i>p</i>
+     * occupy positions <code>pathOffsets[p]</code> (inclusive) through
+     * <code>pathOffsets[p+1]</code> (exclusive). */
+    private int[] byPath;
+
+    private int[] pathOffsets;
+
+    /** The positions of entries with a start time, sorted by start time */
+    private int[] byStart;
+
+    /** The positions of entries with no start time */
+    private int[] undated;
+
+    /** Entry IDs in sorted order, and the position of each one */
+    private long[] sortedIds;
+
+    private int[] idPositions;
+
+
+    /** Create a segment containing the entries from an iterator. */
+    public TimeLogSegment(Iterator entries) {
+        List<TimeLogEntry> list = new ArrayList<TimeLogEntry>();
+        while (entries.hasNext())
+            list.add((TimeLogEntry) entries.next());
+
+        allocate(list.size());
+        Map<String, Integer> pathNums = new HashMap<String, Integer>();
+        List<String> pathList = new ArrayList<String>();
+        for (int i = 0; i < size; i++) {
+            TimeLogEntry tle = list.get(i);
+            ids[i] = tle.getID();
+            startTimes[i] = (tle.getStartTime() == null ? NO_DATE : tle
+                    .getStartTime().getTime());
+            elapsedTimes[i] = tle.getElapsedTime();
+            interruptTimes[i] = tle.getInterruptTime();
+            comments[i] = tle.getComment();
+            if (tle instanceof ChangeFlagged)
+                flags[i] = (byte) ((ChangeFlagged) tle).getChangeFlag();
+
+            String path = tle.getPath();
+            if (path == null) {
+                pathRefs[i] = -1;
+            } else {
+                Integer num = pathNums.get(path);
+                if (num == null) {
+                    num = pathList.size();
+                    pathNums.put(path, num);
+                    pathList.add(path);
+                }
+                pathRefs[i] = num;
+            }
+        }
+
+        // renumber the paths so they appear in sorted order
+        String[] unsorted = pathList.toArray(new String[pathList.size()]);
+        paths = unsorted.clone();
+        Arrays.sort(paths);
+        int[] renumber = new int[paths.length];
+        for (int i = 0; i < unsorted.length; i++)
+            renumber[i] = Arrays.binarySearch(paths, unsorted[i]);
+        for (int i = 0; i < size; i++)
+            if (pathRefs[i] != -1)
+                pathRefs[i] = renumber[pathRefs[i]];
+
+        buildIndexes();
+    }
+
+    /** Read a segment that was written by {@link #write(DataOutputStream)}.
+     *
+     * @throws IOException if the stream does not contain a valid segment
+     */
+    public TimeLogSegment(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            throw new IOException("Unrecognized time log segment format");
+
+        int numPaths = in.readInt();
+        if (numPaths < 0)
+            throw new IOException("Corrupt time log segment");
+        paths = new String[numPaths];
+        for (int i = 0; i < paths.length; i++)
+            paths[i] = readString(in);
+
+        allocate(in.readInt());
+        long lastID = 0, lastStart = 0;
+        for (int i = 0; i < size; i++) {
+            int bits = in.readUnsignedByte();
+            flags[i] = (byte) (bits & FLAG_MASK);
+            ids[i] = lastID = lastID + readVarLong(in);
+            if ((bits & HAS_DATE) == 0)
+                startTimes[i] = NO_DATE;
+            else
+                startTimes[i] = lastStart = lastStart + readVarLong(in);
+            elapsedTimes[i] = readVarLong(in);
+            interruptTimes[i] = readVarLong(in);
+            pathRefs[i] = (int) readVarLong(in);
+            if ((bits & HAS_COMMENT) != 0)
+                comments[i] = readString(in);
+            if (pathRefs[i] < -1 || pathRefs[i] >= paths.length)
+                throw new IOException("Corrupt time log segment");
+        }
+
+        buildIndexes();
+    }
+
+    /** Write the contents of this segment to a binary stream. */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        out.writeInt(paths.length);
+        for (int i = 0; i < paths.length; i++)
+            writeString(out, paths[i]);
+
+        // IDs and start times usually ascend through the file, so they are
+        // written as differences from the previous entry.
+        out.writeInt(size);
+        long lastID = 0, lastStart = 0;
+        for (int i = 0; i < size; i++) {
+            boolean hasDate = (startTimes[i] != NO_DATE);
+            out.writeByte(flags[i] | (hasDate ? HAS_DATE : 0)
+                    | (comments[i] != null ? HAS_COMMENT : 0));
+            writeVarLong(out, ids[i] - lastID);
+            lastID = ids[i];
+            if (hasDate) {
+                writeVarLong(out, startTimes[i] - lastStart);
+                lastStart = startTimes[i];
+            }
+            writeVarLong(out, elapsedTimes[i]);
+            writeVarLong(out, interruptTimes[i]);
+            writeVarLong(out, pathRefs[i]);
+            if (comments[i] != null)
+                writeString(out, comments[i]);
+        }
+    }
+
+    /** Write a signed value in a variable number of bytes, so small values
+     * take little space */
+    private static void writeVarLong(DataOutputStream out, long value)
+            throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7fL) != 0) {
+            out.writeByte((int) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return (v >>> 1) ^ -(v & 1);
+        }
+        throw new IOException("Corrupt time log segment");
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, TimeLogIOConstants.ENCODING);
+    }
+
+    private static void writeString(DataOutputStream out, String s)
+            throws IOException {
+        // DataOutputStream.writeUTF() is limited to 64K, which could be
+        // exceeded by a long comment.
+        byte[] bytes = s.getBytes(TimeLogIOConstants.ENCODING);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void allocate(int size) {
+        this.size = size;
+        ids = new long[size];
+        startTimes = new long[size];
+        elapsedTimes = new long[size];
+        interruptTimes = new long[size];
+        flags = new byte[size];
+        pathRefs = new int[size];
+        comments = new String[size];
+    }
+
+    private void buildIndexes() {
+        // group entry positions by path, with a counting sort.  Entries
+        // with no path are left out, since they never match a path query.
+        pathOffsets = new int[paths.length + 1];
+        for (int i = 0; i < size; i++)
+            if (pathRefs[i] != -1)
+                pathOffsets[pathRefs[i] + 1]++;
+        for (int p = 0; p < paths.length; p++)
+            pathOffsets[p + 1] += pathOffsets[p];
+        byPath = new int[pathOffsets[paths.length]];
+        int[] next = new int[paths.length];
+        System.arraycopy(pathOffsets, 0, next, 0, paths.length);
+        for (int i = 0; i < size; i++)
+            if (pathRefs[i] != -1)
+                byPath[next[pathRefs[i]]++] = i;
+
+        // sort the dated entries by start time.
+        int numUndated = 0;
+        for (int i = 0; i < size; i++)
+            if (startTimes[i] == NO_DATE)
+                numUndated++;
+        byStart = new int[size - numUndated];
+        undated = new int[numUndated];
+        for (int i = 0, d = 0, u = 0; i < size; i++)
+            if (startTimes[i] == NO_DATE)
+                undated[u++] = i;
+            else
+                byStart[d++] = i;
+        sortPositions(byStart, startTimes);
+
+        // sort the IDs, for lookups by ID
+        idPositions = new int[size];
+        for (int i = 0; i < size; i++)
+            idPositions[i] = i;
+        sortPositions(idPositions, ids);
+        sortedIds = new long[size];
+        for (int i = 0; i < size; i++)
+            sortedIds[i] = ids[idPositions[i]];
+    }
+
+    /** Sort a list of positions by the values they refer to, keeping equal
+     * values in their original order. */
+    private static void sortPositions(int[] positions, long[] values) {
+        // time logs are usually in chronological order already, so check
+        // for that before doing any work.
+        boolean sorted = true;
+        for (int i = 1; sorted && i < positions.length; i++)
+            sorted = values[positions[i - 1]] <= values[positions[i]];
+        if (!sorted)
+            mergeSort(positions.clone(), positions, 0, positions.length,
+                values);
+    }
+
+    private static void mergeSort(int[] src, int[] dest, int lo, int hi,
+            long[] values) {
+        if (hi - lo < 2)
+            return;
+        int mid = (lo + hi) >>> 1;
+        mergeSort(dest, src, lo, mid, values);
+        mergeSort(dest, src, mid, hi, values);
+        for (int i = lo, l = lo, r = mid; i < hi; i++) {
+            if (r >= hi || (l < mid && values[src[l]] <= values[src[r]]))
+                dest[i] = src[l++];
+            else
+                dest[i] = src[r++];
+        }
+    }
+
+
+    /** @return the number of entries in this segment */
+    public int size() {
+        return size;
+    }
+
+    /** @return an iterator over every entry in this segment */
+    public EnumerIterator iterator() {
+        return new EntryIterator(null);
+    }
+
+    /**
+     * Return the entries in this segment that match the given criteria, as
+     * defined by {@link TimeLogIteratorFilter}.
+     *
+     * @param extraIDs the IDs of additional entries that should be included
+     *     in the results even if they do not match the criteria; can be null
+     */
+    public EnumerIterator filter(String path, Date from, Date to,
+            long[] extraIDs) {
+        if (path == null && from == null && to == null && extraIDs == null)
+            return iterator();
+
+        int[] positions = null;
+        int len = 0;
+
+        if (path != null) {
+            // start with the entries for the matching paths.
+            int[] exact = getPathRange(path, path);
+            int[] children = getPathRange(path + "/", path + "0");
+            int count = countPathEntries(exact) + countPathEntries(children);
+            if (from != null || to != null) {
+                int[] dateRange = getDateRange(from, to);
+                if (dateRange[1] - dateRange[0] + undated.length < count)
+                    positions = null;
+                else
+                    positions = new int[count];
+            } else {
+                positions = new int[count];
+            }
+
+            if (positions != null) {
+                len = copyPathEntries(exact, positions, 0);
+                len = copyPathEntries(children, positions, len);
+                if (from != null || to != null) {
+                    int keep = 0;
+                    for (int i = 0; i < len; i++)
+                        if (dateMatches(positions[i], from, to))
+                            positions[keep++] = positions[i];
+                    len = keep;
+                }
+            }
+        }
+
+        if (positions == null && (from != null || to != null)) {
+            // use the start time index.
+            int[] dateRange = getDateRange(from, to);
+            positions = new int[dateRange[1] - dateRange[0] + undated.length];
+            for (int i = dateRange[0]; i < dateRange[1]; i++)
+                if (path == null || pathMatches(byStart[i], path))
+                    positions[len++] = byStart[i];
+            for (int i = 0; i < undated.length; i++)
+                if (path == null || pathMatches(undated[i], path))
+                    positions[len++] = undated[i];
+        }
+
+        if (positions == null) {
+            // only extra IDs were requested
+            positions = new int[0];
+        }
+
+        if (extraIDs != null && extraIDs.length > 0) {
+            int[] more = new int[len + extraIDs.length];
+            System.arraycopy(positions, 0, more, 0, len);
+            for (int i = 0; i < extraIDs.length; i++) {
+                int pos = getPosition(extraIDs[i]);
+                if (pos != -1)
+                    more[len++] = pos;
+            }
+            positions = more;
+        }
+
+        // return the results in their original order, without duplicates
+        Arrays.sort(positions, 0, len);
+        int unique = 0;
+        for (int i = 0; i < len; i++)
+            if (unique == 0 || positions[unique - 1] != positions[i])
+                positions[unique++] = positions[i];
+        int[] result = new int[unique];
+        System.arraycopy(positions, 0, result, 0, unique);
+        return new EntryIterator(result);
+    }
+
+    /** @return the position of the entry with the given ID, or -1 */
+    private int getPosition(long id) {
+        int i = Arrays.binarySearch(sortedIds, id);
+        if (i < 0)
+            return -1;
+        // if IDs are duplicated, use the first occurrence
+        while (i > 0 && sortedIds[i - 1] == id)
+            i--;
+        return idPositions[i];
+    }
+
+    /** Find the range of path numbers from <code>lo</code> (inclusive) to
+     * <code>hi</code> (exclusive, unless equal to <code>lo</code>) */
+    private int[] getPathRange(String lo, String hi) {
+        int start = insertionPoint(Arrays.binarySearch(paths, lo));
+        int end;
+        if (lo.equals(hi))
+            end = (start < paths.length && paths[start].equals(lo) ? start + 1
+                    : start);
+        else
+            end = insertionPoint(Arrays.binarySearch(paths, hi));
+        return new int[] { start, end };
+    }
+
+    private static int insertionPoint(int searchResult) {
+        return (searchResult < 0 ? -searchResult - 1 : searchResult);
+    }
+
+    private int countPathEntries(int[] pathRange) {
+        return pathOffsets[pathRange[1]] - pathOffsets[pathRange[0]];
+    }
+
+    private int copyPathEntries(int[] pathRange, int[] dest, int destPos) {
+        int start = pathOffsets[pathRange[0]];
+        int len = pathOffsets[pathRange[1]] - start;
+        System.arraycopy(byPath, start, dest, destPos, len);
+        return destPos + len;
+    }
+
+    /** Find the range of positions in byStart that fall between the given
+     * dates (inclusive) */
+    private int[] getDateRange(Date from, Date to) {
+        int start = 0, end = byStart.length;
+        if (from != null)
+            start = firstStartAtOrAfter(from.getTime());
+        if (to != null)
+            end = firstStartAtOrAfter(to.getTime() + 1);
+        return new int[] { start, Math.max(start, end) };
+    }
+
+    private int firstStartAtOrAfter(long time) {
+        int lo = 0, hi = byStart.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (startTimes[byStart[mid]] < time)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private boolean dateMatches(int pos, Date from, Date to) {
+        long start = startTimes[pos];
+        if (start == NO_DATE)
+            return true;
+        if (to != null && start > to.getTime())
+            return false;
+        if (from != null && start < from.getTime())
+            return false;
+        return true;
+    }
+
+    private boolean pathMatches(int pos, String prefix) {
+        int ref = pathRefs[pos];
+        if (ref == -1)
+            return false;
+        String path = paths[ref];
+        return path.startsWith(prefix)
+                && (path.length() == prefix.length()
+                        || path.charAt(prefix.length()) == '/');
+    }
+
+    private TimeLogEntry getEntry(int pos) {
+        return new TimeLogEntryVO(ids[pos],
+                (pathRefs[pos] == -1 ? null : paths[pathRefs[pos]]),
+                (startTimes[pos] == NO_DATE ? null : new Date(startTimes[pos])),
+                elapsedTimes[pos], interruptTimes[pos], comments[pos],
+                flags[pos]);
+    }
+
+    private class EntryIterator implements EnumerIterator {
+
+        private int[] positions;
+
+        private int next;
+
+        private int end;
+
+        EntryIterator(int[] positions) {
+            this.positions = positions;
+            this.next = 0;
+            this.end = (positions == null ? size : positions.length);
+        }
+
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        public Object next() {
+            if (next >= end)
+                throw new NoSuchElementException();
+            int pos = (positions == null ? next : positions[next]);
+            next++;
+            return getEntry(pos);
+        }
+
+        public boolean hasMoreElements() {
+            return hasNext();
+        }
+
+        public Object nextElement() {
+            return next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
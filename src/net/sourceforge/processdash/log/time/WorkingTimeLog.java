@@ -210,6 +210,7 @@ public class WorkingTimeLog implements ModifiableTimeLog, IDSource,
             throw new IOException("Unable to save time log to file " + destFile);
         } else {
             rout.close();
+            historicalTimeLog.invalidate();
             realTimeMods.clear();
         }
     }
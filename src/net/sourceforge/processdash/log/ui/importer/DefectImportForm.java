@@ -500,29 +500,34 @@ public class DefectImportForm extends BoundForm {
         int updatedCount = 0;
         int unchangedCount = 0;
 
-        for (Iterator i = defects.iterator(); i.hasNext();) {
-            Defect newDefect = (Defect) i.next();
-            Defect oldDefect = defectLog.getDefect(newDefect.number);
-            if (oldDefect == null) {
-                addedCount++;
-                defectLog.writeDefect(newDefect);
-            } else {
-                Defect originalDefect = (Defect) oldDefect.clone();
-                oldDefect.defect_type = merge(oldDefect.defect_type, newDefect.defect_type);
-                oldDefect.injected = merge(oldDefect.injected, newDefect.injected);
-                oldDefect.phase_injected = oldDefect.injected.legacyPhase;
-                oldDefect.removed = merge(oldDefect.removed, newDefect.removed);
-                oldDefect.phase_removed = oldDefect.removed.legacyPhase;
-                oldDefect.description = merge(oldDefect.description, newDefect.description);
-                oldDefect.fix_time = merge(oldDefect.fix_time, newDefect.fix_time);
-                oldDefect.fix_defect = merge(oldDefect.fix_defect, newDefect.fix_defect);
-                if (originalDefect.equals(oldDefect)) {
-                    unchangedCount++;
+        defectLog.beginBatch();
+        try {
+            for (Iterator i = defects.iterator(); i.hasNext();) {
+                Defect newDefect = (Defect) i.next();
+                Defect oldDefect = defectLog.getDefect(newDefect.number);
+                if (oldDefect == null) {
+                    addedCount++;
+                    defectLog.writeDefect(newDefect);
                 } else {
-                    updatedCount++;
-                    defectLog.writeDefect(oldDefect);
+                    Defect originalDefect = (Defect) oldDefect.clone();
+                    oldDefect.defect_type = merge(oldDefect.defect_type, newDefect.defect_type);
+                    oldDefect.injected = merge(oldDefect.injected, newDefect.injected);
+                    oldDefect.phase_injected = oldDefect.injected.legacyPhase;
+                    oldDefect.removed = merge(oldDefect.removed, newDefect.removed);
+                    oldDefect.phase_removed = oldDefect.removed.legacyPhase;
+                    oldDefect.description = merge(oldDefect.description, newDefect.description);
+                    oldDefect.fix_time = merge(oldDefect.fix_time, newDefect.fix_time);
+                    oldDefect.fix_defect = merge(oldDefect.fix_defect, newDefect.fix_defect);
+                    if (originalDefect.equals(oldDefect)) {
+                        unchangedCount++;
+                    } else {
+                        updatedCount++;
+                        defectLog.writeDefect(oldDefect);
+                    }
                 }
             }
+        } finally {
+            defectLog.endBatch();
         }
 
         if (addedCount == 0 && updatedCount == 0) {
@@ -26,12 +26,15 @@ package net.sourceforge.processdash.net.http;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.net.URL;
 import java.text.MessageFormat;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.StringTokenizer;
@@ -104,14 +107,46 @@ public class HTMLPreprocessor {
 
     /** preprocess the given content, and return the result. */
     public String preprocess(String content) throws IOException {
+        cachedTestExpressions.clear();
+        content = applyEagerReplacements(content);
+        StringWriter out = new StringWriter(content.length());
+        evaluate(HTMLTemplate.compile(content), out);
+        return out.toString();
+    }
+
+    /**
+     * preprocess a compiled template, and write the result to the given
+     * writer.
+     * 
+     * @since 2.7.6
+     */
+    public void preprocess(HTMLTemplate template, Writer out)
+            throws IOException {
+        cachedTestExpressions.clear();
+        if (hasEagerReplacements())
+            template = HTMLTemplate.compile(applyEagerReplacements(template
+                    .getSource()));
+        evaluate(template, out);
+    }
+
+    /** preprocess the given content by interpreting its text directly,
+     * without compiling it into a template. */
+    String preprocessInterpreted(String content) throws IOException {
         StringBuffer text = new StringBuffer(content);
         cachedTestExpressions.clear();
         maybePerformEagerReplacements(text);
+        return interpret(text, true);
+    }
 
-        numberBlocks(text, "foreach", "endfor", null, null);
-        numberBlocks(text, "fortree", "endtree", null, null);
-        numberBlocks(text, "if", "endif", "else", "elif");
-        numberBlocks(text, "replace", "endreplace", null, null);
+    /** process the directives in a buffer, and return the result. */
+    private String interpret(StringBuffer text, boolean numberBlocks)
+            throws IOException {
+        if (numberBlocks) {
+            numberBlocks(text, "foreach", "endfor", null, null);
+            numberBlocks(text, "fortree", "endtree", null, null);
+            numberBlocks(text, "if", "endif", "else", "elif");
+            numberBlocks(text, "replace", "endreplace", null, null);
+        }
 
         DirectiveMatch dir;
         int pos = 0;
@@ -144,8 +179,259 @@ public class HTMLPreprocessor {
     }
 
 
+    /** evaluate a template, and write the results to the given writer */
+    private void evaluate(HTMLTemplate template, Writer out)
+            throws IOException {
+        if (template.isCompiled())
+            evaluate(template.nodes, out);
+        else
+            out.write(interpret(new StringBuffer(template.getSource()), true));
+    }
+
+    /** evaluate a list of compiled template nodes */
+    private void evaluate(List<HTMLTemplate.Node> nodes, Writer out)
+            throws IOException {
+        for (HTMLTemplate.Node node : nodes) {
+            if (node instanceof HTMLTemplate.Text)
+                out.write(((HTMLTemplate.Text) node).text);
+            else if (node instanceof HTMLTemplate.Directive)
+                evaluateDirective((HTMLTemplate.Directive) node, out);
+            else if (node instanceof HTMLTemplate.IfBlock)
+                evaluateIf((HTMLTemplate.IfBlock) node, out);
+            else if (node instanceof HTMLTemplate.Block)
+                evaluateBlock((HTMLTemplate.Block) node, out);
+            else if (node instanceof HTMLTemplate.Include)
+                evaluateInclude((HTMLTemplate.Include) node, out);
+            // break nodes discard their contents, and produce no output
+        }
+    }
+
+    /** evaluate a list of nodes as an independent page, and return the
+     * result */
+    private String evaluateNested(List<HTMLTemplate.Node> nodes)
+            throws IOException {
+        if (hasEagerReplacements())
+            return preprocess(HTMLTemplate.getSource(nodes));
+
+        cachedTestExpressions.clear();
+        StringWriter out = new StringWriter();
+        evaluate(nodes, out);
+        return out.toString();
+    }
+
+    private void evaluateDirective(HTMLTemplate.Directive d, Writer out)
+            throws IOException {
+        DirectiveMatch dir = new DirectiveMatch(d);
+        if ("echo".equals(d.name))
+            out.write(getEchoText(dir));
+        else if ("include".equals(d.name))
+            evaluateInclude(dir, null, out);
+        else if ("incr".equals(d.name))
+            incrementVariable(dir);
+        else if ("set".equals(d.name))
+            setVariable(dir.getAttribute("var"), dir.getAttribute("value"));
+        else if ("resources".equals(d.name))
+            loadResources(dir);
+        // other directives (including a break with no matching endbreak)
+        // produce no output
+    }
+
+    private void evaluateInclude(HTMLTemplate.Include include, Writer out)
+            throws IOException {
+        evaluateInclude(new DirectiveMatch(include.include), include, out);
+    }
+
+    private void evaluateInclude(DirectiveMatch include,
+            HTMLTemplate.Include withParams, Writer out) throws IOException {
+        // what file do they want us to include?
+        String url = include.getAttribute("file");
+        if (isNull(url)) {
+            // no file specified - the directive and its parameters produce
+            // no output, but the whitespace between them remains.
+            if (withParams != null)
+                for (String gap : withParams.gaps)
+                    out.write(gap);
+            return;
+        }
+
+        if (withParams != null) {
+            for (HTMLTemplate.Directive p : withParams.params) {
+                String contents = p.inner;
+                if (contents.endsWith("#"))
+                    contents = contents.substring(0, contents.length() - 1);
+                contents = contents.substring("parameter".length());
+                url = appendFileParameter(url, new DirectiveMatch(
+                        "parameter", contents));
+            }
+        }
+
+        // fetch the requested url (relative to the current url)
+        String context = (String) env.get("REQUEST_URI");
+        String incText = new String
+            (web.getContent(context, url, false), "UTF-8");
+        incText = cutHtml(incText, include.getAttribute("cutToken"));
+
+        if (include.getAttribute("parse") == null) {
+            // insert the text verbatim (default)
+            out.write(incText);
+        } else {
+            // directives in included text are not numbered, so nested
+            // blocks of the same type must be interpreted the legacy way.
+            HTMLTemplate included = HTMLTemplate.compile(incText);
+            if (included.isCompiled() && !included.nestedBlocks)
+                evaluate(included.nodes, out);
+            else
+                out.write(interpret(new StringBuffer(incText), false));
+        }
+    }
+
+    private void evaluateIf(HTMLTemplate.IfBlock ifBlock, Writer out)
+            throws IOException {
+        for (int i = 0; i < ifBlock.clauses.size(); i++) {
+            HTMLTemplate.Directive clause = ifBlock.clauses.get(i);
+            if ("else".equals(clause.name) || ifTest(clause.contents)) {
+                evaluate(ifBlock.bodies.get(i), out);
+                return;
+            }
+        }
+    }
+
+    private void evaluateBlock(HTMLTemplate.Block block, Writer out)
+            throws IOException {
+        String name = block.start.name;
+        if ("foreach".equals(name))
+            evaluateForeach(block, out);
+        else if ("fortree".equals(name))
+            evaluateForTree(block, out);
+        else if ("replace".equals(name))
+            evaluateReplace(block, out);
+        else if ("set".equals(name))
+            setVariable(new DirectiveMatch(block.start).getAttribute("var"),
+                evaluateNested(block.body));
+    }
+
+    private void evaluateForeach(HTMLTemplate.Block foreach, Writer out)
+            throws IOException {
+        DirectiveMatch dir = new DirectiveMatch(foreach.start);
+
+        // get the list of values that we should iterate over
+        ListData list = getForeachListValues(dir);
+
+        String loopVar = dir.getAttribute("name");
+        String loopIndex = dir.getAttribute("index");
+        Integer loopLimit = getInteger(dir, "limit");
+        int loopEnd = list.size();
+        if (loopLimit != null)
+            loopEnd = Math.min(loopEnd, loopLimit);
+        for (int i = 0;   i < loopEnd;   i++) {
+            Object oneVal = list.get(i);
+            String strVal = (oneVal == null ? "" : oneVal.toString());
+            String indexVal = Integer.toString(i);
+
+            List<HTMLTemplate.Node> body = foreach.body;
+            if (loopVar != null)
+                body = HTMLTemplate.substitute(body, loopVar, strVal);
+            if (loopIndex != null && body != null)
+                body = HTMLTemplate.substitute(body, loopIndex, indexVal);
+
+            if (body != null) {
+                evaluate(body, out);
+            } else {
+                // the substituted values alter the structure of the loop
+                // body, so we must interpret the resulting text instead.
+                String iterResults = HTMLTemplate.getSource(foreach.body);
+                if (loopVar != null)
+                    iterResults = StringUtils.findAndReplace(iterResults, //
+                        loopVar, strVal);
+                if (loopIndex != null)
+                    iterResults = StringUtils.findAndReplace(iterResults, //
+                        loopIndex, indexVal);
+                out.write(interpret(new StringBuffer(iterResults), true));
+            }
+        }
+    }
+
+    private void evaluateForTree(HTMLTemplate.Block fortree, Writer out)
+            throws IOException {
+        // the tree variables are set by directives interleaved with copies
+        // of the loop body, so we compile the expanded text.
+        String text = expandTree(new DirectiveMatch(fortree.start),
+            HTMLTemplate.getSource(fortree.body));
+        evaluate(HTMLTemplate.compile(text), out);
+    }
+
+    private void evaluateReplace(HTMLTemplate.Block replace, Writer out)
+            throws IOException {
+        DirectiveMatch replaceDir = new DirectiveMatch(replace.start);
+
+        // check for the presence of if/unless attributes and possibly do
+        // nothing if they say so.
+        String unlessExpr = replaceDir.getAttribute("unless");
+        String ifExpr = replaceDir.getAttribute("if");
+        if ((unlessExpr != null && ifTest(cleanup(unlessExpr)) == true)
+                || (ifExpr != null && ifTest(cleanup(ifExpr)) == false)) {
+            evaluate(replace.body, out);
+            return;
+        }
+
+        // find the token or regular expression the user wants to replace
+        String regexp = replaceDir.getAttribute("regexp");
+        String token = replaceDir.getAttribute("token");
+        if (regexp == null && token == null) {
+            System.err.println
+            ("replace directive without token or regexp - aborting.");
+            evaluate(replace.body, out);
+            return;
+        }
+
+        String text = getEchoText(replaceDir);
+        boolean post = (replaceDir.getAttribute("post") != null);
+
+        if (post) {
+            // perform the replacement on the processed contents
+            String content = evaluateNested(replace.body);
+            if (token != null)
+                content = StringUtils.findAndReplace(content, cleanup(token),
+                    text);
+            else
+                content = content.replaceAll(cleanup(regexp), text);
+            out.write(content);
+
+        } else if (token != null) {
+            // perform the replacement on the compiled contents if possible,
+            // otherwise on their text
+            token = cleanup(token);
+            List<HTMLTemplate.Node> body = HTMLTemplate.substitute(
+                replace.body, token, text);
+            if (body != null)
+                evaluate(body, out);
+            else
+                out.write(interpret(new StringBuffer(StringUtils
+                        .findAndReplace(HTMLTemplate.getSource(replace.body),
+                            token, text)), true));
+
+        } else {
+            String content = HTMLTemplate.getSource(replace.body).replaceAll(
+                cleanup(regexp), text);
+            out.write(interpret(new StringBuffer(content), true));
+        }
+    }
+
+
+    private boolean hasEagerReplacements() {
+        return env.get(REPLACEMENTS_PARAM) instanceof Map;
+    }
+
+    private String applyEagerReplacements(String content) {
+        if (!hasEagerReplacements())
+            return content;
+        StringBuffer text = new StringBuffer(content);
+        maybePerformEagerReplacements(text);
+        return text.toString();
+    }
+
     private void maybePerformEagerReplacements(StringBuffer text) {
-        if (env.get(REPLACEMENTS_PARAM) instanceof Map) {
+        if (hasEagerReplacements()) {
             Map replacements = (Map) env.get(REPLACEMENTS_PARAM);
             for (Iterator i = replacements.entrySet().iterator(); i.hasNext();) {
                 Map.Entry e = (Map.Entry) i.next();
@@ -205,30 +491,30 @@ public class HTMLPreprocessor {
                 return url;
 
             include.buf.replace(include.end, param.end, "");
+            url = appendFileParameter(url, param);
+        }
+        return url;
+    }
+    private String appendFileParameter(String url, DirectiveMatch param) {
+        String paramName = param.getAttribute("name");
+        if (paramName == null || paramName.length() == 0)
+            return url;
 
-            String paramName = param.getAttribute("name");
-            if (paramName == null || paramName.length() == 0)
-                continue;
-
-            if ("query_string".equalsIgnoreCase(paramName))
-                url = appendParam(url, (String) env.get("QUERY_STRING"));
+        if ("query_string".equalsIgnoreCase(paramName))
+            return appendParam(url, (String) env.get("QUERY_STRING"));
 
-            else {
-                String query = HTMLUtils.urlEncode(paramName);
+        String query = HTMLUtils.urlEncode(paramName);
 
-                String encoding = param.getAttribute("encoding");
-                if (encoding == null)
-                    param.attributes.put("encoding", "url");
-                else if (encoding.indexOf("url") == -1)
-                    param.attributes.put("encoding", encoding + ",url");
-                String text = getEchoText(param);
-                if (StringUtils.hasValue(text))
-                    query = query + '=' + text;
+        String encoding = param.getAttribute("encoding");
+        if (encoding == null)
+            param.attributes.put("encoding", "url");
+        else if (encoding.indexOf("url") == -1)
+            param.attributes.put("encoding", encoding + ",url");
+        String text = getEchoText(param);
+        if (StringUtils.hasValue(text))
+            query = query + '=' + text;
 
-                url = appendParam(url, query);
-            }
-        }
-        return url;
+        return appendParam(url, query);
     }
     private boolean hasTrailingParam(DirectiveMatch include) {
         StringBuffer buf = include.buf;
@@ -504,6 +790,21 @@ public class HTMLPreprocessor {
             return;
         }
 
+        // iterate over the tree and calculate the resulting contents.
+        String loopContents = text.substring(fortree.end, endtree.begin);
+        String replacement = expandTree(fortree, loopContents);
+
+        // replace the directive with the iterated contents.  Note
+        // that we explicitly replace the initial fortree tag with an
+        // empty string, so the overall processing loop (in the
+        // preprocess method) will process these iterated contents.
+        text.replace(fortree.end, endtree.end, replacement);
+        fortree.replace("");
+    }
+
+    /** Build text which sets the tree variables for each node visited by
+     * a fortree directive, followed by the contents of the loop */
+    private String expandTree(DirectiveMatch fortree, String loopContents) {
         // determine the root prefix - possibly alter it based on the
         // directive's value for the startAt attribute.
         String rootPrefix = this.prefix;
@@ -531,19 +832,12 @@ public class HTMLPreprocessor {
             "true".equalsIgnoreCase(fortree.getAttribute("parentLast"));
 
         // iterate over the tree and calculate the resulting contents.
-        String loopContents = text.substring(fortree.end, endtree.begin);
         StringBuffer replacement = new StringBuffer();
         addSetDirective(replacement, "ROOT", rootPrefix);
         addSetDirective(replacement, "SPACER", SPACER);
         recurseTreeNode(replacement, loopContents, rootNode, 0, "",
                         expandName, includeRoot, maxDepth, parentLast);
-
-        // replace the directive with the iterated contents.  Note
-        // that we explicitly replace the initial fortree tag with an
-        // empty string, so the overall processing loop (in the
-        // preprocess method) will process these iterated contents.
-        text.replace(fortree.end, endtree.end, replacement.toString());
-        fortree.replace("");
+        return replacement.toString();
     }
 
     private void addSetDirective(StringBuffer buf, String varName,
@@ -891,6 +1185,10 @@ public class HTMLPreprocessor {
 
     private HashSet volatileVariables = new HashSet();
     private void processIncrDirective(DirectiveMatch incrDir) {
+        incrementVariable(incrDir);
+        incrDir.replace("");
+    }
+    private void incrementVariable(DirectiveMatch incrDir) {
         String varName = cleanup(incrDir.contents);
         int numberValue = 0;
 
@@ -900,8 +1198,6 @@ public class HTMLPreprocessor {
         } catch (NumberFormatException nfe) {}
         params.put(varName, Integer.toString(numberValue));
         volatileVariables.add(varName);
-
-        incrDir.replace("");
     }
 
     /** process a set directive within the buffer */
@@ -913,17 +1209,19 @@ public class HTMLPreprocessor {
             DirectiveMatch setEnd = new DirectiveMatch
                 (setDir.buf, "endset", setDir.end, true);
             if (setEnd.matches()) {
-                valueName = preprocess(setDir.buf.substring(setDir.end,
-                        setEnd.begin));
+                valueName = preprocessInterpreted(setDir.buf.substring(
+                        setDir.end, setEnd.begin));
                 setDir.buf.replace(setDir.end, setEnd.end, "");
             }
         }
 
-        params.put(varName, valueName);
-        volatileVariables.add(varName);
-
+        setVariable(varName, valueName);
         setDir.replace("");
     }
+    private void setVariable(String varName, String value) {
+        params.put(varName, value);
+        volatileVariables.add(varName);
+    }
 
     /** process a break directive within the buffer */
     private void processBreakDirective(DirectiveMatch breakDir) {
@@ -992,7 +1290,7 @@ public class HTMLPreprocessor {
         // if the user wants replacement to happen after other processing,
         // make a recursive preprocess call to perform that other processing.
         if (post)
-            content = preprocess(content);
+            content = preprocessInterpreted(content);
 
         // perform token or regexp replacement, as applicable.
         if (token != null)
@@ -1018,6 +1316,10 @@ public class HTMLPreprocessor {
     private void processResourcesDirective(DirectiveMatch resDir)
         throws IOException
     {
+        loadResources(resDir);
+        resDir.replace("");
+    }
+    private void loadResources(DirectiveMatch resDir) throws IOException {
         Resources r = null;
 
         // what bundle do they want us to include?
@@ -1058,7 +1360,6 @@ public class HTMLPreprocessor {
             if (resources == null) resources = new LinkedList();
             resources.add(r);
         }
-        resDir.replace("");
     }
 
     /** search for blocks created by matching start and end directives, and
@@ -1112,7 +1413,7 @@ public class HTMLPreprocessor {
 
 
     /** trim whitespace and unimportant delimiters from t */
-    private static String cleanup(String t) {
+    static String cleanup(String t) {
         t = t.trim();
         if (t.length() == 0) return t;
         if (t.charAt(0) == '"' || t.charAt(0) == '\'') {
@@ -1383,6 +1684,18 @@ public class HTMLPreprocessor {
             }
         }
 
+        /** Create a match for a directive that is not located in a buffer */
+        public DirectiveMatch(String directive, String contents) {
+            this.directive = directive;
+            this.contents = contents;
+        }
+
+        /** Create a match for a directive in a compiled template */
+        public DirectiveMatch(HTMLTemplate.Directive d) {
+            this(d.name, d.contents);
+            this.attributes = d.getAttributes();
+        }
+
         /** @return true if a directive was found */
         public boolean matches() { return begin != -1; }
 
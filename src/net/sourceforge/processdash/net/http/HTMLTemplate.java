@@ -0,0 +1,795 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.net.http;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+import net.sourceforge.processdash.templates.TemplateLoader;
+import net.sourceforge.processdash.util.HTMLUtils;
+import net.sourceforge.processdash.util.StringUtils;
+
+
+/**
+ * A server-parsed HTML page, compiled into a tree of text and directives.
+ * <p>
+ * {@link HTMLPreprocessor} can evaluate a compiled template in a single pass,
+ * without rescanning or modifying the page text.  Compiled templates do not
+ * depend on the request being served, so they can be cached and shared
+ * between threads.
+ * <p>
+ * Templates that use directives in ways the compiler does not understand
+ * (for example, blocks whose start and end directives are mismatched) are
+ * left uncompiled, and the preprocessor interprets their text instead.
+ */
+public class HTMLTemplate {
+
+    private final String source;
+
+    /** The compiled nodes of this template, or null if it could not be
+     * compiled */
+    final List<Node> nodes;
+
+    /** True if this template contains blocks nested within other blocks of
+     * the same type */
+    final boolean nestedBlocks;
+
+
+    private HTMLTemplate(String source, List<Node> nodes,
+            boolean nestedBlocks) {
+        this.source = source;
+        this.nodes = nodes;
+        this.nestedBlocks = nestedBlocks;
+    }
+
+    /** @return the text this template was compiled from */
+    public String getSource() {
+        return source;
+    }
+
+    /** @return true if this template was compiled successfully */
+    public boolean isCompiled() {
+        return nodes != null;
+    }
+
+
+    /** Compile the given page text into a template. */
+    public static HTMLTemplate compile(String text) {
+        Parser p = new Parser(tokenize(text));
+        try {
+            List<Node> nodes = p.parseSequence(p.tokens.size());
+            return new HTMLTemplate(text, nodes, p.nestedBlocks);
+        } catch (NotCompilable nc) {
+            return new HTMLTemplate(text, null, false);
+        }
+    }
+
+
+
+    // Cache of compiled templates for server-parsed resources
+
+    private static final int CACHE_SIZE = 100;
+
+    private static final Map<String, CacheEntry> CACHE =
+        new LinkedHashMap<String, CacheEntry>(CACHE_SIZE, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+
+    private static class CacheEntry {
+        long templateTimestamp, resourceTimestamp;
+        HTMLTemplate template;
+    }
+
+    /**
+     * Return a previously compiled template for the given resource, if the
+     * resource has not changed since it was compiled.
+     * 
+     * @return the compiled template, or null if none is available
+     */
+    public static HTMLTemplate getCached(URL resource) {
+        long timestamp = getResourceTimestamp(resource);
+        if (timestamp <= 0)
+            return null;
+
+        CacheEntry e;
+        synchronized (CACHE) {
+            e = CACHE.get(resource.toString());
+        }
+        if (e != null
+                && e.templateTimestamp == TemplateLoader.getTemplateTimestamp()
+                && e.resourceTimestamp == timestamp)
+            return e.template;
+        else
+            return null;
+    }
+
+    /**
+     * Compile the text of a resource, and cache the result for subsequent
+     * calls to {@link #getCached(URL)}.
+     */
+    public static HTMLTemplate compile(URL resource, String text) {
+        CacheEntry e = new CacheEntry();
+        e.templateTimestamp = TemplateLoader.getTemplateTimestamp();
+        e.resourceTimestamp = getResourceTimestamp(resource);
+        e.template = compile(text);
+        if (e.resourceTimestamp > 0) {
+            synchronized (CACHE) {
+                CACHE.put(resource.toString(), e);
+            }
+        }
+        return e.template;
+    }
+
+    /** Find the modification time of the file containing a resource, or
+     * return 0 if it cannot be determined */
+    private static long getResourceTimestamp(URL resource) {
+        String url = resource.toString();
+        if (url.startsWith("jar:file:")) {
+            int pos = url.indexOf("!/");
+            if (pos == -1)
+                return 0;
+            url = url.substring(4, pos);
+        }
+        if (!url.startsWith("file:"))
+            return 0;
+        return new File(HTMLUtils.urlDecode(url.substring(5))).lastModified();
+    }
+
+
+
+    /** Base class for the nodes in a compiled template */
+    static abstract class Node {
+
+        /** Append the text this node was compiled from */
+        abstract void appendSource(StringBuilder buf);
+
+        /**
+         * Return a node equivalent to compiling this node's text, after
+         * replacing a token with a value.
+         * 
+         * @return this node if the token does not appear, or null if the
+         *         replacement would alter the structure of the template
+         */
+        abstract Node substitute(String token, String value);
+
+    }
+
+
+    /** A run of literal text */
+    static class Text extends Node {
+
+        final String text;
+
+        Text(String text) {
+            this.text = text;
+        }
+
+        void appendSource(StringBuilder buf) {
+            buf.append(text);
+        }
+
+        Node substitute(String token, String value) {
+            String newText = StringUtils.findAndReplace(text, token, value);
+            if (newText == text)
+                return this;
+            else if (newText.contains(DIRECTIVE_START))
+                return null;
+            else
+                return new Text(newText);
+        }
+
+    }
+
+
+    /** A single directive of the form &lt;!--#name contents --&gt; */
+    static class Directive extends Node {
+
+        /** The text between the directive start and end markers */
+        final String inner;
+
+        /** Whitespace after the directive that is discarded because the
+         * directive ended with "#--&gt;" */
+        final String trailingSpace;
+
+        final String name;
+
+        final String contents;
+
+        /** True if this directive's contents determined the structure of
+         * the template, so they must not be altered by substitution */
+        boolean fixed;
+
+        private volatile Map attributes;
+
+        Directive(String inner, String trailingSpace) {
+            this.inner = inner;
+            this.trailingSpace = trailingSpace;
+
+            String body = inner;
+            if (body.endsWith("#"))
+                body = body.substring(0, body.length() - 1);
+            StringTokenizer tok = new StringTokenizer(body);
+            this.name = (tok.hasMoreTokens() ? tok.nextToken() : "");
+            this.contents = (tok.hasMoreTokens() ? tok.nextToken("\u0000")
+                    : "");
+        }
+
+        /** @return the attributes of this directive, which must not be
+         * modified */
+        Map getAttributes() {
+            Map result = attributes;
+            if (result == null)
+                attributes = result = Collections.unmodifiableMap(HTMLUtils
+                        .parseAttributes(contents));
+            return result;
+        }
+
+        /** @return true if the text of this directive begins with a prefix */
+        boolean startsWith(String prefix) {
+            return prefix.startsWith(DIRECTIVE_START)
+                    && inner.startsWith(prefix.substring(DIRECTIVE_START
+                            .length()));
+        }
+
+        void appendSource(StringBuilder buf) {
+            buf.append(DIRECTIVE_START).append(inner).append(DIRECTIVE_END)
+                    .append(trailingSpace);
+        }
+
+        Node substitute(String token, String value) {
+            String text = DIRECTIVE_START + inner + DIRECTIVE_END;
+            String newText = StringUtils.findAndReplace(text, token, value);
+            if (newText == text)
+                return this;
+            if (fixed || !newText.startsWith(DIRECTIVE_START)
+                    || newText.indexOf(DIRECTIVE_END) != newText.length() - 3)
+                return null;
+
+            String newInner = newText.substring(DIRECTIVE_START.length(),
+                newText.length() - DIRECTIVE_END.length());
+            if (newInner.contains(DIRECTIVE_START)
+                    || newInner.endsWith("#") != inner.endsWith("#"))
+                return null;
+
+            Directive result = new Directive(newInner, trailingSpace);
+            if (!result.name.equals(name)
+                    || ("set".equals(name) && isInlineSet(result)))
+                return null;
+            return result;
+        }
+
+    }
+
+
+    /** An include directive, and the parameter directives that follow it */
+    static class Include extends Node {
+
+        final Directive include;
+
+        /** The whitespace preceding each parameter */
+        final List<String> gaps;
+
+        final List<Directive> params;
+
+        Include(Directive include, List<String> gaps, List<Directive> params) {
+            this.include = include;
+            this.gaps = gaps;
+            this.params = params;
+        }
+
+        void appendSource(StringBuilder buf) {
+            include.appendSource(buf);
+            for (int i = 0; i < params.size(); i++) {
+                buf.append(gaps.get(i));
+                params.get(i).appendSource(buf);
+            }
+        }
+
+        Node substitute(String token, String value) {
+            Directive newInclude = (Directive) include.substitute(token, value);
+            List<Directive> newParams = HTMLTemplate.substitute(params,
+                token, value);
+            if (newInclude == null || newParams == null)
+                return null;
+            else if (newInclude == include && newParams == params)
+                return this;
+            else
+                return new Include(newInclude, gaps, newParams);
+        }
+
+    }
+
+
+    /**
+     * A block of nodes between a start directive and an end directive.  This
+     * is used for foreach, fortree, replace and inline set directives.
+     */
+    static class Block extends Node {
+
+        final Directive start;
+
+        final List<Node> body;
+
+        final Directive end;
+
+        Block(Directive start, List<Node> body, Directive end) {
+            this.start = start;
+            this.body = body;
+            this.end = end;
+        }
+
+        void appendSource(StringBuilder buf) {
+            start.appendSource(buf);
+            HTMLTemplate.appendSource(buf, body);
+            end.appendSource(buf);
+        }
+
+        Node substitute(String token, String value) {
+            Directive newStart = (Directive) start.substitute(token, value);
+            List<Node> newBody = HTMLTemplate.substitute(body, token,
+                value);
+            Directive newEnd = (Directive) end.substitute(token, value);
+            if (newStart == null || newBody == null || newEnd == null)
+                return null;
+            else if (newStart == start && newBody == body && newEnd == end)
+                return this;
+            else
+                return new Block(newStart, newBody, newEnd);
+        }
+
+    }
+
+
+    /** An if directive, with optional elif and else clauses */
+    static class IfBlock extends Node {
+
+        /** The if directive, followed by any elif or else directives */
+        final List<Directive> clauses;
+
+        /** The body of each clause */
+        final List<List<Node>> bodies;
+
+        final Directive end;
+
+        IfBlock(List<Directive> clauses, List<List<Node>> bodies,
+                Directive end) {
+            this.clauses = clauses;
+            this.bodies = bodies;
+            this.end = end;
+        }
+
+        void appendSource(StringBuilder buf) {
+            for (int i = 0; i < clauses.size(); i++) {
+                clauses.get(i).appendSource(buf);
+                HTMLTemplate.appendSource(buf, bodies.get(i));
+            }
+            end.appendSource(buf);
+        }
+
+        Node substitute(String token, String value) {
+            List<Directive> newClauses = HTMLTemplate.substitute(clauses,
+                token, value);
+            List<List<Node>> newBodies = new ArrayList<List<Node>>();
+            boolean changed = (newClauses != clauses);
+            for (List<Node> body : bodies) {
+                List<Node> newBody = HTMLTemplate.substitute(body, token,
+                    value);
+                if (newBody == null)
+                    return null;
+                changed = changed || (newBody != body);
+                newBodies.add(newBody);
+            }
+            Directive newEnd = (Directive) end.substitute(token, value);
+            if (newClauses == null || newEnd == null)
+                return null;
+            else if (!changed && newEnd == end)
+                return this;
+            else
+                return new IfBlock(newClauses, newBodies, newEnd);
+        }
+
+    }
+
+
+    /** A break directive, which discards the text up to its endbreak */
+    static class Break extends Node {
+
+        final Directive start;
+
+        final String skipped;
+
+        final Directive end;
+
+        /** The text that identifies the matching endbreak directive */
+        final String endPrefix;
+
+        Break(Directive start, String skipped, Directive end,
+                String endPrefix) {
+            this.start = start;
+            this.skipped = skipped;
+            this.end = end;
+            this.endPrefix = endPrefix;
+        }
+
+        void appendSource(StringBuilder buf) {
+            start.appendSource(buf);
+            buf.append(skipped);
+            end.appendSource(buf);
+        }
+
+        Node substitute(String token, String value) {
+            if (start.substitute(token, value) != start
+                    || end.substitute(token, value) != end)
+                return null;
+            String newSkipped = StringUtils.findAndReplace(skipped, token,
+                value);
+            if (newSkipped == skipped)
+                return this;
+            else if (newSkipped.contains(endPrefix))
+                return null;
+            else
+                return new Break(start, newSkipped, end, endPrefix);
+        }
+
+    }
+
+
+    /** Append the source text of a list of nodes */
+    static void appendSource(StringBuilder buf, List<? extends Node> nodes) {
+        for (Node n : nodes)
+            n.appendSource(buf);
+    }
+
+    /** Return the source text of a list of nodes */
+    static String getSource(List<? extends Node> nodes) {
+        StringBuilder buf = new StringBuilder();
+        appendSource(buf, nodes);
+        return buf.toString();
+    }
+
+    /**
+     * Return a list of nodes equivalent to compiling the text of the given
+     * nodes, after replacing every occurrence of a token with a value.
+     * 
+     * @return the original list if the token does not appear, or null if
+     *         the replacement would alter the structure of the nodes
+     */
+    static <T extends Node> List<T> substitute(List<T> nodes, String token,
+            String value) {
+        // tokens that could span the boundary between two nodes are not
+        // supported
+        if (token.length() == 0 || token.indexOf('<') != -1
+                || token.indexOf('>') != -1
+                || Character.isWhitespace(token.charAt(0))
+                || Character.isWhitespace(token.charAt(token.length() - 1)))
+            return null;
+
+        List<T> result = null;
+        for (int i = 0; i < nodes.size(); i++) {
+            T n = nodes.get(i);
+            T newNode = (T) n.substitute(token, value);
+            if (newNode == null)
+                return null;
+            if (newNode != n && result == null)
+                result = new ArrayList<T>(nodes.subList(0, i));
+            if (result != null)
+                result.add(newNode);
+        }
+        return (result == null ? nodes : result);
+    }
+
+
+
+    /** Split page text into a flat list of text and directive nodes */
+    private static List<Node> tokenize(String text) {
+        List<Node> result = new ArrayList<Node>();
+        int pos = 0;
+        while (true) {
+            int begin = text.indexOf(DIRECTIVE_START, pos);
+            int end = (begin == -1 ? -1 : text.indexOf(DIRECTIVE_END, begin));
+            if (end == -1) {
+                if (pos < text.length())
+                    result.add(new Text(text.substring(pos)));
+                return result;
+            }
+
+            if (begin > pos)
+                result.add(new Text(text.substring(pos, begin)));
+            String inner = text.substring(begin + DIRECTIVE_START.length(),
+                end);
+            end += DIRECTIVE_END.length();
+            int spaceEnd = end;
+            if (inner.endsWith("#"))
+                while (spaceEnd < text.length()
+                        && Character.isWhitespace(text.charAt(spaceEnd)))
+                    spaceEnd++;
+            result.add(new Directive(inner, text.substring(end, spaceEnd)));
+            pos = spaceEnd;
+        }
+    }
+
+
+    private static boolean isInlineSet(Directive set) {
+        Map attrs = set.getAttributes();
+        return attrs.get("value") == null && attrs.get("inline") != null;
+    }
+
+
+    /** Builds a tree of nodes from a flat list of text and directives */
+    private static class Parser {
+
+        List<Node> tokens;
+
+        int pos;
+
+        Map<String, Integer> depths;
+
+        boolean nestedBlocks;
+
+        /** The number of enclosing blocks whose contents might be altered
+         * by textual substitution */
+        int substitutionDepth;
+
+        Parser(List<Node> tokens) {
+            this.tokens = tokens;
+            this.pos = 0;
+            this.depths = new java.util.HashMap<String, Integer>();
+            this.nestedBlocks = false;
+        }
+
+        /**
+         * Parse nodes until reaching the given limit, or one of the given
+         * terminating directives.  A terminating directive is not consumed.
+         */
+        List<Node> parseSequence(int limit, String... terminators)
+                throws NotCompilable {
+            List<Node> result = new ArrayList<Node>();
+            while (pos < limit) {
+                Node token = tokens.get(pos);
+                if (!(token instanceof Directive)) {
+                    result.add(token);
+                    pos++;
+                    continue;
+                }
+
+                Directive d = (Directive) token;
+                for (String t : terminators)
+                    if (t.equals(d.name))
+                        return result;
+
+                pos++;
+                checkName(d);
+                if (d.inner.contains(DIRECTIVE_START))
+                    throw new NotCompilable();
+                else if ("if".equals(d.name))
+                    result.add(parseIf(d, limit));
+                else if (BLOCK_ENDS.containsKey(d.name))
+                    result.add(parseBlock(d, limit));
+                else if ("set".equals(d.name) && isInlineSet(d))
+                    result.add(parseInlineSet(d, limit));
+                else if ("break".equals(d.name))
+                    result.add(parseBreak(d, limit));
+                else if ("include".equals(d.name))
+                    result.add(parseInclude(d, limit));
+                else
+                    result.add(d);
+            }
+
+            // if we reached the limit while looking for a terminating
+            // directive, the template is malformed.
+            if (terminators.length > 0)
+                throw new NotCompilable();
+            return result;
+        }
+
+        private Node parseBlock(Directive start, int limit)
+                throws NotCompilable {
+            enterBlock(start.name);
+            substitutionDepth++;
+            List<Node> body = parseSequence(limit, BLOCK_ENDS.get(start.name));
+            Directive end = (Directive) tokens.get(pos++);
+            substitutionDepth--;
+            exitBlock(start.name);
+            return new Block(start, body, end);
+        }
+
+        private Node parseIf(Directive start, int limit)
+                throws NotCompilable {
+            enterBlock("if");
+            List<Directive> clauses = new ArrayList<Directive>();
+            List<List<Node>> bodies = new ArrayList<List<Node>>();
+            Directive clause = start;
+            while (true) {
+                clauses.add(clause);
+                bodies.add(parseSequence(limit, "elif", "else", "endif"));
+                Directive next = (Directive) tokens.get(pos++);
+                if ("endif".equals(next.name)) {
+                    exitBlock("if");
+                    return new IfBlock(clauses, bodies, next);
+                }
+                // an else clause must be the last clause in the block
+                if ("else".equals(clause.name))
+                    throw new NotCompilable();
+                clause = next;
+            }
+        }
+
+        private Node parseInlineSet(Directive start, int limit)
+                throws NotCompilable {
+            int endPos = findDirective(DIRECTIVE_START + "endset", limit);
+            if (endPos == -1) {
+                // without an endset, this is treated as a regular set
+                checkUnmatched();
+                start.fixed = true;
+                return start;
+            }
+
+            List<Node> body = parseSequence(endPos);
+            Directive end = (Directive) tokens.get(pos++);
+            start.fixed = end.fixed = true;
+            return new Block(start, body, end);
+        }
+
+        private Node parseBreak(Directive start, int limit)
+                throws NotCompilable {
+            String endPrefix = DIRECTIVE_START + "endbreak "
+                    + HTMLPreprocessor.cleanup(start.contents);
+            start.fixed = true;
+            int endPos = findDirective(endPrefix, limit);
+            if (endPos == -1) {
+                checkUnmatched();
+                return start;
+            }
+
+            // the skipped text must not contain partial blocks
+            int skipStart = pos;
+            parseSequence(endPos);
+            String skipped = getSource(tokens.subList(skipStart, endPos));
+            Directive end = (Directive) tokens.get(pos++);
+            end.fixed = true;
+            return new Break(start, skipped, end, endPrefix);
+        }
+
+        private Node parseInclude(Directive include, int limit) {
+            List<String> gaps = new ArrayList<String>();
+            List<Directive> params = new ArrayList<Directive>();
+            while (true) {
+                int p = pos;
+                String gap = "";
+                if (p < limit && tokens.get(p) instanceof Text
+                        && isWhitespace(((Text) tokens.get(p)).text))
+                    gap = ((Text) tokens.get(p++)).text;
+                Node next = (p < limit ? tokens.get(p) : null);
+                if (next instanceof Directive
+                        && ((Directive) next).startsWith(PARAM_START)) {
+                    gaps.add(gap);
+                    params.add((Directive) next);
+                    pos = p + 1;
+                } else {
+                    break;
+                }
+            }
+            if (params.isEmpty())
+                return include;
+            else
+                return new Include(include, gaps, params);
+        }
+
+        /** Find the next directive before the limit that begins with the
+         * given text */
+        private int findDirective(String prefix, int limit) {
+            for (int i = pos; i < limit; i++) {
+                Node n = tokens.get(i);
+                if (n instanceof Directive
+                        && ((Directive) n).startsWith(prefix))
+                    return i;
+            }
+            return -1;
+        }
+
+        /**
+         * Reject unmatched directives within blocks that perform textual
+         * substitution. If a substitution caused such a directive to find a
+         * match, the result would depend on text outside the block.
+         */
+        private void checkUnmatched() throws NotCompilable {
+            if (substitutionDepth > 0)
+                throw new NotCompilable();
+        }
+
+        /** Reject directives that could be mistaken for block directives */
+        private void checkName(Directive d) throws NotCompilable {
+            String name = d.name;
+            if (BLOCK_ENDS.containsValue(name) || "endif".equals(name)
+                    || "elif".equals(name) || "else".equals(name))
+                // this end directive doesn't match an open block
+                throw new NotCompilable();
+
+            if (BLOCK_NAMES.contains(name)) {
+                // block directives are located by searching for their text,
+                // so they must not begin with whitespace
+                if (!d.inner.startsWith(name))
+                    throw new NotCompilable();
+            } else {
+                for (String block : BLOCK_NAMES)
+                    if (name.startsWith(block) || name.endsWith(block))
+                        throw new NotCompilable();
+            }
+        }
+
+        private void enterBlock(String type) {
+            Integer depth = depths.get(type);
+            int newDepth = (depth == null ? 1 : depth + 1);
+            depths.put(type, newDepth);
+            if (newDepth > 1)
+                nestedBlocks = true;
+        }
+
+        private void exitBlock(String type) {
+            depths.put(type, depths.get(type) - 1);
+        }
+
+    }
+
+    private static boolean isWhitespace(String s) {
+        for (int i = s.length(); i-- > 0;)
+            if (!Character.isWhitespace(s.charAt(i)))
+                return false;
+        return true;
+    }
+
+
+    private static class NotCompilable extends Exception {}
+
+
+    private static final String DIRECTIVE_START = "<!--#";
+
+    private static final String DIRECTIVE_END = "-->";
+
+    private static final String PARAM_START = DIRECTIVE_START + "parameter";
+
+    /** Block directives, and the directives which end them */
+    private static final Map<String, String> BLOCK_ENDS =
+        new java.util.HashMap<String, String>();
+    static {
+        BLOCK_ENDS.put("foreach", "endfor");
+        BLOCK_ENDS.put("fortree", "endtree");
+        BLOCK_ENDS.put("replace", "endreplace");
+    }
+
+    /** Names which the preprocessor matches as prefixes or suffixes when it
+     * interprets a page */
+    private static final List<String> BLOCK_NAMES = java.util.Arrays.asList(
+        "foreach", "endfor", "fortree", "endtree", "replace", "endreplace",
+        "if", "endif", "elif", "else");
+
+}
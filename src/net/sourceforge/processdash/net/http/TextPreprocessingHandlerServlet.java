@@ -26,6 +26,8 @@ package net.sourceforge.processdash.net.http;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.Map;
@@ -85,6 +87,50 @@ public class TextPreprocessingHandlerServlet extends HttpServlet {
             isPreprocessedFileType = false;
         }
 
+        // server-parsed pages are compiled once, and reused until they change
+        HTMLTemplate template = null;
+        if (isPreprocessedFileType)
+            template = HTMLTemplate.getCached(url);
+        if (template == null) {
+            template = readTemplate(resp, uri, url, contentType,
+                isPreprocessedFileType);
+            if (template == null)
+                return;
+        }
+
+        // build the environment we will use for handling the request
+        Map env = PDashServletUtils.buildEnvironment(req);
+
+        // invoke the preprocessor on the template
+        WebServer webServer = (WebServer) env.get(TinyCGI.TINY_WEB_SERVER);
+        DataRepository data = (DataRepository) env.get(TinyCGI.DATA_REPOSITORY);
+        String prefix = (String) env.get("PATH_TRANSLATED");
+        HTMLPreprocessor p = new HTMLPreprocessor(webServer,
+                data.getSubcontext(prefix), env);
+        p.setForeachParams(false);
+        if (contentType != null && contentType.indexOf("html") != -1)
+            p.setDefaultEchoEncoding("html");
+        else
+            p.setEchoBareParams(false);
+        ByteArrayOutputStream resultBytes = new ByteArrayOutputStream(
+                template.getSource().length() + SCAN_BUF_SIZE);
+        Writer out = new OutputStreamWriter(resultBytes, "utf-8");
+        p.preprocess(template, out);
+        out.flush();
+
+        if (contentType != null)
+            resp.setContentType(HTTPUtils.setCharset(contentType, "utf-8"));
+        resp.setContentLength(resultBytes.size());
+        resultBytes.writeTo(resp.getOutputStream());
+    }
+
+    /**
+     * Read a resource. If it needs preprocessing, return a template compiled
+     * from its contents; otherwise, serve it verbatim and return null.
+     */
+    private HTMLTemplate readTemplate(HttpServletResponse resp, String uri,
+            URL url, String contentType, boolean isPreprocessedFileType)
+            throws IOException {
         // open a connection to the resource, and read some initial data
         URLConnection conn = url.openConnection();
         InputStream in = conn.getInputStream();
@@ -94,7 +140,7 @@ public class TextPreprocessingHandlerServlet extends HttpServlet {
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
                 "Couldn't read file '" + uri + "'");
             FileUtils.safelyClose(in);
-            return;
+            return null;
         }
 
         // if the file does not need preprocessing, serve it verbatim
@@ -114,12 +160,9 @@ public class TextPreprocessingHandlerServlet extends HttpServlet {
             resp.getOutputStream().write(buffer, 0, numBytes);
             FileUtils.copyFile(in, resp.getOutputStream());
             FileUtils.safelyClose(in);
-            return;
+            return null;
         }
 
-        // build the environment we will use for handling the request
-        Map env = PDashServletUtils.buildEnvironment(req);
-
         // read the original resource as a string
         ByteArrayOutputStream rawBytes = new ByteArrayOutputStream(Math.max(
             numBytes, conn.getContentLength()));
@@ -129,24 +172,10 @@ public class TextPreprocessingHandlerServlet extends HttpServlet {
         String content = rawBytes.toString("utf-8");
         rawBytes = null;
 
-        // invoke the preprocessor on the content
-        WebServer webServer = (WebServer) env.get(TinyCGI.TINY_WEB_SERVER);
-        DataRepository data = (DataRepository) env.get(TinyCGI.DATA_REPOSITORY);
-        String prefix = (String) env.get("PATH_TRANSLATED");
-        HTMLPreprocessor p = new HTMLPreprocessor(webServer,
-                data.getSubcontext(prefix), env);
-        p.setForeachParams(false);
-        if (contentType != null && contentType.indexOf("html") != -1)
-            p.setDefaultEchoEncoding("html");
+        if (isPreprocessedFileType)
+            return HTMLTemplate.compile(url, content);
         else
-            p.setEchoBareParams(false);
-        content = p.preprocess(content);
-        byte[] resultBytes = content.getBytes("utf-8");
-
-        if (contentType != null)
-            resp.setContentType(HTTPUtils.setCharset(contentType, "utf-8"));
-        resp.setContentLength(resultBytes.length);
-        resp.getOutputStream().write(resultBytes);
+            return HTMLTemplate.compile(content);
     }
 
     private boolean containsServerParsedOverride(byte[] buf, int numBytes)
@@ -91,8 +91,10 @@ class WebAppContextDashboard extends WebAppContext {
         // do not allow browsing of anonymous directories
         setInitParameter(DEFAULT_SERVLET + ".dirAllowed", "false");
 
-        // install a filter which can inject hierarchy prefixes back into URIs
+        // install a filter which can inject hierarchy prefixes back into URIs.
+        // It must permit async processing, or no servlet could suspend
         FilterHolder filt = new FilterHolder(new DashboardUriPrefixFilter());
+        filt.setAsyncSupported(true);
         addFilter(filt, "/*", EnumSet.allOf(DispatcherType.class));
 
         // on Java 9, Jasper needs extra help finding system taglib files
@@ -31,8 +31,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
-import java.io.FilenameFilter;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.io.PrintWriter;
@@ -42,6 +43,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.lang.reflect.Method;
+import java.net.URL;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -67,6 +69,7 @@ import net.sourceforge.processdash.log.time.PathRenamer;
 import net.sourceforge.processdash.log.time.WorkingTimeLog;
 import net.sourceforge.processdash.tool.bridge.impl.DashboardInstanceStrategy;
 import net.sourceforge.processdash.ui.lib.ProgressDialog;
+import net.sourceforge.processdash.util.DashboardBackupFactory;
 import net.sourceforge.processdash.util.FileUtils;
 import net.sourceforge.processdash.util.RobustFileOutputStream;
 import net.sourceforge.processdash.util.RobustFileWriter;
@@ -259,21 +262,24 @@ public class MigrationToolIndiv {
 
         File backupDir = file("backup");
 
-        String[] backupFilenames = backupDir.list(new FilenameFilter() {
-            public boolean accept(File dir, String name) {
-                return name.startsWith("pdash-") && name.endsWith(".zip");
-            }
-        });
-        Arrays.sort(backupFilenames);
-        String mostRecentFilename = backupFilenames[backupFilenames.length - 1];
-        File mostRecentBackupFile = new File(backupDir, mostRecentFilename);
+        List<URL> backups = DashboardBackupFactory
+                .getDashboardBackupURLs(targetDir);
+        if (backups.isEmpty())
+            throw new FileNotFoundException("No backups were found in '"
+                    + backupDir + "'");
+        URL mostRecentBackup = backups.get(0);
 
         DateFormat dateFmt = new SimpleDateFormat("yyyy-MM-dd--HH-mm-ss");
         String extraBackupFilename = "before-migration-"
                 + dateFmt.format(new Date()) + ".zip";
         extraBackupFile = new File(backupDir, extraBackupFilename);
 
-        FileUtils.copyFile(mostRecentBackupFile, extraBackupFile);
+        InputStream in = mostRecentBackup.openStream();
+        try {
+            FileUtils.copyFile(in, extraBackupFile);
+        } finally {
+            in.close();
+        }
     }
 
     private void redirectOutput() {
@@ -53,6 +53,7 @@ import java.util.StringTokenizer;
 import java.util.Vector;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -186,6 +187,10 @@ public class TemplateLoader {
         // ahead and take advantage of caching to improve performance.
         avoidJarCaching = false;
 
+        // build an index of the resources in each template root
+        getResourceIndex();
+        pt.click("indexed template resources");
+
         generateRollupTemplates(templates, data);
 
         createProcessRoot(templates);
@@ -756,6 +761,7 @@ public class TemplateLoader {
     }
     private static URL[] template_url_list = null;
     private static List<URL> mcf_url_list = null;
+    private static volatile TemplateResourceIndex resourceIndex = null;
     private static List<File> explicitExtraDirs = Collections.EMPTY_LIST;
     private static boolean avoidJarCaching = true;
     //private static final String JARFILE_NAME = "pspdash.jar";
@@ -1222,16 +1228,33 @@ public class TemplateLoader {
      * absolute URL the given String maps to.  If the given URL does not
      * map to any real resource, returns null.
      *
-     * Note: since this locates a resource which is known to exist, it must
-     * make a connection to that URL.  However, the named resource is not
-     * downloaded, and is not interpreted.  In particular, if the resulting URL
-     * names a CGI script, that script will not be executed;  the URL
-     * connection made is only looking at the file, not loading or running the
-     * class named within.
+     * Note: resources in template JARs and directories are located with an
+     * index that is built when templates are loaded.  Other resources are
+     * located by making a connection to the URL.  However, the named resource
+     * is not downloaded, and is not interpreted.  In particular, if the
+     * resulting URL names a CGI script, that script will not be executed;  the
+     * URL connection made is only looking at the file, not loading or running
+     * the class named within.
      */
     public static URL resolveURL(String url) {
-        URLConnection result = resolveURLConnection(url);
-        return (result == null ? null : result.getURL());
+        TemplateResourceIndex index = getResourceIndex();
+        if (index == null || !isValidTemplateURL(url)) {
+            URLConnection result = resolveURLConnection(url);
+            return (result == null ? null : result.getURL());
+        }
+
+        URL [] roots = index.getRoots();
+        if (url.startsWith("/")) url = url.substring(1);
+        for (int c : index.getCandidates(url)) try {
+            if (c >= 0)
+                return new URL(roots[c], url);
+
+            URLConnection conn = new URL(roots[~c], url).openConnection();
+            conn.connect();
+            return conn.getURL();
+        } catch (IOException ioe) { }
+
+        return null;
     }
 
     /** Looks through the various loaded templates, determines which
@@ -1251,10 +1274,11 @@ public class TemplateLoader {
 
         URL [] roots = getTemplateURLs();
         if (url.startsWith("/")) url = url.substring(1);
+        int[] candidates = getCandidateRoots(roots, url);
         URL u;
         URLConnection result;
-        for (int i = 0;  i < roots.length;  i++) try {
-            u = new URL(roots[i], url);
+        for (int c : candidates) try {
+            u = new URL(roots[c < 0 ? ~c : c], url);
             result = u.openConnection();
             result.connect();
             return result;
@@ -1286,10 +1310,16 @@ public class TemplateLoader {
 
         URL [] roots = getTemplateURLs();
         if (url.startsWith("/")) url = url.substring(1);
+        int[] candidates = getCandidateRoots(roots, url);
         URL u;
         URLConnection conn;
-        for (int i = 0;  i < roots.length;  i++) try {
-            u = new URL(roots[i], url);
+        for (int c : candidates) try {
+            if (c >= 0) {
+                // the index has confirmed that this resource exists
+                result.add(new URL(roots[c], url));
+                continue;
+            }
+            u = new URL(roots[~c], url);
             conn = u.openConnection();
             if (avoidJarCaching)
                 conn.setUseCaches(false);
@@ -1300,6 +1330,53 @@ public class TemplateLoader {
         return (URL[]) result.toArray(new URL[0]);
     }
 
+    /** Return the positions of the template roots which might contain the
+     * given resource, in the format used by
+     * {@link TemplateResourceIndex#getCandidates(String)}. */
+    private static int[] getCandidateRoots(URL[] roots, String url) {
+        TemplateResourceIndex index = getResourceIndex();
+        if (index != null && index.getRoots() == roots)
+            return index.getCandidates(url);
+
+        // without an index, every root must be checked with a connection
+        int[] result = new int[roots.length];
+        for (int i = 0;  i < roots.length;  i++)
+            result[i] = ~i;
+        return result;
+    }
+
+    /** Return an index of the resources in the current template roots.
+     *
+     * The index is not used during startup, when the template roots are
+     * still being identified.  It is rebuilt if the template roots change.
+     * Returns null if the index is unavailable.
+     */
+    private static TemplateResourceIndex getResourceIndex() {
+        if (avoidJarCaching
+                || !Settings.getBool("templates.indexResources", true))
+            return null;
+
+        URL[] roots = getTemplateURLs();
+        TemplateResourceIndex result = resourceIndex;
+        if (result != null && result.getRoots() == roots)
+            return result;
+
+        synchronized (TemplateResourceIndex.class) {
+            result = resourceIndex;
+            if (result == null || result.getRoots() != roots) {
+                try {
+                    result = new TemplateResourceIndex(roots, result);
+                } catch (Throwable t) {
+                    logger.log(Level.WARNING,
+                        "Unable to index template resources", t);
+                    result = null;
+                }
+                resourceIndex = result;
+            }
+            return result;
+        }
+    }
+
     /** Returns true if the given string is a valid URI that can be resolved
      * relative to the template search path.
      */
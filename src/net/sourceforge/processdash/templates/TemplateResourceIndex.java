@@ -0,0 +1,524 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.templates;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sourceforge.processdash.util.HTMLUtils;
+
+
+/**
+ * An in-memory index of the resources available under each template root.
+ * <p>
+ * {@link TemplateLoader} resolves a relative URL by trying each template root
+ * in turn, and opening a connection to see whether the resource exists.  This
+ * class lists the entries of each template JAR, WAR and directory ahead of
+ * time, so the roots containing a given resource can be found with a hash
+ * lookup.
+ * <p>
+ * Roots that cannot be listed (such as MCF URLs, or roots in an unfamiliar
+ * protocol) are reported as candidates for every lookup, so the caller can
+ * continue to check them with a connection.  Directory roots are rescanned
+ * when the modification time of one of their directories changes, which
+ * happens whenever a file is added or removed.
+ */
+class TemplateResourceIndex {
+
+    private static final Logger logger = Logger
+            .getLogger(TemplateResourceIndex.class.getName());
+
+    /** The template roots, in search order */
+    private final URL[] roots;
+
+    /** The listed contents of each root, or null for roots that must be
+     * checked with a connection */
+    private final RootContents[] contents;
+
+    /** The minimum number of milliseconds between checks for changes to
+     * directory roots */
+    private static final long CHECK_INTERVAL = 1000;
+
+    /** The time we last checked directory roots for changes */
+    private volatile long lastCheckTime;
+
+    private volatile LookupTable table;
+
+
+    TemplateResourceIndex(URL[] roots, TemplateResourceIndex previous) {
+        this.roots = roots;
+        this.contents = new RootContents[roots.length];
+
+        // reuse the contents of roots that were listed by a previous index
+        Map<String, RootContents> reusable = new HashMap<String, RootContents>();
+        if (previous != null)
+            for (RootContents c : previous.contents)
+                if (c != null)
+                    reusable.put(c.rootUrl, c);
+
+        for (int i = 0; i < roots.length; i++) {
+            String rootUrl = roots[i].toString();
+            RootContents c = reusable.remove(rootUrl);
+            contents[i] = (c != null ? c : RootContents.create(rootUrl));
+        }
+
+        for (RootContents c : reusable.values())
+            c.dispose();
+
+        this.table = buildTable();
+    }
+
+
+    /** Return the template roots covered by this index */
+    URL[] getRoots() {
+        return roots;
+    }
+
+
+    /**
+     * Find the roots that might contain a given resource.
+     * 
+     * @param path
+     *            the path of a resource, relative to the template roots
+     * @return the positions of candidate roots, in search order. If a root
+     *         is known to contain the resource, its position is returned as
+     *         a nonnegative number. Roots which must be checked with a
+     *         connection are returned as the ones-complement of their
+     *         position.
+     */
+    int[] getCandidates(String path) {
+        LookupTable t = getTable();
+        int[] result = t.exact.get(path);
+        if (result == null)
+            result = t.unlisted;
+
+        // directories on a case-insensitive filesystem could contain the
+        // resource under a different case. Have the caller check them.
+        if (t.folded != null) {
+            int[] folded = t.folded.get(path.toLowerCase());
+            if (folded != null)
+                result = mergeUnverified(result, folded);
+        }
+
+        return result;
+    }
+
+
+    /** Discard the directory listings held by this index */
+    void dispose() {
+        for (RootContents c : contents)
+            if (c != null)
+                c.dispose();
+    }
+
+
+    private LookupTable getTable() {
+        long now = System.currentTimeMillis();
+        if (now - lastCheckTime > CHECK_INTERVAL) {
+            lastCheckTime = now;
+            boolean changed = false;
+            for (RootContents c : contents)
+                if (c != null && c.checkForChanges())
+                    changed = true;
+            if (changed) {
+                synchronized (this) {
+                    table = buildTable();
+                }
+            }
+        }
+        return table;
+    }
+
+
+    private LookupTable buildTable() {
+
+        List<Integer> unlisted = new ArrayList<Integer>();
+        Map<String, IdList> exact = new HashMap<String, IdList>();
+        Map<String, IdList> folded = null;
+        for (int i = 0; i < contents.length; i++) {
+            RootContents c = contents[i];
+            String[] paths = (c == null ? null : c.getPaths());
+            if (paths == null) {
+                unlisted.add(~i);
+                continue;
+            }
+
+            Map<String, IdList> dest = exact;
+            if (c.caseInsensitive) {
+                if (folded == null)
+                    folded = new HashMap<String, IdList>();
+                dest = folded;
+            }
+            for (String path : paths) {
+                // getCandidates() looks up folded roots in lowercase
+                String key = (dest == folded ? path.toLowerCase() : path);
+                IdList ids = dest.get(key);
+                if (ids == null)
+                    dest.put(key, ids = new IdList());
+                else if (ids.contains(i))
+                    continue;
+                ids.add(i);
+            }
+        }
+
+        LookupTable result = new LookupTable();
+        result.unlisted = toArray(unlisted);
+        result.exact = finish(exact, result.unlisted);
+        result.folded = (folded == null ? null : finish(folded, new int[0]));
+        return result;
+    }
+
+
+    /** Merge each list of roots with the unlisted roots, sharing the
+     * resulting arrays between paths that are found in the same roots */
+    private static Map<String, int[]> finish(Map<String, IdList> lists,
+            int[] unlisted) {
+        Map<String, int[]> result = new HashMap<String, int[]>(
+                lists.size() * 4 / 3 + 1);
+        Map<String, int[]> shared = new HashMap<String, int[]>();
+        for (Map.Entry<String, IdList> e : lists.entrySet()) {
+            int[] ids = merge(e.getValue().toArray(), unlisted);
+            String key = Arrays.toString(ids);
+            int[] canonical = shared.get(key);
+            if (canonical == null)
+                shared.put(key, canonical = ids);
+            result.put(e.getKey(), canonical);
+        }
+        return result;
+    }
+
+
+    /** Merge two lists of candidate roots, ordering them by position */
+    private static int[] merge(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length
+                    || (i < a.length && position(a[i]) < position(b[j])))
+                result[k++] = a[i++];
+            else
+                result[k++] = b[j++];
+        }
+        return result;
+    }
+
+
+    /** Add roots that need to be checked with a connection to a list of
+     * candidates, unless the candidates already include them */
+    private static int[] mergeUnverified(int[] candidates, int[] roots) {
+        IdList extra = new IdList();
+        for (int r : roots) {
+            boolean found = false;
+            for (int c : candidates)
+                if (position(c) == r)
+                    found = true;
+            if (!found)
+                extra.add(~r);
+        }
+        return merge(candidates, extra.toArray());
+    }
+
+
+    private static int position(int candidate) {
+        return (candidate < 0 ? ~candidate : candidate);
+    }
+
+
+    private static int[] toArray(List<Integer> list) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = list.get(i);
+        return result;
+    }
+
+
+
+    private static class LookupTable {
+
+        /** The candidate roots for each listed resource path */
+        Map<String, int[]> exact;
+
+        /** Roots on case-insensitive filesystems, keyed by the lowercase
+         * form of each resource path; or null if there are no such roots */
+        Map<String, int[]> folded;
+
+        /** The candidate roots for a path that has not been listed */
+        int[] unlisted;
+
+    }
+
+
+
+    private static class IdList {
+
+        private int[] ids = new int[2];
+
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        boolean contains(int id) {
+            for (int i = 0; i < size; i++)
+                if (ids[i] == id)
+                    return true;
+            return false;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+
+    }
+
+
+
+    /** The listed contents of a single template root */
+    private static class RootContents {
+
+        final String rootUrl;
+
+        /** The directory for a directory root, or null for an archive */
+        final File dir;
+
+        /** True if resources in this directory can be opened without
+         * matching the case of their names */
+        final boolean caseInsensitive;
+
+        private String[] paths;
+
+        private volatile boolean stale;
+
+        /** The directories that were listed, and their modification times
+         * when they were listed */
+        private File[] listedDirs;
+        private long[] listedTimes;
+
+        /** True if a directory was modified so recently before it was
+         * listed that a later change might not alter its timestamp */
+        private boolean listedTimesUncertain;
+
+        private RootContents(String rootUrl, File dir, String[] paths) {
+            this.rootUrl = rootUrl;
+            this.dir = dir;
+            this.paths = paths;
+            this.caseInsensitive = (dir != null
+                    && (assumeCaseInsensitive || isCaseInsensitive(dir)));
+            this.stale = (dir != null);
+        }
+
+        /**
+         * Create an object listing the contents of a template root.
+         * 
+         * @return the listed contents, or null if this root cannot be listed
+         */
+        static RootContents create(String rootUrl) {
+            try {
+                if (rootUrl.startsWith("file:") && rootUrl.endsWith("/")) {
+                    File dir = new File(HTMLUtils.urlDecode(rootUrl
+                            .substring(5)));
+                    if (dir.isDirectory())
+                        return new RootContents(rootUrl, dir, null);
+
+                } else if (rootUrl.startsWith("jar:file:")) {
+                    int pos = rootUrl.indexOf("!/");
+                    if (pos != -1) {
+                        File jarFile = new File(HTMLUtils.urlDecode(rootUrl
+                                .substring(9, pos)));
+                        String prefix = HTMLUtils.urlDecode(rootUrl
+                                .substring(pos + 2));
+                        return new RootContents(rootUrl, null, listArchive(
+                            jarFile, prefix));
+                    }
+                }
+            } catch (Exception e) {
+                logger.log(Level.FINE, "Unable to list template root "
+                        + rootUrl, e);
+            }
+            return null;
+        }
+
+        /** Return the paths of the resources in this root, or null if the
+         * root could not be listed */
+        synchronized String[] getPaths() {
+            if (stale) {
+                stale = false;
+                paths = listDirectory(this);
+            }
+            return paths;
+        }
+
+        /**
+         * Check whether files have been added to or removed from a directory
+         * root since it was listed.
+         * 
+         * @return true if the root must be listed again
+         */
+        synchronized boolean checkForChanges() {
+            if (dir == null || stale)
+                return false;
+            if (listedTimesUncertain) {
+                stale = true;
+                return true;
+            }
+            if (listedDirs != null) {
+                for (int i = 0; i < listedDirs.length; i++)
+                    if (listedDirs[i].lastModified() != listedTimes[i]) {
+                        stale = true;
+                        return true;
+                    }
+            }
+            return false;
+        }
+
+        synchronized void dispose() {
+            listedDirs = null;
+            listedTimes = null;
+        }
+
+    }
+
+
+    /** List the entries in a JAR or WAR file which fall under a prefix */
+    private static String[] listArchive(File file, String prefix)
+            throws IOException {
+        JarFile jar = new JarFile(file, false);
+        try {
+            List<String> result = new ArrayList<String>();
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.startsWith(prefix) && name.length() > prefix.length())
+                    result.add(stripSlash(name.substring(prefix.length())));
+            }
+            return result.toArray(new String[result.size()]);
+        } finally {
+            jar.close();
+        }
+    }
+
+
+    /**
+     * List the files and subdirectories in a directory root, and record the
+     * modification time of each directory so changes can be detected.
+     * 
+     * @return the paths found, or null if the directory could not be listed
+     */
+    private static String[] listDirectory(RootContents root) {
+        List<String> result = new ArrayList<String>();
+        List<File> dirs = new ArrayList<File>();
+        List<Long> times = new ArrayList<Long>();
+        Set<String> visited = new HashSet<String>();
+        try {
+            listDirectory(root.dir, "", result, dirs, times, visited);
+        } catch (IOException ioe) {
+            logger.log(Level.FINE, "Unable to list template directory "
+                    + root.dir, ioe);
+            root.listedDirs = null;
+            return null;
+        }
+
+        // some filesystems record modification times with a granularity of
+        // a second or two.  If a directory changed very recently, list it
+        // again at the next check.
+        long recent = System.currentTimeMillis() - TIMESTAMP_GRANULARITY;
+        root.listedDirs = dirs.toArray(new File[dirs.size()]);
+        root.listedTimes = new long[times.size()];
+        root.listedTimesUncertain = false;
+        for (int i = 0; i < root.listedTimes.length; i++) {
+            root.listedTimes[i] = times.get(i);
+            if (root.listedTimes[i] > recent)
+                root.listedTimesUncertain = true;
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    private static final long TIMESTAMP_GRANULARITY = 2000;
+
+    /** Treat every directory root as case-insensitive; used by unit tests
+     * that run on case-sensitive filesystems */
+    static boolean assumeCaseInsensitive = false;
+
+    private static void listDirectory(File dir, String prefix,
+            List<String> result, List<File> dirs, List<Long> times,
+            Set<String> visited) throws IOException {
+        // avoid cycles created by symbolic links
+        if (!visited.add(dir.getCanonicalPath()))
+            return;
+
+        // record the timestamp before listing, so a change made while we
+        // are listing will be noticed by the next check
+        dirs.add(dir);
+        times.add(dir.lastModified());
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+
+        for (File f : files) {
+            String path = prefix + f.getName();
+            result.add(path);
+            if (f.isDirectory())
+                listDirectory(f, path + "/", result, dirs, times, visited);
+        }
+    }
+
+
+    private static String stripSlash(String path) {
+        if (path.endsWith("/"))
+            return path.substring(0, path.length() - 1);
+        else
+            return path;
+    }
+
+
+    /** Determine whether a directory can be opened with a name that
+     * differs only in case */
+    private static boolean isCaseInsensitive(File dir) {
+        String path = dir.getAbsolutePath();
+        String upper = path.toUpperCase(), lower = path.toLowerCase();
+        String altered = (upper.equals(path) ? lower : upper);
+        if (altered.equals(path))
+            // the path contains no letters; test the filesystem default
+            return new File(path, "a").equals(new File(path, "A"));
+        else
+            return new File(altered).isDirectory();
+    }
+
+}
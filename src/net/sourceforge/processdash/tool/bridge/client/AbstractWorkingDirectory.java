@@ -34,6 +34,7 @@ import java.net.URL;
 import java.util.Set;
 
 import net.sourceforge.processdash.tool.bridge.impl.FileResourceCollectionStrategy;
+import net.sourceforge.processdash.util.ChunkedDirectoryBackup;
 import net.sourceforge.processdash.util.DirectoryBackup;
 import net.sourceforge.processdash.util.FileUtils;
 import net.sourceforge.processdash.util.IncrementalDirectoryBackup;
@@ -121,10 +122,14 @@ public abstract class AbstractWorkingDirectory implements WorkingDirectory {
                 && handler instanceof IncrementalDirectoryBackup)
             filesWithNullBytes = ((IncrementalDirectoryBackup) handler)
                     .getFilesWithNullBytes();
+        else if ("startup".equals(qualifier)
+                && handler instanceof ChunkedDirectoryBackup)
+            filesWithNullBytes = ((ChunkedDirectoryBackup) handler)
+                    .getFilesWithNullBytes();
         else
             filesWithNullBytes = null;
 
-        return result.toURI().toURL();
+        return handler.getBackupURL(result);
     }
 
     public Set<File> getFilesWithNullBytes() {
@@ -44,7 +44,7 @@ public class DashboardInstanceStrategy implements
     private DashboardInstanceStrategy() {}
 
     public DirectoryBackup getBackupHandler(File directory) {
-        return DashboardBackupFactory.getDashboardBackup(directory);
+        return DashboardBackupFactory.getDashboardBackupStore(directory);
     }
 
     public FilenameFilter getFilenameFilter() {
@@ -129,6 +129,10 @@ public class DashboardInstanceStrategy implements
 
     private static class DashboardFileFilter implements FilenameFilter {
         public boolean accept(File dir, String name) {
+            // the time log index is a local cache derived from the time log
+            // XML, so it is never synchronized with the server
+            if (name.toLowerCase().endsWith(".idx"))
+                return false;
             return DashboardBackupFactory.DASH_FILE_FILTER.accept(dir, name)
                     || UNLOCKED_DASHBOARD_FILE_FILTER.accept(dir, name);
         }
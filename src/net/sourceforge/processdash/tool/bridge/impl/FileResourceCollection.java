@@ -35,6 +35,7 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -45,6 +46,7 @@ import java.util.zip.Adler32;
 import net.sourceforge.processdash.tool.bridge.ResourceCollection;
 import net.sourceforge.processdash.tool.bridge.ResourceCollectionInfo;
 import net.sourceforge.processdash.tool.bridge.report.XmlCollectionListing;
+import net.sourceforge.processdash.util.DirectoryBackup;
 import net.sourceforge.processdash.util.FileUtils;
 import net.sourceforge.processdash.util.RobustFileOutputStream;
 import net.sourceforge.processdash.util.TimedInputStream;
@@ -78,7 +80,7 @@ public class FileResourceCollection implements ResourceCollection,
 
     final Object writeLock = new Object();
 
-    File mostRecentBackup = null;
+    URL mostRecentBackup = null;
 
 
     public FileResourceCollection(File directory) {
@@ -179,8 +181,9 @@ public class FileResourceCollection implements ResourceCollection,
 
     public void backupCollection(String backupQualifier) throws IOException {
         synchronized (writeLock) {
-            mostRecentBackup = strategy.getBackupHandler(directory).backup(
-                backupQualifier);
+            DirectoryBackup handler = strategy.getBackupHandler(directory);
+            mostRecentBackup = handler.getBackupURL(handler
+                    .backup(backupQualifier));
         }
     }
 
@@ -194,7 +197,7 @@ public class FileResourceCollection implements ResourceCollection,
         // run a backup, and our "mostRecentBackup" could become an
         // incremental backup instead of a full backup.
         return new TimedInputStream(new BufferedInputStream(
-            new FileInputStream(mostRecentBackup)));
+            mostRecentBackup.openStream()));
     }
 
     public boolean requiresWriteLock(String resourceName) {
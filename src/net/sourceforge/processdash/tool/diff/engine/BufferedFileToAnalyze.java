@@ -0,0 +1,98 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.tool.diff.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sourceforge.processdash.util.FileUtils;
+
+/**
+ * A copy of the contents of every version of a file, read in advance so the
+ * file can be analyzed on a different thread.
+ */
+class BufferedFileToAnalyze implements FileToAnalyze {
+
+    private String filename;
+
+    private List versions;
+
+    /** The contents of each version, or null if a version does not exist */
+    private byte[][] contents;
+
+    /** Errors encountered while reading each version.  These are rethrown
+     * when the contents of the version are requested. */
+    private IOException[] errors;
+
+    BufferedFileToAnalyze(FileToAnalyze file) {
+        this.filename = file.getFilename();
+        this.versions = file.getVersions();
+        this.contents = new byte[versions.size()][];
+        this.errors = new IOException[contents.length];
+        for (int i = 0; i < contents.length; i++) {
+            try {
+                InputStream in = file.getContents(versions.get(i));
+                if (in != null)
+                    contents[i] = FileUtils.slurpContents(in, true);
+            } catch (IOException ioe) {
+                errors[i] = ioe;
+            }
+        }
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public List getVersions() {
+        return versions;
+    }
+
+    public InputStream getContents(Object version) throws IOException {
+        int pos = versions.indexOf(version);
+        if (errors[pos] != null)
+            throw errors[pos];
+        byte[] data = contents[pos];
+        return (data == null ? null : new ByteArrayInputStream(data));
+    }
+
+    /**
+     * @return true if the first and last versions of the file have the same
+     *         contents, without examining their characters or lines
+     */
+    boolean isIdentical() {
+        int last = contents.length - 1;
+        if (errors[0] != null || errors[last] != null)
+            return false;
+        else if (last == 0)
+            return true;
+
+        byte[] a = contents[0], b = contents[last];
+        return a != null && b != null && Arrays.equals(a, b);
+    }
+
+}
@@ -26,7 +26,16 @@ package net.sourceforge.processdash.tool.diff.engine;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -50,6 +59,8 @@ public class DiffEngine {
 
     private boolean skipIdenticalFiles;
 
+    private int analysisThreads;
+
     private volatile boolean aborted;
 
     protected EventListenerList listeners;
@@ -63,6 +74,7 @@ public class DiffEngine {
         this.diffAnalyzer = MultiversionDiffAnalyzer.INSTANCE;
         this.filesToAnalyze = new ArrayList<FileToAnalyze>();
         this.skipIdenticalFiles = true;
+        this.analysisThreads = 1;
         this.aborted = false;
         this.listeners = new EventListenerList();
     }
@@ -127,6 +139,25 @@ public class DiffEngine {
         this.skipIdenticalFiles = skipIdenticalFiles;
     }
 
+    public int getAnalysisThreads() {
+        return analysisThreads;
+    }
+
+    /**
+     * Set the number of threads that should analyze files in parallel.
+     * 
+     * With more than one thread, file contents are still read in order on
+     * the thread that calls {@link #run()}, and listeners still receive
+     * events on that thread in the order files were added.  Language
+     * filters may be used by several threads at once, but never while
+     * another thread is configuring them with different file options.
+     * 
+     * @since 2.7.6
+     */
+    public void setAnalysisThreads(int analysisThreads) {
+        this.analysisThreads = Math.max(1, analysisThreads);
+    }
+
     public void abort() {
         this.aborted = true;
     }
@@ -148,9 +179,13 @@ public class DiffEngine {
         checkPreconditions();
         if (!aborted)
             fireAnalysisStarting();
-        for (FileToAnalyze file : filesToAnalyze) {
-            if (!aborted)
-                analyzeFileAndFireEvents(file);
+        if (analysisThreads > 1 && filesToAnalyze.size() > 1) {
+            analyzeFilesInParallel();
+        } else {
+            for (FileToAnalyze file : filesToAnalyze) {
+                if (!aborted)
+                    analyzeFileAndFireEvents(file);
+            }
         }
         if (!aborted)
             fireAnalysisFinished();
@@ -182,6 +217,161 @@ public class DiffEngine {
         maybeDispose(diffResult);
     }
 
+    private void analyzeFilesInParallel() {
+        ExecutorService workers = Executors.newFixedThreadPool(
+            analysisThreads, WORKER_THREAD_FACTORY);
+        OptionsGate gate = new OptionsGate();
+
+        // read files ahead of the one we are reporting, but keep a bounded
+        // number in memory at once
+        int window = analysisThreads * 4;
+        LinkedList<PendingFile> pending = new LinkedList<PendingFile>();
+        Iterator<FileToAnalyze> files = filesToAnalyze.iterator();
+        try {
+            while (!aborted) {
+                while (pending.size() < window && files.hasNext())
+                    pending.add(new PendingFile(files.next(), workers, gate));
+                if (pending.isEmpty())
+                    break;
+
+                PendingFile next = pending.removeFirst();
+                fireFileAnalysisStarting(next.file);
+                DiffResult diffResult = null;
+                Exception e = null;
+                try {
+                    diffResult = next.getResult();
+                } catch (IOException ioe) {
+                    e = ioe;
+                }
+                fireFileAnalysisFinished(next.file, diffResult, e);
+                maybeDispose(next.file);
+                maybeDispose(diffResult);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /** A file that has been read, and is being analyzed by a worker */
+    private class PendingFile implements Callable<DiffResult> {
+
+        private FileToAnalyze file;
+
+        private String options;
+
+        private BufferedFileToAnalyze contents;
+
+        private OptionsGate gate;
+
+        private Future<DiffResult> result;
+
+        PendingFile(FileToAnalyze file, ExecutorService workers,
+                OptionsGate gate) {
+            this.file = file;
+            this.options = fileOptionsProvider.getOptions(file);
+            this.gate = gate;
+
+            List versions = file.getVersions();
+            if (FileOptionsProvider.SKIP_FILE.equalsIgnoreCase(options)
+                    || versions == null || versions.isEmpty()) {
+                // analyze trivial files on this thread, without reading them
+                FutureTask<DiffResult> task = new FutureTask<DiffResult>(this);
+                task.run();
+                result = task;
+                return;
+            }
+
+            this.contents = new BufferedFileToAnalyze(file);
+            if (skipIdenticalFiles && contents.isIdentical())
+                // identical contents will never produce a result, so we
+                // don't need to examine their characters or lines
+                contents = null;
+            else
+                result = workers.submit(this);
+        }
+
+        public DiffResult call() throws IOException {
+            if (contents == null)
+                return analyzeFile(file, file, options);
+
+            gate.enter(options);
+            try {
+                return analyzeFile(file, contents, options);
+            } finally {
+                gate.exit();
+            }
+        }
+
+        DiffResult getResult() throws IOException {
+            if (result == null)
+                return null;
+
+            try {
+                return result.get();
+            } catch (InterruptedException ie) {
+                throw new IOException(ie);
+            } catch (ExecutionException ee) {
+                Throwable t = ee.getCause();
+                if (t instanceof IOException)
+                    throw (IOException) t;
+                else if (t instanceof RuntimeException)
+                    throw (RuntimeException) t;
+                else if (t instanceof Error)
+                    throw (Error) t;
+                else
+                    throw new IOException(t);
+            }
+        }
+
+    }
+
+    /**
+     * Language filters remember the options for the file they were most
+     * recently selected for.  This gate allows any number of threads to
+     * analyze files with the same options, but makes a thread wait if it
+     * needs different options than the files currently being analyzed.
+     */
+    private static class OptionsGate {
+
+        private String options;
+
+        private int count;
+
+        synchronized void enter(String newOptions) {
+            boolean interrupted = false;
+            while (count > 0 && !eq(options, newOptions)) {
+                try {
+                    wait();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+            options = newOptions;
+            count++;
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+
+        synchronized void exit() {
+            if (--count == 0)
+                notifyAll();
+        }
+
+        private static boolean eq(String a, String b) {
+            return (a == null ? b == null : a.equals(b));
+        }
+
+    }
+
+    private static final ThreadFactory WORKER_THREAD_FACTORY =
+        new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "DiffEngine worker");
+                t.setDaemon(true);
+                return t;
+            }
+        };
+
     protected void fireAnalysisStarting() {
         DiffEvent e = new DiffEvent(this, null, null, null);
         for (DiffListener l : listeners.getListeners(DiffListener.class)) {
@@ -244,6 +434,19 @@ public class DiffEngine {
 
     protected DiffResult analyzeFile(FileToAnalyze file) throws IOException {
         String options = fileOptionsProvider.getOptions(file);
+        return analyzeFile(file, file, options);
+    }
+
+    /**
+     * Analyze a file.
+     * 
+     * @param file the file to analyze
+     * @param contents an object that can provide the contents of the file;
+     *            either the file itself, or a buffered copy
+     * @param options the options for the file
+     */
+    private DiffResult analyzeFile(FileToAnalyze file, FileToAnalyze contents,
+            String options) throws IOException {
         if (FileOptionsProvider.SKIP_FILE.equalsIgnoreCase(options))
             return null;
 
@@ -253,7 +456,7 @@ public class DiffEngine {
         if (charset == null)
             charset = charsetSelector.selectCharset(file, options);
 
-        FileTraits fileTraits = examineFile(file, charset);
+        FileTraits fileTraits = examineFile(contents, charset);
 
         if (skipIdenticalFiles && fileTraits.identical)
             return null;
@@ -267,9 +470,13 @@ public class DiffEngine {
         if (filter == null)
             return null;
 
-        DiffAnalysisRequest r = new DiffAnalysisRequest(file, filter, options,
-                charset, fileTraits);
+        DiffAnalysisRequest r = new DiffAnalysisRequest(contents, filter,
+                options, charset, fileTraits);
         DiffResult result = diffAnalyzer.analyze(r);
+        if (result != null && result.getFile() != file)
+            result = new DiffResult(file, result.getLanguageFilter(),
+                    result.getOptions(), result.getChangeType(),
+                    result.getLocCounts(), result.getRedlines());
 
         // When a file changes in whitespace only, the version control system
         // will usually flag a change. (A common practical example would be a
@@ -83,6 +83,10 @@ public class AbstractLOCDiffReport {
         if (getFlag(args, "-countUnchanged"))
             engine.setSkipIdenticalFiles(false);
 
+        Integer threads = getInt(args, "-threads");
+        if (threads != null)
+            engine.setAnalysisThreads(threads);
+
         // by default, pass all remaining unprocessed options to the DiffEngine
         setEngineOptions(args);
     }
@@ -215,6 +215,7 @@ public class LOCDiffDialog {
 
         DiffEngine engine = new DiffEngine();
         engine.setLanguageFilterSelector(languageFilterSelector);
+        engine.setAnalysisThreads(Runtime.getRuntime().availableProcessors());
 
         FileAnalysisSet fileSet;
         try {
@@ -0,0 +1,627 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+
+/**
+ * Backup the files in a directory into a deduplicating, content-addressed
+ * store.
+ * <p>
+ * Each file is split into variable-length chunks at content-defined
+ * boundaries, so an edit or an append only changes the chunks near the
+ * modification.  Chunks are compressed and stored under the hex SHA-1 hash
+ * of their uncompressed content, in a <tt>chunks</tt> subdirectory of the
+ * backup directory.  A chunk that is already present is never written again.
+ * <p>
+ * Each backup writes a small text manifest into a <tt>snapshots</tt>
+ * subdirectory, listing the files in the snapshot along with the chunks that
+ * hold their content.  Every snapshot is a full backup, and can be restored
+ * or exported as a ZIP file independently of the others.  Files whose size
+ * and modification time match the previous snapshot are recorded without
+ * being read.
+ * <p>
+ * Old snapshots are pruned according to the auto cleanup settings, and
+ * chunks that are no longer referenced by any snapshot are then deleted.
+ * Content from an {@link DirectoryBackup.ExtraContentSupplier} is not
+ * retained by this class.
+ * 
+ * @since 2.7.6
+ */
+public class ChunkedDirectoryBackup extends DirectoryBackup {
+
+    public static final String CHUNK_SUBDIR = "chunks";
+
+    public static final String SNAPSHOT_SUBDIR = "snapshots";
+
+    private static final String MANIFEST_HEADER = "# snapshot ";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** Files modified this soon before the previous snapshot was taken are
+     * always reread, in case a change fell within the resolution of the
+     * filesystem's modification timestamps. */
+    private static final long RACY_MILLIS = 3000;
+
+    /** The minimum and maximum chunk sizes */
+    private static final int MIN_CHUNK = 2048;
+
+    private static final int MAX_CHUNK = 65536;
+
+    /** A chunk ends when these bits of the rolling hash are all zero, giving
+     * an average chunk size of about 8K.  The high bits are used because
+     * they depend on more of the preceding bytes. */
+    private static final int CHUNK_MASK = 0xfff80000;
+
+
+    /** The compression level to use, 1-9 */
+    private int compressionLevel = 1;
+
+    /** The number of bytes written by the most recent backup */
+    private long bytesWritten;
+
+    /** A list of backed-up files that start with null bytes (maybe corrupt) */
+    private Set<File> filesWithNullBytes = new HashSet<File>();
+
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int c) {
+        this.compressionLevel = Math.max(1, Math.min(9, c));
+    }
+
+    public Set<File> getFilesWithNullBytes() {
+        return filesWithNullBytes;
+    }
+
+    /** @return the number of bytes written to the backup directory by the
+     *     most recent backup, including chunks and the manifest */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+
+    @Override
+    protected File getDestBackupFile(String qualifier) {
+        File zipFile = super.getDestBackupFile(qualifier);
+        String name = zipFile.getName();
+        int dotPos = name.lastIndexOf('.');
+        if (dotPos > 0)
+            name = name.substring(0, dotPos);
+        return new File(getSnapshotDir(), name + ".txt");
+    }
+
+    @Override
+    protected void doBackup(File manifestFile) throws IOException {
+        ProfTimer pt = new ProfTimer(ChunkedDirectoryBackup.class,
+                "ChunkedDirectoryBackup.backupFiles");
+        bytesWritten = 0;
+        filesWithNullBytes = new HashSet<File>();
+
+        File snapshotDir = getSnapshotDir();
+        if (!snapshotDir.isDirectory() && !snapshotDir.mkdirs())
+            throw new IOException("Could not create directory '"
+                    + snapshotDir + "'");
+
+        // load the previous snapshot, so unchanged files can be skipped
+        Snapshot previous = null;
+        List<File> snapshots = getSnapshots();
+        if (!snapshots.isEmpty()) {
+            try {
+                previous = readSnapshot(snapshots.get(snapshots.size() - 1));
+            } catch (IOException ioe) {
+                // a damaged manifest must not prevent new backups.  Read all
+                // files from scratch instead.
+                printError("Unexpected error in ChunkedDirectoryBackup; "
+                        + "ignoring most recent backup", ioe);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        Snapshot snapshot = new Snapshot(now);
+        List<String> filenames = getFilenamesToBackup();
+        Collections.sort(filenames);
+        for (String filename : filenames) {
+            ThreadThrottler.tick();
+            File file = new File(srcDirectory, filename);
+            if (!file.isFile())
+                continue;
+
+            Entry entry = null;
+            if (previous != null)
+                entry = previous.getReusableEntry(filename, file);
+            if (entry == null)
+                entry = backupFile(file, filename);
+            if (entry.nullBytes)
+                filesWithNullBytes.add(file);
+            snapshot.entries.add(entry);
+        }
+        pt.click("Backed up data files");
+
+        bytesWritten += writeSnapshot(snapshot, manifestFile);
+    }
+
+    private Entry backupFile(File file, String filename) throws IOException {
+        Entry result = new Entry(filename, file.lastModified(), 0);
+        MessageDigest digest = getDigest();
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream(MAX_CHUNK);
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            int hash = 0, c;
+            while ((c = in.read()) != -1) {
+                if (result.length == 0 && c == 0)
+                    result.nullBytes = true;
+                result.length++;
+                chunk.write(c);
+                hash = (hash << 1) + GEAR[c];
+                int len = chunk.size();
+                if ((len >= MIN_CHUNK && (hash & CHUNK_MASK) == 0)
+                        || len >= MAX_CHUNK) {
+                    result.chunks.add(storeChunk(chunk, digest));
+                    hash = 0;
+                }
+            }
+            if (chunk.size() > 0)
+                result.chunks.add(storeChunk(chunk, digest));
+        } finally {
+            in.close();
+        }
+        return result;
+    }
+
+    private String storeChunk(ByteArrayOutputStream chunk,
+            MessageDigest digest) throws IOException {
+        byte[] data = chunk.toByteArray();
+        chunk.reset();
+        String hash = toHex(digest.digest(data));
+
+        File chunkFile = getChunkFile(hash);
+        if (chunkFile.isFile())
+            return hash;
+
+        File dir = chunkFile.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Could not create directory '" + dir + "'");
+
+        // write the chunk to a temporary file first, so a chunk that exists
+        // under its final name is always complete
+        File tempFile = new File(dir, hash + TEMP_SUFFIX);
+        Deflater deflater = new Deflater(compressionLevel);
+        OutputStream out = new DeflaterOutputStream(new FileOutputStream(
+                tempFile), deflater);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+            deflater.end();
+        }
+        bytesWritten += tempFile.length();
+        FileUtils.renameFile(tempFile, chunkFile);
+        return hash;
+    }
+
+
+    /** @return the manifest files for the snapshots in the backup directory,
+     *     from oldest to newest */
+    public List<File> getSnapshots() {
+        File[] files = getSnapshotDir().listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".txt");
+            }});
+        if (files == null)
+            return new ArrayList<File>();
+        Arrays.sort(files);
+        return new ArrayList<File>(Arrays.asList(files));
+    }
+
+    /**
+     * Restore the files from a snapshot into a directory.
+     * 
+     * @param manifestFile a manifest returned by {@link #backup(String)} or
+     *     {@link #getSnapshots()}
+     * @param destDir the directory where files should be written
+     */
+    public void restoreSnapshot(File manifestFile, File destDir)
+            throws IOException {
+        Snapshot snapshot = readSnapshot(manifestFile);
+        for (Entry e : snapshot.entries) {
+            File file = new File(destDir, e.filename);
+            File dir = file.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs())
+                throw new IOException("Could not create directory '" + dir
+                        + "'");
+
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(
+                    file));
+            try {
+                writeContents(e, out);
+            } finally {
+                out.close();
+            }
+            file.setLastModified(e.lastModified);
+        }
+    }
+
+    /**
+     * Write the files from a snapshot to a stream in ZIP format, matching the
+     * layout of a ZIP produced by a traditional directory backup.
+     */
+    public void writeSnapshotZip(File manifestFile, OutputStream out)
+            throws IOException {
+        Snapshot snapshot = readSnapshot(manifestFile);
+        ZipOutputStream zipOut = new ZipOutputStream(
+                new BufferedOutputStream(out));
+        zipOut.setLevel(compressionLevel);
+        if (snapshot.entries.isEmpty())
+            zipOut.putNextEntry(new ZipEntry("No_Files_Found"));
+        for (Entry e : snapshot.entries) {
+            ZipEntry ze = new ZipEntry(e.filename);
+            ze.setTime(e.lastModified);
+            zipOut.putNextEntry(ze);
+            writeContents(e, zipOut);
+            zipOut.closeEntry();
+        }
+        zipOut.finish();
+        zipOut.flush();
+    }
+
+    /**
+     * Return a URL for a snapshot.  Opening a stream from the URL returns the
+     * contents of the snapshot in ZIP format, so the URL can be used
+     * anywhere the URL of a ZIP backup is expected.
+     */
+    public URL getSnapshotURL(final File manifestFile)
+            throws MalformedURLException {
+        URL fileURL = manifestFile.toURI().toURL();
+        return new URL(fileURL, fileURL.toString(), new URLStreamHandler() {
+            protected URLConnection openConnection(URL u) {
+                return new SnapshotConnection(u, manifestFile);
+            }});
+    }
+
+    @Override
+    public URL getBackupURL(File manifestFile) throws MalformedURLException {
+        return getSnapshotURL(manifestFile);
+    }
+
+    private class SnapshotConnection extends URLConnection {
+
+        private File manifestFile;
+
+        SnapshotConnection(URL url, File manifestFile) {
+            super(url);
+            this.manifestFile = manifestFile;
+        }
+
+        public void connect() {}
+
+        public InputStream getInputStream() throws IOException {
+            // export the snapshot to a temporary file, which is deleted when
+            // the caller closes the stream
+            final File tempFile = TempFileFactory.get().createTempFile(
+                "pdash-snapshot", ".zip");
+            OutputStream out = new FileOutputStream(tempFile);
+            try {
+                writeSnapshotZip(manifestFile, out);
+            } catch (IOException ioe) {
+                tempFile.delete();
+                throw ioe;
+            } finally {
+                out.close();
+            }
+            return new FileInputStream(tempFile) {
+                public void close() throws IOException {
+                    super.close();
+                    tempFile.delete();
+                }
+            };
+        }
+
+    }
+
+    private void writeContents(Entry e, OutputStream out) throws IOException {
+        for (String hash : e.chunks) {
+            ThreadThrottler.tick();
+            InputStream in = new InflaterInputStream(new FileInputStream(
+                    getChunkFile(hash)));
+            try {
+                FileUtils.copyFile(in, out);
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+
+    @Override
+    public void cleanupOldBackups(int numDays, int numFiles) {
+        // age out any traditional ZIP backups left in the directory
+        super.cleanupOldBackups(numDays, numFiles);
+
+        List<File> snapshots = getSnapshots();
+        String cutoffStr = new SimpleDateFormat("yyyyMMddHHmmss")
+                .format(new Date(System.currentTimeMillis() - numDays
+                        * DAY_MILLIS));
+        boolean deletedSnapshot = false;
+        for (int i = 0; i < snapshots.size() - numFiles; i++) {
+            File oneFile = snapshots.get(i);
+            String filename = oneFile.getName();
+            if (cleanupFilter != null
+                    && !cleanupFilter.accept(oneFile.getParentFile(), filename))
+                continue;
+
+            Matcher m = DATE_PATTERN.matcher(filename);
+            if (m.find() && cutoffStr.compareTo(m.group()) > 0
+                    && oneFile.delete())
+                deletedSnapshot = true;
+        }
+
+        if (deletedSnapshot) {
+            try {
+                deleteUnreferencedChunks();
+            } catch (IOException ioe) {
+                printError(ioe);
+            }
+        }
+    }
+
+    /** Delete chunks that are not referenced by any remaining snapshot */
+    public void deleteUnreferencedChunks() throws IOException {
+        Set<String> referenced = new HashSet<String>();
+        for (File manifest : getSnapshots()) {
+            for (Entry e : readSnapshot(manifest).entries)
+                referenced.addAll(e.chunks);
+        }
+
+        File[] dirs = getChunkDir().listFiles();
+        if (dirs == null)
+            return;
+        for (File dir : dirs) {
+            File[] chunks = dir.listFiles();
+            if (chunks == null)
+                continue;
+            for (File chunk : chunks) {
+                ThreadThrottler.tick();
+                String name = chunk.getName();
+                if (name.endsWith(TEMP_SUFFIX) || !referenced.contains(name))
+                    chunk.delete();
+            }
+        }
+    }
+
+
+    private File getSnapshotDir() {
+        return new File(destDirectory, SNAPSHOT_SUBDIR);
+    }
+
+    private File getChunkDir() {
+        return new File(destDirectory, CHUNK_SUBDIR);
+    }
+
+    private File getChunkFile(String hash) {
+        return new File(new File(getChunkDir(), hash.substring(0, 2)), hash);
+    }
+
+
+    private static class Entry {
+
+        String filename;
+
+        long lastModified;
+
+        long length;
+
+        boolean nullBytes;
+
+        List<String> chunks = new ArrayList<String>();
+
+        Entry(String filename, long lastModified, long length) {
+            this.filename = filename;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+    }
+
+    private static class Snapshot {
+
+        long timestamp;
+
+        List<Entry> entries = new ArrayList<Entry>();
+
+        Map<String, Entry> byName;
+
+        Snapshot(long timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        /** @return the entry for a file, if the file appears to be unchanged
+         *     since this snapshot was taken */
+        Entry getReusableEntry(String filename, File file) {
+            if (byName == null) {
+                byName = new HashMap<String, Entry>();
+                for (Entry e : entries)
+                    byName.put(e.filename, e);
+            }
+
+            Entry e = byName.get(filename);
+            if (e != null && e.length == file.length()
+                    && e.lastModified == file.lastModified()
+                    && e.lastModified < timestamp - RACY_MILLIS)
+                return e;
+            else
+                return null;
+        }
+
+    }
+
+    // Manifests contain a header line, followed by one line per file:
+    //     lastModified TAB length TAB flags TAB chunk,chunk,... TAB filename
+
+    private long writeSnapshot(Snapshot snapshot, File manifestFile)
+            throws IOException {
+        File tempFile = new File(manifestFile.getParentFile(),
+                manifestFile.getName() + TEMP_SUFFIX);
+        Writer out = new OutputStreamWriter(new BufferedOutputStream(
+                new FileOutputStream(tempFile)), "UTF-8");
+        try {
+            out.write(MANIFEST_HEADER + snapshot.timestamp + "\n");
+            for (Entry e : snapshot.entries) {
+                out.write(Long.toString(e.lastModified));
+                out.write('\t');
+                out.write(Long.toString(e.length));
+                out.write('\t');
+                out.write(e.nullBytes ? "n" : "-");
+                out.write('\t');
+                out.write(StringUtils.join(e.chunks, ","));
+                out.write('\t');
+                out.write(e.filename);
+                out.write('\n');
+            }
+        } finally {
+            out.close();
+        }
+        long result = tempFile.length();
+        FileUtils.renameFile(tempFile, manifestFile);
+        return result;
+    }
+
+    private Snapshot readSnapshot(File manifestFile) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(manifestFile), "UTF-8"));
+        try {
+            String header = in.readLine();
+            if (header == null || !header.startsWith(MANIFEST_HEADER))
+                throw new IOException("Invalid snapshot manifest '"
+                        + manifestFile + "'");
+            Snapshot result = new Snapshot(Long.parseLong(header
+                    .substring(MANIFEST_HEADER.length())));
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split("\t", 5);
+                if (fields.length != 5)
+                    throw new IOException("Invalid snapshot manifest '"
+                            + manifestFile + "'");
+                Entry e = new Entry(fields[4], Long.parseLong(fields[0]),
+                        Long.parseLong(fields[1]));
+                e.nullBytes = fields[2].indexOf('n') != -1;
+                if (fields[3].length() > 0)
+                    e.chunks.addAll(Arrays.asList(fields[3].split(",")));
+                result.entries.add(e);
+            }
+            return result;
+        } catch (NumberFormatException nfe) {
+            throw new IOException("Invalid snapshot manifest '"
+                    + manifestFile + "'");
+        } finally {
+            in.close();
+        }
+    }
+
+
+    private static MessageDigest getDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(HEX_DIGITS.charAt((b >> 4) & 0xf));
+            result.append(HEX_DIGITS.charAt(b & 0xf));
+        }
+        return result.toString();
+    }
+
+    private static final String HEX_DIGITS = "0123456789abcdef";
+
+    /** Random values for the rolling "gear" hash that selects chunk
+     * boundaries.  The table is generated from a fixed seed, so boundaries
+     * are stable from one run to the next. */
+    private static final int[] GEAR = new int[256];
+    static {
+        Random r = new Random(0x5eed);
+        for (int i = 0; i < GEAR.length; i++)
+            GEAR[i] = r.nextInt();
+    }
+
+    private static void printError(Throwable t) {
+        printError("Unexpected error in ChunkedDirectoryBackup", t);
+    }
+
+    private static void printError(String msg, Throwable t) {
+        System.err.println(msg);
+        t.printStackTrace();
+    }
+
+    private static final Pattern DATE_PATTERN = Pattern.compile("\\d{14}");
+
+    private static final long DAY_MILLIS = 24L /* hours */* 60 /* minutes */
+    * 60 /* seconds */* 1000 /* millis */;
+
+}
@@ -25,9 +25,15 @@ package net.sourceforge.processdash.util;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 
 public class DashboardBackupFactory {
@@ -36,6 +42,7 @@ public class DashboardBackupFactory {
     private static int compressionLevel = 1;
     private static int maxHistLogSize = 500000;
     private static long histLogTimestamp = -1;
+    private static boolean chunkedStore = false;
 
     public static int getKeepBackupsNumDays() {
         return keepBackupsNumDays;
@@ -69,9 +76,23 @@ public class DashboardBackupFactory {
         DashboardBackupFactory.histLogTimestamp = histLogTimestamp;
     }
 
+    public static boolean isChunkedStore() {
+        return chunkedStore;
+    }
+
+    /**
+     * @param chunkedStore true if dashboard backups should be written to a
+     *     deduplicating {@link ChunkedDirectoryBackup} store, rather than to
+     *     a series of ZIP files
+     * @since 2.7.6
+     */
+    public static void setChunkedStore(boolean chunkedStore) {
+        DashboardBackupFactory.chunkedStore = chunkedStore;
+    }
+
     /**
      * Create a backup object which performs backups of a dashboard instance
-     * directory
+     * directory into a series of ZIP files
      * 
      * @param dataDir the directory to back up
      * @return a DirectoryBackup object
@@ -89,6 +110,66 @@ public class DashboardBackupFactory {
         return result;
     }
 
+    /**
+     * Create a backup object which performs backups of a dashboard instance
+     * directory, using the chunked store if it has been enabled
+     * 
+     * @param dataDir the directory to back up
+     * @return a DirectoryBackup object
+     * @since 2.7.6
+     */
+    public static DirectoryBackup getDashboardBackupStore(File dataDir) {
+        if (chunkedStore)
+            return getChunkedDashboardBackup(dataDir);
+        else
+            return getDashboardBackup(dataDir);
+    }
+
+    /**
+     * Find the backups that have been made of a dashboard instance directory.
+     * 
+     * Both ZIP backups and chunked snapshots are returned, regardless of
+     * which store is currently enabled.  Opening a stream from any of the
+     * returned URLs produces the contents of that backup in ZIP format.
+     * 
+     * @param dataDir the dashboard instance directory
+     * @return URLs for the backups, from newest to oldest
+     * @since 2.7.6
+     */
+    public static List<URL> getDashboardBackupURLs(File dataDir)
+            throws IOException {
+        File backupDir = new File(dataDir, "backup");
+        SortedMap<String, URL> backups = new TreeMap<String, URL>(
+                Collections.reverseOrder());
+
+        File[] zipFiles = backupDir.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.startsWith("pdash-") && name.endsWith(".zip");
+            }});
+        if (zipFiles != null) {
+            for (File f : zipFiles)
+                backups.put(f.getName(), f.toURI().toURL());
+        }
+
+        ChunkedDirectoryBackup store = getChunkedDashboardBackup(dataDir);
+        store.setDestDirectory(backupDir);
+        for (File f : store.getSnapshots())
+            backups.put(f.getName(), store.getSnapshotURL(f));
+
+        return new ArrayList<URL>(backups.values());
+    }
+
+    private static ChunkedDirectoryBackup getChunkedDashboardBackup(
+            File dataDir) {
+        ChunkedDirectoryBackup result = new ChunkedDirectoryBackup();
+        result.setSrcDirectory(dataDir);
+        result.setBackupFilenameFormat(DASH_BACKUP_FILENAME_FMT);
+        result.setFileFilter(DASH_FILE_FILTER);
+        result.setAutoCleanupNumDays(keepBackupsNumDays);
+        result.setCompressionLevel(compressionLevel);
+        return result;
+    }
+
     private static final String[][] DASH_ATOMIC_FILE_GROUPS = { {
             "timelog.xml", "timelog2.xml" } };
 
@@ -115,6 +196,11 @@ public class DashboardBackupFactory {
             if (name.startsWith(RobustFileOutputStream.OUT_PREFIX))
                 return false; // don't copy around temporary files
 
+            // don't include the index files that the time log derives from
+            // its XML file; they are rebuilt automatically when missing
+            if (name.endsWith(".idx"))
+                return false;
+
             if (name.equals("log.txt") || // backup the log file
                 name.endsWith(".dat") || // backup data files
                 name.endsWith(".def") || // backup defect logs
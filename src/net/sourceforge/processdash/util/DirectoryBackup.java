@@ -24,6 +24,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
@@ -152,6 +154,16 @@ public abstract class DirectoryBackup {
 
     protected abstract void doBackup(File destFile) throws IOException;
 
+    /**
+     * Return a URL that can be used to read a backup in ZIP format.
+     * 
+     * @param backupFile a file returned by {@link #backup(String)}
+     * @since 2.7.6
+     */
+    public URL getBackupURL(File backupFile) throws MalformedURLException {
+        return backupFile.toURI().toURL();
+    }
+
     public void cleanupOldBackups(int numDays) {
         cleanupOldBackups(numDays, numDays);
     }
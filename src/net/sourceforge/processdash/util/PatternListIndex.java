@@ -0,0 +1,356 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable index over a collection of {@link PatternList} objects, which
+ * can quickly find all of the lists that match a given string.
+ * <p>
+ * Testing a string against each PatternList in turn costs time proportional
+ * to the total number of patterns.  This index compiles the patterns from all
+ * of the lists into a few shared structures, so the cost of a lookup depends
+ * mainly on the length of the string being tested:
+ * <ul>
+ * <li>"equals" items are held in a hash table</li>
+ * <li>"starts with" items are held in a trie, which is walked from the
+ *     beginning of the string</li>
+ * <li>"ends with" items are held in a trie of reversed strings, which is
+ *     walked from the end of the string</li>
+ * <li>"contains" items are compiled into an Aho-Corasick automaton, which
+ *     finds all of them in a single pass over the string</li>
+ * <li>regular expressions that could not be broken down into simpler
+ *     patterns are tested individually</li>
+ * </ul>
+ * The index is a snapshot of the pattern lists at the time it was built.  If
+ * a PatternList is modified later, a new index must be built.  Instances of
+ * PatternList subclasses are tested by calling their <code>matches</code>
+ * method, since they may have overridden it.
+ *
+ * @since 2.7.6
+ */
+public class PatternListIndex<T> {
+
+    /** The values associated with each pattern list, by registration ID */
+    private Object[] values;
+
+    /** IDs of the lists that match every string */
+    private int[] alwaysIds;
+
+    private Map<String, int[]> equalsIds;
+
+    private TrieNode prefixTrie;
+
+    private TrieNode suffixTrie;
+
+    private TrieNode containsAutomaton;
+
+    private Pattern[] regexps;
+
+    private int[] regexpIds;
+
+    private PatternList[] opaqueLists;
+
+    private int[] opaqueIds;
+
+
+    /**
+     * Build an index for a collection of pattern lists.
+     * 
+     * @param patterns
+     *            a list of patterns
+     * @param values
+     *            a list of the same length, giving the value that should be
+     *            returned when the corresponding pattern matches.
+     */
+    public PatternListIndex(List<PatternList> patterns, List<T> values) {
+        if (patterns.size() != values.size())
+            throw new IllegalArgumentException("List lengths do not match");
+        this.values = values.toArray();
+
+        IdList always = new IdList();
+        Map<String, IdList> equals = new HashMap<String, IdList>();
+        TrieNode prefix = new TrieNode(), suffix = new TrieNode();
+        TrieNode contains = new TrieNode();
+        List<Pattern> regexpList = new ArrayList<Pattern>();
+        IdList regexpIdList = new IdList();
+        List<PatternList> opaqueList = new ArrayList<PatternList>();
+        IdList opaqueIdList = new IdList();
+
+        for (int id = 0; id < patterns.size(); id++) {
+            PatternList p = patterns.get(id);
+            if (p.getClass() != PatternList.class) {
+                opaqueList.add(p);
+                opaqueIdList.add(id);
+                continue;
+            }
+            if (p.isAlwaysTrue()) {
+                always.add(id);
+                continue;
+            }
+            for (Object s : nonNull(p.getEqualsItems())) {
+                IdList ids = equals.get(s);
+                if (ids == null)
+                    equals.put((String) s, ids = new IdList());
+                ids.add(id);
+            }
+            for (Object s : nonNull(p.getStartsWithItems()))
+                prefix.insert((String) s, false).ids.add(id);
+            for (Object s : nonNull(p.getEndsWithItems()))
+                suffix.insert((String) s, true).ids.add(id);
+            for (Object s : nonNull(p.getContainsItems()))
+                contains.insert((String) s, false).ids.add(id);
+            for (Object r : nonNull(p.getRegexpItems())) {
+                regexpList.add((Pattern) r);
+                regexpIdList.add(id);
+            }
+        }
+
+        this.alwaysIds = always.toArray();
+        this.equalsIds = new HashMap<String, int[]>();
+        for (Map.Entry<String, IdList> e : equals.entrySet())
+            equalsIds.put(e.getKey(), e.getValue().toArray());
+        this.prefixTrie = prefix.compile();
+        this.suffixTrie = suffix.compile();
+        this.containsAutomaton = contains.compile();
+        buildFailureLinks(containsAutomaton);
+        this.regexps = regexpList.toArray(new Pattern[regexpList.size()]);
+        this.regexpIds = regexpIdList.toArray();
+        this.opaqueLists = opaqueList.toArray(new PatternList[opaqueList
+                .size()]);
+        this.opaqueIds = opaqueIdList.toArray();
+    }
+
+    private static List nonNull(List l) {
+        return (l == null ? Collections.EMPTY_LIST : l);
+    }
+
+
+    /** Return the number of pattern lists in this index */
+    public int size() {
+        return values.length;
+    }
+
+
+    /**
+     * Find the pattern lists that match a string, and return their associated
+     * values, in the order the lists were given to the constructor.
+     */
+    public List<T> getMatches(String s) {
+        BitSet matches = new BitSet(values.length);
+        mark(matches, alwaysIds);
+
+        int[] ids = equalsIds.get(s);
+        if (ids != null)
+            mark(matches, ids);
+
+        // walk the prefix trie forward from the start of the string
+        TrieNode node = prefixTrie;
+        for (int i = 0; node != null; i++) {
+            mark(matches, node.idArray);
+            node = (i < s.length() ? node.getChild(s.charAt(i)) : null);
+        }
+
+        // walk the suffix trie backward from the end of the string
+        node = suffixTrie;
+        for (int i = s.length(); node != null; i--) {
+            mark(matches, node.idArray);
+            node = (i > 0 ? node.getChild(s.charAt(i - 1)) : null);
+        }
+
+        // run the Aho-Corasick automaton over the string
+        node = containsAutomaton;
+        mark(matches, node.outputArray);
+        for (int i = 0; i < s.length(); i++) {
+            node = containsAutomaton.step(node, s.charAt(i));
+            mark(matches, node.outputArray);
+        }
+
+        for (int i = 0; i < regexps.length; i++)
+            if (!matches.get(regexpIds[i]) && regexps[i].matcher(s).find())
+                matches.set(regexpIds[i]);
+
+        for (int i = 0; i < opaqueLists.length; i++)
+            if (opaqueLists[i].matches(s))
+                matches.set(opaqueIds[i]);
+
+        List<T> result = new ArrayList<T>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches
+                .nextSetBit(i + 1))
+            result.add((T) values[i]);
+        return result;
+    }
+
+    private static void mark(BitSet matches, int[] ids) {
+        if (ids != null)
+            for (int id : ids)
+                matches.set(id);
+    }
+
+
+    /** Compute failure links and output sets for an Aho-Corasick automaton,
+     * with a breadth-first walk of the trie. */
+    private static void buildFailureLinks(TrieNode root) {
+        root.failure = root;
+        root.outputArray = root.idArray;
+        LinkedList<TrieNode> queue = new LinkedList<TrieNode>();
+        for (TrieNode child : root.children) {
+            child.failure = root;
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            TrieNode node = queue.removeFirst();
+            // the output of a node includes the output of its failure node,
+            // which represents the longest proper suffix in the trie
+            node.outputArray = merge(node.idArray, node.failure.outputArray);
+
+            for (int i = 0; i < node.keys.length; i++) {
+                TrieNode child = node.children[i];
+                child.failure = root.step(node.failure, node.keys[i]);
+                queue.add(child);
+            }
+        }
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        if (a == null)
+            return b;
+        if (b == null)
+            return a;
+        int[] result = new int[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+
+    private static class TrieNode {
+
+        /** The characters leading to child nodes, in sorted order */
+        char[] keys;
+
+        TrieNode[] children;
+
+        /** The IDs of the patterns that end at this node */
+        int[] idArray;
+
+        /** The IDs of all contains-patterns that end at this node, or at any
+         * node along its chain of failure links */
+        int[] outputArray;
+
+        TrieNode failure;
+
+        /** Data used while building the trie */
+        Map<Character, TrieNode> childMap;
+        IdList ids;
+
+        TrieNode() {
+            childMap = new HashMap<Character, TrieNode>();
+            ids = new IdList();
+        }
+
+        TrieNode insert(String s, boolean reverse) {
+            TrieNode node = this;
+            int len = s.length();
+            for (int i = 0; i < len; i++) {
+                char c = s.charAt(reverse ? len - 1 - i : i);
+                TrieNode child = node.childMap.get(c);
+                if (child == null)
+                    node.childMap.put(c, child = new TrieNode());
+                node = child;
+            }
+            return node;
+        }
+
+        /** Convert the build-time maps into compact sorted arrays */
+        TrieNode compile() {
+            keys = new char[childMap.size()];
+            int i = 0;
+            for (Character c : childMap.keySet())
+                keys[i++] = c;
+            Arrays.sort(keys);
+            children = new TrieNode[keys.length];
+            for (i = 0; i < keys.length; i++)
+                children[i] = childMap.get(keys[i]).compile();
+            idArray = (ids.isEmpty() ? null : ids.toArray());
+            childMap = null;
+            ids = null;
+            return this;
+        }
+
+        TrieNode getChild(char c) {
+            int pos = Arrays.binarySearch(keys, c);
+            return (pos < 0 ? null : children[pos]);
+        }
+
+        /** Follow the automaton transition from a node on a character,
+         * where this object is the root of the automaton. */
+        TrieNode step(TrieNode node, char c) {
+            while (true) {
+                TrieNode child = node.getChild(c);
+                if (child != null)
+                    return child;
+                if (node == this)
+                    return this;
+                node = node.failure;
+            }
+        }
+
+    }
+
+
+    /** A growable list of int IDs */
+    private static class IdList {
+
+        int[] ids = new int[2];
+
+        int size = 0;
+
+        void add(int id) {
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+
+    }
+
+}
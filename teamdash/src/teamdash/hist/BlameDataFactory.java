@@ -44,6 +44,7 @@ import java.util.concurrent.Future;
 import net.sourceforge.processdash.util.NullSafeObjectUtils;
 import net.sourceforge.processdash.util.StringUtils;
 
+import teamdash.hist.ProjectHistoryCache.VersionSnapshot;
 import teamdash.merge.ModelType;
 import teamdash.merge.TreeDiff;
 import teamdash.merge.TreeNode;
@@ -69,13 +70,23 @@ public class BlameDataFactory extends ProjectDiff {
     public BlameDataFactory(ProjectHistory hist, Object versionA,
             Object versionB, ProjectDiff other) throws IOException {
         super(hist, versionA, versionB, other);
+        init();
+    }
+
+    protected BlameDataFactory(ProjectHistory hist, Object versionA,
+            Object versionB, String author, Date timestamp,
+            VersionSnapshot snapA, VersionSnapshot snapB) throws IOException {
+        super(hist, versionA, versionB, author, timestamp, snapA, snapB, null);
+        init();
+    }
+
+    private void init() {
         prepareTeamMemberTimeColumnIDs();
 
         WBSBlameCalc wbsBlameCalc = new WBSBlameCalc();
         diff = wbsBlameCalc.getMainDiff();
 
-        blamePoint = new BlamePoint(hist.getVersionDate(versionB),
-                hist.getVersionAuthor(versionB));
+        blamePoint = new BlamePoint(timestamp, author);
     }
 
     private void prepareTeamMemberTimeColumnIDs() {
@@ -479,31 +490,50 @@ public class BlameDataFactory extends ProjectDiff {
 
         BlameData result = new BlameData();
         List versions = hist.getVersions();
-        ProjectDiff prevDiff = null;
-        for (int i = 1; i < versions.size(); i++) {
-            if (f != null && f.isDone())
-                return null;
-
-            Object oneVersion = versions.get(i);
-            Date versionDate = hist.getVersionDate(oneVersion);
-            if (onOrAfterDate != null && versionDate.before(onOrAfterDate))
-                continue;
-
-            try {
-                Object prevVersion = versions.get(i - 1);
-                BlameDataFactory diff = new BlameDataFactory(hist, prevVersion,
-                        oneVersion, prevDiff);
-                diff.addChanges(result, dataTableModel);
-                prevDiff = diff;
-            } catch (FileNotFoundException fnfe) {
-                // the change history file can sometimes contain more history
-                // than is actually stored in the PDES (for example, when a
-                // legacy project has been migrated into the PDES). In these
-                // cases, starting the analysis too far back will generate a
-                // "file not found" exception. Catch this exception and skip
-                // forward to the next historical change.
-                continue;
+        ProjectDiffQueue<BlameDataFactory> diffs = //
+                new ProjectDiffQueue<BlameDataFactory>(hist) {
+            protected BlameDataFactory createDiff(ProjectHistory hist,
+                    Object versionA, Object versionB, String author,
+                    Date timestamp, VersionSnapshot snapA,
+                    VersionSnapshot snapB) throws IOException {
+                return new BlameDataFactory(hist, versionA, versionB, author,
+                        timestamp, snapA, snapB);
+            }
+        };
+        try {
+            int i = 1;
+            while (true) {
+                // keep the worker threads busy with upcoming version pairs
+                while (i < versions.size()
+                        && diffs.getPendingCount() < diffs.getWindowSize()) {
+                    Object oneVersion = versions.get(i);
+                    Date versionDate = hist.getVersionDate(oneVersion);
+                    if (onOrAfterDate == null
+                            || !versionDate.before(onOrAfterDate))
+                        diffs.add(versions.get(i - 1), oneVersion);
+                    i++;
+                }
+                if (diffs.getPendingCount() == 0)
+                    break;
+
+                if (f != null && f.isDone())
+                    return null;
+
+                try {
+                    diffs.next().addChanges(result, dataTableModel);
+                } catch (FileNotFoundException fnfe) {
+                    // the change history file can sometimes contain more
+                    // history than is actually stored in the PDES (for
+                    // example, when a legacy project has been migrated into
+                    // the PDES). In these cases, starting the analysis too
+                    // far back will generate a "file not found" exception.
+                    // Catch this exception and skip forward to the next
+                    // historical change.
+                    continue;
+                }
             }
+        } finally {
+            diffs.close();
         }
 
         return result;
@@ -33,10 +33,12 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import teamdash.hist.ProjectHistoryCache.VersionSnapshot;
 import teamdash.merge.TreeNode;
 import teamdash.merge.TreeNodeChange;
 import teamdash.merge.TreeNodeChange.Type;
@@ -50,7 +52,17 @@ public class ProjectChangeListFactory extends ProjectDiff {
     public ProjectChangeListFactory(ProjectHistory hist, Object versionA,
             Object versionB, ProjectDiff other) throws IOException {
         super(hist, versionA, versionB, other);
+        init();
+    }
+
+    protected ProjectChangeListFactory(ProjectHistory hist, Object versionA,
+            Object versionB, String author, Date timestamp,
+            VersionSnapshot snapA, VersionSnapshot snapB) throws IOException {
+        super(hist, versionA, versionB, author, timestamp, snapA, snapB, null);
+        init();
+    }
 
+    private void init() {
         WBSDiffCalc wbsDiffCalc = new WBSDiffCalc();
         diff = wbsDiffCalc.getMainDiff();
     }
@@ -269,47 +281,76 @@ public class ProjectChangeListFactory extends ProjectDiff {
             boolean mergeConsecutiveChangesFromSameAuthor) throws IOException {
         ProjectChangeList result = new ProjectChangeList();
         List versions = hist.getVersions();
-        String lastDateStr = null;
-        ProjectDiff lastDiff = null;
-        for (int i = versions.size(); i-- > 1;) {
-            Object oneVersion = versions.get(i);
-            Date versionDate = hist.getVersionDate(oneVersion);
-            if (onOrBeforeDate != null && versionDate.after(onOrBeforeDate))
-                continue;
-
-            String thisDateStr = ProjectChange.DATE_FMT.format(versionDate);
-            if (minNumChanges > 0 && result.size() >= minNumChanges
-                    && !(forceFullDays && thisDateStr.equals(lastDateStr))) {
-                result.setFollowupTimestamp(versionDate);
-                return result;
+        ProjectDiffQueue<ProjectChangeListFactory> diffs = //
+                new ProjectDiffQueue<ProjectChangeListFactory>(hist) {
+            protected ProjectChangeListFactory createDiff(ProjectHistory hist,
+                    Object versionA, Object versionB, String author,
+                    Date timestamp, VersionSnapshot snapA,
+                    VersionSnapshot snapB) throws IOException {
+                return new ProjectChangeListFactory(hist, versionA, versionB,
+                        author, timestamp, snapA, snapB);
             }
+        };
 
-            Object prevVersion = versions.get(i - 1);
-            if (mergeConsecutiveChangesFromSameAuthor) {
-                String thisAuthor = hist.getVersionAuthor(oneVersion);
-                while (thisAuthor.equals(hist.getVersionAuthor(prevVersion))
-                        && thisDateStr.equals(ProjectChange.DATE_FMT
-                                .format(hist.getVersionDate(prevVersion)))
-                        && i > 1) {
-                    prevVersion = versions.get(--i - 1);
+        // diffs are computed ahead of the pairs we have examined so far. If
+        // we stop early, the extra work is simply discarded.
+        LinkedList<Date> pendingDates = new LinkedList<Date>();
+        String lastDateStr = null;
+        int i = versions.size();
+        try {
+            while (true) {
+                while (pendingDates.size() < diffs.getWindowSize()
+                        && i-- > 1) {
+                    Object oneVersion = versions.get(i);
+                    Date versionDate = hist.getVersionDate(oneVersion);
+                    if (onOrBeforeDate != null
+                            && versionDate.after(onOrBeforeDate))
+                        continue;
+
+                    String thisDateStr = ProjectChange.DATE_FMT
+                            .format(versionDate);
+                    Object prevVersion = versions.get(i - 1);
+                    if (mergeConsecutiveChangesFromSameAuthor) {
+                        String thisAuthor = hist.getVersionAuthor(oneVersion);
+                        while (thisAuthor.equals(hist
+                                .getVersionAuthor(prevVersion))
+                                && thisDateStr.equals(ProjectChange.DATE_FMT
+                                    .format(hist.getVersionDate(prevVersion)))
+                                && i > 1) {
+                            prevVersion = versions.get(--i - 1);
+                        }
+                    }
+
+                    diffs.add(prevVersion, oneVersion);
+                    pendingDates.add(versionDate);
+                }
+                if (pendingDates.isEmpty())
+                    break;
+
+                Date versionDate = pendingDates.removeFirst();
+                String thisDateStr = ProjectChange.DATE_FMT.format(versionDate);
+                if (minNumChanges > 0 && result.size() >= minNumChanges
+                        && !(forceFullDays
+                                && thisDateStr.equals(lastDateStr))) {
+                    result.setFollowupTimestamp(versionDate);
+                    return result;
                 }
-            }
 
-            try {
-                ProjectChangeListFactory diff = new ProjectChangeListFactory(
-                        hist, prevVersion, oneVersion, lastDiff);
-                result.addAll(diff.getChanges());
-                lastDiff = diff;
-            } catch (FileNotFoundException fnfe) {
-                // the change history file can sometimes contain more history
-                // than is actually stored in the PDES (for example, when a
-                // legacy project has been migrated into the PDES). In these
-                // cases, scrolling back far enough will generate a "file not
-                // found" exception. Catch this exception and treat it as the
-                // end of searchable history.
-                break;
+                try {
+                    result.addAll(diffs.next().getChanges());
+                } catch (FileNotFoundException fnfe) {
+                    // the change history file can sometimes contain more
+                    // history than is actually stored in the PDES (for
+                    // example, when a legacy project has been migrated into
+                    // the PDES). In these cases, scrolling back far enough
+                    // will generate a "file not found" exception. Catch this
+                    // exception and treat it as the end of searchable history.
+                    break;
+                }
+                lastDateStr = thisDateStr;
             }
-            lastDateStr = thisDateStr;
+        } finally {
+            diffs.close();
         }
         return result;
     }
@@ -31,7 +31,6 @@ import static teamdash.wbs.columns.TopDownBottomUpColumn.TOP_DOWN_ATTR_SUFFIX;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
@@ -41,18 +40,14 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
 import net.sourceforge.processdash.i18n.Resources;
 import net.sourceforge.processdash.util.StringUtils;
 import net.sourceforge.processdash.util.XMLUtils;
 
+import teamdash.hist.ProjectHistoryCache.VersionSnapshot;
 import teamdash.merge.TreeDiff;
 import teamdash.merge.TreeNode;
 import teamdash.merge.TreeNodeChange.Type;
-import teamdash.team.TeamMember;
 import teamdash.wbs.AbstractWBSModelMerger.WBSNodeContent;
 import teamdash.wbs.WBSMerger;
 import teamdash.wbs.WBSModel;
@@ -84,18 +79,39 @@ public class ProjectDiff {
 
     protected WBSModel wbsA, wbsB;
 
+    private VersionSnapshot snapA, snapB;
+
     protected TreeDiff<Integer, WBSNodeContent> diff;
 
     public ProjectDiff(ProjectHistory hist, Object versionA, Object versionB,
             ProjectDiff other) throws IOException {
+        this(hist, versionA, versionB, hist.getVersionAuthor(versionB),
+                hist.getVersionDate(versionB), null, null, other);
+    }
+
+    /**
+     * Create a diff between two versions, using snapshots that were retrieved
+     * from a {@link ProjectHistoryCache}. If a snapshot is null, it will be
+     * retrieved from the diff <tt>other</tt> or from the cache.
+     * 
+     * This constructor does not query the project history for information
+     * about versionB, so it can be called from a background thread if both
+     * snapshots are provided.
+     */
+    protected ProjectDiff(ProjectHistory hist, Object versionA,
+            Object versionB, String author, Date timestamp,
+            VersionSnapshot snapA, VersionSnapshot snapB, ProjectDiff other)
+            throws IOException {
         this.hist = hist;
         this.versionA = versionA;
         this.versionB = versionB;
-        this.author = hist.getVersionAuthor(versionB);
-        this.timestamp = hist.getVersionDate(versionB);
+        this.author = author;
+        this.timestamp = timestamp;
 
-        this.wbsB = getWbsModel(versionB, other);
-        this.wbsA = getWbsModel(versionA, other);
+        this.snapB = (snapB != null ? snapB : getSnapshot(versionB, other));
+        this.wbsB = getWbsModel(versionB, this.snapB, other);
+        this.snapA = (snapA != null ? snapA : getSnapshot(versionA, other));
+        this.wbsA = getWbsModel(versionA, this.snapA, other);
         loadTeamMemberData();
     }
 
@@ -105,13 +121,13 @@ public class ProjectDiff {
         deletedIndivAttrs = new HashSet();
         memberZeroAttrs = new HashMap();
         teamMemberNames = new HashMap();
-        Element teamB = parseXML(versionB, TEAM_LIST_FILENAME);
-        NodeList indivNodes = teamB.getElementsByTagName(TeamMember.TAG_NAME);
-        for (int i = 0; i < indivNodes.getLength(); i++) {
-            Element indiv = (Element) indivNodes.item(i);
-            String id = indiv.getAttribute(TeamMember.ID_ATTR);
-            String initials = indiv.getAttribute(TeamMember.INITIALS_ATTR);
-            String name = indiv.getAttribute(TeamMember.NAME_ATTR);
+        if (!snapB.hasTeam())
+            throw new FileNotFoundException(TEAM_LIST_FILENAME + " / "
+                    + versionB);
+        for (String[] indiv : snapB.getTeamMembers()) {
+            String id = indiv[0];
+            String initials = indiv[1];
+            String name = indiv[2];
             if (XMLUtils.hasValue(id))
                 members.put(id, initials);
             String timeAttr = initials + TEAM_MEMBER_TIME_SUFFIX;
@@ -125,18 +141,12 @@ public class ProjectDiff {
         if (members.isEmpty())
             return;
 
-        Element teamA = null;
-        try {
-            teamA = parseXML(versionA, TEAM_LIST_FILENAME);
-        } catch (IOException ioe) {
+        if (!snapA.hasTeam())
             return;
-        }
         Map changedInitialAttrs = new HashMap();
-        indivNodes = teamA.getElementsByTagName(TeamMember.TAG_NAME);
-        for (int i = 0; i < indivNodes.getLength(); i++) {
-            Element indiv = (Element) indivNodes.item(i);
-            String id = indiv.getAttribute(TeamMember.ID_ATTR);
-            String oldInitials = indiv.getAttribute(TeamMember.INITIALS_ATTR);
+        for (String[] indiv : snapA.getTeamMembers()) {
+            String id = indiv[0];
+            String oldInitials = indiv[1];
             String newInitials = members.get(id);
             if (newInitials == null) {
                 deletedIndivAttrs.add(oldInitials + TEAM_MEMBER_TIME_SUFFIX);
@@ -153,35 +163,28 @@ public class ProjectDiff {
         deletedIndivAttrs.removeAll(indivTimeAttrs);
     }
 
-    private WBSModel getWbsModel(Object version, ProjectDiff other)
+    private VersionSnapshot getSnapshot(Object version, ProjectDiff other)
             throws IOException {
         if (other != null && version.equals(other.versionA))
-            return other.wbsA;
+            return other.snapA;
         else if (other != null && version.equals(other.versionB))
-            return other.wbsB;
-        else {
-            try {
-                return new WBSModel(parseXML(version, WBS_FILENAME));
-            } catch (FileNotFoundException fnfe) {
-                if (version == hist.getVersions().get(0))
-                    return new WBSModel("WBS", false);
-                else
-                    throw fnfe;
-            }
-        }
+            return other.snapB;
+        else
+            return ProjectHistoryCache.get(hist).getSnapshot(version);
     }
 
-    private Element parseXML(Object version, String filename)
-            throws IOException {
-        try {
-            InputStream xml = hist.getVersionFile(version, filename);
-            if (xml == null)
-                throw new FileNotFoundException(filename + " / " + version);
-            else
-                return XMLUtils.parse(xml).getDocumentElement();
-        } catch (SAXException se) {
-            throw new IOException(se);
-        }
+    private WBSModel getWbsModel(Object version, VersionSnapshot snap,
+            ProjectDiff other) throws IOException {
+        if (other != null && version.equals(other.versionA))
+            return other.wbsA;
+        else if (other != null && version.equals(other.versionB))
+            return other.wbsB;
+        else if (snap.hasWbs())
+            return snap.createWbsModel();
+        else if (version == hist.getVersions().get(0))
+            return new WBSModel("WBS", false);
+        else
+            throw new FileNotFoundException(WBS_FILENAME + " / " + version);
     }
 
 
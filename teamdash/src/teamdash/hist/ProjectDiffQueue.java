@@ -0,0 +1,156 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package teamdash.hist;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import teamdash.hist.ProjectHistoryCache.VersionSnapshot;
+
+/**
+ * Computes a series of {@link ProjectDiff} objects on a pool of worker
+ * threads, and returns them in the order they were requested.
+ * 
+ * Callers add version pairs with {@link #add(Object, Object)}, and retrieve
+ * the resulting diffs with {@link #next()}. Files for each version are read
+ * from the project history on the calling thread; parsing those files and
+ * comparing the versions happens in the background. Callers should keep the
+ * number of pending pairs near {@link #getWindowSize()}, so workers stay busy
+ * without holding too many diffs in memory.
+ */
+abstract class ProjectDiffQueue<D extends ProjectDiff> {
+
+    private ProjectHistory hist;
+
+    private ProjectHistoryCache cache;
+
+    private int windowSize;
+
+    private ExecutorService workers;
+
+    private LinkedList<Future<D>> pending;
+
+    private Map<Object, Future<VersionSnapshot>> snapshots;
+
+
+    ProjectDiffQueue(ProjectHistory hist) {
+        this.hist = hist;
+        this.cache = ProjectHistoryCache.get(hist);
+        int numThreads = getNumThreads();
+        this.windowSize = numThreads * 2;
+        this.workers = Executors.newFixedThreadPool(numThreads);
+        this.pending = new LinkedList<Future<D>>();
+        // versions are shared by adjacent pairs, so only the snapshots for
+        // the most recently requested versions need to be remembered.
+        this.snapshots = new LinkedHashMap<Object, Future<VersionSnapshot>>() {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Object, Future<VersionSnapshot>> eldest) {
+                return size() > windowSize * 2;
+            }
+        };
+    }
+
+    /** Compute the differences between two versions. This is called on a
+     * worker thread, so it must not query the project history. */
+    protected abstract D createDiff(ProjectHistory hist, Object versionA,
+            Object versionB, String author, Date timestamp,
+            VersionSnapshot snapA, VersionSnapshot snapB) throws IOException;
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /** Schedule the comparison of two versions */
+    public void add(final Object versionA, final Object versionB)
+            throws IOException {
+        final String author = hist.getVersionAuthor(versionB);
+        final Date timestamp = hist.getVersionDate(versionB);
+        final Future<VersionSnapshot> snapA = getSnapshot(versionA);
+        final Future<VersionSnapshot> snapB = getSnapshot(versionB);
+
+        // snapshot tasks are always queued before the diffs that need them,
+        // so a worker waiting for a snapshot cannot starve the pool.
+        FutureTask<D> task = new FutureTask<D>(new Callable<D>() {
+            public D call() throws IOException {
+                return createDiff(hist, versionA, versionB, author, timestamp,
+                    ProjectHistoryCache.getResult(snapA),
+                    ProjectHistoryCache.getResult(snapB));
+            }
+        });
+        workers.execute(task);
+        pending.add(task);
+    }
+
+    private Future<VersionSnapshot> getSnapshot(Object version)
+            throws IOException {
+        Future<VersionSnapshot> result = snapshots.get(version);
+        if (result == null) {
+            result = cache.requestSnapshot(version, workers);
+            snapshots.put(version, result);
+        }
+        return result;
+    }
+
+    /**
+     * Return the diff for the earliest pair that has not been retrieved yet,
+     * waiting for it to finish if necessary.
+     * 
+     * @throws IOException
+     *             if the diff for that pair could not be computed
+     */
+    public D next() throws IOException {
+        return ProjectHistoryCache.getResult(pending.removeFirst());
+    }
+
+    /** Discard any pending work and stop the worker threads */
+    public void close() {
+        workers.shutdownNow();
+        pending.clear();
+        snapshots.clear();
+    }
+
+    private static int getNumThreads() {
+        int result = Integer.getInteger(THREADS_PROPERTY, 0);
+        if (result < 1)
+            result = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, result);
+    }
+
+    private static final String THREADS_PROPERTY = ProjectDiffQueue.class
+            .getName() + ".threads";
+
+}
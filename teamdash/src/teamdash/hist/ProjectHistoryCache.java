@@ -0,0 +1,565 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package teamdash.hist;
+
+import static teamdash.wbs.WBSFilenameConstants.TEAM_LIST_FILENAME;
+import static teamdash.wbs.WBSFilenameConstants.WBS_FILENAME;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import net.sourceforge.processdash.tool.bridge.client.DirectoryPreferences;
+import net.sourceforge.processdash.util.FileUtils;
+import net.sourceforge.processdash.util.RobustFileOutputStream;
+import net.sourceforge.processdash.util.XMLUtils;
+
+import teamdash.team.TeamMember;
+import teamdash.wbs.ChangeHistory;
+import teamdash.wbs.WBSModel;
+import teamdash.wbs.WBSNode;
+
+/**
+ * Caches the parsed contents of historical project versions.
+ * 
+ * Historical versions never change once they have been saved, so the WBS and
+ * team list for each version are parsed once, and then stored in a compact
+ * binary form keyed by the version's unique ID. Recently used snapshots are
+ * held in memory; if a cache directory has been configured, every complete
+ * snapshot is also written to disk so it survives a restart.  Snapshots on
+ * disk that go unused for a period of time are discarded by
+ * {@link #pruneDefaultCacheDirectories(int)}.
+ */
+public class ProjectHistoryCache {
+
+    /** The history this cache belongs to.  This is held weakly, because
+     * {@link #CACHES} can only discard a cache once its history is no longer
+     * strongly reachable. */
+    private WeakReference<ProjectHistory> hist;
+
+    private File cacheDir;
+
+    private Map<String, VersionSnapshot> recent;
+
+
+    private ProjectHistoryCache(ProjectHistory hist) {
+        this.hist = new WeakReference<ProjectHistory>(hist);
+        this.recent = new LinkedHashMap<String, VersionSnapshot>(16, 0.75f,
+                true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, VersionSnapshot> eldest) {
+                return size() > MAX_RECENT_SNAPSHOTS;
+            }
+        };
+    }
+
+    /** Return the cache for a particular project history */
+    public static ProjectHistoryCache get(ProjectHistory hist) {
+        synchronized (CACHES) {
+            ProjectHistoryCache result = CACHES.get(hist);
+            if (result == null) {
+                result = new ProjectHistoryCache(hist);
+                CACHES.put(hist, result);
+            }
+            return result;
+        }
+    }
+
+    /** Return the default cache directory for a project data location */
+    public static File getDefaultCacheDirectory(String location) {
+        return new File(getDefaultCacheParent(), FileUtils
+                .makeSafeIdentifier(location));
+    }
+
+    private static File getDefaultCacheParent() {
+        File appDir = DirectoryPreferences.getApplicationDirectory(true);
+        return new File(appDir, "wbsHistory");
+    }
+
+    /**
+     * Delete snapshots in the default cache directories that have not been
+     * used for a given number of days.  The directories of locations that
+     * have not been used for that long are deleted entirely.  The cleanup
+     * is only performed once per session.
+     */
+    public static void pruneDefaultCacheDirectories(int maxAgeDays) {
+        synchronized (CACHES) {
+            if (defaultCachesPruned)
+                return;
+            defaultCachesPruned = true;
+        }
+        pruneCacheDirectories(getDefaultCacheParent(), maxAgeDays);
+    }
+
+    static void pruneCacheDirectories(File cacheParent, int maxAgeDays) {
+        File[] locationDirs = cacheParent.listFiles();
+        if (locationDirs == null)
+            return;
+
+        long cutoff = System.currentTimeMillis() - maxAgeDays * DAY_MILLIS;
+        for (File dir : locationDirs) {
+            if (!dir.isDirectory())
+                continue;
+            else if (dir.lastModified() >= cutoff)
+                pruneSnapshots(dir, cutoff);
+            else {
+                try {
+                    FileUtils.deleteDirectory(dir, true);
+                } catch (IOException ioe) {
+                    // the cache is an optimization; failure to clean it up
+                    // is harmless
+                }
+            }
+        }
+    }
+
+    private static void pruneSnapshots(File dir, long cutoff) {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        for (File f : files) {
+            if (f.getName().endsWith(SNAPSHOT_SUFFIX)
+                    && f.lastModified() < cutoff)
+                f.delete();
+        }
+    }
+
+    /** Set the directory where snapshots should be persisted.  If this is
+     * null, snapshots will only be cached in memory. */
+    public synchronized void setCacheDirectory(File dir) {
+        this.cacheDir = dir;
+        // record that this location is still in use
+        if (dir != null && dir.isDirectory())
+            dir.setLastModified(System.currentTimeMillis());
+    }
+
+    public synchronized File getCacheDirectory() {
+        return cacheDir;
+    }
+
+
+    /** Retrieve the snapshot for a particular version */
+    public VersionSnapshot getSnapshot(Object version) throws IOException {
+        return getResult(requestSnapshot(version, null));
+    }
+
+    /**
+     * Begin retrieving the snapshot for a particular version.
+     * 
+     * Snapshots that are already cached are returned immediately. Otherwise,
+     * the version's files are read from the project history on the calling
+     * thread (since history implementations are not thread-safe), and the
+     * work of parsing them is handed to the given executor.
+     * 
+     * @param workers
+     *            the executor to parse the files, or null to parse them on
+     *            the calling thread
+     */
+    Future<VersionSnapshot> requestSnapshot(Object version, Executor workers)
+            throws IOException {
+        final String key = getVersionKey(version);
+        VersionSnapshot result = getCachedSnapshot(key);
+        if (result != null)
+            return completed(result);
+
+        final byte[] wbsXml = readVersionFile(version, WBS_FILENAME);
+        final byte[] teamXml = readVersionFile(version, TEAM_LIST_FILENAME);
+        FutureTask<VersionSnapshot> task = new FutureTask<VersionSnapshot>(
+                new Callable<VersionSnapshot>() {
+                    public VersionSnapshot call() throws IOException {
+                        VersionSnapshot s = new VersionSnapshot(key,
+                                parseXML(wbsXml), parseXML(teamXml));
+                        storeSnapshot(s);
+                        return s;
+                    }
+                });
+        if (workers == null)
+            task.run();
+        else
+            workers.execute(task);
+        return task;
+    }
+
+    private VersionSnapshot getCachedSnapshot(String key) {
+        File file;
+        synchronized (this) {
+            VersionSnapshot result = recent.get(key);
+            if (result != null)
+                return result;
+            file = getSnapshotFile(key);
+        }
+
+        if (file == null || !file.isFile())
+            return null;
+
+        try {
+            VersionSnapshot result = readSnapshot(file, key);
+            // record that this snapshot is still in use
+            file.setLastModified(System.currentTimeMillis());
+            synchronized (this) {
+                recent.put(key, result);
+            }
+            return result;
+        } catch (IOException ioe) {
+            // an unreadable snapshot will be rebuilt from the original files
+            file.delete();
+            return null;
+        }
+    }
+
+    private void storeSnapshot(VersionSnapshot s) {
+        File file;
+        synchronized (this) {
+            recent.put(s.key, s);
+            file = getSnapshotFile(s.key);
+        }
+
+        // only persist versions where all the files were found. A missing
+        // file might only be missing temporarily (for example, if a server
+        // could not be reached).
+        if (file != null && s.wbsNodes != null && s.teamMembers != null) {
+            try {
+                writeSnapshot(file, s);
+            } catch (IOException ioe) {
+                // the cache is an optimization; failure to write is harmless
+            }
+        }
+    }
+
+    private File getSnapshotFile(String key) {
+        if (cacheDir == null)
+            return null;
+        else
+            return new File(cacheDir, FileUtils.makeSafeIdentifier(key)
+                    + SNAPSHOT_SUFFIX);
+    }
+
+    private byte[] readVersionFile(Object version, String filename)
+            throws IOException {
+        ProjectHistory h = hist.get();
+        if (h == null)
+            throw new IOException("Project history is no longer available");
+        InputStream in;
+        try {
+            in = h.getVersionFile(version, filename);
+        } catch (FileNotFoundException fnfe) {
+            in = null;
+        }
+        return (in == null ? null : FileUtils.slurpContents(in, true));
+    }
+
+    private static Element parseXML(byte[] xml) throws IOException {
+        if (xml == null)
+            return null;
+        try {
+            return XMLUtils.parse(new ByteArrayInputStream(xml))
+                    .getDocumentElement();
+        } catch (SAXException se) {
+            throw new IOException(se);
+        }
+    }
+
+    private static String getVersionKey(Object version) {
+        if (version instanceof ChangeHistory.Entry)
+            return ((ChangeHistory.Entry) version).getUid();
+        else
+            return String.valueOf(version);
+    }
+
+    static <T> Future<T> completed(final T value) {
+        FutureTask<T> result = new FutureTask<T>(new Callable<T>() {
+            public T call() {
+                return value;
+            }
+        });
+        result.run();
+        return result;
+    }
+
+    /** Wait for a result, unwrapping any IOException it encountered */
+    static <T> T getResult(Future<T> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException ie) {
+            throw new IOException(ie);
+        } catch (ExecutionException ee) {
+            Throwable t = ee.getCause();
+            if (t instanceof IOException)
+                throw (IOException) t;
+            else if (t instanceof RuntimeException)
+                throw (RuntimeException) t;
+            else if (t instanceof Error)
+                throw (Error) t;
+            else
+                throw new IOException(t);
+        }
+    }
+
+
+
+    /** The parsed WBS and team list from one historical version */
+    public static class VersionSnapshot {
+
+        private String key;
+
+        private NodeData[] wbsNodes;
+
+        private String[][] teamMembers;
+
+        private VersionSnapshot(String key, Element wbsXml, Element teamXml) {
+            this.key = key;
+
+            if (wbsXml != null) {
+                List<WBSNode> nodes = new WBSModel(wbsXml).getWbsNodes();
+                wbsNodes = new NodeData[nodes.size()];
+                for (int i = 0; i < wbsNodes.length; i++)
+                    wbsNodes[i] = new NodeData(nodes.get(i));
+            }
+
+            if (teamXml != null) {
+                NodeList indivNodes = teamXml
+                        .getElementsByTagName(TeamMember.TAG_NAME);
+                teamMembers = new String[indivNodes.getLength()][];
+                for (int i = 0; i < teamMembers.length; i++) {
+                    Element indiv = (Element) indivNodes.item(i);
+                    teamMembers[i] = new String[] {
+                            indiv.getAttribute(TeamMember.ID_ATTR),
+                            indiv.getAttribute(TeamMember.INITIALS_ATTR),
+                            indiv.getAttribute(TeamMember.NAME_ATTR) };
+                }
+            }
+        }
+
+        private VersionSnapshot(String key, DataInput in) throws IOException {
+            this.key = key;
+            wbsNodes = new NodeData[in.readInt()];
+            for (int i = 0; i < wbsNodes.length; i++)
+                wbsNodes[i] = new NodeData(in);
+            teamMembers = new String[in.readInt()][];
+            for (int i = 0; i < teamMembers.length; i++)
+                teamMembers[i] = new String[] { readString(in),
+                        readString(in), readString(in) };
+        }
+
+        private void write(DataOutput out) throws IOException {
+            out.writeInt(wbsNodes.length);
+            for (NodeData node : wbsNodes)
+                node.write(out);
+            out.writeInt(teamMembers.length);
+            for (String[] member : teamMembers)
+                for (String s : member)
+                    writeString(out, s);
+        }
+
+        /** @return true if this version included a WBS file */
+        public boolean hasWbs() {
+            return wbsNodes != null;
+        }
+
+        /** Build a new WBSModel containing the nodes in this snapshot. Each
+         * call returns an independent model. */
+        public WBSModel createWbsModel() {
+            List<WBSNode> nodes = new ArrayList<WBSNode>(wbsNodes.length);
+            for (NodeData node : wbsNodes)
+                nodes.add(node.createNode());
+            return new WBSModel(nodes);
+        }
+
+        /** @return true if this version included a team list file */
+        public boolean hasTeam() {
+            return teamMembers != null;
+        }
+
+        /** @return the ID, initials, and name of each team member */
+        public String[][] getTeamMembers() {
+            return teamMembers;
+        }
+
+    }
+
+
+    private static class NodeData {
+
+        private String name, type;
+
+        private int id, indentLevel;
+
+        private boolean expanded, readOnly;
+
+        /** alternating attribute names and values */
+        private String[] attrs;
+
+        NodeData(WBSNode node) {
+            name = node.getName();
+            type = node.getType();
+            id = node.getUniqueID();
+            indentLevel = node.getIndentLevel();
+            expanded = node.isExpanded();
+            readOnly = node.isReadOnly();
+
+            Map<String, Object> attrMap = node.getAttributeMap(true, false);
+            attrs = new String[attrMap.size() * 2];
+            int pos = 0;
+            for (Map.Entry<String, Object> e : attrMap.entrySet()) {
+                attrs[pos++] = e.getKey();
+                attrs[pos++] = e.getValue().toString();
+            }
+        }
+
+        NodeData(DataInput in) throws IOException {
+            name = readString(in);
+            type = readString(in);
+            id = in.readInt();
+            indentLevel = in.readInt();
+            expanded = in.readBoolean();
+            readOnly = in.readBoolean();
+            attrs = new String[in.readInt() * 2];
+            for (int i = 0; i < attrs.length; i += 2) {
+                attrs[i] = readString(in).intern();
+                attrs[i + 1] = readString(in);
+            }
+        }
+
+        void write(DataOutput out) throws IOException {
+            writeString(out, name);
+            writeString(out, type);
+            out.writeInt(id);
+            out.writeInt(indentLevel);
+            out.writeBoolean(expanded);
+            out.writeBoolean(readOnly);
+            out.writeInt(attrs.length / 2);
+            for (String s : attrs)
+                writeString(out, s);
+        }
+
+        WBSNode createNode() {
+            WBSNode result = new WBSNode(null, name, type, indentLevel,
+                    expanded);
+            result.setUniqueID(id);
+            result.setReadOnly(readOnly);
+            for (int i = 0; i < attrs.length; i += 2)
+                result.setAttribute(attrs[i], attrs[i + 1]);
+            return result;
+        }
+
+    }
+
+
+
+    private static VersionSnapshot readSnapshot(File file, String key)
+            throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file))));
+        try {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION
+                    || !key.equals(readString(in)))
+                throw new IOException("Unrecognized snapshot file " + file);
+            return new VersionSnapshot(key, in);
+        } finally {
+            FileUtils.safelyClose(in);
+        }
+    }
+
+    private static void writeSnapshot(File file, VersionSnapshot s)
+            throws IOException {
+        RobustFileOutputStream rout = new RobustFileOutputStream(file);
+        try {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new GZIPOutputStream(rout)));
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            writeString(out, s.key);
+            s.write(out);
+            out.close();
+        } catch (IOException ioe) {
+            rout.abort();
+            throw ioe;
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int len = in.readInt();
+        if (len < 0)
+            return null;
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static void writeString(DataOutput out, String s)
+            throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            // writeUTF can't be used, since note attributes can exceed 64K
+            byte[] bytes = s.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+
+    private static final Map<ProjectHistory, ProjectHistoryCache> CACHES = //
+            new WeakHashMap<ProjectHistory, ProjectHistoryCache>();
+
+    private static boolean defaultCachesPruned = false;
+
+    private static final int MAX_RECENT_SNAPSHOTS = 32;
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private static final int FILE_MAGIC = 0x57425348;
+
+    private static final int FILE_VERSION = 1;
+
+    private static final String SNAPSHOT_SUFFIX = ".wbsSnap";
+
+}
@@ -0,0 +1,269 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package teamdash.hist;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import net.sourceforge.processdash.util.FileUtils;
+import net.sourceforge.processdash.util.TempFileFactory;
+import net.sourceforge.processdash.util.XMLUtils;
+
+import teamdash.hist.ProjectHistoryCache.VersionSnapshot;
+import teamdash.wbs.WBSFilenameConstants;
+import teamdash.wbs.WBSModel;
+import teamdash.wbs.WBSNode;
+
+public class ProjectHistoryCacheTest extends TestCase {
+
+    private File cacheDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        cacheDir = TempFileFactory.get().createTempDirectory("wbsHistTest",
+            ".tmp");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectory(cacheDir, true);
+        System.getProperties().remove(THREADS_PROPERTY);
+    }
+
+
+    public void testSnapshotMatchesXml() throws Exception {
+        FakeHistory hist = new FakeHistory(20);
+        ProjectHistoryCache cache = ProjectHistoryCache.get(hist);
+        for (String version : hist.getVersions()) {
+            WBSModel expected = new WBSModel(XMLUtils.parse(
+                hist.getVersionFile(version, WBSFilenameConstants.WBS_FILENAME))
+                    .getDocumentElement());
+            VersionSnapshot snap = cache.getSnapshot(version);
+            assertTrue(snap.createWbsModel().isEqualTo(expected));
+            assertEquals(2, snap.getTeamMembers().length);
+        }
+    }
+
+    public void testSnapshotsPersist() throws Exception {
+        FakeHistory hist = new FakeHistory(20);
+        ProjectHistoryCache.get(hist).setCacheDirectory(cacheDir);
+        List<WBSModel> expected = new ArrayList<WBSModel>();
+        for (String version : hist.getVersions())
+            expected.add(ProjectHistoryCache.get(hist).getSnapshot(version)
+                    .createWbsModel());
+        int reads = hist.fileReads;
+
+        // a new session should read every snapshot from the cache directory
+        FakeHistory hist2 = new FakeHistory(20);
+        ProjectHistoryCache.get(hist2).setCacheDirectory(cacheDir);
+        for (int i = 0; i < expected.size(); i++) {
+            String version = hist2.getVersions().get(i);
+            VersionSnapshot snap = ProjectHistoryCache.get(hist2).getSnapshot(
+                version);
+            assertTrue(snap.createWbsModel().isEqualTo(expected.get(i)));
+        }
+        assertEquals(40, reads);
+        assertEquals(0, hist2.fileReads);
+    }
+
+    public void testMissingFilesAreNotPersisted() throws Exception {
+        FakeHistory hist = new FakeHistory(5);
+        hist.missingVersion = hist.getVersions().get(3);
+        ProjectHistoryCache.get(hist).setCacheDirectory(cacheDir);
+        assertFalse(ProjectHistoryCache.get(hist).getSnapshot(
+            hist.missingVersion).hasWbs());
+        assertEquals(0, cacheDir.list().length);
+    }
+
+    public void testCacheIsReleasedWithHistory() throws Exception {
+        FakeHistory hist = new FakeHistory(5);
+        ProjectHistoryCache cache = ProjectHistoryCache.get(hist);
+        cache.getSnapshot(hist.getVersions().get(0));
+        WeakReference<ProjectHistoryCache> ref =
+            new WeakReference<ProjectHistoryCache>(cache);
+        hist = null;
+        cache = null;
+
+        // the map drops collected histories the next time it is used
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+            ProjectHistoryCache.get(new FakeHistory(1));
+        }
+        assertNull(ref.get());
+    }
+
+    public void testParallelChangesMatchSequential() throws Exception {
+        System.setProperty(THREADS_PROPERTY, "1");
+        List<String> expected = describe(ProjectChangeListFactory.getChanges(
+            new FakeHistory(60), null, 0, false, true));
+        assertFalse(expected.isEmpty());
+
+        System.setProperty(THREADS_PROPERTY, "4");
+        FakeHistory hist = new FakeHistory(60);
+        ProjectHistoryCache.get(hist).setCacheDirectory(cacheDir);
+        assertEquals(expected, describe(ProjectChangeListFactory.getChanges(
+            hist, null, 0, false, true)));
+
+        // run again, reading snapshots from the disk cache
+        hist = new FakeHistory(60);
+        ProjectHistoryCache.get(hist).setCacheDirectory(cacheDir);
+        assertEquals(expected, describe(ProjectChangeListFactory.getChanges(
+            hist, null, 0, false, true)));
+        assertEquals(0, hist.fileReads);
+    }
+
+    public void testLimitedChangeList() throws Exception {
+        System.setProperty(THREADS_PROPERTY, "4");
+        FakeHistory hist = new FakeHistory(60);
+        ProjectChangeList changes = ProjectChangeListFactory.getChanges(hist,
+            null, 5, false, false);
+        assertTrue(changes.size() >= 5);
+        assertNotNull(changes.getFollowupTimestamp());
+    }
+
+    public void testMissingVersionEndsChangeList() throws Exception {
+        FakeHistory hist = new FakeHistory(30);
+        hist.missingVersion = hist.getVersions().get(20);
+        ProjectChangeList changes = ProjectChangeListFactory.getChanges(hist,
+            null, 0, false, false);
+        for (ProjectChange change : changes)
+            assertTrue(change.getTimestamp().after(
+                hist.getVersionDate(hist.missingVersion)));
+    }
+
+    private List<String> describe(List<ProjectChange> changes) {
+        List<String> result = new ArrayList<String>();
+        for (ProjectChange change : changes)
+            result.add(change.getAuthor() + " " + change.getTimestamp() + " "
+                    + change.getDescription());
+        return result;
+    }
+
+
+    /** A project history whose versions are generated by random edits */
+    private static class FakeHistory implements ProjectHistory<String> {
+
+        private List<String> versions = new ArrayList<String>();
+
+        private Map<String, String> wbsXml = new HashMap<String, String>();
+
+        String missingVersion;
+
+        int fileReads;
+
+        FakeHistory(int numVersions) throws IOException {
+            Random r = new Random(7);
+            WBSModel wbs = new WBSModel("Project", false);
+            wbs.getRoot().setUniqueID(1000);
+            for (int v = 0; v < numVersions; v++) {
+                editWbs(wbs, r);
+                StringWriter out = new StringWriter();
+                wbs.getAsXML(out);
+                String version = "v" + v;
+                versions.add(version);
+                wbsXml.put(version, out.toString());
+            }
+        }
+
+        private void editWbs(WBSModel wbs, Random r) {
+            WBSNode[] nodes = wbs.getDescendants(wbs.getRoot());
+            int action = (nodes.length < 5 ? 0 : r.nextInt(4));
+            if (action == 0) {
+                int indent = (nodes.length == 0 ? 1 : 1 + r.nextInt(3));
+                WBSNode node = new WBSNode(wbs, "Task " + r.nextInt(1000),
+                        "Task", indent, true);
+                node.setAttribute("Time (Top Down)", //
+                    Integer.toString(1 + r.nextInt(20)));
+                wbs.add(node);
+            } else if (action == 1) {
+                nodes[r.nextInt(nodes.length)].setName("Renamed "
+                        + r.nextInt(1000));
+            } else {
+                WBSNode node = nodes[r.nextInt(nodes.length)];
+                node.setAttribute("ab-Time (Top Down)", //
+                    Integer.toString(r.nextInt(20)));
+            }
+        }
+
+        public void refresh() {}
+
+        public List<String> getVersions() {
+            return versions;
+        }
+
+        public Date getVersionDate(String version) {
+            int v = Integer.parseInt(version.substring(1));
+            return new Date(BASE_TIME + v * 3600000L);
+        }
+
+        public String getVersionAuthor(String version) {
+            return (version.hashCode() % 3 == 0 ? "Alice" : "Bob");
+        }
+
+        public InputStream getVersionFile(String version, String filename)
+                throws IOException {
+            fileReads++;
+            String result;
+            if (version.equals(missingVersion))
+                return null;
+            else if (WBSFilenameConstants.WBS_FILENAME.equals(filename))
+                result = wbsXml.get(version);
+            else if (WBSFilenameConstants.TEAM_LIST_FILENAME.equals(filename))
+                result = TEAM_XML;
+            else
+                return null;
+            return new ByteArrayInputStream(result.getBytes("UTF-8"));
+        }
+
+        public ProjectHistoryException wrapException(Throwable e) {
+            return new ProjectHistoryException(e, "Dir.Cannot_Read_HTML_FMT",
+                    "test");
+        }
+
+    }
+
+    private static final String THREADS_PROPERTY = ProjectDiffQueue.class
+            .getName() + ".threads";
+
+    private static final long BASE_TIME = 1700000000000L;
+
+    private static final String TEAM_XML = "<teamList>"
+            + "<teamMember tmid='1' initials='ab' name='Alice'/>"
+            + "<teamMember tmid='2' initials='cd' name='Bob'/>"
+            + "</teamList>";
+
+}
@@ -54,17 +54,34 @@ public class ProjectHistoryFactory {
             oneLocation = ExternalLocationMapper.getInstance().remapFilename(
                 oneLocation);
 
+            ProjectHistory result;
             if (oneLocation.startsWith("http"))
-                return getProjectHistoryForUrl(oneLocation);
+                result = getProjectHistoryForUrl(oneLocation);
             else if (oneLocation.endsWith(".zip"))
-                return getProjectHistoryForFile(oneLocation);
+                result = getProjectHistoryForFile(oneLocation);
             else
-                return getProjectHistoryForDir(oneLocation);
+                result = getProjectHistoryForDir(oneLocation);
+            configureCache(result, oneLocation);
+            return result;
         }
 
         return null;
     }
 
+    private static void configureCache(ProjectHistory hist, String location) {
+        if (getBool("wbsChangeHistory.diskCache", true)) {
+            try {
+                ProjectHistoryCache.pruneDefaultCacheDirectories(getInt(
+                    "wbsChangeHistory.diskCacheDays", 30));
+                ProjectHistoryCache.get(hist).setCacheDirectory(
+                    ProjectHistoryCache.getDefaultCacheDirectory(location));
+            } catch (Throwable t) {
+                // if no cache directory can be determined, history snapshots
+                // will only be cached in memory
+            }
+        }
+    }
+
     private static ProjectHistory getProjectHistoryForUrl(String url)
             throws ProjectHistoryException {
         URL serverUrl = TeamServerSelector.resolveServerURL(url);
@@ -124,4 +141,12 @@ public class ProjectHistoryFactory {
         }
     }
 
+    private static int getInt(String name, int defaultValue) {
+        try {
+            return Settings.getInt(name, defaultValue);
+        } catch (Throwable t) {
+            return defaultValue;
+        }
+    }
+
 }
@@ -0,0 +1,114 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Team Functionality Add-ons for the Process Dashboard
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package teamdash.merge;
+
+/**
+ * Measures the time needed to merge changes to a large tree with wide
+ * sibling lists.  Each branch reorders, inserts, and deletes thousands of
+ * children under a handful of parents, which is the case where scanning
+ * change lists for every insertion would make the merge quadratic.
+ *
+ * Usage: TreeMergeBenchmark [numGroups] [width]
+ */
+public class TreeMergeBenchmark {
+
+    public static void main(String[] args) {
+        int numGroups = (args.length > 0 ? Integer.parseInt(args[0]) : 10);
+        int width = (args.length > 1 ? Integer.parseInt(args[1]) : 2000);
+        System.out.println((numGroups * (width + 1) + 1) + " nodes, "
+                + width + " children per group");
+
+        // the first pass warms up the JIT, and is not meaningful
+        for (int pass = 0; pass < 4; pass++) {
+            TreeNode<String, String> base = buildBase(numGroups, width);
+            TreeNode<String, String> main = base.copyTree();
+            TreeNode<String, String> incoming = base.copyTree();
+            editIncoming(incoming, width);
+            editMain(main, width);
+
+            long start = System.nanoTime();
+            TreeMerger<String, String> merge = new TreeMerger<String, String>(
+                    base, main, incoming, CONTENT_HANDLER);
+            merge.run();
+            long elapsed = (System.nanoTime() - start) / 1000000;
+            System.out.println("pass " + pass + ": " + elapsed + " ms, "
+                    + merge.getMergeWarnings().size() + " warnings");
+        }
+    }
+
+    private static TreeNode<String, String> buildBase(int numGroups,
+            int width) {
+        TreeNode<String, String> base = node("R");
+        for (int g = 0; g < numGroups; g++) {
+            TreeNode<String, String> group = node("g" + g);
+            base.addChild(group);
+            for (int i = 0; i < width; i++)
+                group.addChild(node("g" + g + "_" + i));
+        }
+        return base;
+    }
+
+    /** Add a new wide list, move nodes to the front of another list,
+     * delete nodes, and reverse a list */
+    private static void editIncoming(TreeNode<String, String> incoming,
+            int width) {
+        TreeNode<String, String> newGroup = node("new");
+        incoming.addChild(newGroup);
+        for (int i = 0; i < width; i++)
+            newGroup.addChild(node("new_" + i));
+        TreeNode<String, String> g2 = incoming.findNode("g2");
+        for (int i = 0; i < width / 4; i++)
+            g2.addChild(incoming.findNode("g1_" + i), i);
+        for (int i = 0; i < width; i += 2)
+            incoming.findNode("g3_" + i).delete();
+        TreeNode<String, String> g4 = incoming.findNode("g4");
+        for (int i = 0; i < width; i++)
+            g4.addChild(g4.getChildren().get(width - 1), i);
+    }
+
+    /** Interleave new nodes into another list */
+    private static void editMain(TreeNode<String, String> main, int width) {
+        TreeNode<String, String> g5 = main.findNode("g5");
+        for (int i = 0; i < width; i++)
+            g5.addChild(node("m_" + i), 2 * i);
+    }
+
+    private static TreeNode<String, String> node(String id) {
+        return new TreeNode<String, String>(id, "");
+    }
+
+    private static final ContentMerger<String, String> CONTENT_HANDLER =
+        new ContentMerger<String, String>() {
+            public boolean isEqual(String a, String b) {
+                return (a != null && a.equals(b));
+            }
+
+            public String mergeContent(TreeNode<String, String> destNode,
+                    String base, String main, String incoming,
+                    ErrorReporter<String> err) {
+                return (isEqual(base, main) ? incoming : main);
+            }
+        };
+
+}
@@ -375,6 +375,55 @@ public class TreeMergeTest extends TestCase {
     }
 
 
+    public void testLargeWideMerge() {
+        // build a 20,000 node tree with wide sibling lists
+        int numGroups = 10, width = 2000;
+        TreeNode<String, String> base = new TreeNode<String, String>("R", "");
+        for (int g = 0; g < numGroups; g++) {
+            TreeNode<String, String> group = buildNode("g" + g);
+            base.addChild(group);
+            for (int i = 0; i < width; i++)
+                group.addChild(buildNode("g" + g + "_" + i));
+        }
+        TreeNode<String, String> main = base.copyTree();
+        TreeNode<String, String> incoming = base.copyTree();
+
+        // the incoming branch adds a new wide list, moves nodes to the front
+        // of another list, deletes nodes, and reverses a list
+        TreeNode<String, String> newGroup = buildNode("new");
+        incoming.addChild(newGroup);
+        for (int i = 0; i < width; i++)
+            newGroup.addChild(buildNode("new_" + i));
+        TreeNode<String, String> g2 = incoming.findNode("g2");
+        for (int i = 0; i < width / 4; i++)
+            g2.addChild(incoming.findNode("g1_" + i), i);
+        for (int i = 0; i < width; i += 2)
+            incoming.findNode("g3_" + i).delete();
+        TreeNode<String, String> g4 = incoming.findNode("g4");
+        for (int i = 0; i < width; i++)
+            g4.addChild(g4.getChildren().get(width - 1), i);
+
+        // the main branch interleaves new nodes into another list
+        TreeNode<String, String> g5 = main.findNode("g5");
+        for (int i = 0; i < width; i++)
+            g5.addChild(buildNode("m_" + i), 2 * i);
+
+        // TreeMergeBenchmark measures the time taken by a merge like this
+        TreeMerger<String, String> merge = new TreeMerger<String, String>(
+                base, main, incoming, CONTENT_HANDLER);
+        merge.run();
+
+        TreeNode<String, String> merged = merge.getMergedTree();
+        assertTrue(merge.getMergeWarnings().isEmpty());
+        assertEquals(newGroup, merged.findNode("new"));
+        assertEquals(g2, merged.findNode("g2"));
+        assertEquals(incoming.findNode("g3"), merged.findNode("g3"));
+        assertEquals(g4, merged.findNode("g4"));
+        assertEquals(g5, merged.findNode("g5"));
+        assertEquals(width * 3 / 4, merged.findNode("g1").getChildren()
+                .size());
+    }
+
     private static void assertConflictFreeMerge(String specB, String specM,
             String specI, String expected) {
         assertConflictFreeMergeImpl(specB, specM, specI, expected);
@@ -25,12 +25,16 @@ package teamdash.merge;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import teamdash.merge.MergeWarning.Severity;
 import teamdash.merge.TreeNodeChange.Type;
@@ -374,10 +378,12 @@ public class TreeMerger<ID, C> {
             List<TreeNodeChange<ID, C>> incomingChanges) {
         // get the list of the add/move/reorder changes that need to be
         // processed, and the IDs of the affected nodes.
-        List<TreeNodeChange<ID, C>> changesToProcess = new LinkedList();
+        List<TreeNodeChange<ID, C>> changesToProcess = new ArrayList();
         Set<ID> nodeIDsToProcess = new HashSet();
         extractAllAddMoveAndReorderOperations(incomingChanges,
             changesToProcess, nodeIDsToProcess);
+        ChangeScheduler scheduler = new ChangeScheduler(changesToProcess,
+                nodeIDsToProcess);
 
         // make a list of the nodes that were added or moved in the main branch
         Set<ID> mainAdditionsAndMoves = new HashSet<ID>();
@@ -386,14 +392,12 @@ public class TreeMerger<ID, C> {
 
         while (true) {
             // get the next addition, insertion, or reordering to process.
-            TreeNodeChange<ID, C> change = extractOneAddMoveOrReorderToProcess(
-                changesToProcess, nodeIDsToProcess);
+            TreeNodeChange<ID, C> change = scheduler.next();
             // if there are no more operations to handle, we can stop.
             if (change == null)
                 break;
 
             ID nodeID = change.getNodeID();
-            nodeIDsToProcess.remove(nodeID);
 
             TreeNode<ID, C> node;
             if (change.getType() == Type.Add) {
@@ -430,16 +434,17 @@ public class TreeMerger<ID, C> {
             }
 
             // Calculate the right position to insert the node, and do it
-            List<ID> predecessors = change.getNode().getPredecessorIDs();
-            int pos = getInsertionPos(targetParent, predecessors,
+            int pos = getInsertionPos(targetParent, change.getNode(),
                 mainAdditionsAndMoves);
             targetParent.addChild(node, pos);
+            if (change.getType() == Type.Add)
+                scheduler.nodeAdded(nodeID);
         }
 
         // No changes should remain in our list at this point. But if they do,
         // they will be add/move operations whose target parent is missing.
         // log appropriate conflicts.
-        for (TreeNodeChange<ID, C> change : changesToProcess)
+        for (TreeNodeChange<ID, C> change : scheduler.getRemainingChanges())
             addConflict(change.getParentID(), Conflict.DeleteParent,
                 change.getNodeID(), change.getType());
     }
@@ -459,58 +464,243 @@ public class TreeMerger<ID, C> {
     }
 
     /**
-     * Find a good/safe addition, move, or reorder to process.
-     *
-     * @param changes a list of operations to choose from
-     * @param nodesInProcessing the IDs of the nodes affected by those changes
-     * @return a change that can be safely applied without potentially
-     *     affecting any of the other "nodes in processing."
+     * Chooses the order for applying additions, moves, and reorderings.
+     * 
+     * Each time a change is requested, this returns the first change in the
+     * list that can be safely applied without potentially affecting any of
+     * the other "nodes in processing."  Rather than rescanning the list each
+     * time, the scheduler records the condition that is currently blocking
+     * each change, and reexamines the change when that condition clears.
+     * Conditions only clear over time (the merged tree gains nodes, and the
+     * set of nodes in processing shrinks), so a change that becomes ready
+     * stays ready until it is chosen.
      */
-    private TreeNodeChange<ID, C> extractOneAddMoveOrReorderToProcess(
-            List<TreeNodeChange<ID, C>> changes, Set<ID> nodesInProcessing) {
+    private class ChangeScheduler {
+
+        /** The list of operations to choose from */
+        private List<TreeNodeChange<ID, C>> changes;
+
+        /** The IDs of the nodes affected by the unprocessed changes */
+        private Set<ID> nodesInProcessing;
+
+        /** Flags indicating which changes have already been returned */
+        private boolean[] done;
+
+        /** The positions of the changes that can be applied safely */
+        private TreeSet<Integer> ready;
+
+        /** Changes that are waiting for a parent to be added to the merged
+         * tree, keyed by the ID of the parent */
+        private Map<ID, List<Integer>> waitingForParent;
+
+        /** Moves that are waiting for an ancestor to be processed, keyed by
+         * the ID of the ancestor */
+        private Map<ID, List<Integer>> waitingForAncestor;
+
+        /** Objects tracking the children of each parent in the incoming tree
+         * which are still in processing */
+        private Map<TreeNode<ID, C>, SiblingTracker> siblingTrackers;
+
+        /** The sibling trackers that contain a given node in processing */
+        private Map<ID, List<SiblingTracker>> trackersByChildID;
+
+        ChangeScheduler(List<TreeNodeChange<ID, C>> changes,
+                Set<ID> nodesInProcessing) {
+            this.changes = changes;
+            this.nodesInProcessing = nodesInProcessing;
+            this.done = new boolean[changes.size()];
+            this.ready = new TreeSet<Integer>();
+            this.waitingForParent = new HashMap<ID, List<Integer>>();
+            this.waitingForAncestor = new HashMap<ID, List<Integer>>();
+            this.siblingTrackers = new HashMap();
+            this.trackersByChildID = new HashMap<ID, List<SiblingTracker>>();
+            for (int i = 0; i < changes.size(); i++)
+                examine(i);
+        }
 
-        TreeNodeChange<ID, C> fallback = null;
+        /**
+         * Find a good/safe addition, move, or reorder to process, and remove
+         * its node from the set of nodes in processing.
+         */
+        TreeNodeChange<ID, C> next() {
+            Integer i = ready.pollFirst();
+            if (i == null)
+                i = findFallback();
+            if (i == null)
+                return null;
+
+            done[i] = true;
+            TreeNodeChange<ID, C> change = changes.get(i);
+            ID nodeID = change.getNodeID();
+            if (nodesInProcessing.remove(nodeID)) {
+                reexamine(waitingForAncestor.remove(nodeID));
+                List<SiblingTracker> trackers = trackersByChildID
+                        .remove(nodeID);
+                if (trackers != null)
+                    for (SiblingTracker t : trackers)
+                        t.advance();
+            }
+            return change;
+        }
 
-        for (Iterator i = changes.iterator(); i.hasNext();) {
-            TreeNodeChange<ID, C> change = (TreeNodeChange<ID, C>) i.next();
+        /** Record the fact that a node was added to the merged tree */
+        void nodeAdded(ID nodeID) {
+            reexamine(waitingForParent.remove(nodeID));
+        }
+
+        /** @return the changes that have not been returned by next() */
+        List<TreeNodeChange<ID, C>> getRemainingChanges() {
+            List<TreeNodeChange<ID, C>> result = new ArrayList();
+            for (int i = 0; i < changes.size(); i++)
+                if (!done[i])
+                    result.add(changes.get(i));
+            return result;
+        }
+
+        /** Determine whether a change is ready, or what it is waiting for */
+        private void examine(int i) {
+            TreeNodeChange<ID, C> change = changes.get(i);
             Type changeType = change.getType();
             if (changeType == Type.Add || changeType == Type.Move) {
                 // if we are adding or moving a node, its target parent MUST be
                 // present in the merged tree. (It might be missing if we need
-                // to add it too, and we still haven't gotten to it yet.) If
-                // the parent is missing, skip this change.
+                // to add it too, and we still haven't gotten to it yet.)
                 ID parentID = change.getParentID();
-                if (!merged.getIDMap().containsKey(parentID))
-                    continue;
+                if (!merged.getIDMap().containsKey(parentID)) {
+                    addToList(waitingForParent, parentID, i);
+                    return;
+                }
             }
 
-            if (changeType == Type.Move
-                    && ancestorsMatch(change.getNode(), nodesInProcessing)) {
+            TreeNode<ID, C> node = change.getNode();
+            if (changeType == Type.Move) {
                 // if we are moving this node, and one of its target ancestors
-                // is in the avoid list, only use it as a fallback of last
-                // resort.  This is an attempt to avoid creating transient
-                // tree cycles that will otherwise resolve themselves if the
-                // target ancestor gets moved first.
-                if (fallback == null)
-                    fallback = change;
-
-            } else if (predecessorsMatch(change.getNode(), nodesInProcessing)) {
-                // if the predecessors of this node are in the avoid list,
-                // record it as a fallback option with bad predecessors.  This
-                // is an attempt to avoid placing tasks in the wrong order.
-                fallback = change;
+                // is still in processing, wait for the ancestor to be moved
+                // first.  This avoids creating transient tree cycles.
+                ID ancestorID = getAncestorInProcessing(node);
+                if (ancestorID != null) {
+                    addToList(waitingForAncestor, ancestorID, i);
+                    return;
+                }
+            }
 
-            } else {
-                // otherwise, this node meets all of our criteria. return it.
-                i.remove();
-                return change;
+            // if the predecessors of this node are still in processing, wait
+            // for them, to avoid placing tasks in the wrong order.
+            TreeNode<ID, C> parent = node.getParent();
+            if (parent != null) {
+                SiblingTracker t = siblingTrackers.get(parent);
+                if (t == null)
+                    siblingTrackers.put(parent, t = new SiblingTracker(parent));
+                int pos = node.getPosition();
+                if (t.firstPos < pos) {
+                    t.addWaiting(pos, i);
+                    return;
+                }
+            }
+
+            ready.add(i);
+        }
+
+        private void reexamine(List<Integer> waiting) {
+            if (waiting != null)
+                for (Integer i : waiting)
+                    if (!done[i])
+                        examine(i);
+        }
+
+        private ID getAncestorInProcessing(TreeNode<ID, C> node) {
+            TreeNode<ID, C> ancestor = node.getParent();
+            while (ancestor != null && ancestor != node) {
+                if (nodesInProcessing.contains(ancestor.getID()))
+                    return ancestor.getID();
+                ancestor = ancestor.getParent();
             }
+            return null;
         }
 
-        // we didn't find a change that met our idealized goals. Return the
-        // best thing we could find.
-        changes.remove(fallback);
-        return fallback;
+        /**
+         * When no change is ready, return the best change we can find.  (This
+         * mimics a linear scan over the remaining changes, but only occurs
+         * when the changes are tangled with each other.)
+         */
+        private Integer findFallback() {
+            Integer fallback = null;
+            for (int i = 0; i < changes.size(); i++) {
+                if (done[i])
+                    continue;
+
+                TreeNodeChange<ID, C> change = changes.get(i);
+                Type changeType = change.getType();
+                if ((changeType == Type.Add || changeType == Type.Move)
+                        && !merged.getIDMap().containsKey(
+                            change.getParentID()))
+                    continue;
+
+                if (changeType == Type.Move
+                        && ancestorsMatch(change.getNode(), nodesInProcessing)) {
+                    // a move that might create a transient tree cycle is only
+                    // used as a fallback of last resort.
+                    if (fallback == null)
+                        fallback = i;
+
+                } else if (predecessorsMatch(change.getNode(),
+                    nodesInProcessing)) {
+                    // prefer the last change whose only problem is that its
+                    // predecessors are still in processing.
+                    fallback = i;
+
+                } else {
+                    return i;
+                }
+            }
+            return fallback;
+        }
+
+        /**
+         * Tracks the first child of a parent whose ID is still in processing.
+         * Since nodes only leave processing, that position only moves
+         * forward.
+         */
+        private class SiblingTracker {
+
+            private List<TreeNode<ID, C>> children;
+
+            private int firstPos;
+
+            /** Changes waiting for their predecessors, keyed by position */
+            private TreeMap<Integer, List<Integer>> waiting;
+
+            SiblingTracker(TreeNode<ID, C> parent) {
+                this.children = parent.getChildren();
+                this.waiting = new TreeMap<Integer, List<Integer>>();
+                for (TreeNode<ID, C> child : children)
+                    if (nodesInProcessing.contains(child.getID()))
+                        addToList(trackersByChildID, child.getID(), this);
+                this.firstPos = 0;
+                advance();
+            }
+
+            void addWaiting(int pos, int i) {
+                addToList(waiting, pos, i);
+            }
+
+            void advance() {
+                while (firstPos < children.size() && !nodesInProcessing
+                        .contains(children.get(firstPos).getID()))
+                    firstPos++;
+                while (!waiting.isEmpty() && waiting.firstKey() <= firstPos)
+                    reexamine(waiting.pollFirstEntry().getValue());
+            }
+
+        }
+
+    }
+
+    private static <K, V> void addToList(Map<K, List<V>> map, K key, V value) {
+        List<V> list = map.get(key);
+        if (list == null)
+            map.put(key, list = new ArrayList<V>());
+        list.add(value);
     }
 
     /** Do any of the predecessor siblings of a node appear in a set of IDs? */
@@ -536,15 +726,15 @@ public class TreeMerger<ID, C> {
      * particular parent, based on a preferred list of predecessors.
      *
      * @param parent the parent where the node will be inserted
-     * @param predecessors the preferred list of predecessors
+     * @param node a node whose predecessors should be used
      * @param skipOverNodes if the insertion position points at a node in this
      *     list, skip forward to the next position.
      */
-    private int getInsertionPos(TreeNode<ID, C> parent, List<ID> predecessors,
+    private int getInsertionPos(TreeNode<ID, C> parent, TreeNode<ID, C> node,
             Set<ID> skipOverNodes) {
         List<TreeNode<ID, C>> children = parent.getChildren();
 
-        int result = getIndexOfLastPredecessor(predecessors, children);
+        int result = getIndexOfLastPredecessor(node, parent);
 
         result = result + 1;
         while (result < children.size()) {
@@ -557,12 +747,24 @@ public class TreeMerger<ID, C> {
         return result;
     }
 
-    private int getIndexOfLastPredecessor(List<ID> predecessors,
-            List<TreeNode<ID, C>> children) {
-        for (int i = predecessors.size();  i-- > 0; ) {
-            int onePos = findPosOfChildWithID(children, predecessors.get(i));
-            if (onePos != -1)
-                return onePos;
+    /**
+     * Find the last predecessor of a node that also appears underneath a
+     * given parent in the merged tree, and return its position there.
+     */
+    private int getIndexOfLastPredecessor(TreeNode<ID, C> node,
+            TreeNode<ID, C> parent) {
+        TreeNode<ID, C> nodeParent = node.getParent();
+        if (nodeParent == null)
+            return -1;
+
+        // look up each predecessor in the merged tree's ID map, rather than
+        // scanning the child list for each one
+        List<TreeNode<ID, C>> predecessors = nodeParent.getChildren();
+        for (int i = node.getPosition();  i-- > 0; ) {
+            ID predID = predecessors.get(i).getID();
+            TreeNode<ID, C> onePred = merged.findNode(predID);
+            if (onePred != null && onePred.getParent() == parent)
+                return parent.getChildren().lastIndexOf(onePred);
         }
         return -1;
     }
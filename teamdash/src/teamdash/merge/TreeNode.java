@@ -41,6 +41,11 @@ public class TreeNode<ID, Content> {
 
     private List<TreeNode<ID, Content>> childrenReadOnly;
 
+    /** A number that changes whenever children are inserted into the middle
+     * of our child list, or removed from it.  Cached information about the
+     * positions of our children is only valid for a single version. */
+    private int childListVersion;
+
     public TreeNode(ID id, Content content) {
         this.id = id;
         this.content = content;
@@ -119,7 +124,8 @@ public class TreeNode<ID, Content> {
             child.parent = null;
             // null out the cached predecessor information
             child.predecessors = null;
-            clearCachedPredecessorInfoForChildren(pos);
+            child.positionVersion = -1;
+            childListVersion++;
 
             // fix the ID map for this tree, if necessary
             if (adjustIDMap) {
@@ -178,11 +184,15 @@ public class TreeNode<ID, Content> {
 
         child.parent = this;
         child.predecessors = null;
-        if (pos == -1) {
+        if (pos == -1 || pos == children.size()) {
+            // appending a child doesn't disturb the positions of its siblings
             children.add(child);
+            child.position = children.size() - 1;
+            child.positionVersion = childListVersion;
         } else {
             children.add(pos, child);
-            clearCachedPredecessorInfoForChildren(pos+1);
+            child.positionVersion = -1;
+            childListVersion++;
         }
 
         // fix the ID map for this tree, if necessary
@@ -242,38 +252,60 @@ public class TreeNode<ID, Content> {
     }
 
 
+    /**
+     * @return the position of this node within the child list of its parent,
+     *     or -1 if this is the root of the tree
+     */
+    public int getPosition() {
+        if (parent == null)
+            return -1;
+        if (positionVersion != parent.childListVersion)
+            parent.recalcChildPositions();
+        return position;
+    }
+
+    private int position = -1;
+
+    private int positionVersion = -1;
+
+    private void recalcChildPositions() {
+        for (int i = 0; i < children.size(); i++) {
+            TreeNode<ID, Content> child = children.get(i);
+            child.position = i;
+            child.positionVersion = childListVersion;
+        }
+    }
+
+
     /**
      * @return the IDs of the siblings that precede this node, in the order
      * they appear in the tree
      */
     public List<ID> getPredecessorIDs() {
-        if (predecessors == null)
+        int version = (parent == null ? 0 : parent.childListVersion);
+        if (predecessors == null || predecessorsVersion != version) {
             predecessors = calcPredecessorIDs();
+            predecessorsVersion = version;
+        }
         return predecessors;
     }
 
     private List<ID> predecessors = null;
 
+    private int predecessorsVersion;
+
     private List<ID> calcPredecessorIDs() {
         TreeNode<ID, Content> parent = getParent();
         if (parent == null)
             return Collections.EMPTY_LIST;
 
-        List<ID> result = new ArrayList();
-        for (TreeNode<ID, Content> child : parent.getChildren()) {
-            if (child == this)
-                break;
-            else
-                result.add(child.getID());
-        }
+        int pos = getPosition();
+        List<ID> result = new ArrayList(pos);
+        for (int i = 0; i < pos; i++)
+            result.add(parent.children.get(i).getID());
         return Collections.unmodifiableList(result);
     }
 
-    private void clearCachedPredecessorInfoForChildren(int pos) {
-        for (; pos < children.size(); pos++)
-            children.get(pos).predecessors = null;
-    }
-
 
     /**
      * Return a string representation of the node structure of this tree, for
@@ -23,19 +23,29 @@
 
 package teamdash.sync;
 
+import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.Authenticator;
 import java.net.CookieHandler;
 import java.net.CookieManager;
 import java.net.CookiePolicy;
 import java.net.PasswordAuthentication;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import net.sourceforge.processdash.tool.bridge.impl.HttpAuthenticator;
 import net.sourceforge.processdash.tool.bridge.impl.TLSConfig;
+import net.sourceforge.processdash.util.StringUtils;
 
 
 
@@ -55,6 +65,12 @@ public abstract class ExtSyncDaemon {
 
     protected ExtSystemConnection connection;
 
+    /**
+     * When several WBSes are synchronized by this daemon, a semaphore that
+     * limits the number of concurrent sync operations; otherwise null
+     */
+    protected Semaphore syncPermits;
+
 
 
     public ExtSyncDaemon(String globalConfigFilename) throws Exception {
@@ -172,18 +188,101 @@ public abstract class ExtSyncDaemon {
 
 
     public void run() throws Exception {
-        // create a data target for synchronization
-        String location = globalConfig.getProperty("wbs.location");
+        // find the WBS locations this daemon should synchronize
+        List<String> locations = getWbsLocations();
 
         try {
-            // run a loop to synchronize this WBS
-            makeWBSDaemon(location).run();
+            if (locations.size() < 2) {
+                // run a loop to synchronize a single WBS
+                String location = globalConfig.getProperty("wbs.location");
+                if (locations.size() == 1)
+                    location = locations.get(0);
+                makeWBSDaemon(location).run();
+            } else {
+                // synchronize many WBSes in parallel from this process
+                runMultiple(locations);
+            }
         } finally {
             // dispose of resources when finished
             connection.disconnect();
         }
     }
 
+    /**
+     * Find the list of WBS locations that should be synchronized by this
+     * daemon. Locations can be given by the "wbs.location" property, by a
+     * series of "wbs.location.<i>N</i>" properties, and by a file named by
+     * the "wbs.locationsFile" property that lists one location per line.
+     */
+    protected List<String> getWbsLocations() throws IOException {
+        Set<String> result = new LinkedHashSet<String>();
+        addLocation(result, globalConfig.getProperty("wbs.location"));
+
+        List<String> numbered = new ArrayList<String>();
+        for (String propName : globalConfig.stringPropertyNames())
+            if (propName.startsWith("wbs.location."))
+                numbered.add(propName);
+        Collections.sort(numbered);
+        for (String propName : numbered)
+            addLocation(result, globalConfig.getProperty(propName));
+
+        String locationsFile = globalConfig.getProperty("wbs.locationsFile");
+        if (StringUtils.hasValue(locationsFile)) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(locationsFile), "UTF-8"));
+            try {
+                String line;
+                while ((line = in.readLine()) != null)
+                    if (!line.trim().startsWith("#"))
+                        addLocation(result, line);
+            } finally {
+                in.close();
+            }
+        }
+
+        return new ArrayList<String>(result);
+    }
+
+    private void addLocation(Set<String> locations, String location) {
+        if (location != null && location.trim().length() > 0)
+            locations.add(location.trim());
+    }
+
+    /**
+     * Synchronize several WBSes from this process. Each WBS runs its sync
+     * loop in a separate thread; since those threads spend nearly all of
+     * their time sleeping, they are cheap. A shared semaphore bounds the
+     * number of sync operations that can be in progress at one time, so the
+     * external system and the connection pool are not overwhelmed.
+     */
+    protected void runMultiple(List<String> locations) throws Exception {
+        int maxConcurrent = Math.max(1, Integer.parseInt(globalConfig
+                .getProperty("daemon.maxConcurrentSyncs", "4")));
+        syncPermits = new Semaphore(maxConcurrent, true);
+        log.info("Synchronizing " + locations.size() + " projects, with up to "
+                + maxConcurrent + " concurrent sync operations");
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < locations.size(); i++) {
+            final String location = locations.get(i);
+            Thread t = new Thread("ExtSyncDaemon-" + (i + 1)) {
+                public void run() {
+                    try {
+                        makeWBSDaemon(location).run();
+                    } catch (Throwable e) {
+                        log.log(Level.SEVERE, "Sync daemon for '" + location
+                                + "' exited unexpectedly", e);
+                    }
+                }
+            };
+            threads.add(t);
+            t.start();
+        }
+
+        for (Thread t : threads)
+            t.join();
+    }
+
     protected ExtSyncDaemonWBS makeWBSDaemon(String wbsLocation) {
         return new ExtSyncDaemonWBS(this, wbsLocation);
     }
@@ -29,6 +29,7 @@ import static teamdash.sync.ExtSyncCoordinator.NO_EXT_CHANGES;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.util.Properties;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,6 +55,8 @@ public class ExtSyncDaemonWBS {
 
     protected String wbsLocation;
 
+    protected Semaphore syncPermits;
+
     private TeamProjectDataTarget dataTarget;
 
     private DaemonMetadata daemonMetadata;
@@ -67,6 +70,7 @@ public class ExtSyncDaemonWBS {
         this.systemName = parent.systemName;
         this.systemID = parent.systemID;
         this.connection = parent.connection;
+        this.syncPermits = parent.syncPermits;
         this.wbsLocation = wbsLocation;
     }
 
@@ -127,7 +131,7 @@ public class ExtSyncDaemonWBS {
 
             try {
                 // perform the synchronization operation
-                coord.run(nodeSet);
+                runSync(coord, nodeSet);
 
                 // record successful completion of sync operation
                 if (errCount > 0)
@@ -177,6 +181,20 @@ public class ExtSyncDaemonWBS {
         } while (loopDelay >= 0);
     }
 
+    private void runSync(ExtSyncCoordinator coord, ExtNodeSet nodeSet)
+            throws IOException {
+        // if other WBSes are syncing in this process, wait for our turn
+        if (syncPermits != null)
+            syncPermits.acquireUninterruptibly();
+
+        try {
+            coord.run(nodeSet);
+        } finally {
+            if (syncPermits != null)
+                syncPermits.release();
+        }
+    }
+
     private Element getConfigXml() throws IOException {
         // find the configuration file in the WBS data directory
         dataTarget.update();
@@ -25,8 +25,14 @@ package teamdash.sync.db;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -39,6 +45,14 @@ import teamdash.sync.ExtSyncUtil;
 import teamdash.sync.ExtSystemConnection;
 import teamdash.sync.SyncDataFile;
 
+/**
+ * Connects to an external database.
+ * 
+ * A single instance of this class can be shared by the node sets for many
+ * projects. Connections are drawn from a bounded pool, and each pooled
+ * connection keeps a cache of the prepared statements that have been
+ * executed against it.
+ */
 public class SyncDatabaseConnection implements ExtSystemConnection {
 
     protected Properties config;
@@ -51,6 +65,21 @@ public class SyncDatabaseConnection implements ExtSystemConnection {
 
     protected String password;
 
+    private int maxConnections;
+
+    private int statementCacheSize;
+
+    private long idleTimeout;
+
+    private long waitTimeout;
+
+    /** idle connections, with the most recently used at the head */
+    private LinkedList<PooledConnection> idle;
+
+    private Map<Connection, PooledConnection> active;
+
+    private int openCount;
+
 
     public SyncDatabaseConnection(Properties globalConfig) {
         this.config = ExtSyncUtil.getSystemProperties(globalConfig);
@@ -64,6 +93,26 @@ public class SyncDatabaseConnection implements ExtSystemConnection {
         // remove sensitive auth information from the configuration
         this.username = (String) config.remove("username");
         this.password = (String) config.remove("password");
+
+        // read the settings for the connection pool
+        this.maxConnections = Math.max(1, getInt("pool.maxConnections", 4));
+        this.statementCacheSize = Math.max(1,
+            getInt("pool.statementCacheSize", 50));
+        this.idleTimeout = ExtSyncUtil.getParamAsMillis(config,
+            "pool.idleTimeout", 10 * 60 * 1000);
+        this.waitTimeout = ExtSyncUtil.getParamAsMillis(config,
+            "pool.waitTimeout", 60 * 1000);
+        this.idle = new LinkedList<PooledConnection>();
+        this.active = new IdentityHashMap<Connection, PooledConnection>();
+        this.openCount = 0;
+    }
+
+    private int getInt(String propName, int defaultValue) {
+        try {
+            return Integer.parseInt(config.getProperty(propName).trim());
+        } catch (Exception e) {
+            return defaultValue;
+        }
     }
 
     public ExtNodeSet getNodeSet(Element configXml, SyncDataFile syncData) {
@@ -71,12 +120,128 @@ public class SyncDatabaseConnection implements ExtSystemConnection {
                 Collections.unmodifiableMap(config), configXml, syncData);
     }
 
+    /**
+     * Check out a connection from the pool, opening a new one if none are
+     * idle. If the pool is at its maximum size, wait for another thread to
+     * release a connection. Every connection must be returned with
+     * {@link #releaseConnection(Connection)} or
+     * {@link #discardConnection(Connection)}.
+     */
     public Connection getConnection() throws SQLException {
-        // simple implementation opens a new connection for each run
+        PooledConnection pc = checkOut();
+        if (pc == null) {
+            try {
+                pc = new PooledConnection(openConnection());
+            } catch (SQLException sqle) {
+                synchronized (this) {
+                    openCount--;
+                    notifyAll();
+                }
+                throw sqle;
+            }
+        }
+        synchronized (this) {
+            active.put(pc.conn, pc);
+        }
+        return pc.conn;
+    }
+
+    /**
+     * @return an idle connection, or null if the caller has been granted
+     *         permission to open a new connection
+     */
+    private synchronized PooledConnection checkOut() throws SQLException {
+        long deadline = System.currentTimeMillis() + waitTimeout;
+        while (true) {
+            closeExpiredConnections();
+            if (!idle.isEmpty())
+                return idle.removeFirst();
+            if (openCount < maxConnections) {
+                openCount++;
+                return null;
+            }
+
+            long wait = deadline - System.currentTimeMillis();
+            if (wait <= 0)
+                throw new SQLException("Timed out waiting for a connection");
+            try {
+                wait(wait);
+            } catch (InterruptedException ie) {
+                throw new SQLException("Interrupted while waiting for a "
+                        + "connection", ie);
+            }
+        }
+    }
+
+    /** Open a new connection to the database */
+    protected Connection openConnection() throws SQLException {
         return DriverManager.getConnection(jdbcUrl, username, password);
     }
 
+    /**
+     * Return a prepared statement for the given SQL, which the caller can
+     * bind and execute. Statements are cached with the connection that
+     * prepared them, so callers must not close the statement; they should
+     * close any result sets they obtain from it.
+     */
+    public PreparedStatement prepareStatement(Connection conn, String sql)
+            throws SQLException {
+        PooledConnection pc;
+        synchronized (this) {
+            pc = active.get(conn);
+        }
+        if (pc == null)
+            return conn.prepareStatement(sql);
+        else
+            return pc.prepareStatement(sql);
+    }
+
+    /** Return a connection to the pool for reuse */
     public void releaseConnection(Connection conn) {
+        PooledConnection pc;
+        synchronized (this) {
+            pc = active.remove(conn);
+        }
+
+        if (pc == null) {
+            closeUnpooled(conn);
+            return;
+        }
+
+        boolean reusable;
+        try {
+            reusable = !conn.isClosed();
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (reusable) {
+            pc.lastUsed = System.currentTimeMillis();
+            synchronized (this) {
+                idle.addFirst(pc);
+                notifyAll();
+            }
+        } else {
+            closeConnection(pc);
+        }
+    }
+
+    /**
+     * Close a connection that encountered an error, rather than returning it
+     * to the pool.
+     */
+    public void discardConnection(Connection conn) {
+        PooledConnection pc;
+        synchronized (this) {
+            pc = active.remove(conn);
+        }
+        if (pc == null)
+            closeUnpooled(conn);
+        else
+            closeConnection(pc);
+    }
+
+    private void closeUnpooled(Connection conn) {
         try {
             conn.close();
         } catch (SQLException e) {
@@ -84,8 +249,100 @@ public class SyncDatabaseConnection implements ExtSystemConnection {
         }
     }
 
+    private void closeConnection(PooledConnection pc) {
+        pc.close();
+        synchronized (this) {
+            openCount--;
+            notifyAll();
+        }
+    }
+
+    private synchronized void closeExpiredConnections() {
+        long cutoff = System.currentTimeMillis() - idleTimeout;
+        for (Iterator<PooledConnection> i = idle.iterator(); i.hasNext();) {
+            PooledConnection pc = i.next();
+            if (pc.lastUsed < cutoff) {
+                i.remove();
+                pc.close();
+                openCount--;
+            }
+        }
+    }
+
+    /** @return the number of connections currently open */
+    public synchronized int getOpenConnectionCount() {
+        return openCount;
+    }
+
+    /**
+     * Close all idle connections. Connections that are currently in use are
+     * unaffected, and new connections will be opened on demand.
+     */
     public void disconnect() {
-        // no-op
+        synchronized (this) {
+            for (PooledConnection pc : idle) {
+                pc.close();
+                openCount--;
+            }
+            idle.clear();
+            notifyAll();
+        }
+    }
+
+
+
+    private class PooledConnection {
+
+        private Connection conn;
+
+        private Map<String, PreparedStatement> statements;
+
+        private long lastUsed;
+
+        PooledConnection(Connection conn) {
+            this.conn = conn;
+            this.statements = new LinkedHashMap<String, PreparedStatement>(
+                    16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= statementCacheSize)
+                        return false;
+                    closeStatement(eldest.getValue());
+                    return true;
+                }
+            };
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        PreparedStatement prepareStatement(String sql) throws SQLException {
+            PreparedStatement result = statements.get(sql);
+            if (result == null) {
+                result = conn.prepareStatement(sql);
+                statements.put(sql, result);
+            } else {
+                result.clearParameters();
+            }
+            return result;
+        }
+
+        void close() {
+            for (PreparedStatement s : statements.values())
+                closeStatement(s);
+            statements.clear();
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                log.log(Level.WARNING, "Unable to close connection", e);
+            }
+        }
+
+        private void closeStatement(PreparedStatement s) {
+            try {
+                s.close();
+            } catch (SQLException e) {
+            }
+        }
     }
 
 }
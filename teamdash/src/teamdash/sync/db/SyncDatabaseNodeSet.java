@@ -34,6 +34,7 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -45,6 +46,7 @@ import java.util.regex.Pattern;
 
 import org.w3c.dom.Element;
 
+import net.sourceforge.processdash.util.DateUtils;
 import net.sourceforge.processdash.util.HTMLUtils;
 import net.sourceforge.processdash.util.InterpolatingProperties;
 
@@ -71,7 +73,7 @@ public class SyncDatabaseNodeSet implements ExtNodeSet, ExtNodeSet.WithConfig,
 
     private ExtSyncConfigProblem configProblem;
 
-    private NamedParamQuery baseQuery, itemQuery;
+    private NamedParamQuery baseQuery, itemQuery, changedQuery;
 
     private String itemIdColumnType;
 
@@ -79,7 +81,18 @@ public class SyncDatabaseNodeSet implements ExtNodeSet, ExtNodeSet.WithConfig,
             itemTypeFmt, itemTypeIdFmt, itemOwnerFmt, itemUrlFmt,
             itemUrlTextFmt;
 
-    private int itemIdIdx, estHoursIdx, remHoursIdx, actualHoursIdx;
+    private int itemIdIdx, estHoursIdx, remHoursIdx, actualHoursIdx,
+            watermarkIdx;
+
+    private long fullQueryInterval;
+
+    /** the nodes returned by the most recent base and changed queries */
+    private Map<String, DatabaseNode> baseNodes;
+
+    /** the largest watermark value seen in the base query results */
+    private Object watermark;
+
+    private long nextFullQueryTime;
 
     private Map<String, ExtNodeTypeMetadata> extNodeTypes;
 
@@ -112,6 +125,21 @@ public class SyncDatabaseNodeSet implements ExtNodeSet, ExtNodeSet.WithConfig,
                     + "'idColumnName in (:keys)' clause.");
         this.itemIdColumnType = getProperty("itemIdType");
 
+        // if an incremental query was provided, read its settings
+        if (getProperty("changedQuery") != null) {
+            this.changedQuery = new NamedParamQuery("changedQuery");
+            if (!changedQuery.parameters.contains(NamedParamQuery.WATERMARK))
+                throw new ExtSyncConfigProblem("Expected changedQuery to "
+                        + "contain a ':watermark' parameter.");
+            this.watermarkIdx = getIndex("watermarkIdx");
+            if (watermarkIdx < 1)
+                throw new ExtSyncConfigProblem("A 'watermarkIdx' must be "
+                        + "provided when a changedQuery is in use.");
+            this.fullQueryInterval = ExtSyncUtil.getParamAsMillis(properties,
+                "fullQueryInterval", (int) DateUtils.DAYS);
+        }
+        this.baseNodes = new LinkedHashMap<String, DatabaseNode>();
+
         // get the templates that should be used for various node attributes
         this.itemIdIdx = getIndex("itemIdIdx");
         this.itemKeyFmt = getFormat("itemKeyFmt");
@@ -180,47 +208,114 @@ public class SyncDatabaseNodeSet implements ExtNodeSet, ExtNodeSet.WithConfig,
         List<ExtNode> result = new ArrayList<ExtNode>();
         Set<String> itemIdsNeeded = new HashSet(includingIDs);
         extNodeTypes = new TreeMap<String, ExtNodeTypeMetadata>();
+        boolean success = false;
         try {
-            getExtNodes(result, itemIdsNeeded, conn, false);
-            getExtNodes(result, itemIdsNeeded, conn, true);
+            loadBaseNodes(conn);
+            for (DatabaseNode node : baseNodes.values())
+                addNode(result, itemIdsNeeded, node);
+            getItemNodes(result, itemIdsNeeded, conn);
+            success = true;
             return result;
 
         } catch (Exception e) {
             throw new IOException("Unable to perform database query", e);
         } finally {
-            sync.releaseConnection(conn);
+            if (success) {
+                sync.releaseConnection(conn);
+            } else {
+                // discard any partial results, and start fresh next time
+                watermark = null;
+                sync.discardConnection(conn);
+            }
         }
     }
 
-    private void getExtNodes(List<ExtNode> result, Set<String> itemsNeeded,
-            Connection conn, boolean itemPass) throws SQLException {
-        // abort if we are doing the item pass but no items are needed
-        if (itemPass && itemsNeeded.isEmpty())
+    private void loadBaseNodes(Connection conn) throws SQLException {
+        // if we have a watermark from a previous query, and a full refresh is
+        // not due, only retrieve the rows that have changed since then.
+        long now = System.currentTimeMillis();
+        if (changedQuery != null && watermark != null
+                && now < nextFullQueryTime) {
+            List<Object[]> rows = executeQuery(changedQuery, conn, null);
+            log.fine("Incremental query returned " + rows.size() + " rows");
+            storeBaseNodes(rows);
             return;
+        }
+
+        // otherwise, run the base query to retrieve the full node set
+        List<Object[]> rows = executeQuery(baseQuery, conn, null);
+        baseNodes.clear();
+        watermark = null;
+        storeBaseNodes(rows);
+        nextFullQueryTime = now + fullQueryInterval;
+    }
+
+    private void storeBaseNodes(List<Object[]> rows) {
+        Object newWatermark = watermark;
+        for (Object[] rowData : rows) {
+            DatabaseNode node = new DatabaseNode(rowData);
+            baseNodes.put(node.getID(), node);
+            if (changedQuery != null)
+                newWatermark = max(newWatermark, rowData[watermarkIdx]);
+        }
+        watermark = newWatermark;
+    }
 
+    private Object max(Object a, Object b) {
+        if (a == null)
+            return b;
+        else if (b == null)
+            return a;
+        else
+            return (((Comparable) a).compareTo(b) < 0 ? b : a);
+    }
+
+    private void getItemNodes(List<ExtNode> result, Set<String> itemsNeeded,
+            Connection conn) throws SQLException {
+        // abort if no items are needed
+        if (itemsNeeded.isEmpty())
+            return;
+
+        for (Object[] rowData : executeQuery(itemQuery, conn, itemsNeeded))
+            addNode(result, itemsNeeded, new DatabaseNode(rowData));
+    }
+
+    private void addNode(List<ExtNode> result, Set<String> itemsNeeded,
+            DatabaseNode node) {
+        itemsNeeded.remove(node.getID());
+        loadExtNodeType(node);
+        result.add(node);
+    }
+
+    private List<Object[]> executeQuery(NamedParamQuery q, Connection conn,
+            Set<String> keys) throws SQLException {
         // prepare the SQL statement and bind parameters
-        NamedParamQuery q = (itemPass ? itemQuery : baseQuery);
-        PreparedStatement s = q.prepareAndBind(conn, itemsNeeded);
+        PreparedStatement s = q.prepareAndBind(conn, keys);
 
         // execute the query and retrieve a result set
         ResultSet rs = s.executeQuery();
-        int numCols = rs.getMetaData().getColumnCount();
+        try {
+            int numCols = rs.getMetaData().getColumnCount();
 
-        // retrieve the Java type of the identifier column
-        if (itemIdColumnType == null) {
-            itemIdColumnType = rs.getMetaData().getColumnClassName(itemIdIdx);
-        }
+            // retrieve the Java type of the identifier column
+            if (itemIdColumnType == null) {
+                itemIdColumnType = rs.getMetaData().getColumnClassName(
+                    itemIdIdx);
+            }
 
-        // iterate over the result set and build nodes for each row
-        while (rs.next()) {
-            // put null in position 0 so the formatters can use 1-based indexes
-            Object[] rowData = new Object[numCols + 1];
-            for (int i = 1; i <= numCols; i++)
-                rowData[i] = rs.getObject(i);
-            DatabaseNode node = new DatabaseNode(rowData);
-            itemsNeeded.remove(node.getID());
-            loadExtNodeType(node);
-            result.add(node);
+            // iterate over the result set and retrieve each row
+            List<Object[]> result = new ArrayList<Object[]>();
+            while (rs.next()) {
+                // put null in position 0 so the formatters can use 1-based
+                // indexes
+                Object[] rowData = new Object[numCols + 1];
+                for (int i = 1; i <= numCols; i++)
+                    rowData[i] = rs.getObject(i);
+                result.add(rowData);
+            }
+            return result;
+        } finally {
+            rs.close();
         }
     }
 
@@ -303,6 +398,8 @@ public class SyncDatabaseNodeSet implements ExtNodeSet, ExtNodeSet.WithConfig,
                     m.appendReplacement(sb, "?");
                     if (KEYS.equals(param))
                         keyParamPos = sb.length() - 1;
+                    else if (WATERMARK.equals(param))
+                        ; // bound from the results of earlier queries
                     else if (getProperty(param) == null)
                         throw new ExtSyncConfigProblem(
                                 "A value must be provided for the '" + param
@@ -336,8 +433,8 @@ public class SyncDatabaseNodeSet implements ExtNodeSet, ExtNodeSet.WithConfig,
                 query = sb.toString();
             }
 
-            // create a PreparedStatement for that query
-            PreparedStatement s = conn.prepareStatement(query);
+            // retrieve a PreparedStatement for that query
+            PreparedStatement s = sync.prepareStatement(conn, query);
 
             // bind all parameter values to the statement
             int i = 0;
@@ -354,6 +451,8 @@ public class SyncDatabaseNodeSet implements ExtNodeSet, ExtNodeSet.WithConfig,
                             keyType.setParam(s, i, "-1");
                         }
                     }
+                } else if (WATERMARK.equals(paramName)) {
+                    s.setObject(++i, watermark);
                 } else {
                     String paramValue = getProperty(paramName);
                     s.setString(++i, paramValue);
@@ -365,6 +464,8 @@ public class SyncDatabaseNodeSet implements ExtNodeSet, ExtNodeSet.WithConfig,
         }
 
         private static final String KEYS = "keys";
+
+        private static final String WATERMARK = "watermark";
     }
 
     private static final Pattern PARAM_PAT = Pattern
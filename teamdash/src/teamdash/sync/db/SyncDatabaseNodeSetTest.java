@@ -0,0 +1,446 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package teamdash.sync.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.w3c.dom.Element;
+
+import junit.framework.TestCase;
+
+import net.sourceforge.processdash.util.FileUtils;
+import net.sourceforge.processdash.util.TempFileFactory;
+import net.sourceforge.processdash.util.XMLUtils;
+
+import teamdash.sync.ExtNode;
+import teamdash.sync.SyncDataFile;
+
+/**
+ * Tests the database node set against an in-process fake JDBC database. The
+ * fake understands just enough SQL to run the queries configured below.
+ */
+public class SyncDatabaseNodeSetTest extends TestCase {
+
+    private static final String NO_IDS = "";
+
+    private File dataDir;
+
+    private FakeDatabase db;
+
+    private TestConnection sync;
+
+
+    @Override
+    protected void setUp() throws Exception {
+        dataDir = TempFileFactory.get().createTempDirectory("dbSyncTest",
+            ".tmp");
+        db = new FakeDatabase();
+        sync = new TestConnection(makeGlobalConfig(4));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        sync.disconnect();
+        FileUtils.deleteDirectory(dataDir, true);
+    }
+
+
+    public void testIncrementalQueryMatchesFullQuery() throws Exception {
+        db.addProject("P1", 50);
+        SyncDatabaseNodeSet nodeSet = makeNodeSet("P1");
+
+        assertNodes("P1", nodeSet.getExtNodes(ids(NO_IDS)));
+        assertEquals(50, db.rowsReturned.get());
+
+        // change two rows and add a third, then query again. Only the
+        // changed rows (and the row that set the watermark) are retrieved
+        db.rowsReturned.set(0);
+        db.update(7, "Renamed item");
+        db.update(12, "Another rename");
+        db.addRow(1000, "New item", "P1");
+        assertNodes("P1", nodeSet.getExtNodes(ids(NO_IDS)));
+        assertEquals(4, db.rowsReturned.get());
+
+        // a node set that runs the full query should see the same data
+        assertEquals(names(makeNodeSet("P1").getExtNodes(ids(NO_IDS))),
+            names(nodeSet.getExtNodes(ids(NO_IDS))));
+    }
+
+    public void testDeletionSeenOnFullRefresh() throws Exception {
+        db.addProject("P1", 10);
+        SyncDatabaseNodeSet incremental = makeNodeSet("P1");
+        SyncDatabaseNodeSet refreshing = makeNodeSet("P1",
+            "fullQueryInterval=0");
+        incremental.getExtNodes(ids(NO_IDS));
+        refreshing.getExtNodes(ids(NO_IDS));
+
+        db.delete(3);
+        assertTrue(names(incremental.getExtNodes(ids(NO_IDS)))
+                .containsKey("3"));
+        assertNodes("P1", refreshing.getExtNodes(ids(NO_IDS)));
+    }
+
+    public void testItemQuery() throws Exception {
+        db.addProject("P1", 5);
+        db.addProject("P2", 5);
+        SyncDatabaseNodeSet nodeSet = makeNodeSet("P1");
+
+        Map<String, String> names = names(nodeSet.getExtNodes(ids("3,8,9")));
+        assertEquals(7, names.size());
+        assertEquals("Item 8", names.get("8"));
+        assertEquals("Item 9", names.get("9"));
+
+        // items from the base query should not be queried again
+        db.rowsReturned.set(0);
+        names = names(nodeSet.getExtNodes(ids("4")));
+        assertEquals(5, names.size());
+        assertEquals(1, db.rowsReturned.get());
+    }
+
+    public void testFailureForcesFullQuery() throws Exception {
+        db.addProject("P1", 20);
+        SyncDatabaseNodeSet nodeSet = makeNodeSet("P1");
+        nodeSet.getExtNodes(ids(NO_IDS));
+        assertEquals(1, sync.getOpenConnectionCount());
+
+        db.failNextQuery = true;
+        try {
+            nodeSet.getExtNodes(ids(NO_IDS));
+            fail("Expected query to fail");
+        } catch (IOException ioe) {
+        }
+        assertEquals(0, sync.getOpenConnectionCount());
+        assertEquals(0, db.openConnections.get());
+
+        db.rowsReturned.set(0);
+        assertNodes("P1", nodeSet.getExtNodes(ids(NO_IDS)));
+        assertEquals(20, db.rowsReturned.get());
+    }
+
+    public void testManyProjectsSharePool() throws Exception {
+        final int numProjects = 100;
+        List<SyncDatabaseNodeSet> nodeSets = new ArrayList();
+        for (int i = 0; i < numProjects; i++) {
+            db.addProject("P" + i, 20);
+            nodeSets.add(makeNodeSet("P" + i));
+        }
+
+        ExecutorService threads = Executors.newFixedThreadPool(16);
+        try {
+            for (int pass = 0; pass < 3; pass++) {
+                // modify a few rows in some of the projects
+                for (int i = 0; i < numProjects; i += 7)
+                    db.update(i * 20 + pass + 1, "Pass " + pass);
+
+                // query all of the projects concurrently
+                List<Future<List<ExtNode>>> results = new ArrayList();
+                for (final SyncDatabaseNodeSet nodeSet : nodeSets) {
+                    results.add(threads.submit(new Callable<List<ExtNode>>() {
+                        public List<ExtNode> call() throws Exception {
+                            return nodeSet.getExtNodes(ids(NO_IDS));
+                        }}));
+                }
+                for (int i = 0; i < numProjects; i++)
+                    assertNodes("P" + i, results.get(i).get());
+            }
+        } finally {
+            threads.shutdown();
+        }
+
+        // the pool should never have exceeded its bound, and statements
+        // should have been reused across the 300 queries.
+        assertTrue(db.maxOpenConnections.get() <= 4);
+        assertTrue(db.prepareCount.get() <= 2 * 4);
+        assertTrue(db.queryCount.get() >= 300);
+    }
+
+
+    private SyncDatabaseNodeSet makeNodeSet(String project, String... props)
+            throws Exception {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<extSystem id='fakesync' name='Fake Sync'>project=")
+                .append(project).append("\n");
+        for (String p : props)
+            xml.append(p).append("\n");
+        xml.append("</extSystem>");
+        Element configXml = XMLUtils.parse(xml.toString())
+                .getDocumentElement();
+
+        File projectDir = new File(dataDir, project);
+        projectDir.mkdirs();
+        SyncDataFile syncData = new SyncDataFile(projectDir, "sync.pdash");
+        SyncDatabaseNodeSet result = (SyncDatabaseNodeSet) sync.getNodeSet(
+            configXml, syncData);
+        result.syncStarting();
+        return result;
+    }
+
+    private Properties makeGlobalConfig(int maxConnections) {
+        Properties p = new Properties();
+        p.put("systemID", "fakesync");
+        p.put("systemName", "Fake Sync");
+        p.put("fakesync.serverUrl", "jdbc:fakesync:test");
+        p.put("fakesync.pool.maxConnections", Integer.toString(maxConnections));
+        p.put("fakesync.query", "select id, name, modified from items "
+                + "where project = :project");
+        p.put("fakesync.changedQuery", "select id, name, modified from items "
+                + "where project = :project and modified >= :watermark");
+        p.put("fakesync.watermarkIdx", "3");
+        p.put("fakesync.itemQuery", "select id, name, modified from items "
+                + "where id in (:keys)");
+        return p;
+    }
+
+    private Set<String> ids(String ids) {
+        Set<String> result = new HashSet<String>();
+        for (String id : ids.split(","))
+            if (id.length() > 0)
+                result.add(id);
+        return result;
+    }
+
+    private Map<String, String> names(List<ExtNode> nodes) {
+        Map<String, String> result = new TreeMap<String, String>();
+        for (ExtNode node : nodes)
+            result.put(node.getID(), node.getSimpleName());
+        return result;
+    }
+
+    private void assertNodes(String project, List<ExtNode> nodes) {
+        assertEquals(db.getNames(project), names(nodes));
+    }
+
+
+
+    private class TestConnection extends SyncDatabaseConnection {
+
+        TestConnection(Properties globalConfig) {
+            super(globalConfig);
+        }
+
+        @Override
+        protected Connection openConnection() throws SQLException {
+            return db.openConnection();
+        }
+    }
+
+
+    /**
+     * An in-memory table of items, with the columns (id, name, project,
+     * modified). Connections, statements and result sets are implemented as
+     * dynamic proxies over this table.
+     */
+    private static class FakeDatabase {
+
+        private Map<Integer, Object[]> rows = new TreeMap<Integer, Object[]>();
+
+        private long clock = 1;
+
+        private volatile boolean failNextQuery;
+
+        private AtomicInteger openConnections = new AtomicInteger();
+
+        private AtomicInteger maxOpenConnections = new AtomicInteger();
+
+        private AtomicInteger prepareCount = new AtomicInteger();
+
+        private AtomicInteger queryCount = new AtomicInteger();
+
+        private AtomicInteger rowsReturned = new AtomicInteger();
+
+
+        synchronized void addProject(String project, int numRows) {
+            int firstId = rows.size() + 1;
+            for (int id = firstId; id < firstId + numRows; id++)
+                addRow(id, "Item " + id, project);
+        }
+
+        synchronized void addRow(int id, String name, String project) {
+            rows.put(id, new Object[] { id, name, project, clock++ });
+        }
+
+        synchronized void update(int id, String name) {
+            Object[] row = rows.get(id);
+            rows.put(id, new Object[] { id, name, row[2], clock++ });
+        }
+
+        synchronized void delete(int id) {
+            rows.remove(id);
+        }
+
+        synchronized Map<String, String> getNames(String project) {
+            Map<String, String> result = new TreeMap<String, String>();
+            for (Object[] row : rows.values())
+                if (project.equals(row[2]))
+                    result.put(row[0].toString(), (String) row[1]);
+            return result;
+        }
+
+        synchronized List<Object[]> select(String sql, Map<Integer, Object> p)
+                throws SQLException {
+            queryCount.incrementAndGet();
+            if (failNextQuery) {
+                failNextQuery = false;
+                throw new SQLException("Simulated failure");
+            }
+
+            List<Object[]> result = new ArrayList<Object[]>();
+            for (Object[] row : rows.values()) {
+                boolean matches;
+                if (sql.contains("id in ("))
+                    matches = p.containsValue(row[0]);
+                else
+                    matches = row[2].equals(p.get(1)) && (!sql
+                            .contains("modified >=")
+                            || (Long) row[3] >= (Long) p.get(2));
+                if (matches)
+                    result.add(new Object[] { null, row[0], row[1], row[3] });
+            }
+            rowsReturned.addAndGet(result.size());
+            return result;
+        }
+
+        Connection openConnection() {
+            int open = openConnections.incrementAndGet();
+            synchronized (maxOpenConnections) {
+                if (open > maxOpenConnections.get())
+                    maxOpenConnections.set(open);
+            }
+            return proxy(Connection.class, new InvocationHandler() {
+                boolean closed;
+
+                public Object invoke(Object proxy, Method m, Object[] args) {
+                    String name = m.getName();
+                    if (name.equals("prepareStatement")) {
+                        prepareCount.incrementAndGet();
+                        return prepare((String) args[0]);
+                    } else if (name.equals("close")) {
+                        if (!closed)
+                            openConnections.decrementAndGet();
+                        closed = true;
+                    } else if (name.equals("isClosed")) {
+                        return closed;
+                    }
+                    return defaultResult(proxy, m, args);
+                }
+            });
+        }
+
+        private PreparedStatement prepare(final String sql) {
+            return proxy(PreparedStatement.class, new InvocationHandler() {
+                Map<Integer, Object> params = new HashMap<Integer, Object>();
+
+                public Object invoke(Object proxy, Method m, Object[] args)
+                        throws SQLException {
+                    String name = m.getName();
+                    if (name.startsWith("set") && args.length == 2)
+                        params.put((Integer) args[0], args[1]);
+                    else if (name.equals("clearParameters"))
+                        params.clear();
+                    else if (name.equals("executeQuery"))
+                        return resultSet(select(sql, params));
+                    return defaultResult(proxy, m, args);
+                }
+            });
+        }
+
+        private ResultSet resultSet(final List<Object[]> data) {
+            final ResultSetMetaData md = proxy(ResultSetMetaData.class,
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method m,
+                            Object[] args) {
+                        String name = m.getName();
+                        if (name.equals("getColumnCount"))
+                            return 3;
+                        else if (name.equals("getColumnClassName"))
+                            return data.isEmpty() ? Integer.class.getName()
+                                    : data.get(0)[(Integer) args[0]]
+                                            .getClass().getName();
+                        return defaultResult(proxy, m, args);
+                    }
+                });
+            return proxy(ResultSet.class, new InvocationHandler() {
+                int pos = -1;
+
+                public Object invoke(Object proxy, Method m, Object[] args) {
+                    String name = m.getName();
+                    if (name.equals("next"))
+                        return ++pos < data.size();
+                    else if (name.equals("getObject"))
+                        return data.get(pos)[(Integer) args[0]];
+                    else if (name.equals("getMetaData"))
+                        return md;
+                    return defaultResult(proxy, m, args);
+                }
+            });
+        }
+
+        private static Object defaultResult(Object proxy, Method m,
+                Object[] args) {
+            String name = m.getName();
+            if (name.equals("hashCode"))
+                return System.identityHashCode(proxy);
+            else if (name.equals("equals"))
+                return proxy == args[0];
+            else if (name.equals("toString"))
+                return "FakeDatabase" + m.getDeclaringClass().getSimpleName();
+            Class type = m.getReturnType();
+            if (type == Boolean.TYPE)
+                return Boolean.FALSE;
+            else if (type == Integer.TYPE)
+                return 0;
+            else if (type.isPrimitive() && type != Void.TYPE)
+                throw new UnsupportedOperationException(name);
+            return null;
+        }
+
+        private static <T> T proxy(Class<T> type, InvocationHandler h) {
+            return type.cast(Proxy.newProxyInstance(
+                FakeDatabase.class.getClassLoader(), new Class[] { type }, h));
+        }
+    }
+
+}
@@ -27,6 +27,9 @@ package teamdash.wbs;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -59,6 +62,12 @@ public class DataTableModel<WbsT extends WBSModel> extends AbstractTableModel {
     private boolean[][] dependencies;
     /** A set of columns that need recalculating */
     private Set dirtyColumns;
+    /** For dirty columns that only need to be recalculated for a portion of
+     * the WBS, the nodes in question.  A dirty column with no entry in this
+     * map will be recalculated in full. */
+    private Map<DataColumn, NodeChanges> dirtyNodes;
+    /** The columns that are currently being recalculated */
+    private Set recalculatingColumns;
     /** A timer for triggering recalculations */
     private Timer recalcJanitorTimer;
 
@@ -71,6 +80,8 @@ public class DataTableModel<WbsT extends WBSModel> extends AbstractTableModel {
 
         columns = new ArrayList();
         dirtyColumns = new HashSet();
+        dirtyNodes = new HashMap<DataColumn, NodeChanges>();
+        recalculatingColumns = new HashSet();
 
         recalcJanitorTimer = new Timer(1000, new RecalcJanitor());
         recalcJanitorTimer.setRepeats(false);
@@ -149,7 +160,7 @@ public class DataTableModel<WbsT extends WBSModel> extends AbstractTableModel {
         // recalculate all calculated columns.
         try {
             beginChange();
-            dirtyColumns.addAll(calculatedColumns);
+            markAllColumnsDirty();
         } finally {
             endChange();
         }
@@ -286,7 +297,7 @@ public class DataTableModel<WbsT extends WBSModel> extends AbstractTableModel {
                 // as dirty (this will schedule a deferred recalculation operation)
                 try {
                     beginChange();
-                    dirtyColumns.addAll(calculatedColumns);
+                    markAllColumnsDirty();
                 } finally {
                     endChange();
                 }
@@ -350,7 +361,7 @@ public class DataTableModel<WbsT extends WBSModel> extends AbstractTableModel {
 
         try {
             beginChange();
-            columnChanged(column, columnIndex);
+            columnChanged(column, columnIndex, NodeChanges.forSubtree(node));
             column.setValueAt(aValue, node);
 
             if (!(column instanceof CalculatedDataColumn)) {
@@ -411,19 +422,100 @@ public class DataTableModel<WbsT extends WBSModel> extends AbstractTableModel {
             }
         }
     }
+    /** Let the model know that data in a particular column has been changed
+     * for a single node, and possibly for its descendants.
+     *
+     * Calculated columns that depend upon this column will be marked as
+     * needing recalculation.  Columns which implement
+     * {@link NodeCalculatedDataColumn} will only be recalculated for the
+     * nodes that could be affected by the change.
+     *
+     * This will be called automatically by setValueAt(), so normally columns
+     * will not need to call this.
+     * @since 2.7.6 */
+    public void columnChanged(DataColumn column, WBSNode node) {
+        if (column != null) {
+            try {
+                beginChange();
+                columnChanged(column, findIndexOfColumn(column),
+                    node == null ? null : NodeChanges.forSubtree(node));
+            } finally {
+                endChange();
+            }
+        }
+    }
     protected void columnChanged(DataColumn column, int columnPos) {
+        columnChanged(column, columnPos, null);
+    }
+    private void columnChanged(DataColumn column, int columnPos,
+            NodeChanges changes) {
         synchronized (dirtyColumns) {
-            if (columnPos == -1 || dirtyColumns.contains(column)) return;
+            if (columnPos == -1) return;
 
             // if the column is calculated, add it to the dirty list.
-            if (column instanceof CalculatedDataColumn)
-                dirtyColumns.add(column);
+            if (column instanceof CalculatedDataColumn) {
+                if (!markDirty((CalculatedDataColumn) column, changes))
+                    return;
+                changes = dirtyNodes.get(column);
+            }
 
             // find any columns that depend upon this column, and add them
             // to the dirty list as well.
             for (int j = columns.size();   j-- > 0; )
                 if (dependencies[j][columnPos])
-                    columnChanged(getColumn(j), j);
+                    columnChanged(getColumn(j), j, changes);
+        }
+    }
+
+    /** Record the nodes that need recalculation in a calculated column.
+     *
+     * @param column the column to mark as dirty
+     * @param changes the nodes whose data has changed, or null if data may
+     *     have changed anywhere in the WBS
+     * @return true if this added new work to the recalculation of the
+     *     column; false if the column was already dirty for these nodes
+     */
+    private boolean markDirty(CalculatedDataColumn column,
+            NodeChanges changes) {
+        // if the column is being recalculated right now, it will already
+        // see the latest data.
+        if (recalculatingColumns.contains(column))
+            return false;
+
+        // find the nodes in this column that are affected by the change
+        NodeChanges affected = null;
+        if (changes != null && column instanceof NodeCalculatedDataColumn) {
+            int deps = ((NodeCalculatedDataColumn) column)
+                    .getNodeDependencies();
+            if (deps != 0)
+                affected = changes.getAffectedNodes(deps, wbsModel);
+        }
+
+        if (dirtyColumns.add(column)) {
+            // this column was clean; record the nodes it must recalculate.
+            if (affected != null)
+                dirtyNodes.put(column, affected);
+            return true;
+        }
+
+        NodeChanges pending = dirtyNodes.get(column);
+        if (pending == null) {
+            // the column is already marked for a full recalculation
+            return false;
+        } else if (affected == null) {
+            // upgrade the column to a full recalculation
+            dirtyNodes.remove(column);
+            return true;
+        } else {
+            return pending.addAll(affected, wbsModel);
+        }
+    }
+
+    /** Mark all of the calculated columns for a full recalculation */
+    private void markAllColumnsDirty() {
+        synchronized (dirtyColumns) {
+            dirtyColumns.addAll(calculatedColumns);
+            dirtyNodes.clear();
         }
     }
 
@@ -500,6 +592,7 @@ public class DataTableModel<WbsT extends WBSModel> extends AbstractTableModel {
                 // endChange() call two lines below could start an infinite
                 // loop of recalculating and retriggering the exception)
                 dirtyColumns.clear();
+                dirtyNodes.clear();
             } finally {
                 endChange();
             }
@@ -546,19 +639,179 @@ public class DataTableModel<WbsT extends WBSModel> extends AbstractTableModel {
             waitingColumns.remove(column);
         }
 
-        // recalculate the column
-        if (column.recalculate()) {
-            // if data changed, fire an appropriate table model event.
-            TableModelEvent e = new TableModelEvent
-                (this, 0, getRowCount()-1, columnPos, TableModelEvent.UPDATE);
-            fireTableChanged(e);
+        // recalculate the column, either in full or for the affected nodes
+        NodeChanges changes = dirtyNodes.remove(column);
+        boolean dataChanged;
+        try {
+            recalculatingColumns.add(column);
+            if (changes == null)
+                dataChanged = column.recalculate();
+            else
+                dataChanged = ((NodeCalculatedDataColumn) column)
+                        .recalculate(changes.subtrees, changes.nodes);
+        } finally {
+            recalculatingColumns.remove(column);
         }
 
+        // if data changed, fire appropriate table model events.
+        if (dataChanged)
+            fireColumnUpdated(columnPos, changes);
+
         // remove this column from the "dirty" list.
         dirtyColumns.remove(column);
     }
 
 
+    /** Fire table model events for the rows that were recalculated in a
+     * column.
+     *
+     * @param columnPos the column that was recalculated
+     * @param changes the nodes that were recalculated, or null if the entire
+     *     column was recalculated
+     */
+    private void fireColumnUpdated(int columnPos, NodeChanges changes) {
+        int[][] ranges = (changes == null ? null : getRowRanges(changes));
+        if (ranges == null) {
+            fireTableChanged(new TableModelEvent(this, 0, getRowCount() - 1,
+                    columnPos, TableModelEvent.UPDATE));
+        } else if (ranges.length > MAX_ROW_RANGE_EVENTS) {
+            fireTableChanged(new TableModelEvent(this, ranges[0][0],
+                    ranges[ranges.length - 1][1], columnPos,
+                    TableModelEvent.UPDATE));
+        } else {
+            for (int[] range : ranges)
+                fireTableChanged(new TableModelEvent(this, range[0],
+                        range[1], columnPos, TableModelEvent.UPDATE));
+        }
+    }
+
+    /** Find the visible rows that display a set of changed nodes.
+     *
+     * @return a sorted array of nonoverlapping [first, last] row ranges */
+    private int[][] getRowRanges(NodeChanges changes) {
+        List<int[]> ranges = new ArrayList<int[]>();
+        for (WBSNode node : changes.subtrees) {
+            int[] range = wbsModel.getRowRangeForSubtree(node);
+            if (range != null)
+                ranges.add(range);
+        }
+        for (WBSNode node : changes.nodes) {
+            int row = wbsModel.getRowForNode(node);
+            if (row != -1)
+                ranges.add(new int[] { row, row });
+        }
+
+        int[][] result = ranges.toArray(new int[ranges.size()][]);
+        Arrays.sort(result, ROW_RANGE_ORDER);
+
+        // merge ranges that overlap or are adjacent
+        int len = 0;
+        for (int[] range : result) {
+            if (len > 0 && range[0] <= result[len - 1][1] + 1)
+                result[len - 1][1] = Math.max(result[len - 1][1], range[1]);
+            else
+                result[len++] = range;
+        }
+        int[][] merged = new int[len][];
+        System.arraycopy(result, 0, merged, 0, len);
+        return merged;
+    }
+
+    private static final Comparator<int[]> ROW_RANGE_ORDER =
+        new Comparator<int[]>() {
+            public int compare(int[] a, int[] b) {
+                return a[0] - b[0];
+            }};
+
+    /** When a recalculation touches more row ranges than this, a single
+     * event is fired to span all of them. */
+    private static final int MAX_ROW_RANGE_EVENTS = 20;
+
+
+
+    /** A record of the nodes whose data has changed in a column.  Changes are
+     * recorded as a set of subtrees (each containing a node along with all of
+     * its descendants), plus a set of individual nodes.
+     */
+    private static class NodeChanges {
+
+        Set<WBSNode> subtrees = new HashSet<WBSNode>();
+
+        Set<WBSNode> nodes = new HashSet<WBSNode>();
+
+        static NodeChanges forSubtree(WBSNode node) {
+            NodeChanges result = new NodeChanges();
+            result.subtrees.add(node);
+            return result;
+        }
+
+        private boolean containsSubtree(WBSNode node, WBSModel wbs) {
+            for (WBSNode n = node;  n != null;  n = wbs.getParent(n))
+                if (subtrees.contains(n))
+                    return true;
+            return false;
+        }
+
+        /** Add the changes from another object into this one.
+         * @return true if any nodes were added */
+        boolean addAll(NodeChanges that, WBSModel wbs) {
+            boolean added = false;
+            for (WBSNode node : that.subtrees) {
+                if (!containsSubtree(node, wbs)) {
+                    subtrees.add(node);
+                    added = true;
+                }
+            }
+            for (WBSNode node : that.nodes) {
+                if (!nodes.contains(node) && !containsSubtree(node, wbs)) {
+                    nodes.add(node);
+                    added = true;
+                }
+            }
+            return added;
+        }
+
+        /** Find the nodes that could be affected by these changes, in a
+         * column with the given node dependencies.
+         *
+         * @return the affected nodes, or null if every node in the WBS could
+         *     be affected */
+        NodeChanges getAffectedNodes(int dependencies, WBSModel wbs) {
+            boolean rollsUp = (dependencies
+                    & NodeCalculatedDataColumn.DEPENDS_ON_DESCENDANTS) != 0;
+            boolean inherits = (dependencies
+                    & NodeCalculatedDataColumn.DEPENDS_ON_ANCESTORS) != 0;
+
+            NodeChanges result = new NodeChanges();
+            for (WBSNode node : subtrees) {
+                result.subtrees.add(node);
+                if (rollsUp)
+                    result.addAncestors(node, wbs);
+            }
+            for (WBSNode node : nodes) {
+                if (inherits)
+                    result.subtrees.add(node);
+                else
+                    result.nodes.add(node);
+                if (rollsUp)
+                    result.addAncestors(node, wbs);
+            }
+
+            if (result.subtrees.contains(wbs.getRoot()))
+                return null;
+            else
+                return result;
+        }
+
+        private void addAncestors(WBSNode node, WBSModel wbs) {
+            WBSNode parent = wbs.getParent(node);
+            while (parent != null && nodes.add(parent))
+                parent = wbs.getParent(parent);
+        }
+
+    }
+
+
     /**
      * Customize the behavior and appearance of the columns in a table which is
      * using a DataTableModel, based upon the preferences described by the
@@ -0,0 +1,103 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Team Functionality Add-ons for the Process Dashboard
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package teamdash.wbs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import teamdash.wbs.columns.TopDownBottomUpColumn;
+
+/**
+ * Measures the latency of editing a single cell in a large WBS.  This
+ * compares the node-level recalculation performed by
+ * {@link DataTableModel#setValueAt(Object, Object, int)} against an edit
+ * followed by a full recalculation of the column.
+ *
+ * Usage: DataTableModelBenchmark [numNodes] [numEdits]
+ */
+public class DataTableModelBenchmark {
+
+    public static void main(String[] args) {
+        int numNodes = (args.length > 0 ? Integer.parseInt(args[0]) : 10000);
+        int numEdits = (args.length > 1 ? Integer.parseInt(args[1]) : 500);
+
+        WBSModel wbs = buildWbs(numNodes);
+        DataTableModel data = new DataTableModel(wbs);
+        int timeCol = data.addDataColumn(new TopDownBottomUpColumn(data,
+                "Time", "Time"));
+        data.addDataColumn(new TopDownBottomUpColumn(data, "Size", "Size"));
+        data.initializeColumnDependencies();
+
+        List<WBSNode> leaves = new ArrayList<WBSNode>();
+        for (WBSNode n : wbs.getWbsNodes())
+            if (wbs.isLeaf(n))
+                leaves.add(n);
+        System.out.println(numNodes + " nodes, " + leaves.size() + " leaves");
+
+        // the first pass warms up the JIT, and is not meaningful
+        Random r = new Random(0);
+        for (int pass = 0; pass < 4; pass++) {
+            long t = System.nanoTime();
+            for (int i = 0; i < numEdits; i++)
+                data.setValueAt(Integer.toString(i + 1), leaves.get(r
+                        .nextInt(leaves.size())), timeCol);
+            report(pass, "node-level recalc", t, numEdits);
+
+            t = System.nanoTime();
+            for (int i = 0; i < numEdits; i++) {
+                WBSNode leaf = leaves.get(r.nextInt(leaves.size()));
+                leaf.setNumericAttribute("Time (Top Down)", i + 1);
+                data.columnChanged(data.getColumn(timeCol));
+            }
+            report(pass, "full recalc", t, numEdits);
+        }
+    }
+
+    private static WBSModel buildWbs(int numNodes) {
+        WBSModel wbs = new WBSModel("Root", false);
+        Random r = new Random(5);
+        int indent = 0;
+        for (int i = 1; i < numNodes; i++) {
+            if (indent == 0 || r.nextInt(100) == 0)
+                indent = 1;
+            else
+                indent = Math.max(2, Math.min(7, indent + r.nextInt(3) - 1));
+            WBSNode node = new WBSNode(wbs, "Node " + i, "Component", indent,
+                    true);
+            node.setUniqueID(i);
+            wbs.addImpl(node);
+        }
+        wbs.recalcRows(false);
+        return wbs;
+    }
+
+    private static void report(int pass, String label, long start,
+            int numEdits) {
+        long micros = (System.nanoTime() - start) / numEdits / 1000;
+        System.out.println("pass " + pass + ", " + label + ": " + micros
+                + " us per edit");
+    }
+
+}
@@ -0,0 +1,295 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Team Functionality Add-ons for the Process Dashboard
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package teamdash.wbs;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+import junit.framework.TestCase;
+
+import teamdash.wbs.columns.AbstractDataColumn;
+import teamdash.wbs.columns.TopDownBottomUpColumn;
+
+public class DataTableModelTest extends TestCase {
+
+    private WBSModel wbs;
+
+    private DataTableModel data;
+
+    private int timeCol, sizeCol, rollupCol, fullCol;
+
+    private RollupColumn rollup;
+
+    private FullColumn full;
+
+    private EventCollector events;
+
+
+    public void testPartialRecalcMatchesFull() {
+        buildModel(2000, 1);
+        Random r = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            WBSNode node = randomNode(r);
+            int col = (r.nextBoolean() ? timeCol : sizeCol);
+            String value = (r.nextInt(10) == 0 ? ""
+                    : Integer.toString(r.nextInt(100)));
+            data.setValueAt(value, node, col);
+
+            List<String> partial = getValues(col);
+            data.columnChanged(data.getColumn(col));
+            assertEquals(partial, getValues(col));
+        }
+    }
+
+    public void testLeafEditRecalculatesAncestors() {
+        buildModel(2000, 2);
+        WBSNode leaf = deepestLeaf();
+        List<WBSNode> path = new ArrayList<WBSNode>();
+        for (WBSNode n = leaf; n != null; n = wbs.getParent(n))
+            path.add(n);
+
+        int fullBefore = full.fullRecalcs;
+        events.clear();
+        data.setValueAt("17", leaf, timeCol);
+
+        // the dependent node-level column saw the leaf and its ancestors
+        assertEquals(new HashSet<WBSNode>(path), rollup.lastRecalc);
+        assertEquals(1, rollup.partialRecalcs);
+        assertEquals(fullBefore + 1, full.fullRecalcs);
+
+        // events for node-level columns cover only the affected rows
+        Set<Integer> expectedRows = new HashSet<Integer>();
+        for (WBSNode n : path)
+            expectedRows.add(wbs.getRowForNode(n));
+        assertEquals(expectedRows, events.getRows(timeCol));
+        assertEquals(expectedRows, events.getRows(rollupCol));
+        assertEquals(wbs.getRowCount(), events.getRows(fullCol).size());
+
+        // the recalculated rollup reflects the new value
+        assertEquals(17.0, value(leaf, timeCol));
+        double sum = 0;
+        for (WBSNode child : wbs.getChildren(wbs.getParent(leaf)))
+            sum += value(child, timeCol);
+        assertEquals(sum, value(wbs.getParent(leaf), timeCol), 0.001);
+    }
+
+    public void testParentEditRecalculatesSubtree() {
+        buildModel(500, 3);
+        WBSNode parent = wbs.getParent(deepestLeaf());
+        parent = wbs.getParent(parent);
+        double oldValue = value(parent, timeCol);
+
+        data.setValueAt(Double.toString(oldValue * 2), parent, timeCol);
+        assertEquals(oldValue * 2, value(parent, timeCol), 0.001);
+        List<String> partial = getValues(timeCol);
+        data.columnChanged(data.getColumn(timeCol));
+        assertEquals(partial, getValues(timeCol));
+
+        // the rollup column was asked to recalculate the entire subtree
+        assertTrue(rollup.lastSubtrees.contains(parent));
+    }
+
+    public void testStructuralChangeRecalculatesInFull() {
+        buildModel(200, 4);
+        int partialBefore = rollup.partialRecalcs;
+        int fullBefore = rollup.fullRecalcs;
+        wbs.add(new WBSNode(wbs, "New", "Component", 1, true));
+        assertEquals(partialBefore, rollup.partialRecalcs);
+        assertEquals(fullBefore + 1, rollup.fullRecalcs);
+    }
+
+    public void testLargeWbsEditsRecalculatePartially() {
+        buildModel(10000, 5);
+        Random r = new Random(5);
+        List<WBSNode> leaves = new ArrayList<WBSNode>();
+        for (WBSNode n : wbs.getWbsNodes())
+            if (wbs.isLeaf(n))
+                leaves.add(n);
+
+        // each edit should recalculate node-level columns for just the
+        // affected nodes, and never fall back to a full recalculation.
+        // (DataTableModelBenchmark measures the resulting latency.)
+        int numEdits = 200;
+        int partialBefore = rollup.partialRecalcs;
+        int fullBefore = rollup.fullRecalcs;
+        for (int i = 0; i < numEdits; i++)
+            data.setValueAt(Integer.toString(i + 1), leaves.get(r
+                    .nextInt(leaves.size())), timeCol);
+        assertEquals(partialBefore + numEdits, rollup.partialRecalcs);
+        assertEquals(fullBefore, rollup.fullRecalcs);
+        assertTrue(rollup.lastRecalc.size() < 20);
+
+        // a column change notification still recalculates in full
+        data.columnChanged(data.getColumn(timeCol));
+        assertEquals(partialBefore + numEdits, rollup.partialRecalcs);
+        assertEquals(fullBefore + 1, rollup.fullRecalcs);
+    }
+
+
+    private void buildModel(int numNodes, long seed) {
+        wbs = new WBSModel("Root", false);
+        Random r = new Random(seed);
+        int indent = 0;
+        for (int i = 1; i < numNodes; i++) {
+            if (indent == 0 || r.nextInt(100) == 0)
+                indent = 1;
+            else
+                indent = Math.max(2, Math.min(7, indent + r.nextInt(3) - 1));
+            WBSNode node = new WBSNode(wbs, "Node " + i, "Component", indent,
+                    true);
+            node.setUniqueID(i);
+            wbs.addImpl(node);
+        }
+        wbs.recalcRows(false);
+
+        data = new DataTableModel(wbs);
+        timeCol = data.addDataColumn(new TopDownBottomUpColumn(data, "Time",
+                "Time"));
+        sizeCol = data.addDataColumn(new TopDownBottomUpColumn(data, "Size",
+                "Size"));
+        rollupCol = data.addDataColumn(rollup = new RollupColumn());
+        fullCol = data.addDataColumn(full = new FullColumn());
+        data.initializeColumnDependencies();
+
+        for (WBSNode node : wbs.getWbsNodes())
+            if (wbs.isLeaf(node))
+                node.setNumericAttribute("Time (Top Down)", r.nextInt(50));
+        data.columnChanged(data.getColumn(timeCol));
+
+        events = new EventCollector();
+        data.addTableModelListener(events);
+    }
+
+    private WBSNode randomNode(Random r) {
+        return wbs.getWbsNodes().get(1 + r.nextInt(wbs.size() - 1));
+    }
+
+    private WBSNode deepestLeaf() {
+        WBSNode result = wbs.getRoot();
+        for (WBSNode n : wbs.getWbsNodes())
+            if (n.getIndentLevel() > result.getIndentLevel())
+                result = n;
+        return result;
+    }
+
+    private double value(WBSNode node, int col) {
+        return ((NumericDataValue) data.getValueAt(node, col)).value;
+    }
+
+    private List<String> getValues(int col) {
+        List<String> result = new ArrayList<String>();
+        for (WBSNode node : wbs.getWbsNodes()) {
+            NumericDataValue v = (NumericDataValue) data.getValueAt(node, col);
+            result.add(v.value + "/" + v.expectedValue + "/" + v.errorMessage);
+        }
+        return result;
+    }
+
+
+    /** A node-level column that depends upon the Time column */
+    private class RollupColumn extends AbstractDataColumn implements
+            NodeCalculatedDataColumn {
+
+        int fullRecalcs, partialRecalcs;
+
+        Set<WBSNode> lastSubtrees, lastRecalc;
+
+        RollupColumn() {
+            columnID = columnName = "Rollup";
+            dependentColumns = new String[] { "Time" };
+        }
+
+        public boolean isCellEditable(WBSNode node) { return false; }
+        public Object getValueAt(WBSNode node) { return null; }
+        public void setValueAt(Object aValue, WBSNode node) {}
+        public void storeDependentColumn(String ID, int columnNumber) {}
+
+        public int getNodeDependencies() { return DEPENDS_ON_SELF; }
+
+        public boolean recalculate() {
+            fullRecalcs++;
+            return true;
+        }
+
+        public boolean recalculate(Set<WBSNode> subtrees, Set<WBSNode> nodes) {
+            partialRecalcs++;
+            lastSubtrees = new HashSet<WBSNode>(subtrees);
+            lastRecalc = new HashSet<WBSNode>(nodes);
+            lastRecalc.addAll(subtrees);
+            return true;
+        }
+    }
+
+    /** A calculated column that depends upon the Time column, but must
+     * always recalculate in full */
+    private class FullColumn extends AbstractDataColumn implements
+            CalculatedDataColumn {
+
+        int fullRecalcs;
+
+        FullColumn() {
+            columnID = columnName = "Full";
+            dependentColumns = new String[] { "Time" };
+        }
+
+        public boolean isCellEditable(WBSNode node) { return false; }
+        public Object getValueAt(WBSNode node) { return null; }
+        public void setValueAt(Object aValue, WBSNode node) {}
+        public void storeDependentColumn(String ID, int columnNumber) {}
+
+        public boolean recalculate() {
+            fullRecalcs++;
+            return true;
+        }
+    }
+
+    private class EventCollector implements TableModelListener {
+
+        List<TableModelEvent> events = new ArrayList<TableModelEvent>();
+
+        public void tableChanged(TableModelEvent e) {
+            events.add(e);
+        }
+
+        void clear() {
+            events.clear();
+        }
+
+        Set<Integer> getRows(int col) {
+            Set<Integer> result = new HashSet<Integer>();
+            for (TableModelEvent e : events)
+                if (e.getColumn() == col)
+                    for (int row = e.getFirstRow(); row <= e.getLastRow(); row++)
+                        result.add(row);
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Team Functionality Add-ons for the Process Dashboard
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package teamdash.wbs;
+
+import java.util.Set;
+
+/** A calculated column which can recalculate the values for a portion of
+ * the work breakdown structure, rather than for every node.
+ *
+ * When data changes on a particular node, the {@link DataTableModel} uses
+ * the dependency flags published by this column to determine which nodes
+ * in this column could be affected.  If only those nodes need to be
+ * recalculated, the model will call {@link #recalculate(Set, Set)} instead
+ * of {@link #recalculate()}.
+ */
+public interface NodeCalculatedDataColumn extends CalculatedDataColumn {
+
+    /** Flag indicating that the value of a node depends upon data stored
+     * on that same node. */
+    public int DEPENDS_ON_SELF = 1;
+
+    /** Flag indicating that the value of a node depends upon data stored on
+     * its parent and other ancestors. */
+    public int DEPENDS_ON_ANCESTORS = 2;
+
+    /** Flag indicating that the value of a node depends upon data stored on
+     * its children and other descendants. */
+    public int DEPENDS_ON_DESCENDANTS = 4;
+
+    /** Describe the nodes whose data can affect the value of a node in this
+     * column.
+     * 
+     * @return a combination of the <tt>DEPENDS_ON_*</tt> flags, or 0 if this
+     *     column must always be recalculated in full */
+    public int getNodeDependencies();
+
+    /** Recalculate the data in this column for a portion of the WBS.
+     * 
+     * @param subtrees a set of nodes whose values, along with the values of
+     *     all their descendants, should be recalculated
+     * @param nodes a set of individual nodes whose values should be
+     *     recalculated
+     * @return true if data values changed */
+    public boolean recalculate(Set<WBSNode> subtrees, Set<WBSNode> nodes);
+
+}
@@ -184,6 +184,22 @@ public class WBSModel extends AbstractTableModel implements SnapshotSource {
         validator.recalc();
     }
 
+    /** Create a work breakdown structure containing the given nodes, in
+     * order.  The nodes must not belong to any other model.
+     * @since 2.7.6
+     */
+    public WBSModel(List<WBSNode> nodes) {
+        wbsNodes = new ArrayList(nodes.size());
+        for (WBSNode node : nodes) {
+            node.setWbsModel(this);
+            addImpl(node);
+        }
+        ensureAllIDsAreUnique();
+        recalcRows(false);
+        validator = new WBSModelValidator(this);
+        validator.recalc();
+    }
+
     public WBSModelValidator getValidator() {
         return validator;
     }
@@ -1206,6 +1222,31 @@ public class WBSModel extends AbstractTableModel implements SnapshotSource {
         return nodePosToRow(pos);
     }
 
+    /** Find the rows that display a node and its descendants.
+     *
+     * @return a two-element array containing the first and last row, or
+     *     null if neither the node nor any of its descendants are visible */
+    public int[] getRowRangeForSubtree(WBSNode n) {
+        int pos = getIndexOfNode(n);
+        if (pos == -1) return null;
+
+        int endPos = pos;
+        int indentLevel = n.getIndentLevel();
+        while (endPos + 1 < wbsNodes.size()
+                && wbsNodes.get(endPos + 1).getIndentLevel() > indentLevel)
+            endPos++;
+
+        int firstRow = Arrays.binarySearch(rows, pos);
+        if (firstRow < 0) firstRow = -firstRow - 1;
+        int lastRow = Arrays.binarySearch(rows, endPos);
+        if (lastRow < 0) lastRow = -lastRow - 2;
+
+        if (firstRow > lastRow)
+            return null;
+        else
+            return new int[] { firstRow, lastRow };
+    }
+
     public int nodePosToRow(int nodePos) {
         int result = Arrays.binarySearch(rows, nodePos);
         return (result < 0 ? -1 : result);
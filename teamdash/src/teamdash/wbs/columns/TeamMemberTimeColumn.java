@@ -104,6 +104,15 @@ public class TeamMemberTimeColumn extends TopDownBottomUpColumn
         return result;
     }
 
+    @Override
+    protected double getPreviousResult(WBSNode node) {
+        double result = super.getPreviousResult(node);
+        if (!(result > 0) && isAssignedWithZero(node))
+            wbsModel.getParent(node).setAttribute(assignWithZeroInheritedAttr,
+                "t");
+        return result;
+    }
+
     private boolean isAssignedWithZero(WBSNode node) {
         return node.getAttribute(assignWithZeroAttr) != null
                 || node.getAttribute(assignWithZeroInheritedAttr) != null;
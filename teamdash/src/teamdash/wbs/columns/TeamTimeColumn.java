@@ -71,7 +71,6 @@ import teamdash.merge.MergeWarning.Severity;
 import teamdash.team.TeamMember;
 import teamdash.team.TeamMemberFilter;
 import teamdash.wbs.AnnotatedValue;
-import teamdash.wbs.CalculatedDataColumn;
 import teamdash.wbs.CustomEditedColumn;
 import teamdash.wbs.CustomRenderedColumn;
 import teamdash.wbs.ErrorValue;
@@ -79,6 +78,7 @@ import teamdash.wbs.HtmlRenderedValue;
 import teamdash.wbs.IntList;
 import teamdash.wbs.ItalicNumericCellRenderer;
 import teamdash.wbs.MilestonesWBSModel;
+import teamdash.wbs.NodeCalculatedDataColumn;
 import teamdash.wbs.NumericDataValue;
 import teamdash.wbs.ReplaceAwareColumn;
 import teamdash.wbs.TeamProcess;
@@ -663,7 +663,7 @@ public class TeamTimeColumn extends TopDownBottomUpColumn
         double newTime = oldTime + additionalTime;
         double ratio = newTime / oldTime;
         multiplyValuesUnder(node, newTime, oldTime, ratio, true);
-        dataModel.columnChanged(this);
+        dataModel.columnChanged(this, node);
     }
 
 
@@ -1460,11 +1460,11 @@ public class TeamTimeColumn extends TopDownBottomUpColumn
                 figureTimePerPerson(false);
                 figureNumPeople();
                 figureTeamTime();
-                dataModel.columnChanged(timePerPersonColumn);
-                dataModel.columnChanged(rateColumn);
-                dataModel.columnChanged(numPeopleColumn);
-                dataModel.columnChanged(resourcesColumn);
-                dataModel.columnChanged(TeamTimeColumn.this);
+                dataModel.columnChanged(timePerPersonColumn, node);
+                dataModel.columnChanged(rateColumn, node);
+                dataModel.columnChanged(numPeopleColumn, node);
+                dataModel.columnChanged(resourcesColumn, node);
+                dataModel.columnChanged(TeamTimeColumn.this, node);
             }
         }
 
@@ -1509,7 +1509,7 @@ public class TeamTimeColumn extends TopDownBottomUpColumn
                 if (!equal(rate, oldRate)) {
                     if (!isUsingMinTime())
                         node.setAttribute(RATE_ATTR, null);
-                    dataModel.columnChanged(rateColumn);
+                    dataModel.columnChanged(rateColumn, node);
                 }
             }
         }
@@ -1557,8 +1557,8 @@ public class TeamTimeColumn extends TopDownBottomUpColumn
 
             // recalculate team time and register the change.
             figureTeamTime();
-            dataModel.columnChanged(TeamTimeColumn.this);
-            dataModel.columnChanged(timePerPersonColumn);
+            dataModel.columnChanged(TeamTimeColumn.this, node);
+            dataModel.columnChanged(timePerPersonColumn, node);
         }
 
         /** Messaged when the user edits the # of people for a leaf node. */
@@ -1567,8 +1567,8 @@ public class TeamTimeColumn extends TopDownBottomUpColumn
                 node.setNumericAttribute(NUM_PEOPLE_ATTR, value);
                 figureNumPeople();
                 figureTeamTime();
-                dataModel.columnChanged(numPeopleColumn);
-                dataModel.columnChanged(TeamTimeColumn.this);
+                dataModel.columnChanged(numPeopleColumn, node);
+                dataModel.columnChanged(TeamTimeColumn.this, node);
             }
         }
 
@@ -1610,7 +1610,7 @@ public class TeamTimeColumn extends TopDownBottomUpColumn
                     int numUnassignedPeople = numPeople - actualNumPeople;
                     if (numUnassignedPeople == 0) {
                         node.setNumericAttribute(NUM_PEOPLE_ATTR, ++numPeople);
-                        dataModel.columnChanged(numPeopleColumn);
+                        dataModel.columnChanged(numPeopleColumn, node);
                         numUnassignedPeople = 1;
                     }
 
@@ -1618,7 +1618,7 @@ public class TeamTimeColumn extends TopDownBottomUpColumn
                     // desired amount of unassigned time
                     timePerPerson = unassignedTime / numUnassignedPeople;
                     node.setNumericAttribute(TPP_ATTR, timePerPerson);
-                    dataModel.columnChanged(timePerPersonColumn);
+                    dataModel.columnChanged(timePerPersonColumn, node);
                     recalculateRate();
                 }
 
@@ -1626,7 +1626,7 @@ public class TeamTimeColumn extends TopDownBottomUpColumn
                 double ratio = newVisibleTeamTime / oldVisibleTeamTime;
                 timePerPerson *= ratio;
                 node.setNumericAttribute(TPP_ATTR, timePerPerson);
-                dataModel.columnChanged(timePerPersonColumn);
+                dataModel.columnChanged(timePerPersonColumn, node);
 
                 recalculateRate();
 
@@ -1646,7 +1646,7 @@ public class TeamTimeColumn extends TopDownBottomUpColumn
                         && newVisibleTeamTime == 0) {
                     numPeople = actualNumPeople;
                     node.setNumericAttribute(NUM_PEOPLE_ATTR, numPeople);
-                    dataModel.columnChanged(numPeopleColumn);
+                    dataModel.columnChanged(numPeopleColumn, node);
                 }
             }
             figureTeamTime();
@@ -2016,7 +2016,7 @@ public class TeamTimeColumn extends TopDownBottomUpColumn
 
     /** Base class for columns related to Team Time. */
     private abstract class DependentColumn extends AbstractNumericColumn
-        implements CalculatedDataColumn
+        implements NodeCalculatedDataColumn
     {
         public DependentColumn(String id, String resKey) {
             this.columnID = id;
@@ -2067,6 +2067,10 @@ public class TeamTimeColumn extends TopDownBottomUpColumn
         }
 
         public boolean recalculate() { return true; }
+        public int getNodeDependencies() { return DEPENDS_ON_SELF; }
+        public boolean recalculate(Set<WBSNode> subtrees, Set<WBSNode> nodes) {
+            return true;
+        }
         public void storeDependentColumn(String ID, int columnNumber) {}
     }
 
@@ -2138,7 +2142,7 @@ public class TeamTimeColumn extends TopDownBottomUpColumn
 
     /** A column representing the initials of people assigned to a task. */
     private class ResourcesColumn extends AbstractDataColumn implements
-            CalculatedDataColumn, CustomEditedColumn, ReplaceAwareColumn
+            NodeCalculatedDataColumn, CustomEditedColumn, ReplaceAwareColumn
     {
         public ResourcesColumn() {
             this.columnID = RESOURCES_COL_ID;
@@ -2174,6 +2178,13 @@ public class TeamTimeColumn extends TopDownBottomUpColumn
         }
 
         public boolean recalculate() { return true; }
+        public int getNodeDependencies() {
+            // parent nodes display the people assigned to their descendants
+            return DEPENDS_ON_SELF | DEPENDS_ON_DESCENDANTS;
+        }
+        public boolean recalculate(Set<WBSNode> subtrees, Set<WBSNode> nodes) {
+            return true;
+        }
         public void storeDependentColumn(String ID, int columnNumber) {}
 
         private String getAutoZeroUserString(WBSNode node) {
@@ -2432,7 +2443,7 @@ public class TeamTimeColumn extends TopDownBottomUpColumn
     /** A column which displays the same data as the main team time column,
      * but which does not attach errors for missing estimates or assignments. */
     private class TeamTimeNoErrorColumn extends AbstractNumericColumn
-        implements CalculatedDataColumn {
+        implements NodeCalculatedDataColumn {
 
         private int teamTimeColumn = -1;
 
@@ -2458,6 +2469,12 @@ public class TeamTimeColumn extends TopDownBottomUpColumn
 
         public boolean recalculate() { return true; }
 
+        public int getNodeDependencies() { return DEPENDS_ON_SELF; }
+
+        public boolean recalculate(Set<WBSNode> subtrees, Set<WBSNode> nodes) {
+            return true;
+        }
+
         public void storeDependentColumn(String ID, int columnNumber) {
             if (TeamTimeColumn.COLUMN_ID.equals(ID))
                 teamTimeColumn = columnNumber;
@@ -25,12 +25,14 @@
 package teamdash.wbs.columns;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import net.sourceforge.processdash.util.HTMLUtils;
 
-import teamdash.wbs.CalculatedDataColumn;
 import teamdash.wbs.DataTableModel;
+import teamdash.wbs.NodeCalculatedDataColumn;
 import teamdash.wbs.NumericDataValue;
 import teamdash.wbs.WBSModel;
 import teamdash.wbs.WBSNode;
@@ -38,7 +40,7 @@ import teamdash.wbs.WBSNode;
 /** A numeric column containing data which should sum up hierarchically.
  */
 public class TopDownBottomUpColumn extends AbstractNumericColumn
-    implements CalculatedDataColumn
+    implements NodeCalculatedDataColumn
 {
 
 
@@ -48,6 +50,15 @@ public class TopDownBottomUpColumn extends AbstractNumericColumn
     protected Pruner pruner = null;
     protected boolean hideInheritedValues = false;
 
+    /** During a partial recalculation, the nodes whose subtrees must be
+     * recalculated in full */
+    private Set<WBSNode> recalcSubtrees;
+    /** During a partial recalculation, the nodes that must be recalculated,
+     * along with all of their ancestors */
+    private Set<WBSNode> recalcPath;
+    /** The number of nested subtrees being recalculated in full */
+    private int subtreeDepth;
+
     public TopDownBottomUpColumn(DataTableModel dataModel,
                                      String name, String id) {
         this(dataModel, name, id, null);
@@ -155,7 +166,7 @@ public class TopDownBottomUpColumn extends AbstractNumericColumn
         }
 
         // ask the data model to recalculate this column.
-        dataModel.columnChanged(this);
+        dataModel.columnChanged(this, node);
     }
 
     public boolean recalculate() {
@@ -163,6 +174,47 @@ public class TopDownBottomUpColumn extends AbstractNumericColumn
         return true;
     }
 
+    public int getNodeDependencies() {
+        // pruned nodes inherit values from their ancestors, so partial
+        // recalculation is only supported when no pruner is in effect.
+        if (pruner == null)
+            return DEPENDS_ON_SELF | DEPENDS_ON_DESCENDANTS;
+        else
+            return 0;
+    }
+
+    public boolean recalculate(Set<WBSNode> subtrees, Set<WBSNode> nodes) {
+        // the changed nodes and their ancestors need recalculating. Other
+        // nodes can reuse the values they were assigned by the last recalc.
+        Set<WBSNode> path = new HashSet<WBSNode>();
+        addWithAncestors(path, subtrees);
+        addWithAncestors(path, nodes);
+        if (!path.contains(wbsModel.getRoot()))
+            return recalculate();
+
+        try {
+            recalcSubtrees = subtrees;
+            recalcPath = path;
+            subtreeDepth = 0;
+            recalc(wbsModel.getRoot());
+            return true;
+        } catch (PartialRecalcAborted pra) {
+            // a mismatch repair altered nodes we weren't planning to visit.
+        } finally {
+            recalcSubtrees = recalcPath = null;
+        }
+        return recalculate();
+    }
+
+    private void addWithAncestors(Set<WBSNode> path, Set<WBSNode> nodes) {
+        for (WBSNode node : nodes) {
+            while (node != null && path.add(node))
+                node = wbsModel.getParent(node);
+        }
+    }
+
+    private static class PartialRecalcAborted extends RuntimeException {}
+
     protected double recalc(WBSNode node) {
         double topDownValue = node.getNumericAttribute(topDownAttrName);
 
@@ -191,6 +243,8 @@ public class TopDownBottomUpColumn extends AbstractNumericColumn
                     && !equal(topDownValue, bottomUpValue)) {
                 boolean fixWasMade = attemptToRepairTopDownBottomUpMismatch(
                     node, topDownValue, bottomUpValue, children, numToInclude);
+                if (fixWasMade && recalcPath != null && subtreeDepth == 0)
+                    throw new PartialRecalcAborted();
                 if (fixWasMade)
                     bottomUpValue = sumUpChildValues(node, children,
                         numToInclude);
@@ -228,13 +282,45 @@ public class TopDownBottomUpColumn extends AbstractNumericColumn
             int numToInclude) {
         double bottomUpValue = 0;
         for (int i = 0;   i < numToInclude;   i++) {
-            double childValue = recalc(children[i]);
+            double childValue = recalcChild(children[i]);
             if (shouldFilterFromCalculations(children[i]) == false)
                 bottomUpValue += childValue;
         }
         return bottomUpValue;
     }
 
+    private double recalcChild(WBSNode child) {
+        if (recalcPath == null || subtreeDepth > 0) {
+            return recalc(child);
+
+        } else if (recalcSubtrees.contains(child)) {
+            subtreeDepth++;
+            try {
+                return recalc(child);
+            } finally {
+                subtreeDepth--;
+            }
+
+        } else if (recalcPath.contains(child)) {
+            return recalc(child);
+
+        } else {
+            return getPreviousResult(child);
+        }
+    }
+
+    /** During a partial recalculation, return the value that was calculated
+     * for an unchanged node by an earlier call to {@link #recalc(WBSNode)}.
+     */
+    protected double getPreviousResult(WBSNode node) {
+        double bottomUpValue = node.getNumericAttribute(bottomUpAttrName);
+        if (bottomUpValue != 0)
+            return bottomUpValue;
+
+        double topDownValue = node.getNumericAttribute(topDownAttrName);
+        return (Double.isNaN(topDownValue) ? 0 : topDownValue);
+    }
+
     protected boolean shouldFilterFromCalculations(WBSNode node) {
         if (node.isHidden() == false)
             return false;
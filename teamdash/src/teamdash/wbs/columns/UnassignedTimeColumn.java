@@ -63,6 +63,13 @@ public class UnassignedTimeColumn extends TopDownBottomUpColumn {
 
     private Map<Integer, Double> milestoneTimes;
 
+    @Override
+    public int getNodeDependencies() {
+        // the milestone totals are rebuilt from every leaf, so this column
+        // always recalculates in full.
+        return 0;
+    }
+
     @Override
     public boolean recalculate() {
         milestoneTimes = new HashMap<Integer, Double>();
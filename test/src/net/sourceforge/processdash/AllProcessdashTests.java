@@ -1,7 +1,24 @@
 package net.sourceforge.processdash;
 
+import net.sourceforge.processdash.data.repository.CompactDataNameMapTest;
+import net.sourceforge.processdash.data.repository.DataNameIndexTest;
+import net.sourceforge.processdash.data.repository.DatafileOpenTest;
+import net.sourceforge.processdash.data.repository.DatafileSaveTest;
+import net.sourceforge.processdash.data.repository.DependencyGraphTest;
+import net.sourceforge.processdash.data.repository.StartupImageTest;
+import net.sourceforge.processdash.data.compiler.ExpressionTreeTest;
+import net.sourceforge.processdash.ev.EVIncrementalRecalcTest;
+import net.sourceforge.processdash.ev.EVRollupParallelRecalcTest;
+import net.sourceforge.processdash.ev.EVTaskPathLookupTest;
+import net.sourceforge.processdash.ev.ci.EVScheduleConfidenceIntervalsTest;
+import net.sourceforge.processdash.ev.ci.QuantileSketchTest;
+import net.sourceforge.processdash.log.defects.DefectLogTest;
 import net.sourceforge.processdash.log.time.AllTimeLogTests;
+import net.sourceforge.processdash.net.http.HTMLTemplateTest;
+import net.sourceforge.processdash.rest.service.RestEventQueueTest;
 import net.sourceforge.processdash.templates.DashPackageTest;
+import net.sourceforge.processdash.templates.TemplateResourceIndexTest;
+import net.sourceforge.processdash.tool.diff.engine.DiffEngineTest;
 import net.sourceforge.processdash.tool.export.mgr.AllExportMgrTests;
 import net.sourceforge.processdash.util.AllUtilTests;
 import junit.framework.Test;
@@ -15,7 +32,24 @@ public class AllProcessdashTests {
 		suite.addTest(AllUtilTests.suite());
 		suite.addTest(AllTimeLogTests.suite());
                 suite.addTestSuite(DashPackageTest.class);
+		suite.addTestSuite(TemplateResourceIndexTest.class);
 		suite.addTest(AllExportMgrTests.suite());
+		suite.addTestSuite(CompactDataNameMapTest.class);
+		suite.addTestSuite(DataNameIndexTest.class);
+		suite.addTestSuite(DatafileOpenTest.class);
+		suite.addTestSuite(DatafileSaveTest.class);
+		suite.addTestSuite(DependencyGraphTest.class);
+		suite.addTestSuite(StartupImageTest.class);
+		suite.addTestSuite(ExpressionTreeTest.class);
+		suite.addTestSuite(EVTaskPathLookupTest.class);
+		suite.addTestSuite(EVIncrementalRecalcTest.class);
+		suite.addTestSuite(EVRollupParallelRecalcTest.class);
+		suite.addTestSuite(EVScheduleConfidenceIntervalsTest.class);
+		suite.addTestSuite(QuantileSketchTest.class);
+		suite.addTestSuite(DefectLogTest.class);
+		suite.addTestSuite(RestEventQueueTest.class);
+		suite.addTestSuite(HTMLTemplateTest.class);
+		suite.addTestSuite(DiffEngineTest.class);
 		//$JUnit-END$
 		return suite;
 	}
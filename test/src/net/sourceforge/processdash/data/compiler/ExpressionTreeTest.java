@@ -0,0 +1,173 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.compiler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import net.sourceforge.processdash.data.DoubleData;
+import net.sourceforge.processdash.data.ImmutableDoubleData;
+import net.sourceforge.processdash.data.ListData;
+import net.sourceforge.processdash.data.SimpleData;
+import net.sourceforge.processdash.data.StringData;
+import net.sourceforge.processdash.data.repository.DataRepository;
+
+public class ExpressionTreeTest extends TestCase {
+
+    private static final String[] EXPRESSIONS = {
+        "[a]", "[/Abs/Value]", "3", "\"text\"", "null",
+        "[a] + [b] * 2", "([a] + [b]) / ([a] - [b])", "-[a]",
+        "[a] / 0", "[a] / 0 - 3", "0 / 0", "[missing] + 1", "[s] + 1",
+        "[undef] * 2", "[big] * 10 * 10", "[a] * [big] * -10",
+        "[a] < [b]", "[a] >= [b]", "[a] == [b]", "[s] != \"hello\"",
+        "![a] && [b] || [missing]", "!([a] > 1)", "[s] & \" world\"",
+        "[s] &/ \"sub\"", "sumFor(\"Time\", [list])",
+        "sumFor(\"Time\", \"/P1\")", "sumFor(\"Time\", [list]) / [a]",
+        "iff([a] > 1, [a], [b])", "lookup(\"a\")", "min([a], [b], 3)",
+        "max([a], [b] * 10)", "nvl([missing], 5)", "nvlz([zero], [b])",
+        "defined([missing])", "defined([a]) && [a] * 2",
+    };
+
+    private MapContext context;
+
+    protected void setUp() throws Exception {
+        context = new MapContext("/Prefix");
+        context.put("a", new DoubleData(3));
+        context.put("b", new DoubleData(4.5));
+        context.put("zero", ImmutableDoubleData.READ_ONLY_ZERO);
+        context.put("undef", ImmutableDoubleData.EDITABLE_UNDEF_NAN);
+        context.put("big", new DoubleData(1e308));
+        context.put("s", StringData.create("hello"));
+        context.put("/Abs/Value", new DoubleData(42));
+        ListData list = new ListData();
+        list.add("/P1");
+        list.add("/P2");
+        context.put("list", list);
+        context.put("/P1/Time", new DoubleData(10));
+        context.put("/P2/Time", new DoubleData(20));
+    }
+
+    public void testCompiledMatchesInterpreter() throws Exception {
+        for (String expr : EXPRESSIONS) {
+            CompiledScript script;
+            try {
+                script = Compiler.compile(expr);
+            } catch (CompilationException ce) {
+                throw new CompilationException(expr + ": " + ce);
+            }
+            assertNotSame(expr, ExpressionTree.NOT_COMPILABLE,
+                script.getExpressionTree());
+
+            ListStack expected = new ListStack();
+            script.runInterpreted(expected, context);
+            ListStack actual = new ListStack();
+            script.run(actual, context);
+
+            assertSameResult(expr, expected, actual);
+        }
+    }
+
+    public void testExecutionErrors() throws Exception {
+        // a script object cannot be used as a numeric operand
+        CompiledScript script = new CompiledScript();
+        script.add(new PushObject(Compiler.compile("[a]")));
+        script.add(new PushConstant(ImmutableDoubleData.TRUE));
+        script.add(MathOperators.ADD);
+        script.commit();
+        try {
+            script.runInterpreted(new ListStack(), context);
+            fail();
+        } catch (ExecutionException e) {}
+        try {
+            script.run(new ListStack(), context);
+            fail();
+        } catch (ExecutionException e) {}
+    }
+
+    public void testFallbackToInterpreter() throws Exception {
+        // a script that leaves two values on the stack can't be compiled
+        CompiledScript script = new CompiledScript();
+        script.add(new PushConstant(ImmutableDoubleData.TRUE));
+        script.add(new PushVariable("a"));
+        script.commit();
+        assertSame(ExpressionTree.NOT_COMPILABLE,
+            script.getExpressionTree());
+
+        ListStack stack = new ListStack();
+        script.run(stack, context);
+        assertEquals(3.0, ((DoubleData) stack.pop()).getDouble(), 0);
+        assertSame(ImmutableDoubleData.TRUE, stack.pop());
+        assertTrue(stack.empty());
+    }
+
+    private void assertSameResult(String expr, ListStack expected,
+            ListStack actual) {
+        assertEquals(expr, expected.peekDescriptor(),
+            actual.peekDescriptor());
+        Object e = expected.pop(), a = actual.pop();
+        assertTrue(expected.empty());
+        assertTrue(actual.empty());
+        if (e == null) {
+            assertNull(expr, a);
+            return;
+        }
+        assertEquals(expr, e.getClass(), a.getClass());
+        if (e instanceof SimpleData) {
+            SimpleData es = (SimpleData) e, as = (SimpleData) a;
+            assertEquals(expr, es.format(), as.format());
+            assertEquals(expr, es.isEditable(), as.isEditable());
+            assertEquals(expr, es.isDefined(), as.isDefined());
+        } else {
+            assertSame(expr, e, a);
+        }
+    }
+
+    private static class MapContext implements ExpressionContext {
+
+        private String prefix;
+
+        private Map<String, SimpleData> values;
+
+        MapContext(String prefix) {
+            this.prefix = prefix;
+            this.values = new HashMap<String, SimpleData>();
+        }
+
+        void put(String name, SimpleData value) {
+            values.put(resolveName(name), value);
+        }
+
+        public SimpleData get(String dataName) {
+            return values.get(resolveName(dataName));
+        }
+
+        public String resolveName(String dataName) {
+            return DataRepository.createDataName(prefix, dataName);
+        }
+
+    }
+
+}
@@ -0,0 +1,115 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.compiler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import net.sourceforge.processdash.data.DoubleData;
+import net.sourceforge.processdash.data.ListData;
+import net.sourceforge.processdash.data.SimpleData;
+import net.sourceforge.processdash.data.repository.DataRepository;
+
+/**
+ * Compares the speed of evaluating data expressions with the interpreter
+ * and with the compiled {@link ExpressionTree}.
+ *
+ * Usage: ScriptEvaluationBenchmark [millisPerMeasurement]
+ */
+public class ScriptEvaluationBenchmark {
+
+    private static final String[] EXPRESSIONS = {
+        "[Time] + [Other Time] * 2 - [Base] / 3",
+        "([Estimated Time] - [Time]) / [Estimated Time]",
+        "sumFor(\"Time\", [Children])",
+        "sumFor(\"Time\", [Children]) / lookup(\"Estimated Time\")",
+        "iff([Time] > [Estimated Time], [Time], [Estimated Time])",
+        "nvlz([Time], 0) + nvlz([Other Time], 0) + nvlz([Base], 0)",
+    };
+
+    public static void main(String[] args) throws Exception {
+        long millis = (args.length > 0 ? Long.parseLong(args[0]) : 2000);
+
+        final Map<String, SimpleData> values =
+            new HashMap<String, SimpleData>();
+        values.put("Time", new DoubleData(10));
+        values.put("Other Time", new DoubleData(20));
+        values.put("Base", new DoubleData(30));
+        values.put("Estimated Time", new DoubleData(40));
+        ListData children = new ListData();
+        for (int i = 0; i < 20; i++) {
+            children.add("/P/Child " + i);
+            values.put("/P/Child " + i + "/Time", new DoubleData(i));
+        }
+        values.put("Children", children);
+        // use a lightweight context, so the measurements are dominated by
+        // the cost of evaluating the script rather than looking up data
+        ExpressionContext context = new ExpressionContext() {
+            public SimpleData get(String dataName) {
+                SimpleData result = values.get(dataName);
+                return (result != null ? result
+                        : values.get(resolveName(dataName)));
+            }
+            public String resolveName(String dataName) {
+                return DataRepository.createDataName("/P", dataName);
+            }
+        };
+
+        System.out.println("ns/eval\tinterp\tcompiled\texpression");
+        for (String expr : EXPRESSIONS) {
+            CompiledScript script = Compiler.compile(expr);
+            // warm up both paths before measuring
+            measure(script, context, false, millis / 2);
+            measure(script, context, true, millis / 2);
+            double interp = measure(script, context, false, millis);
+            double compiled = measure(script, context, true, millis);
+            System.out.println("\t" + Math.round(interp) + "\t"
+                    + Math.round(compiled) + "\t\t" + expr);
+        }
+    }
+
+    private static double measure(CompiledScript script,
+            ExpressionContext context, boolean compiled, long millis)
+            throws Exception {
+        long count = 0;
+        long start = System.nanoTime();
+        long end = start + millis * 1000000L;
+        long now;
+        do {
+            for (int i = 0; i < 1000; i++) {
+                ListStack stack = new ListStack();
+                if (compiled)
+                    script.run(stack, context);
+                else
+                    script.runInterpreted(stack, context);
+                if (stack.pop() == null)
+                    throw new IllegalStateException();
+            }
+            count += 1000;
+            now = System.nanoTime();
+        } while (now < end);
+        return (double) (now - start) / count;
+    }
+
+}
@@ -0,0 +1,153 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.repository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class CompactDataNameMapTest extends TestCase {
+
+    private CompactDataNameMap<Object> map;
+
+    protected void setUp() throws Exception {
+        map = new CompactDataNameMap<Object>(16);
+    }
+
+    public void testBasicOperations() {
+        Object a = "a", b = "b";
+        assertNull(map.get("/Foo/Bar"));
+        assertNull(map.putIfAbsent("/Foo/Bar", a));
+        assertSame(a, map.putIfAbsent("/Foo/Bar", b));
+        assertSame(a, map.get("/Foo/Bar"));
+        assertSame(a, map.get(new StringBuilder("/Foo/").append("Bar")
+                .toString()));
+        assertNull(map.get("/Foo/Ba"));
+        assertNull(map.get("/Foo/Barr"));
+        assertNull(map.get("/FooBar"));
+        assertEquals(1, map.size());
+
+        assertFalse(map.remove("/Foo/Bar", b));
+        assertTrue(map.remove("/Foo/Bar", a));
+        assertNull(map.get("/Foo/Bar"));
+        assertEquals(0, map.size());
+
+        // a removed name can be added again
+        assertNull(map.putIfAbsent("/Foo/Bar", b));
+        assertSame(b, map.remove("/Foo/Bar"));
+        assertNull(map.remove("/Foo/Bar"));
+    }
+
+    public void testNamesWithoutSlashes() {
+        map.putIfAbsent("plain", "x");
+        map.putIfAbsent("/", "y");
+        assertEquals("x", map.get("plain"));
+        assertEquals("y", map.get("/"));
+        assertEquals(new HashSet(Arrays.asList("plain", "/")),
+            new HashSet(map.keySnapshot()));
+    }
+
+    public void testSharedSegments() {
+        map.putIfAbsent("/Project/Task 1/Time", "1");
+        map.putIfAbsent("/Project/Task 1/Size", "2");
+        map.putIfAbsent("/Project/Task 2/Time", "3");
+        assertSame(map.intern("/Project/Task 1/"),
+            map.intern(new String("/Project/Task 1/")));
+        assertSame(map.intern("Time"), map.intern(new String("Time")));
+    }
+
+    public void testCanonicalNames() {
+        String name = new String("/Project/Task 1/Time");
+        String other = new String(name);
+        assertSame(other, map.canonicalName(other));
+
+        map.putIfAbsent(other, "1");
+        assertSame(name, map.canonicalName(name));
+        assertSame(name, map.canonicalName(other));
+        assertSame(name, map.keySnapshot().get(0));
+        assertEquals("1", map.get(name));
+        assertEquals("1", map.get(other));
+
+        // canonical names survive a rehash
+        for (int i = 0; i < 100; i++)
+            map.putIfAbsent("/Project/Task 2/M" + i, "x");
+        assertSame(name, map.canonicalName(new String(name)));
+
+        // a removed name does not keep its canonical instance
+        map.remove(name);
+        assertSame(other, map.canonicalName(other));
+        map.putIfAbsent(name, "2");
+        assertSame(other, map.canonicalName(other));
+        assertSame(other, map.canonicalName(name));
+    }
+
+    public void testUnusedSegmentsAreDiscarded() {
+        for (int i = 0; i < 1000; i++)
+            map.putIfAbsent("/Removed " + i + "/Time", "x");
+        map.putIfAbsent("/Kept/Time", "y");
+        for (int i = 0; i < 1000; i++)
+            assertEquals("x", map.remove("/Removed " + i + "/Time"));
+
+        // the removed prefixes are no longer canonicalized
+        String removedPrefix = new String("/Removed 5/");
+        assertSame(removedPrefix, map.intern(removedPrefix));
+
+        assertEquals("y", map.get("/Kept/Time"));
+        assertEquals(Arrays.asList("/Kept/Time"), map.keySnapshot());
+        assertEquals(Arrays.asList("/Kept/Time"), map.keySnapshot("Time"));
+    }
+
+    public void testRandomOperations() {
+        Map<String, Object> expected = new HashMap<String, Object>();
+        Random r = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            String name = "/P" + r.nextInt(30) + "/T" + r.nextInt(30) + "/M"
+                    + r.nextInt(20);
+            if (r.nextInt(3) == 0) {
+                assertEquals(expected.remove(name), map.remove(name));
+            } else {
+                Object value = Integer.valueOf(i);
+                Object old = expected.get(name);
+                if (old == null)
+                    expected.put(name, value);
+                assertEquals(old, map.putIfAbsent(name, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<String, Object> e : expected.entrySet())
+            assertEquals(e.getValue(), map.get(e.getKey()));
+        assertEquals(expected.keySet(), new HashSet(map.keySnapshot()));
+        assertEquals(new HashSet(expected.values()),
+            new HashSet(map.valueSnapshot()));
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertTrue(map.keySnapshot().isEmpty());
+    }
+
+}
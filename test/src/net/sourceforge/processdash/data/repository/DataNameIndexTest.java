@@ -0,0 +1,132 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class DataNameIndexTest extends TestCase {
+
+    private CompactDataNameMap<Object> data;
+
+    private DataNameIndex index;
+
+    protected void setUp() throws Exception {
+        data = new CompactDataNameMap<Object>(16);
+        index = new DataNameIndex(data);
+    }
+
+    public void testLeafName() {
+        assertEquals("Tag", DataNameIndex.getLeafName("/Project/Tag"));
+        assertEquals("Tag", DataNameIndex.getLeafName("Tag"));
+        assertEquals("", DataNameIndex.getLeafName("/Project/"));
+    }
+
+    public void testNamesTrackChanges() {
+        add("/A/Tag");
+        add("/A/Time");
+        add("/B/C/Tag");
+        assertNames("Tag", "/A/Tag", "/B/C/Tag");
+        assertNames("Missing");
+
+        // once a leaf is indexed, changes to the data are reflected
+        add("/D/Tag");
+        remove("/A/Tag");
+        add("/D/NotTag");
+        assertNames("Tag", "/B/C/Tag", "/D/Tag");
+
+        add("/E/Missing");
+        assertNames("Missing", "/E/Missing");
+    }
+
+    public void testDefinitions() {
+        Map defns = new HashMap();
+        defns.put("Tag", "1");
+        defns.put("Sub/Tag", "2");
+        defns.put("Time", "3");
+        defns.put("Sub Tag", "4");
+
+        List<Map.Entry> entries = index.getDefinitions(defns, "Tag");
+        HashSet names = new HashSet();
+        for (Map.Entry e : entries)
+            names.add(e.getKey());
+        assertEquals(new HashSet(Arrays.asList("Tag", "Sub/Tag")), names);
+        assertSame(entries, index.getDefinitions(defns, "Tag"));
+        assertTrue(index.getDefinitions(defns, "Size").isEmpty());
+    }
+
+    public void testListenerDispatch() {
+        Listener all = new Listener(), proj = new Listener();
+        index.addListener(all, "", "Tag");
+        index.addListener(proj, "/Project/", "Tag");
+
+        index.dispatchAdded("/Project/Task/Tag");
+        index.dispatchAdded("/Other/Tag");
+        index.dispatchAdded("/Project/Task/Time");
+        index.dispatchRemoved("/Project/Task/Tag");
+        assertEquals(Arrays.asList("+/Project/Task/Tag", "+/Other/Tag",
+            "-/Project/Task/Tag"), all.events);
+        assertEquals(Arrays.asList("+/Project/Task/Tag",
+            "-/Project/Task/Tag"), proj.events);
+
+        index.removeListener(all);
+        index.dispatchAdded("/Project/Tag");
+        assertEquals(3, all.events.size());
+        assertEquals(3, proj.events.size());
+    }
+
+    private void add(String name) {
+        data.putIfAbsent(name, name);
+        index.nameAdded(name);
+    }
+
+    private void remove(String name) {
+        data.remove(name);
+        index.nameRemoved(name);
+    }
+
+    private void assertNames(String leaf, String... names) {
+        assertEquals(new HashSet(Arrays.asList(names)), new HashSet(index
+                .getNames(leaf)));
+    }
+
+    private static class Listener implements RepositoryListener {
+        List<String> events = new ArrayList<String>();
+
+        public void dataAdded(String dataName) {
+            events.add("+" + dataName);
+        }
+
+        public void dataRemoved(String dataName) {
+            events.add("-" + dataName);
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.repository;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import net.sourceforge.processdash.data.DoubleData;
+
+/**
+ * Measures the throughput of concurrent {@link DataRepository#getSimpleValue}
+ * calls, to detect lock contention on the repository's internal data map.
+ *
+ * Usage: DataRepositoryContentionBenchmark [numElements] [seconds] [threads...]
+ */
+public class DataRepositoryContentionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int numElements = (args.length > 0 ? Integer.parseInt(args[0]) : 200000);
+        int seconds = (args.length > 1 ? Integer.parseInt(args[1]) : 3);
+        int[] threadCounts = new int[] { 1, 2, 4, 8, 16 };
+        if (args.length > 2) {
+            threadCounts = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++)
+                threadCounts[i - 2] = Integer.parseInt(args[i]);
+        }
+
+        DataRepository data = new DataRepository();
+        String[] names = new String[numElements];
+        for (int i = 0; i < numElements; i++) {
+            String prefix = "/Project " + (i % 500) + "/Component " + (i % 37)
+                    + "/Task " + i;
+            data.putValue(prefix + "/Time", new DoubleData(i));
+            // look the names up the way listeners and expressions do, with
+            // the instances returned by createDataName
+            names[i] = DataRepository.createDataName(prefix, "Time");
+        }
+
+        System.out.println("Elements: " + numElements);
+        for (int threads : threadCounts) {
+            long ops = run(data, names, threads, seconds);
+            System.out.println("threads=" + threads + "\tops/sec="
+                    + (ops / seconds));
+        }
+        data.shutDown();
+        System.exit(0);
+    }
+
+    private static long run(final DataRepository data, final String[] names,
+            int numThreads, int seconds) throws InterruptedException {
+        final long[] counts = new long[numThreads];
+        final CountDownLatch start = new CountDownLatch(1);
+        final long stopAt[] = new long[1];
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            final int slot = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    Random r = new Random(slot);
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long count = 0;
+                    while (true) {
+                        for (int i = 0; i < 1000; i++)
+                            data.getSimpleValue(names[r.nextInt(names.length)]);
+                        count += 1000;
+                        if (System.currentTimeMillis() > stopAt[0])
+                            break;
+                    }
+                    counts[slot] = count;
+                }
+            };
+            threads[t].start();
+        }
+        stopAt[0] = System.currentTimeMillis() + seconds * 1000L;
+        start.countDown();
+        long total = 0;
+        for (int t = 0; t < numThreads; t++) {
+            threads[t].join();
+            total += counts[t];
+        }
+        return total;
+    }
+
+}
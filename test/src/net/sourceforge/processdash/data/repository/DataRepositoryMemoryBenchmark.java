@@ -0,0 +1,85 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.repository;
+
+import net.sourceforge.processdash.data.DoubleData;
+
+/**
+ * Reports the heap consumed by a synthetic repository, containing a
+ * configurable number of elements spread across a team-rollup-like
+ * hierarchy.
+ *
+ * Usage: DataRepositoryMemoryBenchmark [numElements]
+ */
+public class DataRepositoryMemoryBenchmark {
+
+    private static final String[] METRICS = { "Time", "Estimated Time",
+            "Orphaned Time", "Size", "Estimated Size", "Defects Injected",
+            "Defects Removed", "Started", "Completed", "Node_Type",
+            "Rollup_Time", "Planned Value", "EV_Level", "Estimated Size/Units",
+            "Added Size", "Base Size", "Deleted Size", "Modified Size",
+            "Reused Size", "New & Changed Size" };
+
+    public static void main(String[] args) throws Exception {
+        int numElements = (args.length > 0 ? Integer.parseInt(args[0]) : 500000);
+
+        long before = usedMemory();
+        DataRepository data = new DataRepository();
+        int count = 0;
+        for (int t = 0; count < numElements; t++) {
+            String prefix = new StringBuilder("/Project/Team ")
+                    .append(t / 2000).append("/Component ").append(t / 50)
+                    .append("/Task ").append(t).toString();
+            for (int m = 0; m < METRICS.length && count < numElements; m++) {
+                String name = new StringBuilder(prefix).append('/')
+                        .append(METRICS[m]).toString();
+                data.putValue(name, new DoubleData(count++));
+            }
+        }
+        long after = usedMemory();
+
+        System.out.println("Elements: " + numElements);
+        System.out.println("Heap used by repository: "
+                + ((after - before) / 1024 / 1024) + " MB ("
+                + ((after - before) / numElements) + " bytes per element)");
+        data.shutDown();
+        System.exit(0);
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        // collect garbage until the measurement stabilizes
+        Runtime rt = Runtime.getRuntime();
+        long last = Long.MAX_VALUE;
+        for (int i = 0; i < 20; i++) {
+            System.gc();
+            Thread.sleep(300);
+            long used = rt.totalMemory() - rt.freeMemory();
+            if (Math.abs(last - used) < 1024 * 1024)
+                return used;
+            last = used;
+        }
+        return last;
+    }
+
+}
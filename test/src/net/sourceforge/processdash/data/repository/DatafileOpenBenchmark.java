@@ -0,0 +1,127 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.repository;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sourceforge.processdash.Settings;
+
+/**
+ * Measures the time needed to open the datafiles for a large dataset.
+ * <p>
+ * The benchmark writes a number of project datafiles which include a shared
+ * template datafile, then opens them in a fresh repository, first on a
+ * single thread, then with a pool of parsing threads, and finally from a
+ * startup image.  Each measurement is preceded by an untimed warm-up round.
+ *
+ * Usage: DatafileOpenBenchmark [datafiles] [tasksPerFile] [threads]
+ */
+public class DatafileOpenBenchmark {
+
+    private static final String THREADS_SETTING = Settings.SYS_PROP_PREFIX
+            + DataRepository.DATAFILE_THREADS_SETTING;
+
+    public static void main(String[] args) throws Exception {
+        int numFiles = (args.length > 0 ? Integer.parseInt(args[0]) : 500);
+        int numTasks = (args.length > 1 ? Integer.parseInt(args[1]) : 100);
+        int numThreads = (args.length > 2 ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors());
+
+        File dir = File.createTempFile("datafiles", "");
+        dir.delete();
+        dir.mkdir();
+        File template = new File(dir, "template.txt");
+        write(template, "[Estimated Time] = 0;\n"
+                + "[Time] = 0;\n"
+                + "[CPI] = [Estimated Time] / [Time];\n"
+                + "[Percent Spent] = [Time] / [Estimated Time];\n");
+
+        List<String[]> datafiles = new ArrayList<String[]>();
+        for (int f = 0; f < numFiles; f++) {
+            File file = new File(dir, f + ".dat");
+            StringBuilder contents = new StringBuilder();
+            contents.append("#include <template.txt>\n");
+            for (int t = 0; t < numTasks; t++) {
+                contents.append("Task ").append(t).append("/Time=")
+                        .append(t * 3).append("\n");
+                contents.append("Task ").append(t).append("/Estimated Time=")
+                        .append(t * 4).append("\n");
+                contents.append("[Task ").append(t)
+                        .append("/Ratio] = [Task ").append(t)
+                        .append("/Time] / [Task ").append(t)
+                        .append("/Estimated Time];\n");
+            }
+            write(file, contents.toString());
+            datafiles.add(new String[] { "/Project " + f, file.getPath() });
+        }
+
+        URL[] searchUrls = new URL[] { dir.toURI().toURL() };
+        System.out.println("Opening " + numFiles + " datafiles with "
+                + numTasks + " tasks each");
+        run(datafiles, searchUrls, 1, "Sequential");
+        run(datafiles, searchUrls, numThreads, numThreads + " threads");
+        File image = new File(dir, "startup.img");
+        run(datafiles, searchUrls, image, "Startup image");
+
+        for (File f : dir.listFiles())
+            f.delete();
+        dir.delete();
+        System.exit(0);
+    }
+
+    private static void run(List<String[]> datafiles, URL[] searchUrls,
+            int numThreads, String label) throws Exception {
+        System.setProperty(THREADS_SETTING, Integer.toString(numThreads));
+        run(datafiles, searchUrls, null, label);
+    }
+
+    private static void run(List<String[]> datafiles, URL[] searchUrls,
+            File image, String label) throws Exception {
+        long elapsed = 0;
+        for (int round = 0; round < 2; round++) {
+            DataRepository data = new DataRepository();
+            data.setDatafileSearchURLs(searchUrls);
+            long start = System.nanoTime();
+            if (image != null)
+                data.loadStartupImage(image);
+            data.openDatafiles(datafiles);
+            elapsed = System.nanoTime() - start;
+            if (image != null)
+                data.saveStartupImage(image);
+        }
+        System.out.println(label + ": " + (elapsed / 1000000) + " ms");
+    }
+
+    private static void write(File f, String contents) throws Exception {
+        Writer out = new FileWriter(f);
+        out.write(contents);
+        out.close();
+    }
+
+}
@@ -0,0 +1,178 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.repository;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.sourceforge.processdash.Settings;
+import net.sourceforge.processdash.data.DoubleData;
+import net.sourceforge.processdash.data.SimpleData;
+
+public class DatafileOpenTest extends TestCase {
+
+    private static final String THREADS_SETTING = Settings.SYS_PROP_PREFIX
+            + DataRepository.DATAFILE_THREADS_SETTING;
+
+    private static final int NUM_FILES = 60;
+
+    private File dir;
+
+    private List<String[]> datafiles;
+
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("datafiles", "");
+        dir.delete();
+        dir.mkdir();
+        new File(dir, "proc").mkdir();
+        write("proc/data.txt", "[Estimated Time] = 10;\n"
+                + "[Total] = [Value 1] + [Value 2];\n"
+                + "[/Template Setting] = 7;\n");
+        write("proc/other.txt", "#include <proc/data.txt>\n"
+                + "[Estimated Time] = 20;\n");
+
+        datafiles = new ArrayList<String[]>();
+        for (int i = 0; i < NUM_FILES; i++) {
+            String include = (i % 3 == 0 ? "proc/other.txt" : "proc/data.txt");
+            String global = (i == 7 ? "/Global Setting=42\n" : "");
+            File f = write(i + ".dat", "#include <" + include + ">\n"
+                    + "Value 1=" + i + "\n" //
+                    + "Value 2=" + (i * 2) + "\n" + global);
+            datafiles.add(new String[] { "/Project " + i, f.getPath() });
+        }
+        write("global.dat", "#include <dataFile.txt>\n");
+        datafiles.add(new String[] { "", new File(dir, "global.dat")
+                .getPath() });
+    }
+
+    protected void tearDown() throws Exception {
+        System.getProperties().remove(THREADS_SETTING);
+        for (File f : new File(dir, "proc").listFiles())
+            f.delete();
+        for (File f : dir.listFiles())
+            f.delete();
+        dir.delete();
+    }
+
+    public void testParallelMatchesSequential() throws Exception {
+        System.setProperty(THREADS_SETTING, "1");
+        DataRepository sequential = open(datafiles);
+        System.setProperty(THREADS_SETTING, "4");
+        DataRepository parallel = open(datafiles);
+
+        for (int i = 0; i < NUM_FILES; i++) {
+            for (String name : new String[] { "Value 1", "Value 2", "Total",
+                    "Estimated Time" }) {
+                String dataName = "/Project " + i + "/" + name;
+                SimpleData expected = sequential.getSimpleValue(dataName);
+                assertNotNull(dataName, expected);
+                assertEquals(dataName, expected.format(),
+                    parallel.getSimpleValue(dataName).format());
+            }
+            assertEquals(i * 3.0, value(parallel, i, "Total"), 0);
+            assertEquals(i % 3 == 0 ? 20 : 10,
+                value(parallel, i, "Estimated Time"), 0);
+        }
+        assertEquals("42", parallel.getSimpleValue("/Global Setting")
+                .format());
+        assertEquals("7", parallel.getSimpleValue("/Template Setting")
+                .format());
+    }
+
+    public void testInterruptStopsOpening() throws Exception {
+        System.setProperty(THREADS_SETTING, "4");
+        DataRepository data = new DataRepository();
+        data.setDatafileSearchURLs(new URL[] { dir.toURI().toURL() });
+
+        Thread.currentThread().interrupt();
+        Exception[] errors;
+        try {
+            errors = data.openDatafiles(datafiles);
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+
+        for (Exception e : errors)
+            assertTrue(e instanceof InterruptedException);
+        assertNull(data.getSimpleValue("/Project 1/Total"));
+    }
+
+    public void testErrorsAreReportedPerFile() throws Exception {
+        System.setProperty(THREADS_SETTING, "4");
+        File bad = write("bad.dat", "#include <proc/missing.txt>\n");
+        datafiles.add(3, new String[] { "/Missing", new File(dir,
+                "missing.dat").getPath() });
+        datafiles.add(5, new String[] { "/Bad", bad.getPath() });
+
+        DataRepository data = new DataRepository();
+        data.setDatafileSearchURLs(new URL[] { dir.toURI().toURL() });
+        Exception[] errors = data.openDatafiles(datafiles);
+
+        assertEquals(datafiles.size(), errors.length);
+        for (int i = 0; i < errors.length; i++) {
+            if (i == 3)
+                assertTrue(errors[i] instanceof FileNotFoundException);
+            else if (i == 5)
+                assertNotNull(errors[i]);
+            else
+                assertNull(errors[i]);
+        }
+        assertEquals(6.0, value(data, 2, "Total"), 0);
+        assertEquals(NUM_FILES * 3.0 - 3, value(data, NUM_FILES - 1,
+            "Total"), 0);
+    }
+
+    private DataRepository open(List<String[]> files) throws Exception {
+        DataRepository result = new DataRepository();
+        result.setDatafileSearchURLs(new URL[] { dir.toURI().toURL() });
+        Exception[] errors = result.openDatafiles(files);
+        for (Exception e : errors)
+            if (e != null)
+                throw e;
+        return result;
+    }
+
+    private double value(DataRepository data, int project, String name) {
+        return ((DoubleData) data.getSimpleValue("/Project " + project + "/"
+                + name)).getDouble();
+    }
+
+    private File write(String name, String contents) throws IOException {
+        File result = new File(dir, name);
+        Writer out = new FileWriter(result);
+        out.write(contents);
+        out.close();
+        return result;
+    }
+
+}
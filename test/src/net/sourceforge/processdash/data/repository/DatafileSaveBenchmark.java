@@ -0,0 +1,96 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.repository;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+
+import net.sourceforge.processdash.Settings;
+import net.sourceforge.processdash.data.DoubleData;
+
+/**
+ * Measures the time needed to save one modified datafile while many other
+ * datafiles are open.
+ * <p>
+ * The benchmark opens a number of datafiles, each containing many values.
+ * It then repeatedly changes a few values in a single datafile and saves,
+ * reporting the average latency of each save.  The measurement is repeated
+ * with journaled saves enabled.
+ *
+ * Usage: DatafileSaveBenchmark [datafiles] [valuesPerFile] [saves]
+ */
+public class DatafileSaveBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int numFiles = (args.length > 0 ? Integer.parseInt(args[0]) : 300);
+        int numValues = (args.length > 1 ? Integer.parseInt(args[1]) : 500);
+        int numSaves = (args.length > 2 ? Integer.parseInt(args[2]) : 200);
+
+        File dir = File.createTempFile("datafiles", "");
+        dir.delete();
+        dir.mkdir();
+
+        DataRepository data = new DataRepository();
+        data.configureEditability();
+        for (int f = 0; f < numFiles; f++) {
+            File file = new File(dir, f + ".dat");
+            Writer out = new FileWriter(file);
+            for (int v = 0; v < numValues; v++)
+                out.write("Task " + (v / 10) + "/Value " + v + "=" + v + "\n");
+            out.close();
+            file.deleteOnExit();
+            data.openDatafile("/Project " + f, file.getPath());
+        }
+        System.out.println("Opened " + numFiles + " datafiles containing "
+                + data.data.size() + " elements");
+
+        // the first save of each file is always a full rewrite
+        data.putValue("/Project 0/Task 0/Value 0", new DoubleData(-1));
+        data.saveAllDatafiles();
+
+        runSaves(data, numSaves, "Full rewrite");
+        System.setProperty(Settings.SYS_PROP_PREFIX
+                + DataRepository.JOURNAL_SAVES_SETTING, "true");
+        runSaves(data, numSaves, "Journaled");
+
+        dir.delete();
+        System.exit(0);
+    }
+
+    private static void runSaves(DataRepository data, int numSaves,
+            String label) {
+        long start = System.nanoTime();
+        for (int i = 0; i < numSaves; i++) {
+            for (int j = 0; j < 3; j++)
+                data.putValue("/Project 0/Task " + j + "/Value " + (j * 10),
+                    new DoubleData(i));
+            data.saveAllDatafiles();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(label + ": " + (elapsed / 1000 / numSaves)
+                + " us per save");
+    }
+
+}
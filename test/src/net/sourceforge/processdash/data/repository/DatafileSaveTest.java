@@ -0,0 +1,175 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.repository;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.sourceforge.processdash.Settings;
+import net.sourceforge.processdash.data.DoubleData;
+import net.sourceforge.processdash.data.SimpleData;
+import net.sourceforge.processdash.data.StringData;
+
+public class DatafileSaveTest extends TestCase {
+
+    private static final String JOURNAL_SETTING = Settings.SYS_PROP_PREFIX
+            + DataRepository.JOURNAL_SAVES_SETTING;
+
+    private File dir;
+
+    private File fileA, fileB;
+
+    private DataRepository data;
+
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("datafiles", "");
+        dir.delete();
+        dir.mkdir();
+        fileA = writeDatafile("a.dat", 40);
+        fileB = writeDatafile("b.dat", 40);
+        data = new DataRepository();
+        data.configureEditability();
+        data.openDatafile("/A", fileA.getPath());
+        data.openDatafile("/B", fileB.getPath());
+    }
+
+    protected void tearDown() throws Exception {
+        System.getProperties().remove(JOURNAL_SETTING);
+        for (File f : dir.listFiles())
+            f.delete();
+        dir.delete();
+    }
+
+    public void testSaveOnlyTouchesDirtyFile() throws Exception {
+        long lengthB = fileB.length();
+        data.putValue("/A/Value 3", new DoubleData(333));
+        data.putValue("/A/New Value", new DoubleData(7));
+        data.removeValue("/A/Value 5");
+        data.saveAllDatafiles();
+        assertEquals(lengthB, fileB.length());
+
+        DataRepository reloaded = reload();
+        assertValue(reloaded, "/A/Value 3", 333);
+        assertValue(reloaded, "/A/New Value", 7);
+        assertValue(reloaded, "/A/Value 6", 6);
+        assertNull(reloaded.getSimpleValue("/A/Value 5"));
+        assertValue(reloaded, "/B/Value 5", 5);
+    }
+
+    public void testJournaledSaves() throws Exception {
+        System.setProperty(JOURNAL_SETTING, "true");
+
+        // the first save after opening a file rewrites it in full
+        data.putValue("/A/Value 1", new DoubleData(100));
+        data.saveAllDatafiles();
+        List<String> lines = readLines(fileA);
+        assertEquals(41, lines.size());
+
+        // subsequent small changes are appended to the file
+        data.putValue("/A/Value 2", new DoubleData(200));
+        data.putValue("/A/Value 2", new DoubleData(201));
+        data.putValue("/A/New Value", new DoubleData(7));
+        data.removeValue("/A/Value 3");
+        data.saveAllDatafiles();
+        lines = readLines(fileA);
+        assertEquals(44, lines.size());
+        assertEquals("New Value=7.0", lines.get(41));
+        assertEquals("Value 2=201.0", lines.get(42));
+        assertEquals("Value 3=null", lines.get(43));
+
+        DataRepository reloaded = reload();
+        assertValue(reloaded, "/A/Value 1", 100);
+        assertValue(reloaded, "/A/Value 2", 201);
+        assertValue(reloaded, "/A/New Value", 7);
+        assertNull(reloaded.getSimpleValue("/A/Value 3"));
+        assertValue(reloaded, "/A/Value 4", 4);
+
+        // once the journal grows large enough, the file is rewritten
+        for (int i = 10; i < 18; i++)
+            data.putValue("/A/Value " + i, new DoubleData(-i));
+        data.saveAllDatafiles();
+        lines = readLines(fileA);
+        assertEquals(41, lines.size());
+        assertValue(reload(), "/A/Value 15", -15);
+    }
+
+    public void testRewriteIgnoresJournal() throws Exception {
+        System.setProperty(JOURNAL_SETTING, "true");
+        data.putValue("/A/Value 1", new DoubleData(100));
+        data.saveAllDatafiles();
+
+        // a few pending changes would normally be journaled, but preparing
+        // a dataset for bundle migration must rewrite every file in full
+        data.putValue("/A/Bundle_Qualifier", StringData.create("qualA"));
+        data.enableBundleQualifiers();
+        data.rewriteAllDatafiles();
+
+        List<String> lines = readLines(fileA);
+        assertTrue(lines.contains("= Bundle_Qualifier = qualA"));
+        assertFalse(lines.get(lines.size() - 1).startsWith("Bundle_Qualifier"));
+        assertValue(reload(), "/A/Value 1", 100);
+        assertTrue(readLines(fileB).get(0).startsWith("= Data for"));
+    }
+
+    private DataRepository reload() throws Exception {
+        DataRepository result = new DataRepository();
+        result.openDatafile("/A", fileA.getPath());
+        result.openDatafile("/B", fileB.getPath());
+        return result;
+    }
+
+    private void assertValue(DataRepository data, String name, double value) {
+        SimpleData d = data.getSimpleValue(name);
+        assertTrue(name, d instanceof DoubleData);
+        assertEquals(name, value, ((DoubleData) d).getDouble(), 0);
+    }
+
+    private File writeDatafile(String name, int numValues) throws IOException {
+        File result = new File(dir, name);
+        Writer out = new FileWriter(result);
+        for (int i = 0; i < numValues; i++)
+            out.write("Value " + i + "=" + i + "\n");
+        out.close();
+        return result;
+    }
+
+    private List<String> readLines(File f) throws IOException {
+        List<String> result = new ArrayList<String>();
+        BufferedReader in = new BufferedReader(new FileReader(f));
+        String line;
+        while ((line = in.readLine()) != null)
+            result.add(line);
+        in.close();
+        return result;
+    }
+
+}
@@ -0,0 +1,137 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.repository;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+public class DependencyGraphTest extends TestCase {
+
+    private DependencyGraph<String> graph;
+
+    protected void setUp() throws Exception {
+        graph = new DependencyGraph<String>();
+    }
+
+    public void testDependencyOrder() {
+        // leaf -> a -> b -> c, with a UI listener on both a and c
+        Listener a = new Listener(), b = new Listener(), c = new Listener();
+        Listener ui = new Listener();
+        graph.addChangedElement("leaf");
+        event(ui, "c");
+        event(c, "b");
+        event(ui, "a");
+        event(b, "a");
+        event(a, "leaf");
+        produce("a", a);
+        produce("b", b);
+        produce("c", c);
+
+        Set<String> circular = new HashSet<String>();
+        List<DataListener> order = graph.sort(circular);
+        assertTrue(circular.isEmpty());
+        assertEquals(4, order.size());
+        assertTrue(order.indexOf(a) < order.indexOf(b));
+        assertTrue(order.indexOf(b) < order.indexOf(c));
+        assertTrue(order.indexOf(c) < order.indexOf(ui));
+
+        // the UI listener hears about both of its changes at once
+        assertEquals(2, graph.getEvents(ui).size());
+    }
+
+    public void testCycleDetection() {
+        // leaf -> a -> b -> a
+        Listener a = new Listener(), b = new Listener();
+        graph.addChangedElement("leaf");
+        event(a, "leaf");
+        event(a, "b");
+        event(b, "a");
+        produce("a", a);
+        produce("b", b);
+
+        Set<String> circular = new HashSet<String>();
+        List<DataListener> order = graph.sort(circular);
+        assertEquals(2, order.size());
+        assertEquals(1, circular.size());
+        assertTrue(circular.contains("a") || circular.contains("b"));
+    }
+
+    public void testSelfReference() {
+        Listener a = new Listener();
+        event(a, "a");
+        produce("a", a);
+
+        Set<String> circular = new HashSet<String>();
+        graph.sort(circular);
+        assertEquals(1, circular.size());
+        assertTrue(circular.contains("a"));
+    }
+
+    public void testLongChain() {
+        // a chain deep enough to overflow the stack if sorted recursively
+        int length = 200000;
+        Listener[] chain = new Listener[length];
+        for (int i = 0; i < length; i++) {
+            chain[i] = new Listener();
+            produce("n" + i, chain[i]);
+        }
+        for (int i = length; i-- > 1;)
+            event(chain[i], "n" + (i - 1));
+        event(chain[0], "leaf");
+
+        Set<String> circular = new HashSet<String>();
+        List<DataListener> order = graph.sort(circular);
+        assertTrue(circular.isEmpty());
+        assertEquals(length, order.size());
+        for (int i = 0; i < length; i++)
+            assertSame(chain[i], order.get(i));
+    }
+
+    public void testRemoveEvents() {
+        Listener a = new Listener();
+        event(a, "x");
+        assertNotNull(graph.removeEvents(a));
+        assertNull(graph.getEvents(a));
+        assertTrue(graph.sort(new HashSet<String>()).isEmpty());
+    }
+
+    private void event(Listener dl, String name) {
+        graph.addEvent(dl, name, name);
+    }
+
+    private void produce(String name, Listener dl) {
+        graph.addProducer(name, dl);
+        graph.addChangedElement(name);
+    }
+
+    private static class Listener implements DataListener {
+        public void dataValueChanged(DataEvent e) {}
+        public void dataValuesChanged(Vector v) {}
+    }
+
+}
@@ -0,0 +1,191 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+
+import net.sourceforge.processdash.data.DoubleData;
+import net.sourceforge.processdash.data.SimpleData;
+import net.sourceforge.processdash.data.compiler.Compiler;
+
+/**
+ * Measures the work performed by the repository after a single leaf time
+ * value changes in a 5-level hierarchy of rollup calculations.
+ * <p>
+ * Every node in the hierarchy has a "Time" rollup summing the times of its
+ * children, and a "Percent Time" calculation dividing its time by the root
+ * time.  A listener on each node queries both values whenever it is
+ * notified, the way a visible form or chart would.  The benchmark reports
+ * the elapsed time until the root rollup reflects the change and until
+ * all notifications have been delivered, along with the number of script
+ * executions and listener events per change.
+ *
+ * Usage: IncrementalRecalcBenchmark [fanout] [iterations]
+ */
+public class IncrementalRecalcBenchmark {
+
+    private static final int LEVELS = 5;
+
+    private static int scriptRuns = 0;
+
+    private static int events = 0;
+
+    public static void main(String[] args) throws Exception {
+        int fanout = (args.length > 0 ? Integer.parseInt(args[0]) : 4);
+        int iterations = (args.length > 1 ? Integer.parseInt(args[1]) : 200);
+
+        DataRepository data = new DataRepository();
+        List<String> leaves = new ArrayList<String>();
+        List<String> nodes = new ArrayList<String>();
+        buildNode(data, "/Root", 0, fanout, leaves, nodes);
+        String rootTime = "/Root/Time";
+        for (String node : nodes)
+            new QueryingListener(data, node).refresh();
+        data.waitForCalculations();
+
+        System.out.println("Leaves: " + leaves.size() + ", rollup nodes: "
+                + nodes.size());
+
+        Random r = new Random(0);
+        double expected = ((DoubleData) data.getSimpleValue(rootTime))
+                .getDouble();
+        // warm up the JIT before measuring
+        for (int i = 0; i < iterations / 4; i++) {
+            expected = touch(data, leaves, r, rootTime, expected);
+            data.waitForCalculations();
+        }
+
+        scriptRuns = events = 0;
+        long rootNanos = 0, totalNanos = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            expected = touch(data, leaves, r, rootTime, expected);
+            rootNanos += System.nanoTime() - start;
+            // let the remaining notifications finish, so each change is
+            // counted in isolation
+            data.waitForCalculations();
+            totalNanos += System.nanoTime() - start;
+        }
+
+        System.out.println("Avg time until root updated (ms): "
+                + (rootNanos / iterations / 1000) / 1000.0);
+        System.out.println("Avg time until all listeners notified (ms): "
+                + (totalNanos / iterations / 1000) / 1000.0);
+        System.out.println("Script runs per change: "
+                + ((double) scriptRuns / iterations));
+        System.out.println("Listener events per change: "
+                + ((double) events / iterations));
+        data.shutDown();
+        System.exit(0);
+    }
+
+    private static void buildNode(DataRepository data, String path,
+            int level, int fanout, List<String> leaves, List<String> nodes)
+            throws Exception {
+        String timeName = path + "/Time";
+        if (level == LEVELS) {
+            data.putValue(timeName, new DoubleData(1));
+            leaves.add(timeName);
+            return;
+        }
+
+        StringBuilder script = new StringBuilder("0");
+        for (int i = 0; i < fanout; i++) {
+            String child = "Node " + i;
+            buildNode(data, path + "/" + child, level + 1, fanout, leaves,
+                nodes);
+            script.append(" + [").append(child).append("/Time]");
+        }
+        data.putValue(timeName, new CountingFunction(timeName,
+                script.toString(), data, path));
+        String pctName = path + "/Percent Time";
+        data.putValue(pctName, new CountingFunction(pctName,
+                "[Time] / [/Root/Time]", data, path));
+        nodes.add(path);
+    }
+
+    private static double touch(DataRepository data, List<String> leaves,
+            Random r, String rootTime, double expected) {
+        String leaf = leaves.get(r.nextInt(leaves.size()));
+        double oldVal = ((DoubleData) data.getSimpleValue(leaf)).getDouble();
+        double newVal = oldVal + 1;
+        data.putValue(leaf, new DoubleData(newVal));
+        expected += 1;
+        while (true) {
+            SimpleData v = data.getSimpleValue(rootTime);
+            if (v instanceof DoubleData
+                    && ((DoubleData) v).getDouble() == expected)
+                return expected;
+            Thread.yield();
+        }
+    }
+
+    private static class CountingFunction extends CompiledFunction {
+
+        public CountingFunction(String name, String script,
+                DataRepository r, String prefix) throws Exception {
+            super(name, Compiler.compile(script), r, prefix);
+        }
+
+        protected void recalc() {
+            if (extChanges != null && extChanges.isDirty())
+                scriptRuns++;
+            super.recalc();
+        }
+
+    }
+
+    private static class QueryingListener implements DataListener {
+
+        private DataRepository data;
+
+        private String path;
+
+        public QueryingListener(DataRepository data, String path) {
+            this.data = data;
+            this.path = path;
+            data.addDataListener(path + "/Time", this, false);
+            data.addDataListener(path + "/Percent Time", this, false);
+        }
+
+        public void dataValueChanged(DataEvent e) {
+            refresh();
+        }
+
+        public void dataValuesChanged(Vector v) {
+            refresh();
+        }
+
+        void refresh() {
+            events++;
+            data.getSimpleValue(path + "/Time");
+            data.getSimpleValue(path + "/Percent Time");
+        }
+
+    }
+
+}
@@ -0,0 +1,102 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.repository;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+
+import net.sourceforge.processdash.data.DoubleData;
+import net.sourceforge.processdash.data.ImmutableDoubleData;
+import net.sourceforge.processdash.data.ListData;
+
+/**
+ * Measures the time needed to materialize <code>[Search]</code> lists in a
+ * large repository.
+ * <p>
+ * The benchmark fills a repository with a number of projects, each
+ * containing many tasks with several metrics.  It then opens a datafile for
+ * every project which declares search lists, and reports the time needed to
+ * create them, and to add a new tagged task afterward.
+ *
+ * Usage: SearchStartupBenchmark [projects] [tasksPerProject]
+ */
+public class SearchStartupBenchmark {
+
+    private static final String[] METRICS = { "Time", "Estimated Time",
+            "Size", "Estimated Size", "Defects Injected", "Completed" };
+
+    public static void main(String[] args) throws Exception {
+        int numProjects = (args.length > 0 ? Integer.parseInt(args[0]) : 50);
+        int numTasks = (args.length > 1 ? Integer.parseInt(args[1]) : 200);
+
+        DataRepository data = new DataRepository();
+        for (int p = 0; p < numProjects; p++) {
+            for (int t = 0; t < numTasks; t++) {
+                String task = "/Project " + p + "/Task " + t;
+                for (String metric : METRICS)
+                    data.putValue(task + "/" + metric, new DoubleData(t));
+                if (t % 10 == 0)
+                    data.putValue(task + "/Milestone Tag",
+                        ImmutableDoubleData.TRUE);
+            }
+        }
+        System.out.println("Repository contains " + data.data.size()
+                + " elements");
+
+        File datafile = File.createTempFile("search", ".dat");
+        datafile.deleteOnExit();
+        Writer out = new FileWriter(datafile);
+        out.write("[Milestones] = search(\".\", \"Milestone Tag\");\n");
+        out.write("[Late Milestones] = search(\".\", \"Milestone Tag\", "
+                + "[Time] > [Estimated Time]);\n");
+        out.write("[Phases] = search(\".\", \"Phase Tag\");\n");
+        out.close();
+
+        long start = System.nanoTime();
+        for (int p = 0; p < numProjects; p++) {
+            String prefix = "/Project " + p;
+            data.openDatafile(prefix, datafile.getPath());
+            data.getSimpleValue(prefix + "/Milestones");
+            data.getSimpleValue(prefix + "/Late Milestones");
+            data.getSimpleValue(prefix + "/Phases");
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println("Created " + (numProjects * 3) + " searches in "
+                + (elapsed / 1000000) + " ms");
+
+        start = System.nanoTime();
+        data.putValue("/Project 0/New Task/Milestone Tag",
+            ImmutableDoubleData.TRUE);
+        elapsed = System.nanoTime() - start;
+        ListData milestones = (ListData) data
+                .getSimpleValue("/Project 0/Milestones");
+        System.out.println("Added a tagged element in "
+                + (elapsed / 1000) + " us; search now lists "
+                + milestones.size() + " items");
+
+        System.exit(0);
+    }
+
+}
@@ -0,0 +1,177 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.data.repository;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.sourceforge.processdash.data.DoubleData;
+import net.sourceforge.processdash.data.SimpleData;
+
+public class StartupImageTest extends TestCase {
+
+    private File dir;
+
+    private File imageFile;
+
+    private File template;
+
+    private List<String[]> datafiles;
+
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("datafiles", "");
+        dir.delete();
+        dir.mkdir();
+        imageFile = new File(dir, "startup.img");
+        template = write("template.txt", "[Estimated Time] = 10;\n"
+                + "[Total] = [Value 1] + [Value 2];\n"
+                + "[/Template Global] = 5;\n");
+
+        datafiles = new ArrayList<String[]>();
+        for (int i = 0; i < 10; i++) {
+            File f = write(i + ".dat", "#include <template.txt>\n"
+                    + "Value 1=" + i + "\n" //
+                    + "Value 2=" + (i * 2) + "\n");
+            datafiles.add(new String[] { "/Project " + i, f.getPath() });
+        }
+        File global = write("global.dat", "#include <dataFile.txt>\n");
+        datafiles.add(new String[] { "", global.getPath() });
+    }
+
+    protected void tearDown() throws Exception {
+        for (File f : dir.listFiles())
+            f.delete();
+        dir.delete();
+    }
+
+    public void testImageMatchesTextParse() throws Exception {
+        DataRepository first = open();
+        assertEquals(5.0, ((DoubleData) first
+                .getSimpleValue("/Template Global")).getDouble(), 0);
+        first.saveStartupImage(imageFile);
+        assertTrue(imageFile.isFile());
+
+        DataRepository second = new DataRepository();
+        second.setDatafileSearchURLs(new URL[] { dir.toURI().toURL() });
+        assertTrue(second.loadStartupImage(imageFile));
+        openDatafiles(second);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i * 3.0, value(second, i, "Total"), 0);
+            assertEquals(10.0, value(second, i, "Estimated Time"), 0);
+        }
+        assertEquals(5.0, ((DoubleData) second
+                .getSimpleValue("/Template Global")).getDouble(), 0);
+    }
+
+    public void testImageEntriesAreUsed() throws Exception {
+        open().saveStartupImage(imageFile);
+
+        // change a datafile and the template, but preserve the datafile's
+        // size and timestamp. The image should still be used for both.
+        File f = new File(datafiles.get(4)[1]);
+        long timestamp = f.lastModified();
+        write("4.dat", "#include <template.txt>\n"
+                + "Value 1=9\n" //
+                + "Value 2=9\n");
+        f.setLastModified(timestamp);
+        template.delete();
+
+        DataRepository data = open();
+        assertEquals(12.0, value(data, 4, "Total"), 0);
+    }
+
+    public void testStaleEntriesAreParsed() throws Exception {
+        open().saveStartupImage(imageFile);
+
+        File f = new File(datafiles.get(4)[1]);
+        write("4.dat", "#include <template.txt>\n"
+                + "Value 1=100\n" //
+                + "Value 2=200\n");
+        f.setLastModified(f.lastModified() + 5000);
+
+        DataRepository data = open();
+        assertEquals(300.0, value(data, 4, "Total"), 0);
+        assertEquals(3.0, value(data, 1, "Total"), 0);
+
+        // the new contents should be recorded in the next image
+        long imageLength = imageFile.length();
+        data.saveStartupImage(imageFile);
+        assertEquals(300.0, value(open(), 4, "Total"), 0);
+        assertTrue(imageFile.length() >= imageLength);
+    }
+
+    public void testDamagedImageIsIgnored() throws Exception {
+        open().saveStartupImage(imageFile);
+        RandomAccessFile raf = new RandomAccessFile(imageFile, "rw");
+        raf.setLength(imageFile.length() / 2);
+        raf.seek(40);
+        raf.write(new byte[64]);
+        raf.close();
+
+        DataRepository data = new DataRepository();
+        data.setDatafileSearchURLs(new URL[] { dir.toURI().toURL() });
+        assertFalse(data.loadStartupImage(imageFile));
+        openDatafiles(data);
+        for (int i = 0; i < 10; i++)
+            assertEquals(i * 3.0, value(data, i, "Total"), 0);
+    }
+
+    private DataRepository open() throws Exception {
+        DataRepository result = new DataRepository();
+        result.setDatafileSearchURLs(new URL[] { dir.toURI().toURL() });
+        result.loadStartupImage(imageFile);
+        openDatafiles(result);
+        return result;
+    }
+
+    private void openDatafiles(DataRepository data) throws Exception {
+        Exception[] errors = data.openDatafiles(datafiles);
+        for (Exception e : errors)
+            if (e != null)
+                throw e;
+    }
+
+    private double value(DataRepository data, int project, String name) {
+        SimpleData d = data.getSimpleValue("/Project " + project + "/" + name);
+        return ((DoubleData) d).getDouble();
+    }
+
+    private File write(String name, String contents) throws IOException {
+        File result = new File(dir, name);
+        Writer out = new FileWriter(result);
+        out.write(contents);
+        out.close();
+        return result;
+    }
+
+}
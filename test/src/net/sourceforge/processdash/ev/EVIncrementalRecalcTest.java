@@ -0,0 +1,285 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+
+package net.sourceforge.processdash.ev;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.sourceforge.processdash.data.repository.DataEvent;
+import net.sourceforge.processdash.data.repository.DataRepository;
+import net.sourceforge.processdash.log.time.DashboardTimeLog;
+import net.sourceforge.processdash.log.time.TimeLog;
+import net.sourceforge.processdash.log.time.TimeLogEntry;
+import net.sourceforge.processdash.log.time.TimeLogEntryVO;
+import net.sourceforge.processdash.log.time.TimeLogIteratorFilter;
+import net.sourceforge.processdash.util.EnumerIterator;
+
+public class EVIncrementalRecalcTest extends TestCase {
+
+    private static final long HOUR = 60L * 60 * 1000;
+
+    private static final long START = 1300000000000L;
+
+    private TestTimeLog timeLog;
+
+    private TimeLog oldDefault;
+
+    @Override
+    protected void setUp() throws Exception {
+        oldDefault = DashboardTimeLog.getDefault();
+        timeLog = new TestTimeLog();
+        DashboardTimeLog.setDefault(timeLog);
+
+        for (int i = 0; i < 40; i++)
+            timeLog.add("/Project/Component " + (i % 3) + "/Task " + (i % 4),
+                START + (i + 1) * 20 * HOUR, 30 + i);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        DashboardTimeLog.setDefault(oldDefault);
+    }
+
+    public void testNewTimeLogEntries() {
+        TestTaskList list = new TestTaskList();
+        list.recalc();
+
+        timeLog.add("/Project/Component 1/Task 2", START + 300 * HOUR, 45);
+        timeLog.add("/Project/Component 1/Task 2/Code", START + 900 * HOUR,
+            20);
+        timeLog.add("/Project/Component 2/Task 0", START + 500 * HOUR, 15);
+        assertTrue(list.calculator.recalculateActualTime(list.getTasks(
+            "/Project/Component 1/Task 2", "/Project/Component 2/Task 0")));
+        assertSameResults(list);
+    }
+
+    public void testChangedTimeLogEntry() {
+        TestTaskList list = new TestTaskList();
+        list.recalc();
+
+        timeLog.entries.set(5, new TimeLogEntryVO(5,
+                timeLog.entries.get(5).getPath(),
+                timeLog.entries.get(5).getStartTime(), 200, 0, null));
+        EVTask task = list.getTask(timeLog.entries.get(5).getPath());
+        assertTrue(list.calculator.recalculateActualTime(
+            Collections.singleton(task)));
+        assertSameResults(list);
+    }
+
+    public void testFirstTimeForTask() {
+        TestTaskList list = new TestTaskList();
+        list.recalc();
+
+        timeLog.add("/Project/Component 0/Task 5", START + 50 * HOUR, 60);
+        assertTrue(list.calculator.recalculateActualTime(list.getTasks(
+            "/Project/Component 0/Task 5")));
+        assertSameResults(list);
+    }
+
+    public void testUnsupportedChanges() {
+        TestTaskList list = new TestTaskList();
+        list.recalc();
+
+        // time logged before the start of the schedule
+        timeLog.add("/Project/Component 0/Task 5", START - 50 * HOUR, 60);
+        assertFalse(list.calculator.recalculateActualTime(list.getTasks(
+            "/Project/Component 0/Task 5")));
+
+        // removing the earliest entry for a task moves its start date later
+        list.recalc();
+        timeLog.entries.remove(0);
+        assertFalse(list.calculator.recalculateActualTime(list.getTasks(
+            "/Project/Component 0/Task 0")));
+
+        // tasks that are not leaves of the plan
+        list.recalc();
+        assertFalse(list.calculator.recalculateActualTime(list.getTasks(
+            "/Project/Component 0")));
+    }
+
+    public void testPlanTimeReplay() {
+        TestTaskList list = new TestTaskList();
+        list.recalc();
+
+        list.getTask("/Project/Component 2/Task 1").topDownPlanTime = 1500;
+        int reads = timeLog.reads;
+        list.calculator.planTimeChanged();
+        list.recalc();
+        assertEquals(reads, timeLog.reads);
+
+        TestTaskList expected = new TestTaskList();
+        expected.getTask("/Project/Component 2/Task 1").topDownPlanTime = 1500;
+        expected.recalc();
+        assertSameResults(expected, list);
+
+        // the replayed entries are still available for incremental changes
+        timeLog.add("/Project/Component 2/Task 1", START + 400 * HOUR, 25);
+        assertTrue(list.calculator.recalculateActualTime(list.getTasks(
+            "/Project/Component 2/Task 1")));
+        expected = new TestTaskList();
+        expected.getTask("/Project/Component 2/Task 1").topDownPlanTime = 1500;
+        expected.recalc();
+        assertSameResults(expected, list);
+    }
+
+    public void testTrailingFullRecalc() {
+        TestTaskList list = new TestTaskList(true);
+        list.recalc();
+        assertFalse(list.recalcTimer.isRunning());
+
+        // an incremental recalc should schedule a full recalc for the end
+        // of the full recalc interval
+        timeLog.add("/Project/Component 0/Task 5", START + 50 * HOUR, 60);
+        EVTask task = list.getTask("/Project/Component 0/Task 5");
+        task.handleEvent(new DataEvent(new DataRepository(), task.fullName
+                + "/" + EVTask.ACT_TIME_DATA_NAME, DataEvent.VALUE_CHANGED,
+                null));
+        list.evNodeChanged(task, true);
+        list.recalcIncrementally();
+        assertTrue(list.recalcTimer.isRunning());
+        assertTrue(list.recalcTimer.getInitialDelay() > 60000);
+
+        // a change that needs a full recalc replaces the trailing recalc
+        list.taskLabelsChanged();
+        assertTrue(list.recalcTimer.isRunning());
+        assertEquals(1000, list.recalcTimer.getInitialDelay());
+
+        // a full recalc cancels the trailing recalc
+        list.recalcTimer.stop();
+        task.handleEvent(new DataEvent(new DataRepository(), task.fullName
+                + "/" + EVTask.ACT_TIME_DATA_NAME, DataEvent.VALUE_CHANGED,
+                null));
+        list.evNodeChanged(task, true);
+        list.recalcIncrementally();
+        assertTrue(list.recalcTimer.isRunning());
+        list.recalc();
+        assertFalse(list.recalcTimer.isRunning());
+        assertEquals(1000, list.recalcTimer.getInitialDelay());
+        list.incrementalRecalcTimer.stop();
+    }
+
+    private void assertSameResults(TestTaskList list) {
+        TestTaskList expected = new TestTaskList();
+        expected.recalc();
+        assertSameResults(expected, list);
+    }
+
+    private void assertSameResults(TestTaskList expected, TestTaskList actual) {
+        assertSameTasks(expected.getTaskRoot(), actual.getTaskRoot());
+
+        EVSchedule e = expected.getSchedule(), a = actual.getSchedule();
+        assertEquals(e.getRowCount(), a.getRowCount());
+        for (int i = 0; i < e.getRowCount(); i++) {
+            assertEquals(e.get(i).actualDirectTime, a.get(i).actualDirectTime,
+                0.001);
+            assertEquals(e.get(i).cumActualDirectTime,
+                a.get(i).cumActualDirectTime, 0.001);
+        }
+    }
+
+    private void assertSameTasks(EVTask e, EVTask a) {
+        String name = a.fullName;
+        assertEquals(name, e.actualNodeTime, a.actualNodeTime, 0.001);
+        assertEquals(name, e.actualTime, a.actualTime, 0.001);
+        assertEquals(name, e.actualDirectTime, a.actualDirectTime, 0.001);
+        assertEquals(name, e.actualCurrentTime, a.actualCurrentTime, 0.001);
+        assertEquals(name, e.actualStartDate, a.actualStartDate);
+        assertEquals(name, e.planDate, a.planDate);
+        assertEquals(e.getNumChildren(), a.getNumChildren());
+        for (int i = 0; i < e.getNumChildren(); i++)
+            assertSameTasks(e.getChild(i), a.getChild(i));
+    }
+
+
+    private static class TestTaskList extends EVTaskList {
+
+        TestTaskList() {
+            this(false);
+        }
+
+        TestTaskList(boolean willNeedChangeNotification) {
+            super("Test", null, willNeedChangeNotification);
+            EVTask rootTask = new EVTask("Test");
+            root = rootTask;
+            EVTask project = addChild(rootTask, "Project");
+            for (int c = 0; c < 3; c++) {
+                EVTask component = addChild(project, "Component " + c);
+                for (int t = 0; t < 6; t++)
+                    addChild(component, "Task " + t).topDownPlanTime = 600;
+            }
+            schedule = new EVSchedule(new Date(START), 20, 30, null, 0,
+                    false);
+            calculator = new EVCalculatorData(this);
+        }
+
+        private EVTask addChild(EVTask parent, String name) {
+            EVTask result = new EVTask(name);
+            result.fullName = parent.fullName + "/" + name;
+            result.planTimeNull = false;
+            parent.add(result);
+            return result;
+        }
+
+        EVTask getTask(String path) {
+            EVTask result = getTaskRoot().getTaskForPath(path);
+            assertEquals(path, result.fullName);
+            return result;
+        }
+
+        List<EVTask> getTasks(String... paths) {
+            List<EVTask> result = new ArrayList<EVTask>();
+            for (String path : paths)
+                result.add(getTask(path));
+            return result;
+        }
+    }
+
+
+    private static class TestTimeLog implements TimeLog {
+
+        List<TimeLogEntry> entries = new ArrayList<TimeLogEntry>();
+
+        int reads;
+
+        void add(String path, long when, long elapsed) {
+            entries.add(new TimeLogEntryVO(entries.size() + 1, path,
+                    new Date(when), elapsed, 0, null));
+        }
+
+        public EnumerIterator filter(String path, Date from, Date to)
+                throws IOException {
+            reads++;
+            return new TimeLogIteratorFilter(
+                    new ArrayList<TimeLogEntry>(entries).iterator(), path,
+                    from, to);
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+
+package net.sourceforge.processdash.ev;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import net.sourceforge.processdash.log.time.TimeLogEntry;
+import net.sourceforge.processdash.log.time.TimeLogEntryVO;
+
+/**
+ * Measures the portion of an EV recalculation that records each time log
+ * entry against its task and schedule period.  This compares the original
+ * child-by-child task search and backward period scan against the indexed
+ * lookups in {@link EVTask} and {@link EVSchedule}.
+ *
+ * Usage: EVRecalcBenchmark [numEntries] [numProjects] [numWeeks]
+ */
+public class EVRecalcBenchmark {
+
+    private static final long HOUR = 60L * 60 * 1000;
+
+    public static void main(String[] args) throws Exception {
+        int numEntries = (args.length > 0 ? Integer.parseInt(args[0]) : 200000);
+        int numProjects = (args.length > 1 ? Integer.parseInt(args[1]) : 50);
+        int numWeeks = (args.length > 2 ? Integer.parseInt(args[2]) : 150);
+
+        // build a task list spanning many projects
+        EVTask root = new EVTask("Benchmark");
+        for (int p = 0; p < numProjects; p++) {
+            EVTask project = addChild(root, "Project " + p);
+            for (int c = 0; c < 20; c++) {
+                EVTask component = addChild(project, "Component " + c);
+                for (int t = 0; t < 10; t++)
+                    addChild(component, "Task " + t);
+            }
+        }
+
+        // write a time log spread over the life of the schedule
+        Random r = new Random(0);
+        long start = 1300000000000L;
+        long span = numWeeks * 7 * 24 * HOUR;
+        List<TimeLogEntry> entries = new ArrayList<TimeLogEntry>(numEntries);
+        for (int i = 1; i <= numEntries; i++) {
+            String path = "/Project " + r.nextInt(numProjects)
+                    + "/Component " + r.nextInt(20) + "/Task " + r.nextInt(10)
+                    + "/Code";
+            Date when = new Date(start + (long) (r.nextDouble() * span));
+            entries.add(new TimeLogEntryVO(i, path, when, r.nextInt(120), 0,
+                    null));
+        }
+        System.out.println(numEntries + " entries, "
+                + (numProjects * 221) + " tasks, " + numWeeks + " weeks");
+
+        for (int pass = 0; pass < 3; pass++) {
+            EVSchedule schedule = makeSchedule(start, numWeeks);
+            long t = System.nanoTime();
+            for (TimeLogEntry e : entries) {
+                EVTask task = scanForPath(root, e.getPath());
+                if (task != null)
+                    scanAndSaveActualTime(schedule, e.getStartTime(),
+                        e.getElapsedTime());
+            }
+            report("linear scans", t, schedule);
+
+            schedule = makeSchedule(start, numWeeks);
+            t = System.nanoTime();
+            for (TimeLogEntry e : entries) {
+                EVTask task = root.getTaskForPath(e.getPath());
+                if (task != null)
+                    schedule.saveActualTimeDeferred(e.getStartTime(),
+                        e.getElapsedTime());
+            }
+            schedule.recalcCumActualTimes();
+            report("indexed lookups", t, schedule);
+        }
+    }
+
+    private static EVTask addChild(EVTask parent, String name) {
+        EVTask result = new EVTask(name);
+        result.fullName = parent.fullName + "/" + name;
+        parent.add(result);
+        return result;
+    }
+
+    private static EVSchedule makeSchedule(long start, int numWeeks) {
+        return new EVSchedule(new Date(start), 20, numWeeks, null, 0, false);
+    }
+
+    /** The original child-by-child search performed by getTaskForPath */
+    private static EVTask scanForPath(EVTask task, String fullPath) {
+        String fullName = task.fullName;
+        if (fullName != null && fullName.equals(fullPath)) return task;
+
+        if (fullName != null) {
+            if (fullPath.length() <= fullName.length()) return null;
+            if (!fullPath.startsWith(fullName)) return null;
+            if (fullPath.charAt(fullName.length()) != '/') return null;
+        }
+
+        for (int i = task.getNumChildren();   i-- > 0;  ) {
+            EVTask result = scanForPath(task.getChild(i), fullPath);
+            if (result != null) return result;
+        }
+
+        if (fullName == null || fullName.length() == 0)
+            return null;
+        else
+            return task;
+    }
+
+    /** The original backward scan performed by saveActualTime */
+    private static void scanAndSaveActualTime(EVSchedule s, Date when,
+            double actualTime) {
+        for (int i = s.periods.size();  i-- > 0; ) {
+            EVSchedule.Period p = s.get(i);
+            if (when.compareTo(p.endDate) < 0) {
+                p.cumActualDirectTime += actualTime;
+                if (when.compareTo(p.getBeginDate()) >= 0)
+                    p.actualDirectTime += actualTime;
+            } else
+                break;
+        }
+    }
+
+    private static void report(String what, long start, EVSchedule s) {
+        long elapsed = System.nanoTime() - start;
+        System.out.println(what + ": " + (elapsed / 1000000)
+                + " ms (total time " + s.getLast().cumActualDirectTime + ")");
+    }
+
+}
@@ -0,0 +1,262 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+
+package net.sourceforge.processdash.ev;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EventObject;
+import java.util.List;
+import java.util.Set;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+import junit.framework.TestCase;
+
+import net.sourceforge.processdash.Settings;
+import net.sourceforge.processdash.log.time.DashboardTimeLog;
+import net.sourceforge.processdash.log.time.TimeLog;
+import net.sourceforge.processdash.log.time.TimeLogEntry;
+import net.sourceforge.processdash.log.time.TimeLogEntryVO;
+import net.sourceforge.processdash.log.time.TimeLogIteratorFilter;
+import net.sourceforge.processdash.util.EnumerIterator;
+
+public class EVRollupParallelRecalcTest extends TestCase {
+
+    private static final String THREADS_SETTING = Settings.SYS_PROP_PREFIX
+            + "ev.rollupRecalcThreads";
+
+    private static final long HOUR = 60L * 60 * 1000;
+
+    private static final long START = 1300000000000L;
+
+    private static final int NUM_MEMBERS = 7;
+
+    private TimeLog oldDefault;
+
+    private List<String> events;
+
+    private Thread testThread;
+
+    @Override
+    protected void setUp() throws Exception {
+        oldDefault = DashboardTimeLog.getDefault();
+        DashboardTimeLog.setDefault(new TestTimeLog());
+        events = Collections.synchronizedList(new ArrayList<String>());
+        testThread = Thread.currentThread();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        DashboardTimeLog.setDefault(oldDefault);
+        System.getProperties().remove(THREADS_SETTING);
+    }
+
+    public void testParallelMatchesSerial() {
+        EVTaskListRollup serial = recalcRollup(1);
+        List<String> serialEvents = new ArrayList<String>(events);
+        events.clear();
+
+        EVTaskListRollup parallel = recalcRollup(4);
+        assertSameTasks(serial.getTaskRoot(), parallel.getTaskRoot());
+        assertSameSchedule(serial.getSchedule(), parallel.getSchedule());
+        for (int i = 0; i < NUM_MEMBERS; i++) {
+            EVTaskList s = serial.getSubSchedule(i);
+            EVTaskList p = parallel.getSubSchedule(i);
+            assertSameSchedule(s.getSchedule(), p.getSchedule());
+            assertEquals(s.showLabelsColumn, p.showLabelsColumn);
+            assertEquals(s.totalActualTime, p.totalActualTime, 0.001);
+        }
+
+        // events should be delivered in the same order, on this thread
+        assertEquals(serialEvents, events);
+        assertFalse(events.isEmpty());
+    }
+
+    public void testNestedRollups() {
+        EVTaskListRollup serial = recalcNestedRollup(1);
+        List<String> serialEvents = new ArrayList<String>(events);
+        events.clear();
+
+        EVTaskListRollup parallel = recalcNestedRollup(3);
+        assertSameTasks(serial.getTaskRoot(), parallel.getTaskRoot());
+        assertSameSchedule(serial.getSchedule(), parallel.getSchedule());
+        assertEquals(serialEvents, events);
+        assertFalse(events.isEmpty());
+    }
+
+    private EVTaskListRollup recalcRollup(int numThreads) {
+        System.setProperty(THREADS_SETTING, Integer.toString(numThreads));
+        EVTaskListRollup result = new EVTaskListRollup("Team", makeMembers(0));
+        result.recalc();
+        return result;
+    }
+
+    private EVTaskListRollup recalcNestedRollup(int numThreads) {
+        System.setProperty(THREADS_SETTING, Integer.toString(numThreads));
+        List<EVTaskList> teams = new ArrayList<EVTaskList>();
+        teams.add(new EVTaskListRollup("Team A", makeMembers(0)));
+        teams.add(new EVTaskListRollup("Team B", makeMembers(NUM_MEMBERS)));
+        EVTaskListRollup result = new EVTaskListRollup("Program", teams);
+        result.recalc();
+        return result;
+    }
+
+    private List<EVTaskList> makeMembers(int offset) {
+        TestLabeler labeler = new TestLabeler();
+        List<EVTaskList> result = new ArrayList<EVTaskList>();
+        for (int i = 0; i < NUM_MEMBERS; i++) {
+            MemberTaskList member = new MemberTaskList("Person " + (offset + i));
+            member.setTaskLabeler(labeler);
+            result.add(member);
+        }
+        return result;
+    }
+
+    private void assertSameTasks(EVTask e, EVTask a) {
+        String name = a.fullName + " " + a.name;
+        assertEquals(name, e.name, a.name);
+        assertEquals(name, e.planValue, a.planValue, 0.001);
+        assertEquals(name, e.actualTime, a.actualTime, 0.001);
+        assertEquals(name, e.actualDirectTime, a.actualDirectTime, 0.001);
+        assertEquals(name, e.valueEarned, a.valueEarned, 0.001);
+        assertEquals(name, e.planDate, a.planDate);
+        assertEquals(name, e.replanDate, a.replanDate);
+        assertEquals(name, e.actualStartDate, a.actualStartDate);
+        assertEquals(name, e.getNumChildren(), a.getNumChildren());
+        for (int i = 0; i < e.getNumChildren(); i++)
+            assertSameTasks(e.getChild(i), a.getChild(i));
+    }
+
+    private void assertSameSchedule(EVSchedule e, EVSchedule a) {
+        assertEquals(e.getRowCount(), a.getRowCount());
+        for (int i = 0; i < e.getRowCount(); i++) {
+            assertEquals(e.get(i).endDate, a.get(i).endDate);
+            assertEquals(e.get(i).planDirectTime, a.get(i).planDirectTime,
+                0.001);
+            assertEquals(e.get(i).cumPlanValue, a.get(i).cumPlanValue, 0.001);
+            assertEquals(e.get(i).actualDirectTime,
+                a.get(i).actualDirectTime, 0.001);
+            assertEquals(e.get(i).cumEarnedValue, a.get(i).cumEarnedValue,
+                0.001);
+        }
+        EVMetrics em = e.getMetrics(), am = a.getMetrics();
+        assertEquals(em.totalPlan(), am.totalPlan(), 0.001);
+        assertEquals(em.earnedValue(), am.earnedValue(), 0.001);
+        assertEquals(em.actual(), am.actual(), 0.001);
+    }
+
+    private void recordEvent(String event) {
+        if (Thread.currentThread() != testThread)
+            event = event + " on " + Thread.currentThread().getName();
+        events.add(event);
+    }
+
+
+    private class MemberTaskList extends EVTaskList {
+
+        MemberTaskList(final String name) {
+            super(name, null, true);
+            EVTask rootTask = new EVTask(name);
+            root = rootTask;
+            for (int c = 0; c < 3; c++) {
+                EVTask component = addChild(rootTask, "/" + name
+                        + "/Component " + c);
+                for (int t = 0; t < 5; t++)
+                    addChild(component, component.fullName + "/Task " + t)
+                            .topDownPlanTime = 300 + 60 * t;
+            }
+            schedule = new EVSchedule(new Date(START), 20 + name.length(),
+                    20, null, 0, false);
+            calculator = new EVCalculatorData(this);
+
+            addRecalcListener(new RecalcListener() {
+                public void evRecalculated(EventObject e) {
+                    recordEvent("recalculated " + name);
+                }});
+            schedule.addTableModelListener(new TableModelListener() {
+                public void tableChanged(TableModelEvent e) {
+                    recordEvent("schedule changed " + name);
+                }});
+        }
+
+        private EVTask addChild(EVTask parent, String fullName) {
+            EVTask result = new EVTask(fullName.substring(fullName
+                    .lastIndexOf('/') + 1));
+            result.fullName = fullName;
+            result.planTimeNull = false;
+            parent.add(result);
+            return result;
+        }
+    }
+
+
+    private class TestLabeler implements TaskLabeler {
+
+        public void recalculate() {
+            recordEvent("labels");
+        }
+
+        public List<String> getLabelsForTask(EVTask t) {
+            if (t.name.equals("Task 3"))
+                return Collections.singletonList("Testing");
+            else
+                return null;
+        }
+
+        public Set<String> getHiddenLabels() {
+            return Collections.EMPTY_SET;
+        }
+
+        public int compare(String labelA, String labelB) {
+            return labelA.compareTo(labelB);
+        }
+
+        public void dispose() {}
+    }
+
+
+    private static class TestTimeLog implements TimeLog {
+
+        private List<TimeLogEntry> entries = new ArrayList<TimeLogEntry>();
+
+        TestTimeLog() {
+            for (int i = 0; i < 2000; i++)
+                entries.add(new TimeLogEntryVO(i + 1, "/Person " + (i % 14)
+                        + "/Component " + (i % 3) + "/Task " + (i % 5),
+                        new Date(START + (i + 1) * 7 * HOUR), 20 + i % 40, 0,
+                        null));
+        }
+
+        public EnumerIterator filter(String path, Date from, Date to)
+                throws IOException {
+            return new TimeLogIteratorFilter(entries.iterator(), path, from,
+                    to);
+        }
+    }
+
+}
@@ -0,0 +1,236 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+
+package net.sourceforge.processdash.ev;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class EVTaskPathLookupTest extends TestCase {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private Random random;
+
+    private List<String> paths;
+
+    @Override
+    protected void setUp() throws Exception {
+        random = new Random(1);
+        paths = new ArrayList<String>();
+    }
+
+    public void testWideTree() {
+        EVTask root = node("", "root");
+        for (int a = 0; a < 30; a++) {
+            EVTask ta = addChild(root, "/Project " + a);
+            for (int b = 0; b < 12; b++) {
+                EVTask tb = addChild(ta, ta.fullName + "/Component " + b);
+                for (int c = 0; c < 3; c++)
+                    addChild(tb, tb.fullName + "/Task " + c);
+            }
+        }
+        assertLookupsMatch(root);
+    }
+
+    public void testDuplicateAndUnnamedChildren() {
+        // a rollup has several task list roots, all with an empty full name
+        EVTask root = node("", "rollup");
+        for (int l = 0; l < 10; l++) {
+            EVTask list = addChild(root, "");
+            list.name = "List " + l;
+            for (int a = 0; a < 10; a++) {
+                EVTask ta = addChild(list, "/Project " + (a + l) % 12);
+                for (int b = 0; b < 9; b++)
+                    addChild(ta, ta.fullName + "/Component " + b);
+            }
+            // add a node whose name is a prefix of its siblings' names, but
+            // not a parent of them
+            addChild(list, "/Project 1/Comp");
+            list.forceAdd(node(null, "unnamed"));
+        }
+        assertLookupsMatch(root);
+    }
+
+    public void testTreeChanges() {
+        EVTask root = node("", "root");
+        List<EVTask> top = new ArrayList<EVTask>();
+        for (int a = 0; a < 20; a++) {
+            EVTask ta = addChild(root, "/Project " + a);
+            top.add(ta);
+            for (int b = 0; b < 10; b++)
+                addChild(ta, ta.fullName + "/Task " + b);
+        }
+        assertLookupsMatch(root);
+
+        root.remove(top.get(5));
+        assertLookupsMatch(root);
+
+        root.moveUp(10);
+        root.add(0, node("/Project 5", "Project 5"));
+        root.forceAdd(node("/Project 12", "Project 12"));
+        assertLookupsMatch(root);
+
+        EVTask t = top.get(3);
+        t.fullName = "/Renamed";
+        root.childrenChanged();
+        paths.add("/Renamed/Task 1");
+        assertLookupsMatch(root);
+    }
+
+    private EVTask node(String fullName, String name) {
+        EVTask result = new EVTask(name);
+        result.fullName = fullName;
+        if (fullName != null && fullName.length() > 0)
+            paths.add(fullName);
+        return result;
+    }
+
+    private EVTask addChild(EVTask parent, String fullName) {
+        String name = fullName.substring(fullName.lastIndexOf('/') + 1);
+        EVTask result = node(fullName, name);
+        parent.forceAdd(result);
+        return result;
+    }
+
+    private void assertLookupsMatch(EVTask root) {
+        List<String> queries = new ArrayList<String>();
+        for (String path : paths) {
+            queries.add(path);
+            queries.add(path + "/Code");
+            queries.add(path + "0");
+            queries.add(path.substring(0, path.length() - 1));
+        }
+        queries.add("");
+        queries.add("/");
+        queries.add("/Unknown/Task");
+
+        for (String path : queries) {
+            EVTask expected = scanForPath(root, path);
+            EVTask actual = root.getTaskForPath(path);
+            assertSame(path, expected, actual);
+        }
+    }
+
+    /** The original child-by-child search performed by getTaskForPath */
+    private static EVTask scanForPath(EVTask task, String fullPath) {
+        String fullName = task.fullName;
+        if (fullName != null && fullName.equals(fullPath)) return task;
+
+        if (fullName != null) {
+            if (fullPath.length() <= fullName.length()) return null;
+            if (!fullPath.startsWith(fullName)) return null;
+            if (fullPath.charAt(fullName.length()) != '/') return null;
+        }
+
+        for (int i = task.getNumChildren();   i-- > 0;  ) {
+            EVTask result = scanForPath(task.getChild(i), fullPath);
+            if (result != null) return result;
+        }
+
+        if (fullName == null || fullName.length() == 0)
+            return null;
+        else
+            return task;
+    }
+
+
+    public void testSchedulePeriodLookup() {
+        EVSchedule schedule = makeSchedule();
+        long start = schedule.get(0).endDate.getTime();
+        for (int i = 0; i < 2000; i++) {
+            Date d = new Date(start + (long) ((random.nextDouble() - 0.1)
+                    * 120 * 7 * DAY));
+            assertSame(scanForPeriod(schedule, d), schedule.get(d));
+        }
+        for (int i = 0; i < schedule.periods.size(); i++) {
+            Date end = schedule.get(i).endDate;
+            assertSame(scanForPeriod(schedule, end), schedule.get(end));
+        }
+
+        // edit the schedule, and make certain the lookups notice
+        schedule.get(30).setEndDate(new Date(schedule.get(29).endDate
+                .getTime() + DAY));
+        schedule.deleteRow(50);
+        for (int i = 0; i < schedule.periods.size(); i++) {
+            Date end = schedule.get(i).endDate;
+            Date before = new Date(end.getTime() - 1);
+            assertSame(scanForPeriod(schedule, end), schedule.get(end));
+            assertSame(scanForPeriod(schedule, before), schedule.get(before));
+        }
+    }
+
+    public void testDeferredActualTime() {
+        EVSchedule a = makeSchedule();
+        EVSchedule b = makeSchedule();
+        long start = a.get(0).endDate.getTime();
+        for (int i = 0; i < 5000; i++) {
+            // include dates before the schedule and after its end
+            Date d = new Date(start + (long) ((random.nextDouble() - 0.1)
+                    * 150 * 7 * DAY));
+            double time = random.nextInt(120);
+            a.saveActualTime(d, time);
+            b.saveActualTimeDeferred(d, time);
+            if (i % 10 == 0) {
+                a.saveActualIndirectTime(d, time);
+                b.saveActualIndirectTime(d, time);
+                a.saveCompletedTask(d, time);
+                b.saveCompletedTask(d, time);
+            }
+        }
+        b.recalcCumActualTimes();
+
+        assertEquals(a.periods.size(), b.periods.size());
+        assertTrue(a.periods.size() > 110);
+        for (int i = 0; i < a.periods.size(); i++) {
+            EVSchedule.Period pa = a.get(i), pb = b.get(i);
+            assertEquals(pa.endDate, pb.endDate);
+            assertEquals(pa.actualDirectTime, pb.actualDirectTime, 0);
+            assertEquals(pa.actualIndirectTime, pb.actualIndirectTime, 0);
+            assertEquals(pa.cumActualDirectTime, pb.cumActualDirectTime,
+                0.001);
+            assertEquals(pa.cumEarnedValue, pb.cumEarnedValue, 0);
+        }
+    }
+
+    private EVSchedule makeSchedule() {
+        return new EVSchedule(new Date(1300000000000L), 20, 100, null, 0,
+                false);
+    }
+
+    /** The original linear search performed by EVSchedule.get(Date) */
+    private static EVSchedule.Period scanForPeriod(EVSchedule s, Date when) {
+        for (int i = s.periods.size(); i-- > 0;) {
+            EVSchedule.Period p = s.get(i);
+            if (p.getBeginDate().getTime() < when.getTime())
+                return p;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,136 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.ev.ci;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.sourceforge.processdash.Settings;
+import net.sourceforge.processdash.ev.EVMetrics;
+import net.sourceforge.processdash.ev.EVSchedule;
+import net.sourceforge.processdash.ev.EVScheduleRandom;
+import net.sourceforge.processdash.ev.EVScheduleRollup;
+
+public class EVScheduleConfidenceIntervalsTest extends TestCase {
+
+    private static final long WEEK = 7L * 24 * 60 * 60 * 1000;
+
+    private static final String THREADS_SETTING = Settings.SYS_PROP_PREFIX
+            + "ev.simulationThreads";
+
+    private List<EVSchedule> schedules;
+
+    protected void setUp() throws Exception {
+        schedules = new ArrayList<EVSchedule>();
+        for (int i = 0; i < 12; i++)
+            schedules.add(makeSchedule(i));
+    }
+
+    public void testSingleThreadMatchesSerialSimulation() {
+        EVScheduleConfidenceIntervals serial = runSerial();
+        EVScheduleConfidenceIntervals parallel = runParallel(1);
+        assertSameIntervals(serial, parallel);
+    }
+
+    public void testParallelIsDeterministic() {
+        EVScheduleConfidenceIntervals a = runParallel(4);
+        EVScheduleConfidenceIntervals b = runParallel(4);
+        assertSameIntervals(a, b);
+        assertFalse(Arrays.equals(a.cost.samples.getAsArray(),
+            runSerial().cost.samples.getAsArray()));
+        assertEquals(runSerial().cost.samples.size(), a.cost.samples.size());
+    }
+
+    public void testParallelIsStatisticallySimilar() {
+        EVScheduleConfidenceIntervals serial = runSerial();
+        EVScheduleConfidenceIntervals parallel = runParallel(3);
+        double median = serial.cost.getPrediction();
+        assertTrue(median > 0);
+        assertEquals(median, parallel.cost.getPrediction(), median * 0.1);
+    }
+
+    private EVScheduleConfidenceIntervals runSerial() {
+        List randomObjects = new ArrayList();
+        EVSchedule rollup = new Factory().createSchedule(randomObjects);
+        return new EVScheduleConfidenceIntervals(rollup, randomObjects);
+    }
+
+    private EVScheduleConfidenceIntervals runParallel(int numThreads) {
+        System.setProperty(THREADS_SETTING, "" + numThreads);
+        try {
+            return new EVScheduleConfidenceIntervals(new Factory(), false);
+        } finally {
+            System.clearProperty(THREADS_SETTING);
+        }
+    }
+
+    private void assertSameIntervals(EVScheduleConfidenceIntervals a,
+            EVScheduleConfidenceIntervals b) {
+        assertTrue(Arrays.equals(a.cost.samples.getAsArray(),
+            b.cost.samples.getAsArray()));
+        assertTrue(Arrays.equals(a.date.samples.getAsArray(),
+            b.date.samples.getAsArray()));
+        assertTrue(Arrays.equals(a.optimizedDate.samples.getAsArray(),
+            b.optimizedDate.samples.getAsArray()));
+    }
+
+    private class Factory implements
+            EVScheduleConfidenceIntervals.ScheduleFactory {
+        public EVSchedule createSchedule(List randomObjects) {
+            EVScheduleRandom[] rand = new EVScheduleRandom[schedules.size()];
+            for (int i = 0; i < rand.length; i++)
+                rand[i] = new EVScheduleRandom(schedules.get(i));
+            randomObjects.addAll(Arrays.asList(rand));
+            return new EVScheduleRollup(rand);
+        }
+    }
+
+    private EVSchedule makeSchedule(int i) {
+        Date start = new Date(1767600000000L + i * WEEK);
+        Date effDate = new Date(start.getTime() + 4 * WEEK);
+        EVSchedule s = new EVSchedule(start, 10 + i, -1, null, 0, false);
+        s.setEffectiveDate(effDate);
+
+        EVMetrics m = s.getMetrics();
+        m.reset(start, effDate, null, null);
+        m.addTask(600, 500, start, effDate);
+        m.setCostConfidenceInterval(makeInterval(1200 + i * 60, 300));
+        m.setTimeErrConfidenceInterval(makeInterval(1.0, 0.2));
+        return s;
+    }
+
+    private ConfidenceInterval makeInterval(double mean, double spread) {
+        MonteCarloConfidenceInterval result =
+            new MonteCarloConfidenceInterval();
+        for (int i = 0; i <= 100; i++)
+            result.addSample(mean + spread * (i - 50) / 50.0);
+        result.samplesDone();
+        return result;
+    }
+
+}
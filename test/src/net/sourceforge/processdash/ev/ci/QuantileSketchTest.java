@@ -0,0 +1,177 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.ev.ci;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class QuantileSketchTest extends TestCase {
+
+    private static final double EPSILON = 0.01;
+
+    private static final double[] QUANTILES = { 0, 0.01, 0.05, 0.15, 0.25,
+            0.5, 0.75, 0.85, 0.95, 0.99, 1 };
+
+    public void testExactBeforeCompaction() {
+        MonteCarloConfidenceInterval exact = new MonteCarloConfidenceInterval();
+        MonteCarloConfidenceInterval sketched = new MonteCarloConfidenceInterval();
+        sketched.setSketchError(EPSILON);
+        Random r = new Random(1);
+        for (int i = 0; i < 150; i++) {
+            double d = r.nextGaussian();
+            exact.addSample(d);
+            sketched.addSample(d);
+        }
+        exact.samplesDone();
+        sketched.samplesDone();
+
+        assertEquals(150, sketched.getNumSamples());
+        for (double q : QUANTILES)
+            assertEquals(exact.getQuantile(q), sketched.getQuantile(q), 0);
+        assertEquals(exact.getProbability(0.3),
+            sketched.getProbability(0.3), 1.0 / 150);
+    }
+
+    public void testUniformAccuracy() {
+        Random r = new Random(2);
+        double[] values = new double[20000];
+        for (int i = 0; i < values.length; i++)
+            values[i] = r.nextDouble();
+        assertAccuracy(values);
+    }
+
+    public void testSkewedAccuracy() {
+        Random r = new Random(3);
+        double[] values = new double[20000];
+        for (int i = 0; i < values.length; i++)
+            values[i] = Math.exp(r.nextGaussian() * 1.5);
+        assertAccuracy(values);
+    }
+
+    public void testSortedAndDuplicateInput() {
+        double[] values = new double[15000];
+        for (int i = 0; i < values.length; i++)
+            values[i] = i / 100;
+        assertAccuracy(values);
+    }
+
+    public void testMergeAccuracy() {
+        Random r = new Random(4);
+        QuantileSketch merged = new QuantileSketch(EPSILON);
+        MonteCarloConfidenceInterval exact = new MonteCarloConfidenceInterval();
+        for (int part = 0; part < 4; part++) {
+            QuantileSketch s = new QuantileSketch(EPSILON);
+            for (int i = 0; i < 5000; i++) {
+                double d = r.nextGaussian() + part;
+                s.add(d);
+                exact.addSample(d);
+            }
+            merged.merge(s);
+        }
+        exact.samplesDone();
+        assertEquals(20000, merged.getCount());
+        assertRankError(exact, merged);
+    }
+
+    public void testRankErrorBound() {
+        Random r = new Random(6);
+        QuantileSketch s = new QuantileSketch(EPSILON);
+        MonteCarloConfidenceInterval exact = new MonteCarloConfidenceInterval();
+        for (int i = 0; i < 100000; i++) {
+            // a drifting stream, so later values land among earlier ones
+            double d = r.nextGaussian() + i / 20000.0;
+            s.add(d);
+            exact.addSample(d);
+        }
+        exact.samplesDone();
+
+        long bound = s.getMaxRankError();
+        assertTrue(bound > 0);
+        assertTrue(bound <= EPSILON * s.getCount());
+        for (int i = 0; i <= 200; i++) {
+            double v = exact.getQuantile(i / 200.0);
+            double trueRank = exact.samples.find(v);
+            while (trueRank > 0
+                    && exact.samples.get((int) trueRank - 1) >= v)
+                trueRank--;
+            assertEquals(trueRank, s.getRank(v), bound);
+        }
+    }
+
+    public void testMemoryIsBounded() {
+        QuantileSketch s = new QuantileSketch(EPSILON);
+        Random r = new Random(5);
+        for (int i = 0; i < 200000; i++)
+            s.add(r.nextDouble());
+        assertTrue(s.getRetainedCount() < 200000 / 20);
+    }
+
+    public void testEmpty() {
+        QuantileSketch s = new QuantileSketch(EPSILON);
+        assertTrue(Double.isNaN(s.getQuantile(0.5)));
+        assertEquals(0, s.getRank(1), 0);
+    }
+
+    private void assertAccuracy(double[] values) {
+        MonteCarloConfidenceInterval exact = new MonteCarloConfidenceInterval();
+        MonteCarloConfidenceInterval sketched = new MonteCarloConfidenceInterval();
+        sketched.setSketchError(EPSILON);
+        for (double d : values) {
+            exact.addSample(d);
+            sketched.addSample(d);
+        }
+        exact.samplesDone();
+        sketched.samplesDone();
+        assertRankError(exact, sketched.sketch);
+
+        // viability and probability calculations agree within the error
+        for (double q : QUANTILES) {
+            double v = exact.getQuantile(q);
+            assertEquals(exact.getProbability(v), sketched.getProbability(v),
+                EPSILON + 1.0 / values.length);
+        }
+    }
+
+    /** Check that each quantile from the sketch has a true rank within
+     * the error bound of the requested rank */
+    private void assertRankError(MonteCarloConfidenceInterval exact,
+            QuantileSketch sketch) {
+        double n = exact.getNumSamples();
+        for (double q : QUANTILES) {
+            double estimate = sketch.getQuantile(q);
+            double lo = exact.samples.find(estimate);
+            while (lo > 0 && exact.samples.get((int) lo - 1) >= estimate)
+                lo--;
+            double hi = lo;
+            while (hi < n && exact.samples.get((int) hi) <= estimate)
+                hi++;
+            double target = q * (n - 1);
+            double err = Math.max(0, Math.max(lo - target, target - hi));
+            assertTrue("quantile " + q + " rank error " + err / n,
+                err <= EPSILON * n);
+        }
+    }
+
+}
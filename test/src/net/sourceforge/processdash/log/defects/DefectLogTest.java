@@ -0,0 +1,160 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.log.defects;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+import net.sourceforge.processdash.Settings;
+import net.sourceforge.processdash.data.DoubleData;
+import net.sourceforge.processdash.data.repository.DataRepository;
+
+public class DefectLogTest extends TestCase {
+
+    private File file;
+
+    private DataRepository data;
+
+    protected void setUp() throws Exception {
+        file = File.createTempFile("defects", ".def");
+        file.delete();
+        data = new DataRepository();
+        System.setProperty(XML_SETTING, "true");
+    }
+
+    protected void tearDown() throws Exception {
+        System.getProperties().remove(XML_SETTING);
+        file.delete();
+    }
+
+    private static final String XML_SETTING = Settings.SYS_PROP_PREFIX
+            + DefectLog.USE_XML_SETTING;
+
+    public void testWriteReadDelete() throws Exception {
+        DefectLog log = newLog();
+        log.writeDefect(makeDefect("Design", "Code", 2));
+        log.writeDefect(makeDefect("Code", "Test", 1));
+        assertTrue(file.isFile());
+        assertEquals(2, getCount("Design/Defects Injected"));
+        assertEquals(2, getCount("Code/Defects Removed"));
+        assertEquals(1, getCount("Code/Defects Injected"));
+
+        // a separate log object sees the same defects, in order
+        Defect[] defects = newLog().readDefects();
+        assertEquals(2, defects.length);
+        assertEquals("1", defects[0].number);
+        assertEquals("2", defects[1].number);
+
+        // defects returned by the log are copies
+        defects[0].description = "changed";
+        assertEquals("desc", log.getDefect("1").description);
+
+        // modify a defect, moving its removal phase
+        Defect d = log.getDefect("1");
+        d.phase_removed = "Test";
+        d.removed = new DefectPhase("Test");
+        log.writeDefect(d);
+        assertEquals(0, getCount("Code/Defects Removed"));
+        assertEquals(3, getCount("Test/Defects Removed"));
+
+        log.deleteDefect("2");
+        assertNull(log.getDefect("2"));
+        assertEquals(0, getCount("Code/Defects Injected"));
+        assertEquals(1, newLog().readDefects().length);
+
+        // the number of a deleted defect is reused, as before
+        log.writeDefect(makeDefect("Code", "Test", 1));
+        assertNotNull(log.getDefect("2"));
+
+        log.deleteDefect("1");
+        log.deleteDefect("2");
+        assertFalse(file.exists());
+    }
+
+    public void testExternalChangesAreNoticed() throws Exception {
+        DefectLog log = newLog();
+        log.writeDefect(makeDefect("Design", "Code", 1));
+        assertEquals(1, log.readDefects().length);
+
+        // rewrite the file behind the log's back
+        Defect d1 = log.getDefect("1");
+        Defect d2 = makeDefect("Code", "Test", 1);
+        d2.number = "7";
+        FileWriter out = new FileWriter(file);
+        out.write(d1.toString() + "\n" + d2.toString() + "\n");
+        out.close();
+        file.setLastModified(file.lastModified() + 5000);
+
+        Defect[] defects = log.readDefects();
+        assertEquals(2, defects.length);
+        assertEquals("7", defects[1].number);
+        log.writeDefect(makeDefect("Code", "Test", 1));
+        assertNotNull(log.getDefect("8"));
+    }
+
+    public void testBatchDefersSaves() throws Exception {
+        DefectLog log = newLog();
+        log.beginBatch();
+        try {
+            for (int i = 0; i < 500; i++)
+                log.writeDefect(makeDefect("Code", "Test", 1));
+            assertFalse(file.exists());
+            assertEquals(500, newLog().readDefects().length);
+        } finally {
+            log.endBatch();
+        }
+        assertTrue(file.isFile());
+        assertEquals(500, getCount("Code/Defects Injected"));
+        assertEquals(500, new DefectLog(file.getPath(), "/Other", data)
+                .readDefects().length);
+    }
+
+    private DefectLog newLog() {
+        return new DefectLog(file.getPath(), "/Project", data);
+    }
+
+    private int getCount(String name) {
+        DoubleData d = (DoubleData) data.getValue("/Project/" + name);
+        return (d == null ? 0 : d.getInteger());
+    }
+
+    private Defect makeDefect(String injected, String removed, int count) {
+        Defect d = new Defect();
+        d.date = new Date(1500000000000L);
+        d.defect_type = "Function";
+        d.phase_injected = injected;
+        d.injected = new DefectPhase(injected);
+        d.phase_removed = removed;
+        d.removed = new DefectPhase(removed);
+        d.fix_time = "5";
+        d.fix_defect = " ";
+        d.description = "desc";
+        d.fix_count = count;
+        return d;
+    }
+
+}
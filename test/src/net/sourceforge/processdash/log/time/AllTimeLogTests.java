@@ -42,6 +42,7 @@ public class AllTimeLogTests {
         suite.addTestSuite(TimeLogModificationsTest.class);
         suite.addTestSuite(DefaultTimeLoggingModelTest.class);
         suite.addTestSuite(TimingMetricsRecorderTest.class);
+        suite.addTestSuite(BaseTimeLogTest.class);
         //$JUnit-END$
         return suite;
     }
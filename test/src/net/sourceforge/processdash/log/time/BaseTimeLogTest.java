@@ -0,0 +1,204 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.log.time;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import net.sourceforge.processdash.log.ChangeFlagged;
+import net.sourceforge.processdash.log.IDSource;
+import net.sourceforge.processdash.util.FileUtils;
+
+public class BaseTimeLogTest extends AbstractTimeLogTest {
+
+    private static final String[] PATHS = { null, "", "/", "/Project",
+            "/Project/EFV Gap Analysis", "/Non Project", "/Non Project/CAPRE",
+            "/Non Project/CAP", "/Project/Requirements",
+            "/Project/Requirements/FDDI bus/Inspect/Reqts Inspect",
+            "/Missing" };
+
+    File tempDir, baseFile, indexFile;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        tempDir = createTempDir();
+        baseFile = new File(tempDir, WorkingTimeLog.TIME_LOG_FILENAME);
+        indexFile = new File(tempDir, "timelog.idx");
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectory(tempDir);
+        super.tearDown();
+    }
+
+    public void testFilterMatchesReader() throws Exception {
+        for (String filename : new String[] { TIMELOG1_XML, TIMELOG2_XML,
+                TIMELOG3_XML }) {
+            copyFile(tempDir, filename, WorkingTimeLog.TIME_LOG_FILENAME);
+            BaseTimeLog timeLog = new BaseTimeLog(baseFile);
+            assertQueriesMatch(filename, timeLog, new MockBaseTimeLog(
+                    filename));
+            baseFile.setLastModified(baseFile.lastModified() - 10000);
+        }
+    }
+
+    public void testIndexFile() throws Exception {
+        copyFile(tempDir, TIMELOG1_XML, WorkingTimeLog.TIME_LOG_FILENAME);
+        BaseTimeLog timeLog = new BaseTimeLog(baseFile);
+        List expected = describe(timeLog.filter(null, null, null));
+        assertEquals(TIMELOG1_CONTENTS.length, expected.size());
+        assertTrue(indexFile.isFile());
+
+        // a new time log object should read the same data from the index,
+        // without parsing the XML and rewriting the index.
+        long timestamp = baseFile.lastModified();
+        long indexTimestamp = indexFile.lastModified() - 10000;
+        indexFile.setLastModified(indexTimestamp);
+        assertEquals(expected, describe(new BaseTimeLog(baseFile).filter(
+            null, null, null)));
+        assertEquals(indexTimestamp, indexFile.lastModified());
+
+        // if the XML file changes, the index should be ignored.
+        copyFile(tempDir, TIMELOG3_XML, WorkingTimeLog.TIME_LOG_FILENAME);
+        baseFile.setLastModified(timestamp + 10000);
+        assertEquals(describe(new MockBaseTimeLog(TIMELOG3_XML).filter(null,
+            null, null)), describe(timeLog.filter(null, null, null)));
+    }
+
+    public void testSameSizeRewrite() throws Exception {
+        copyFile(tempDir, TIMELOG1_XML, WorkingTimeLog.TIME_LOG_FILENAME);
+        BaseTimeLog timeLog = new BaseTimeLog(baseFile);
+        timeLog.filter(null, null, null);
+
+        // rewrite the file with the same length and timestamp, as a quick
+        // edit on a coarse-grained filesystem (or a restore) might
+        long timestamp = baseFile.lastModified();
+        String xml = new String(FileUtils.slurpContents(
+            new java.io.FileInputStream(baseFile), true), "UTF-8");
+        String renamed = xml.replace("/Project/", "/Projekt/");
+        assertFalse(xml.equals(renamed));
+        FileOutputStream out = new FileOutputStream(baseFile);
+        out.write(renamed.getBytes("UTF-8"));
+        out.close();
+        baseFile.setLastModified(timestamp);
+
+        // neither the cached segment nor the index should be trusted
+        List expected = describe(new TimeLogReader(baseFile));
+        assertEquals(expected, describe(timeLog.filter(null, null, null)));
+        assertEquals(expected, describe(new BaseTimeLog(baseFile).filter(
+            null, null, null)));
+    }
+
+    public void testCorruptIndexFile() throws Exception {
+        copyFile(tempDir, TIMELOG1_XML, WorkingTimeLog.TIME_LOG_FILENAME);
+        new BaseTimeLog(baseFile).filter(null, null, null);
+        byte[] contents = FileUtils.slurpContents(
+            new java.io.FileInputStream(indexFile), true);
+        FileOutputStream out = new FileOutputStream(indexFile);
+        out.write(contents, 0, contents.length / 2);
+        out.close();
+
+        assertQueriesMatch(TIMELOG1_XML, new BaseTimeLog(baseFile),
+            new MockBaseTimeLog(TIMELOG1_XML));
+    }
+
+    public void testMissingFile() throws Exception {
+        BaseTimeLog timeLog = new BaseTimeLog(baseFile);
+        assertFalse(timeLog.filter(null, null, null).hasNext());
+        assertFalse(timeLog.filter("/Project", null, null).hasNext());
+    }
+
+    public void testModifications() throws Exception {
+        copyFile(tempDir, TIMELOG3_XML, WorkingTimeLog.TIME_LOG_FILENAME);
+        TimeLogModifications indexed = new TimeLogModifications(
+                new BaseTimeLog(baseFile), (IDSource) null);
+        TimeLogModifications unindexed = new TimeLogModifications(
+                new MockBaseTimeLog(TIMELOG3_XML), (IDSource) null);
+        indexed.addModifications(new TimeLogReader(openFile(TIMELOG3_MOD_XML)));
+        unindexed.addModifications(new TimeLogReader(
+                openFile(TIMELOG3_MOD_XML)));
+        // move an entry into a different time frame
+        TimeLogEntryVO move = new TimeLogEntryVO(5, null, new Date(
+                1094229400000L), 0, 0, null, ChangeFlagged.MODIFIED);
+        indexed.addModification(move);
+        unindexed.addModification(move);
+        assertQueriesMatch(TIMELOG3_MOD_XML, indexed, unindexed);
+
+        indexed.addModifications(new TimeLogReader(openFile("timeRename3.xml")));
+        unindexed.addModifications(new TimeLogReader(
+                openFile("timeRename3.xml")));
+        assertQueriesMatch("timeRename3.xml", indexed, unindexed);
+    }
+
+    private void assertQueriesMatch(String name, TimeLog actual,
+            TimeLog expected) throws IOException {
+        List all = describe(expected.filter(null, null, null));
+        assertEquals(all, describe(actual.filter(null, null, null)));
+
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (Iterator i = expected.filter(null, null, null); i.hasNext();) {
+            long start = ((TimeLogEntry) i.next()).getStartTime().getTime();
+            min = Math.min(min, start);
+            max = Math.max(max, start);
+        }
+
+        Random r = new Random(name.hashCode());
+        for (int i = 0; i < 300; i++) {
+            String path = PATHS[r.nextInt(PATHS.length)];
+            Date from = randomDate(r, min, max);
+            Date to = randomDate(r, min, max);
+            assertEquals(name + " " + path + " " + from + " " + to,
+                describe(expected.filter(path, from, to)),
+                describe(actual.filter(path, from, to)));
+        }
+    }
+
+    private Date randomDate(Random r, long min, long max) {
+        switch (r.nextInt(4)) {
+        case 0: return null;
+        case 1: return new Date(min + (long) (r.nextDouble() * (max - min)));
+        // pick the exact start time of an entry, to test the boundaries
+        default: return new Date(r.nextBoolean() ? min : max);
+        }
+    }
+
+    private List describe(Iterator entries) {
+        List result = new ArrayList();
+        while (entries.hasNext()) {
+            TimeLogEntry tle = (TimeLogEntry) entries.next();
+            result.add(tle.getID() + "|" + tle.getPath() + "|"
+                    + tle.getStartTime() + "|" + tle.getElapsedTime() + "|"
+                    + tle.getInterruptTime() + "|" + tle.getComment() + "|"
+                    + ((ChangeFlagged) tle).getChangeFlag());
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,127 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.log.time;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import net.sourceforge.processdash.util.FileUtils;
+
+/**
+ * Compares the time needed to query a large time log by parsing the XML file
+ * for each query, against the time needed by the indexed
+ * {@link BaseTimeLog}.
+ *
+ * Usage: TimeLogQueryBenchmark [numEntries] [numQueries]
+ */
+public class TimeLogQueryBenchmark {
+
+    private static final long HOUR = 60L * 60 * 1000;
+
+    public static void main(String[] args) throws Exception {
+        int numEntries = (args.length > 0 ? Integer.parseInt(args[0]) : 200000);
+        int numQueries = (args.length > 1 ? Integer.parseInt(args[1]) : 20);
+
+        File dir = File.createTempFile("tlbench", ".tmp");
+        dir.delete();
+        dir.mkdir();
+        File file = new File(dir, WorkingTimeLog.TIME_LOG_FILENAME);
+
+        // write a time log spread over 50 projects and several years
+        Random r = new Random(0);
+        List entries = new ArrayList(numEntries);
+        long start = 1300000000000L;
+        for (int i = 1; i <= numEntries; i++) {
+            String path = "/Project " + r.nextInt(50) + "/Component "
+                    + r.nextInt(20) + "/Task " + r.nextInt(10) + "/Code";
+            start += r.nextInt(4) * HOUR / 2 + 60000;
+            entries.add(new TimeLogEntryVO(i, path, new Date(start),
+                    r.nextInt(120), r.nextInt(5), (i % 10 == 0 ? "comment "
+                            + i : null)));
+        }
+        TimeLogWriter.write(file, entries.iterator());
+        entries = null;
+        System.out.println("Wrote " + numEntries + " entries, "
+                + (file.length() / 1024) + " KB");
+
+        // build the queries
+        String[] paths = new String[numQueries];
+        Date[] from = new Date[numQueries], to = new Date[numQueries];
+        for (int i = 0; i < numQueries; i++) {
+            paths[i] = (i % 3 == 1 ? null : "/Project " + r.nextInt(50));
+            if (i % 3 != 0) {
+                from[i] = new Date(1300000000000L
+                        + (long) (r.nextDouble() * (start - 1300000000000L)));
+                to[i] = new Date(from[i].getTime() + 7 * 24 * HOUR);
+            }
+        }
+
+        // parse the XML for every query, as the original BaseTimeLog did
+        long t = System.nanoTime();
+        int count = 0;
+        for (int i = 0; i < numQueries; i++)
+            count += count(new TimeLogIteratorFilter(new TimeLogReader(file),
+                    paths[i], from[i], to[i]));
+        report("XML parse per query", t, numQueries, count);
+
+        // build the index from the XML, then query it
+        t = System.nanoTime();
+        BaseTimeLog timeLog = new BaseTimeLog(file);
+        timeLog.filter(null, null, null);
+        report("initial XML load and index", t, 1, -1);
+
+        t = System.nanoTime();
+        count = 0;
+        for (int i = 0; i < numQueries; i++)
+            count += count(timeLog.filter(paths[i], from[i], to[i]));
+        report("indexed query", t, numQueries, count);
+
+        // load the binary index written by the first time log
+        t = System.nanoTime();
+        new BaseTimeLog(file).filter(null, null, null);
+        report("load from binary index", t, 1, -1);
+        System.out.println("Binary index is "
+                + (new File(dir, "timelog.idx").length() / 1024) + " KB");
+
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private static int count(Iterator i) {
+        int result = 0;
+        for (; i.hasNext(); i.next())
+            result++;
+        return result;
+    }
+
+    private static void report(String what, long start, int num, int count) {
+        long elapsed = System.nanoTime() - start;
+        System.out.println(what + ": " + (elapsed / num / 1000000)
+                + " ms each" + (count < 0 ? "" : " (" + count + " results)"));
+    }
+
+}
@@ -0,0 +1,124 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.net.http;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.processdash.data.repository.DataRepository;
+import net.sourceforge.processdash.hier.DashHierarchy;
+import net.sourceforge.processdash.util.FileUtils;
+
+/**
+ * Compares the time needed to interpret the server-parsed pages in the
+ * Templates directory with the time needed to evaluate compiled templates.
+ *
+ * Usage: HTMLTemplateBenchmark [templateDir] [iterations]
+ */
+public class HTMLTemplateBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        File dir = new File(args.length > 0 ? args[0] : "Templates");
+        int iterations = (args.length > 1 ? Integer.parseInt(args[1]) : 20);
+
+        List<File> files = new ArrayList<File>();
+        HTMLTemplateTest.findTemplates(dir, files);
+        List<String> texts = new ArrayList<String>();
+        List<HTMLTemplate> templates = new ArrayList<HTMLTemplate>();
+        int compiled = 0;
+        long chars = 0;
+        for (File f : files) {
+            String text = new String(FileUtils.slurpContents(
+                new FileInputStream(f), true), "UTF-8");
+            HTMLTemplate t = HTMLTemplate.compile(text);
+            texts.add(text);
+            templates.add(t);
+            chars += text.length();
+            if (t.isCompiled())
+                compiled++;
+        }
+        System.out.println("Read " + files.size() + " pages (" + chars
+                + " chars); " + compiled + " compiled");
+
+        DataRepository data = new DataRepository();
+        DashHierarchy hier = new DashHierarchy(null);
+
+        // warm up both code paths, then time them
+        for (int pass = 0; pass < 2; pass++) {
+            int n = (pass == 0 ? 3 : iterations);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++)
+                for (String text : texts)
+                    newPreprocessor(data, hier).preprocessInterpreted(text);
+            long interpreted = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < n; i++)
+                for (String text : texts)
+                    HTMLTemplate.compile(text);
+            long compile = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < n; i++)
+                for (HTMLTemplate t : templates)
+                    newPreprocessor(data, hier).preprocess(t,
+                        new StringWriter());
+            long evaluated = System.nanoTime() - start;
+
+            if (pass > 0) {
+                long pages = (long) n * texts.size();
+                System.out.println("Interpreted:        "
+                        + (interpreted / pages / 1000) + " us/page");
+                System.out.println("Compiled:           "
+                        + (compile / pages / 1000) + " us/page");
+                System.out.println("Evaluated (cached): "
+                        + (evaluated / pages / 1000) + " us/page");
+            }
+        }
+
+        System.exit(0);
+    }
+
+    private static HTMLPreprocessor newPreprocessor(DataRepository data,
+            DashHierarchy hier) {
+        Map env = new HashMap();
+        env.put("REQUEST_URI", "/dir/page.shtm");
+        env.put("QUERY_STRING", "");
+        env.put("PATH_TRANSLATED", "/Project");
+        env.put(TinyCGI.PSP_PROPERTIES, hier);
+        HTMLPreprocessor result = new HTMLPreprocessor(
+                new HTMLTemplateTest.Content(), data.getSubcontext("/Project"),
+                env);
+        result.setForeachParams(false);
+        result.setDefaultEchoEncoding("html");
+        return result;
+    }
+
+}
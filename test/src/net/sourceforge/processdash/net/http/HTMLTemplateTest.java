@@ -0,0 +1,300 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.net.http;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import net.sourceforge.processdash.data.DoubleData;
+import net.sourceforge.processdash.data.ListData;
+import net.sourceforge.processdash.data.repository.DataRepository;
+import net.sourceforge.processdash.hier.DashHierarchy;
+import net.sourceforge.processdash.hier.PropertyKey;
+import net.sourceforge.processdash.util.FileUtils;
+
+/**
+ * Checks that evaluating a compiled template produces the same results as
+ * interpreting the template text.
+ */
+public class HTMLTemplateTest extends TestCase {
+
+    private static final String PREFIX = "/Project";
+
+    private DataRepository data;
+
+    private DashHierarchy hier;
+
+    private Map<String, String> replacements;
+
+    protected void setUp() throws Exception {
+        data = new DataRepository();
+        data.putValue(PREFIX + "/Size", new DoubleData(3));
+        data.putValue(PREFIX + "/Items", new ListData(",x,y,z,"));
+        ListData tricky = new ListData();
+        tricky.add("<!--#echo a-->");
+        tricky.add("x");
+        data.putValue(PREFIX + "/Tricky", tricky);
+
+        hier = new DashHierarchy(null);
+        PropertyKey project = PropertyKey.fromPath(PREFIX);
+        hier.addChildKey(PropertyKey.ROOT, "Project", 0);
+        hier.addChildKey(project, "A", 0);
+        hier.addChildKey(project, "B", 1);
+        hier.addChildKey(new PropertyKey(project, "A"), "Child", 0);
+
+        replacements = null;
+    }
+
+    public void testEcho() throws Exception {
+        assertSameOutput("Text only");
+        assertSameOutput("a=<!--#echo a-->, b=<!--#echo var=b -->, "
+                + "size=<!--#echo [Size] -->, "
+                + "<!--#echo value='<&>' encoding=html -->"
+                + "<!--#echo value='{0} and {1}' arg0=a arg1=\"'lit'\" -->");
+        assertSameOutput("trim <!--#echo a #-->   \n  spaces");
+        assertSameOutput("unterminated <!--#echo a");
+        assertSameOutput("<!--#unknown directive-->gone<!--#-->");
+    }
+
+    public void testIf() throws Exception {
+        assertSameOutput("<!--#if a -->A<!--#endif-->"
+                + "<!--#if missing -->M<!--#else-->not M<!--#endif-->"
+                + "<!--#if a == '2' -->2<!--#elif b eq 'two' -->two"
+                + "<!--#elif a -->a<!--#else-->none<!--#endif-->");
+        assertSameOutput("<!--#if a --><!--#if b -->AB<!--#else-->A"
+                + "<!--#endif--><!--#else--><!--#if b -->B<!--#endif-->"
+                + "<!--#endif-->");
+        assertSameOutput("<!--#if [Size] > 2 -->big<!--#endif-->"
+                + "<!--#if not defined [Missing] -->undefined<!--#endif-->");
+    }
+
+    public void testForeach() throws Exception {
+        assertSameOutput("<!--#foreach name=V values=',x,y,z,' -->[V]"
+                + "<!--#endfor-->");
+        assertSameOutput("<!--#foreach name=V index=N list=[Items] -->"
+                + "N:V <!--#if V eq 'y' -->Y<!--#endif-->"
+                + "<!--#foreach name=W values=',1,2,' -->VW "
+                + "<!--#endfor--><!--#endfor-->");
+        assertSameOutput("<!--#foreach name=V count=[Size] limit=2 -->"
+                + "<!--#echo value='V' --><!--#endfor-->");
+    }
+
+    public void testUnsafeSubstitution() throws Exception {
+        // values which introduce new directives, or alter the structure of
+        // existing ones, are handled by interpreting the loop text
+        assertSameOutput("<!--#foreach name=V list=[Tricky] -->(V)"
+                + "<!--#endfor-->");
+        assertSameOutput("<!--#foreach name=ITEM values=',endif,echo,' -->"
+                + "<!--#if a -->ITEM<!--#ITEM a --><!--#endif-->"
+                + "<!--#endfor-->");
+        assertSameOutput("<!--#foreach name=-- values=',x,' -->"
+                + "<!--#echo a--><!--#endfor-->");
+        assertSameOutput("<!--#foreach name=LBL values=',one,two,' -->"
+                + "<!--#break LBL -->skipped<!--#endbreak one -->after "
+                + "<!--#endfor--><!--#endbreak two -->end");
+    }
+
+    public void testReplace() throws Exception {
+        assertSameOutput("<!--#replace token=FOO value=bar -->FOO "
+                + "<!--#echo value=FOO --><!--#endreplace-->");
+        assertSameOutput("<!--#replace token=FOO var=a post=t -->"
+                + "<!--#echo value=FOO --><!--#endreplace-->");
+        assertSameOutput("<!--#replace regexp='[0-9]+' value=N -->"
+                + "a1b22<!--#echo a --><!--#endreplace-->");
+        assertSameOutput("<!--#replace token=X value=Y unless=a -->X"
+                + "<!--#endreplace--><!--#replace token=X value=Y if=a -->X"
+                + "<!--#endreplace--><!--#replace value=Y -->X"
+                + "<!--#endreplace-->");
+    }
+
+    public void testSetAndIncr() throws Exception {
+        assertSameOutput("<!--#set var=S value=one -->S=<!--#echo S -->"
+                + "<!--#set var=T inline=t --><b><!--#echo a --></b>"
+                + "<!--#endset-->T=<!--#echo T -->"
+                + "<!--#incr C --><!--#incr C -->C=<!--#echo C -->"
+                + "<!--#if C == '1' -->one<!--#endif-->");
+        assertSameOutput("<!--#set var=T inline=t -->no end <!--#echo T-->");
+    }
+
+    public void testBreak() throws Exception {
+        assertSameOutput("before <!--#break lbl -->hidden <!--#echo a -->"
+                + "<!--#endbreak lbl -->after <!--#break none -->end");
+    }
+
+    public void testInclude() throws Exception {
+        assertSameOutput("<!--#include file=inc.txt -->\n"
+                + "  <!--#parameter name=p1 value='a b' -->\n"
+                + "<!--#parameter name=QUERY_STRING --> tail");
+        assertSameOutput("<!--#include file=inc.txt parse=t -->"
+                + "<!--#include file=nested.txt parse=t -->"
+                + "<!--#include file=page.txt cutToken=part -->");
+        assertSameOutput("<!--#include -->  <!--#parameter name=p -->x");
+    }
+
+    public void testForTree() throws Exception {
+        assertSameOutput("<!--#fortree -->NAME DEPTH ISLEAF<br>"
+                + "<!--#endtree-->");
+        assertSameOutput("<!--#fortree includeRoot=true parentLast=true "
+                + "depth=1 -->PATH <!--#echo RELPATH --> <!--#endtree-->");
+    }
+
+    public void testEagerReplacements() throws Exception {
+        replacements = new HashMap<String, String>();
+        replacements.put("@@", "a");
+        assertSameOutput("<!--#echo @@ --><!--#set var=T inline=t -->@@"
+                + "<!--#endset--><!--#echo T -->");
+    }
+
+    public void testMalformed() throws Exception {
+        String[] malformed = { "<!--#if a -->no end",
+                "stray <!--#endif-->", "<!--#else-->",
+                "<!--#if a --><!--#foreach values=',1,' --><!--#endif-->"
+                        + "<!--#endfor-->",
+                "<!--#iffy a -->x<!--#endif-->",
+                "<!--#if a -->x<!--#else-->y<!--#elif b -->z<!--#endif-->",
+                "<!--# if a -->x<!--#endif-->",
+                "<!--#echo <!--#echo a -->" };
+        for (String text : malformed) {
+            assertFalse(text, HTMLTemplate.compile(text).isCompiled());
+            assertSameOutput(text);
+        }
+        assertTrue(HTMLTemplate.compile("<!--#if a -->x<!--#elif b -->y"
+                + "<!--#else-->z<!--#endif-->").isCompiled());
+    }
+
+    public void testCache() throws Exception {
+        File f = File.createTempFile("template", ".shtm");
+        try {
+            write(f, "<!--#echo a -->");
+            HTMLTemplate t = HTMLTemplate.compile(f.toURI().toURL(),
+                "<!--#echo a -->");
+            assertSame(t, HTMLTemplate.getCached(f.toURI().toURL()));
+
+            f.setLastModified(f.lastModified() - 10000);
+            assertNull(HTMLTemplate.getCached(f.toURI().toURL()));
+        } finally {
+            f.delete();
+        }
+    }
+
+    public void testShippedTemplates() throws Exception {
+        List<File> files = new ArrayList<File>();
+        findTemplates(new File("Templates"), files);
+        assertFalse(files.isEmpty());
+
+        int compiled = 0;
+        for (File f : files) {
+            String text = new String(FileUtils.slurpContents(
+                new FileInputStream(f), true), "UTF-8");
+            // unique numbers would differ between the two runs
+            text = text.replace("_UNIQUE_", "UNIQUE_VALUE");
+            if (HTMLTemplate.compile(text).isCompiled())
+                compiled++;
+            assertEquals(f.getPath(), run(text, false), run(text, true));
+        }
+        assertTrue(compiled > files.size() * 9 / 10);
+    }
+
+    static void findTemplates(File dir, List<File> result) {
+        File[] children = dir.listFiles();
+        if (children == null)
+            return;
+        for (File f : children) {
+            if (f.isDirectory())
+                findTemplates(f, result);
+            else if (f.getName().endsWith(".shtm"))
+                result.add(f);
+        }
+    }
+
+    private void write(File f, String text) throws IOException {
+        Writer out = new FileWriter(f);
+        out.write(text);
+        out.close();
+    }
+
+    private void assertSameOutput(String text) {
+        String expected = run(text, false);
+        assertEquals(text, expected, run(text, true));
+
+        // the output should also be the same when streamed to a writer
+        StringWriter out = new StringWriter();
+        try {
+            makePreprocessor().preprocess(HTMLTemplate.compile(text), out);
+            assertEquals(text, expected, out.toString());
+        } catch (IOException ioe) {
+            assertTrue(expected.startsWith("Exception"));
+        }
+    }
+
+    private String run(String text, boolean compiled) {
+        HTMLPreprocessor p = makePreprocessor();
+        try {
+            if (compiled)
+                return p.preprocess(text);
+            else
+                return p.preprocessInterpreted(text);
+        } catch (Exception e) {
+            return "Exception " + e;
+        }
+    }
+
+    private HTMLPreprocessor makePreprocessor() {
+        Map env = new HashMap();
+        env.put("REQUEST_URI", "/dir/page.shtm");
+        env.put("QUERY_STRING", "a=1&b=two");
+        env.put("PATH_TRANSLATED", PREFIX);
+        env.put(TinyCGI.PSP_PROPERTIES, hier);
+        if (replacements != null)
+            env.put(HTMLPreprocessor.REPLACEMENTS_PARAM, replacements);
+        return new HTMLPreprocessor(new Content(), data.getSubcontext(PREFIX),
+                env);
+    }
+
+    static class Content implements ContentSource {
+        public byte[] getContent(String context, String uri, boolean raw)
+                throws IOException {
+            String text;
+            if (uri.startsWith("nested"))
+                text = "<!--#if a --><!--#if b -->nested<!--#endif-->"
+                        + "<!--#endif-->";
+            else if (uri.startsWith("page"))
+                text = "head<!-- cutStart:part -->body<!-- cutEnd:part -->";
+            else
+                text = "[" + uri + "] <!--#echo a -->";
+            return text.getBytes("UTF-8");
+        }
+    }
+
+}
@@ -0,0 +1,171 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.rest.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import net.sourceforge.processdash.rest.to.RestEvent;
+
+public class RestEventQueueTest extends TestCase {
+
+    private RestEventQueue queue;
+
+    protected void setUp() throws Exception {
+        queue = new RestEventQueue();
+    }
+
+    public void testEventsAfter() {
+        RestEvent a = add("a"), b = add("b"), c = add("c");
+        assertEvents(queue.getEventsAfter(0), a, b, c);
+        assertEvents(queue.getEventsAfter(a.getId()), b, c);
+        assertEvents(queue.getEventsAfter(c.getId()));
+
+        // a new event for an existing key replaces the old one
+        RestEvent a2 = add("a");
+        assertEvents(queue.getEventsAfter(0), b, c, a2);
+        assertEvents(queue.getEventsAfter(a.getId()), b, c, a2);
+        assertEvents(queue.getEventsAfter(b.getId()), c, a2);
+        assertEquals(3, queue.size());
+    }
+
+    public void testOutOfOrderEvents() {
+        RestEvent early = new RestEvent("test");
+        RestEvent a = add("a"), b = add("b");
+        queue.add("early", early);
+        assertEvents(queue.getEventsAfter(0), early, a, b);
+        assertEvents(queue.getEventsAfter(early.getId()), a, b);
+    }
+
+    public void testRingGrowsAndCompacts() {
+        // many events for a few keys should be squeezed into a small ring
+        List<RestEvent> last = new ArrayList<RestEvent>();
+        for (int i = 0; i < 5000; i++) {
+            RestEvent e = add("key" + (i % 7));
+            if (i >= 5000 - 7)
+                last.add(e);
+        }
+        assertEquals(7, queue.size());
+        assertEquals(last, queue.getEventsAfter(0));
+
+        // many distinct keys force the ring to grow
+        List<RestEvent> all = new ArrayList<RestEvent>(last);
+        for (int i = 0; i < 1000; i++)
+            all.add(add("distinct" + i));
+        assertEquals(1007, queue.size());
+        assertEquals(all, queue.getEventsAfter(0));
+        assertEquals(all.subList(500, 1007),
+            queue.getEventsAfter(all.get(499).getId()));
+    }
+
+    public void testWaiters() {
+        RestEvent a = add("a");
+        Counter c = new Counter();
+
+        // no waiting is needed if matching events are already present
+        assertFalse(queue.addWaiter(0, c));
+        assertTrue(queue.addWaiter(a.getId(), c));
+        queue.fireEventsArrived();
+        assertEquals(0, c.count.get());
+
+        add("b");
+        queue.fireEventsArrived();
+        assertEquals(1, c.count.get());
+        assertEquals(0, queue.getWaiterCount());
+
+        // a cancelled waiter is not run
+        RestEvent b = queue.getEventsAfter(a.getId()).get(0);
+        assertTrue(queue.addWaiter(b.getId(), c));
+        assertTrue(queue.removeWaiter(c));
+        assertFalse(queue.removeWaiter(c));
+        add("c");
+        queue.fireEventsArrived();
+        assertEquals(1, c.count.get());
+    }
+
+    /**
+     * Register 200 idle subscribers, and confirm that they hold no threads
+     * while they wait, and that each is released exactly once when an event
+     * arrives.
+     */
+    public void testManyIdleSubscribers() {
+        final int numSubscribers = 200;
+        RestEvent start = add("start");
+        int threadsBefore = Thread.activeCount();
+
+        Counter[] subscribers = new Counter[numSubscribers];
+        for (int i = 0; i < numSubscribers; i++) {
+            subscribers[i] = new Counter();
+            assertTrue(queue.addWaiter(start.getId(), subscribers[i]));
+        }
+        assertEquals(numSubscribers, queue.getWaiterCount());
+        assertEquals(threadsBefore, Thread.activeCount());
+
+        long begin = System.nanoTime();
+        int rounds = 100;
+        long lastId = start.getId();
+        for (int r = 0; r < rounds; r++) {
+            RestEvent e = add("data" + (r % 10));
+            queue.fireEventsArrived();
+            for (Counter c : subscribers) {
+                assertEquals(r + 1, c.count.get());
+                assertEquals(1, queue.getEventsAfter(lastId).size());
+                assertTrue(queue.addWaiter(e.getId(), c));
+            }
+            lastId = e.getId();
+        }
+        long elapsed = System.nanoTime() - begin;
+        System.out.println("Delivered " + rounds + " events to "
+                + numSubscribers + " subscribers in " + (elapsed / 1000000)
+                + " ms");
+
+        for (Counter c : subscribers)
+            assertTrue(queue.removeWaiter(c));
+        assertEquals(0, queue.getWaiterCount());
+    }
+
+    private RestEvent add(String key) {
+        RestEvent result = new RestEvent("test");
+        queue.add(key, result);
+        return result;
+    }
+
+    private void assertEvents(List<RestEvent> actual, RestEvent... expected) {
+        assertEquals(expected.length, actual.size());
+        for (int i = 0; i < expected.length; i++)
+            assertSame(expected[i], actual.get(i));
+    }
+
+    private static class Counter implements Runnable {
+        AtomicInteger count = new AtomicInteger();
+
+        public void run() {
+            count.incrementAndGet();
+        }
+    }
+
+}
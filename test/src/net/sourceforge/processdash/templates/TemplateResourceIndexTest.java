@@ -0,0 +1,189 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.templates;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import junit.framework.TestCase;
+
+import net.sourceforge.processdash.util.FileUtils;
+
+public class TemplateResourceIndexTest extends TestCase {
+
+    private File tempDir;
+
+    private File templateDir;
+
+    private URL[] roots;
+
+    private TemplateResourceIndex index;
+
+    protected void setUp() throws Exception {
+        tempDir = File.createTempFile("templateIndex", "");
+        tempDir.delete();
+        tempDir.mkdirs();
+
+        templateDir = new File(tempDir, "Templates");
+        new File(templateDir, "reports").mkdirs();
+        touch(new File(templateDir, "reports/dir.shtm"));
+        touch(new File(templateDir, "shared.htm"));
+
+        File jar = writeJar("addon.jar", "Templates/", "Templates/shared.htm",
+            "Templates/reports/", "Templates/reports/jar.shtm",
+            "Templates/reports/style.css", "Other/ignored.htm");
+        File war = writeJar("addon.war", "WEB-INF/web.xml",
+            "WEB-INF/reports/style.css", "reports/notInWebInf.htm");
+
+        roots = new URL[] { templateDir.toURI().toURL(),
+                new URL("jar:" + jar.toURI().toURL() + "!/Templates/"),
+                new URL("jar:" + war.toURI().toURL() + "!/WEB-INF/"),
+                new URL("jar:file:/no/such/file.jar!/Templates/") };
+        index = new TemplateResourceIndex(roots, null);
+    }
+
+    protected void tearDown() throws Exception {
+        index.dispose();
+        FileUtils.deleteDirectory(tempDir, true);
+    }
+
+    public void testArchiveRoots() {
+        assertCandidates("reports/jar.shtm", 1, ~3);
+        assertCandidates("reports/style.css", 1, 2, ~3);
+        assertCandidates("web.xml", 2, ~3);
+        assertCandidates("Other/ignored.htm", ~3);
+        assertCandidates("notInWebInf.htm", ~3);
+        assertCandidates("missing.htm", ~3);
+    }
+
+    public void testDirectoryRoots() {
+        if (!isCaseInsensitive()) {
+            assertCandidates("reports/dir.shtm", 0, ~3);
+            assertCandidates("shared.htm", 0, 1, ~3);
+            assertCandidates("reports", 0, 1, ~3);
+        }
+        assertCandidates("reports/style.css", 1, 2, ~3);
+    }
+
+    public void testCaseInsensitiveDirectory() throws Exception {
+        File mixedDir = new File(tempDir, "Mixed");
+        new File(mixedDir, "Sub").mkdirs();
+        touch(new File(mixedDir, "Sub/Foo.htm"));
+        touch(new File(mixedDir, "sub.HTM"));
+        touch(new File(mixedDir, "Shared.HTM"));
+
+        URL[] mixedRoots = new URL[] { mixedDir.toURI().toURL(), roots[1] };
+        TemplateResourceIndex.assumeCaseInsensitive = true;
+        TemplateResourceIndex mixed;
+        try {
+            mixed = new TemplateResourceIndex(mixedRoots, null);
+        } finally {
+            TemplateResourceIndex.assumeCaseInsensitive = false;
+        }
+
+        // case-insensitive roots are candidates for any case of their names,
+        // and must be verified with a connection
+        assertTrue(Arrays.equals(new int[] { ~0 },
+            mixed.getCandidates("Sub/Foo.htm")));
+        assertTrue(Arrays.equals(new int[] { ~0 },
+            mixed.getCandidates("sub/foo.htm")));
+        assertTrue(Arrays.equals(new int[] { ~0 },
+            mixed.getCandidates("Sub.htm")));
+        assertTrue(Arrays.equals(new int[] { ~0, 1 },
+            mixed.getCandidates("shared.htm")));
+        assertTrue(Arrays.equals(new int[0],
+            mixed.getCandidates("Sub/Missing.htm")));
+        mixed.dispose();
+    }
+
+    public void testDirectoryChanges() throws Exception {
+        if (isCaseInsensitive())
+            return;
+
+        touch(new File(templateDir, "reports/new.shtm"));
+        new File(templateDir, "shared.htm").delete();
+        File subdir = new File(templateDir, "newDir");
+        subdir.mkdir();
+        awaitCandidates("reports/new.shtm", 0, ~3);
+        awaitCandidates("shared.htm", 1, ~3);
+
+        // files in a newly created directory should be found too
+        touch(new File(subdir, "file.htm"));
+        awaitCandidates("newDir/file.htm", 0, ~3);
+    }
+
+    public void testReusePreviousIndex() throws Exception {
+        URL[] newRoots = new URL[] { roots[2], roots[1] };
+        TemplateResourceIndex newIndex = new TemplateResourceIndex(newRoots,
+                index);
+        assertSame(newRoots, newIndex.getRoots());
+        assertTrue(Arrays.equals(new int[] { 0, 1 },
+            newIndex.getCandidates("reports/style.css")));
+        assertTrue(Arrays.equals(new int[0],
+            newIndex.getCandidates("missing.htm")));
+        newIndex.dispose();
+    }
+
+    private void assertCandidates(String path, int... expected) {
+        int[] actual = index.getCandidates(path);
+        assertTrue(path + " -> " + Arrays.toString(actual),
+            Arrays.equals(expected, actual));
+    }
+
+    private void awaitCandidates(String path, int... expected)
+            throws InterruptedException {
+        // directory changes are noticed by periodic timestamp checks
+        for (int i = 0; i < 100; i++) {
+            if (Arrays.equals(expected, index.getCandidates(path)))
+                return;
+            Thread.sleep(100);
+        }
+        assertCandidates(path, expected);
+    }
+
+    private boolean isCaseInsensitive() {
+        return new File(templateDir, "SHARED.HTM").exists();
+    }
+
+    private File writeJar(String name, String... entries) throws IOException {
+        File result = new File(tempDir, name);
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(result));
+        for (String entry : entries) {
+            out.putNextEntry(new JarEntry(entry));
+            out.closeEntry();
+        }
+        out.close();
+        return result;
+    }
+
+    private void touch(File f) throws IOException {
+        new FileOutputStream(f).close();
+    }
+
+}
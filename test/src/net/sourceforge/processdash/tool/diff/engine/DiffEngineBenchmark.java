@@ -0,0 +1,152 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.tool.diff.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.sourceforge.processdash.tool.diff.HardcodedFilterLocator;
+
+/**
+ * Measures the time needed to count a large synthetic changeset, with the
+ * sequential engine and with a pool of analysis threads.
+ * <p>
+ * The changeset contains a mix of modified, added, and unchanged source
+ * files.  The benchmark also confirms that every run reports the same
+ * totals.
+ *
+ * Usage: DiffEngineBenchmark [files] [threads]
+ */
+public class DiffEngineBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int numFiles = (args.length > 0 ? Integer.parseInt(args[0]) : 5000);
+        int threads = (args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors());
+
+        Random r = new Random(42);
+        List<FileToAnalyze> files = new ArrayList<FileToAnalyze>();
+        for (int i = 0; i < numFiles; i++) {
+            String base = makeSource(r, 100 + r.nextInt(300));
+            String mod;
+            switch (i % 4) {
+            case 0: case 1: mod = base; break;
+            case 2: mod = modify(r, base); break;
+            default: mod = base; base = null; break;
+            }
+            files.add(new SyntheticFile("src/File" + i + ".java", base, mod));
+        }
+
+        // warm up, then time each configuration
+        runEngine(files, 1);
+        runEngine(files, threads);
+        for (int t : new int[] { 1, threads }) {
+            long start = System.nanoTime();
+            int[] totals = runEngine(files, t);
+            long elapsed = System.nanoTime() - start;
+            System.out.println(t + " thread(s): " + (elapsed / 1000000)
+                    + " ms, totals " + Arrays.toString(totals));
+        }
+
+        System.exit(0);
+    }
+
+    private static int[] runEngine(List<FileToAnalyze> files, int threads) {
+        DiffEngine engine = new DiffEngine();
+        engine.setLanguageFilters(HardcodedFilterLocator.getFilters());
+        engine.setAnalysisThreads(threads);
+        engine.addFilesToAnalyze(files);
+        final int[] totals = new int[AccountingType.values().length];
+        engine.addDiffListener(new DiffAdapter() {
+            public void fileAnalysisFinished(DiffEvent e) {
+                DiffResult r = e.getDiffResult();
+                if (r != null && r.getLocCounts() != null)
+                    for (int i = 0; i < totals.length; i++)
+                        totals[i] += r.getLocCounts()[i];
+            }
+        });
+        engine.run();
+        return totals;
+    }
+
+    private static String makeSource(Random r, int lines) {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            if (i % 10 == 0)
+                buf.append("    // comment ").append(r.nextInt(1000));
+            else
+                buf.append("    int v").append(i).append(" = ")
+                        .append(r.nextInt(1000)).append(";");
+            buf.append('\n');
+        }
+        return buf.toString();
+    }
+
+    private static String modify(Random r, String text) {
+        String[] lines = text.split("\n");
+        StringBuilder buf = new StringBuilder();
+        for (String line : lines) {
+            int roll = r.nextInt(20);
+            if (roll == 0)
+                continue;
+            else if (roll == 1)
+                buf.append("    x = ").append(r.nextInt()).append(";\n");
+            buf.append(line).append('\n');
+        }
+        return buf.toString();
+    }
+
+    private static class SyntheticFile implements FileToAnalyze {
+
+        private String filename;
+
+        private List<String> versions;
+
+        SyntheticFile(String filename, String... versions) {
+            this.filename = filename;
+            this.versions = Arrays.asList(versions);
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        public List getVersions() {
+            return versions;
+        }
+
+        public InputStream getContents(Object version) throws IOException {
+            if (version == null)
+                return null;
+            return new ByteArrayInputStream(((String) version).getBytes());
+        }
+
+    }
+
+}
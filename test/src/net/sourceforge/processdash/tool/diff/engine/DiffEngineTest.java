@@ -0,0 +1,187 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.tool.diff.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.sourceforge.processdash.tool.diff.HardcodedFilterLocator;
+
+public class DiffEngineTest extends TestCase {
+
+    public void testParallelMatchesSequential() throws Exception {
+        List<FileToAnalyze> files = new ArrayList<FileToAnalyze>();
+        files.add(new MockFile("same.c", "a|b|c", "a|b|c"));
+        files.add(new MockFile("mod.c", "a|b|c", "a|d|c|e"));
+        files.add(new MockFile("added.java", null, "x|y"));
+        files.add(new MockFile("deleted.java", "x|y", null));
+        files.add(new MockFile("whitespace.c", "a|b", "a| b"));
+        files.add(new MockFile("single.c", "only|version"));
+        files.add(new MockFile("three.c", "a|b|c", "a|b|c|d", "a|c|d"));
+        files.add(new MockFile("binary.dat", "a\u0000b", "a\u0000c"));
+        files.add(new MockFile("skip.c", "a", "b"));
+        files.add(new MockFile("braces.c", "{|a|}", "{|b|}|{"));
+        files.add(new MockFile("unreadable.c", "a", MockFile.FAIL));
+        for (int i = 0; i < 200; i++)
+            files.add(new MockFile("gen" + i + ".c", "a|b|//c" + i,
+                    "a|" + i + "|//c"));
+
+        for (boolean skipIdentical : new boolean[] { true, false }) {
+            List<String> expected = runEngine(files, 1, skipIdentical);
+            for (int threads : new int[] { 2, 4, 8 })
+                assertEquals(expected, runEngine(files, threads,
+                    skipIdentical));
+        }
+    }
+
+    public void testAbort() throws Exception {
+        List<FileToAnalyze> files = new ArrayList<FileToAnalyze>();
+        for (int i = 0; i < 100; i++)
+            files.add(new MockFile("f" + i + ".c", "a", "b"));
+
+        final DiffEngine engine = newEngine(4, true);
+        engine.addFilesToAnalyze(files);
+        final List<String> events = new ArrayList<String>();
+        engine.addDiffListener(new DiffAdapter() {
+            public void fileAnalysisFinished(DiffEvent e) {
+                events.add(e.getFile().getFilename());
+                if (events.size() == 10)
+                    engine.abort();
+            }
+        });
+        engine.run();
+        assertEquals(10, events.size());
+    }
+
+    private List<String> runEngine(List<FileToAnalyze> files, int threads,
+            boolean skipIdentical) {
+        DiffEngine engine = newEngine(threads, skipIdentical);
+        engine.addFilesToAnalyze(files);
+        Recorder r = new Recorder();
+        engine.addDiffListener(r);
+        engine.run();
+        return r.events;
+    }
+
+    private DiffEngine newEngine(int threads, boolean skipIdentical) {
+        DiffEngine engine = new DiffEngine();
+        engine.setLanguageFilters(HardcodedFilterLocator.getFilters());
+        engine.setAnalysisThreads(threads);
+        engine.setSkipIdenticalFiles(skipIdentical);
+        engine.setFileOptionsProvider(new FileOptionsProvider() {
+            public String getOptions(FileToAnalyze file) {
+                String name = file.getFilename();
+                if (name.startsWith("skip"))
+                    return SKIP_FILE;
+                else if (name.startsWith("braces") || name.startsWith("gen1"))
+                    return "+{";
+                else
+                    return "";
+            }
+        });
+        return engine;
+    }
+
+    private static class Recorder extends DiffAdapter {
+
+        List<String> events = new ArrayList<String>();
+
+        public void analysisStarting(DiffEvent e) {
+            events.add("start");
+        }
+
+        public void fileAnalysisStarting(DiffEvent e) {
+            events.add("file " + e.getFile().getFilename());
+        }
+
+        public void fileAnalysisFinished(DiffEvent e) {
+            DiffResult r = e.getDiffResult();
+            StringBuilder buf = new StringBuilder("done ");
+            buf.append(e.getFile().getFilename());
+            if (e.getException() != null)
+                buf.append(" ").append(e.getException().getMessage());
+            if (r != null) {
+                assertSame(e.getFile(), r.getFile());
+                buf.append(" ").append(r.getChangeType()) //
+                        .append(" ").append(r.getLanguageFilter().getClass()) //
+                        .append(" ").append(Arrays.toString(r.getLocCounts()));
+                if (r.getRedlines() != null)
+                    for (DiffFragment f : r.getRedlines())
+                        buf.append(" ").append(f.type).append(":")
+                                .append(f.text);
+            }
+            events.add(buf.toString());
+        }
+
+        public void analysisFinished(DiffEvent e) {
+            events.add("finish");
+        }
+
+    }
+
+    private static class MockFile implements FileToAnalyze {
+
+        static final String FAIL = "FAIL";
+
+        String filename;
+
+        List<String> versions;
+
+        MockFile(String filename, String... versions) {
+            this.filename = filename;
+            this.versions = new ArrayList<String>();
+            for (String v : versions)
+                this.versions.add(v == null ? null : v.replace('|', '\n'));
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        public List getVersions() {
+            return versions;
+        }
+
+        public InputStream getContents(Object version) throws IOException {
+            if (version == null)
+                return null;
+            else if (version == FAIL)
+                throw new IOException("Cannot read " + filename);
+            else
+                return new ByteArrayInputStream(((String) version)
+                        .getBytes(CHARSET));
+        }
+
+    }
+
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+}
@@ -17,11 +17,13 @@ public class AllUtilTests {
         suite.addTestSuite(TestFormatUtil.class);
         suite.addTestSuite(TimeNumberFormatTest.class);
         suite.addTestSuite(PatternListTest.class);
+        suite.addTestSuite(PatternListIndexTest.class);
         suite.addTestSuite(PreferencesUtilTest.class);
         suite.addTestSuite(GlobEngineTest.class);
         suite.addTestSuite(OrderedListMergerTest.class);
         suite.addTestSuite(FallbackObjectFactoryTest.class);
         suite.addTestSuite(RuntimeUtilsTest.class);
+        suite.addTestSuite(ChunkedDirectoryBackupTest.class);
         //$JUnit-END$
         return suite;
     }
@@ -0,0 +1,150 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the bytes written and wall time per backup for the traditional
+ * ZIP backups and the chunked backup store.
+ * <p>
+ * The benchmark creates a synthetic data directory, then performs a series
+ * of backups, modifying a few data files and appending to the time log
+ * between each one.  Bytes written are measured by comparing the contents of
+ * the backup directory before and after each backup.
+ *
+ * Usage: BackupStoreBenchmark [dataFiles] [backups]
+ */
+public class BackupStoreBenchmark {
+
+    private static final long OLD_TIME = 1000000000000L;
+
+    public static void main(String[] args) throws Exception {
+        int numFiles = (args.length > 0 ? Integer.parseInt(args[0]) : 500);
+        int numBackups = (args.length > 1 ? Integer.parseInt(args[1]) : 10);
+
+        for (boolean chunked : new boolean[] { false, true }) {
+            File dir = TempFileFactory.get().createTempDirectory("bench", "");
+            createDataDir(dir, numFiles);
+            DashboardBackupFactory.setChunkedStore(chunked);
+
+            Random r = new Random(7);
+            long totalBytes = 0, totalNanos = 0;
+            for (int i = 0; i <= numBackups; i++) {
+                if (i > 0)
+                    modifyDataDir(dir, r);
+                Map<String, String> before = scan(new File(dir, "backup"));
+                long start = System.nanoTime();
+                DashboardBackupFactory.getDashboardBackupStore(dir).backup(
+                    "checkpoint" + i);
+                long nanos = System.nanoTime() - start;
+                long bytes = bytesWritten(before, scan(new File(dir,
+                        "backup")));
+                if (i == 0) {
+                    System.out.println((chunked ? "chunked" : "zip")
+                            + " initial backup: " + bytes + " bytes, "
+                            + (nanos / 1000000) + " ms");
+                } else {
+                    totalBytes += bytes;
+                    totalNanos += nanos;
+                }
+            }
+            System.out.println((chunked ? "chunked" : "zip")
+                    + " per backup: " + (totalBytes / numBackups)
+                    + " bytes, " + (totalNanos / numBackups / 1000000)
+                    + " ms");
+            FileUtils.deleteDirectory(dir, true);
+        }
+
+        System.exit(0);
+    }
+
+    private static void createDataDir(File dir, int numFiles)
+            throws IOException {
+        Random r = new Random(42);
+        for (int i = 0; i < numFiles; i++)
+            write(new File(dir, i + ".dat"), makeData(r, 200 + r.nextInt(800)),
+                false);
+        write(new File(dir, "state"), makeData(r, 2000), false);
+        write(new File(dir, "timelog.xml"), makeData(r, 10), false);
+        write(new File(dir, "timelog2.xml"), makeData(r, 20000), false);
+        write(new File(dir, "log.txt"), makeData(r, 100), false);
+
+        // backdate the files, as if they were written in an earlier session
+        for (File f : dir.listFiles())
+            f.setLastModified(OLD_TIME);
+    }
+
+    private static void modifyDataDir(File dir, Random r) throws IOException {
+        for (int i = 0; i < 5; i++) {
+            File f = new File(dir, r.nextInt(100) + ".dat");
+            write(f, makeData(r, 200 + r.nextInt(800)), false);
+        }
+        write(new File(dir, "timelog2.xml"), makeData(r, 20), true);
+        write(new File(dir, "log.txt"), makeData(r, 5), true);
+    }
+
+    private static String makeData(Random r, int lines) {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < lines; i++)
+            buf.append("Task ").append(i).append("/Time==")
+                    .append(r.nextInt(10000)).append('\n');
+        return buf.toString();
+    }
+
+    private static void write(File f, String text, boolean append)
+            throws IOException {
+        FileOutputStream out = new FileOutputStream(f, append);
+        out.write(text.getBytes("UTF-8"));
+        out.close();
+    }
+
+    /** @return the size and modification time of each file in a directory */
+    private static Map<String, String> scan(File dir) {
+        Map<String, String> result = new HashMap<String, String>();
+        for (String name : FileUtils.listRecursively(dir, null)) {
+            File f = new File(dir, name);
+            result.put(name, f.length() + "@" + f.lastModified());
+        }
+        return result;
+    }
+
+    private static long bytesWritten(Map<String, String> before,
+            Map<String, String> after) {
+        long result = 0;
+        for (Map.Entry<String, String> e : after.entrySet()) {
+            if (!e.getValue().equals(before.get(e.getKey()))) {
+                String size = e.getValue();
+                result += Long.parseLong(size.substring(0, size.indexOf('@')));
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,254 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import junit.framework.TestCase;
+
+public class ChunkedDirectoryBackupTest extends TestCase {
+
+    private static final long OLD_TIME = 1000000000000L;
+
+    private File tempDir, srcDir, backupDir;
+
+    private Random random;
+
+    protected void setUp() throws Exception {
+        tempDir = TempFileFactory.get().createTempDirectory("chunkTest", "");
+        srcDir = new File(tempDir, "data");
+        backupDir = new File(tempDir, "backup");
+        srcDir.mkdirs();
+        random = new Random(1);
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectory(tempDir, true);
+    }
+
+    public void testRoundTrip() throws Exception {
+        writeFile("state", randomText(1000));
+        writeFile("0.dat", randomText(200000));
+        writeFile("empty.def", "");
+        writeFile("cms/page.xml", "<page/>");
+
+        File snapshot = newBackup().backup("test");
+        File restoreDir = new File(tempDir, "restore");
+        newBackup().restoreSnapshot(snapshot, restoreDir);
+        assertSameContents(srcDir, restoreDir, "state", "0.dat",
+            "empty.def", "cms/page.xml");
+        assertEquals(new File(srcDir, "state").lastModified(), new File(
+                restoreDir, "state").lastModified());
+    }
+
+    public void testDeduplication() throws Exception {
+        String bigText = randomText(500000);
+        writeFile("big.dat", bigText);
+        writeFile("small.dat", "small");
+        ChunkedDirectoryBackup backup = newBackup();
+        backup.backup("first");
+        long firstSize = backup.getBytesWritten();
+
+        // an unchanged directory only writes a new manifest
+        backup = newBackup();
+        File second = backup.backup("second");
+        assertEquals(second.length(), backup.getBytesWritten());
+
+        // rewriting a file with the same content stores no new chunks
+        writeFile("big.dat", bigText);
+        backup = newBackup();
+        File third = backup.backup("third");
+        assertEquals(third.length(), backup.getBytesWritten());
+
+        // appending to a file only stores the chunks near the end
+        writeFile("big.dat", bigText + "more text\n");
+        backup = newBackup();
+        File fourth = backup.backup("fourth");
+        assertTrue(backup.getBytesWritten() - fourth.length()
+                < firstSize / 10);
+
+        File restoreDir = new File(tempDir, "restore");
+        backup.restoreSnapshot(fourth, restoreDir);
+        assertSameContents(srcDir, restoreDir, "big.dat", "small.dat");
+    }
+
+    public void testRetention() throws Exception {
+        writeFile("a.dat", randomText(50000));
+        writeFile("b.dat", "unchanged");
+        ChunkedDirectoryBackup backup = newBackup();
+        File first = backup.backup("first");
+        writeFile("a.dat", randomText(50000));
+        File second = backup.backup("second");
+        int chunksBefore = countChunks();
+
+        // make the first snapshot look old, then prune it
+        File oldFirst = new File(first.getParentFile(),
+                "pdash-20000101000000-first.txt");
+        assertTrue(first.renameTo(oldFirst));
+        backup.cleanupOldBackups(1, 1);
+        assertFalse(oldFirst.exists());
+        assertEquals(Arrays.asList(second), backup.getSnapshots());
+        assertTrue(countChunks() < chunksBefore);
+
+        File restoreDir = new File(tempDir, "restore");
+        backup.restoreSnapshot(second, restoreDir);
+        assertSameContents(srcDir, restoreDir, "a.dat", "b.dat");
+    }
+
+    public void testNullBytes() throws Exception {
+        writeFile("good.dat", "good");
+        writeFile("bad.dat", "\u0000\u0000\u0000");
+        ChunkedDirectoryBackup backup = newBackup();
+        backup.backup("first");
+        assertEquals(1, backup.getFilesWithNullBytes().size());
+        assertEquals(new File(srcDir, "bad.dat"), backup
+                .getFilesWithNullBytes().iterator().next());
+
+        // the flag is remembered when a file is not reread
+        backup = newBackup();
+        backup.backup("second");
+        assertEquals(1, backup.getFilesWithNullBytes().size());
+    }
+
+    public void testSnapshotURL() throws Exception {
+        writeFile("state", "state contents");
+        writeFile("0.dat", randomText(100000));
+        ChunkedDirectoryBackup backup = newBackup();
+        File snapshot = backup.backup("test");
+
+        Map<String, String> entries = new HashMap<String, String>();
+        ZipInputStream zipIn = new ZipInputStream(backup.getSnapshotURL(
+            snapshot).openStream());
+        ZipEntry e;
+        while ((e = zipIn.getNextEntry()) != null)
+            entries.put(e.getName(), new String(FileUtils.slurpContents(
+                zipIn, false), "UTF-8"));
+        zipIn.close();
+
+        assertEquals(2, entries.size());
+        assertEquals("state contents", entries.get("state"));
+        assertEquals(readFile(new File(srcDir, "0.dat")), entries.get("0.dat"));
+        assertTrue(backup.getSnapshotURL(snapshot).toString().endsWith(
+            "-test.txt"));
+    }
+
+    public void testDashboardBackupURLs() throws Exception {
+        assertTrue(DashboardBackupFactory.getDashboardBackupURLs(srcDir)
+                .isEmpty());
+
+        writeFile("state", "zip contents");
+        DashboardBackupFactory.getDashboardBackup(srcDir).backup("a");
+        writeFile("state", "chunked contents");
+        try {
+            DashboardBackupFactory.setChunkedStore(true);
+            DirectoryBackup store = DashboardBackupFactory
+                    .getDashboardBackupStore(srcDir);
+            assertTrue(store instanceof ChunkedDirectoryBackup);
+            store.backup("b");
+        } finally {
+            DashboardBackupFactory.setChunkedStore(false);
+        }
+
+        // both kinds of backup are found, newest first, and read as ZIPs
+        List<URL> urls = DashboardBackupFactory.getDashboardBackupURLs(srcDir);
+        assertEquals(2, urls.size());
+        assertEquals("chunked contents", readZipEntry(urls.get(0), "state"));
+        assertEquals("zip contents", readZipEntry(urls.get(1), "state"));
+    }
+
+    private String readZipEntry(URL url, String name) throws IOException {
+        ZipInputStream zipIn = new ZipInputStream(url.openStream());
+        try {
+            ZipEntry e;
+            while ((e = zipIn.getNextEntry()) != null)
+                if (e.getName().equals(name))
+                    return new String(FileUtils.slurpContents(zipIn, false),
+                            "UTF-8");
+            return null;
+        } finally {
+            zipIn.close();
+        }
+    }
+
+    private ChunkedDirectoryBackup newBackup() {
+        ChunkedDirectoryBackup result = new ChunkedDirectoryBackup();
+        result.setSrcDirectory(srcDir);
+        result.setDestDirectory(backupDir);
+        result.setBackupFilenameFormat("pdash-{0}-{1}.zip");
+        return result;
+    }
+
+    private void writeFile(String name, String contents) throws IOException {
+        File f = new File(srcDir, name);
+        f.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(f);
+        out.write(contents.getBytes("UTF-8"));
+        out.close();
+        // backdate the file, so it is not considered too recent to trust
+        // its modification time
+        f.setLastModified(OLD_TIME + random.nextInt(1000000) * 1000L);
+    }
+
+    private String readFile(File f) throws IOException {
+        return new String(FileUtils.slurpContents(new FileInputStream(f),
+            true), "UTF-8");
+    }
+
+    private String randomText(int length) {
+        StringBuilder result = new StringBuilder(length);
+        while (result.length() < length) {
+            result.append("line ").append(random.nextInt(100000));
+            result.append(random.nextBoolean() ? '\n' : ' ');
+        }
+        return result.toString();
+    }
+
+    private int countChunks() {
+        List<String> files = FileUtils.listRecursively(new File(backupDir,
+                ChunkedDirectoryBackup.CHUNK_SUBDIR), null);
+        return files.size();
+    }
+
+    private void assertSameContents(File dirA, File dirB, String... names)
+            throws IOException {
+        for (String name : names)
+            assertEquals(readFile(new File(dirA, name)), readFile(new File(
+                dirB, name)));
+        assertEquals(names.length, FileUtils.listRecursively(dirB, null)
+                .size());
+    }
+
+}
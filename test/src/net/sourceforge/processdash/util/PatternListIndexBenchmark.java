@@ -0,0 +1,103 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the cost of finding the pattern listeners interested in a data
+ * change event, using a linear scan of PatternList objects versus a
+ * compiled {@link PatternListIndex}.
+ * <p>
+ * The listeners resemble those registered by dashboard components: most
+ * watch for data names ending with a particular suffix, some watch a
+ * project prefix, and a few look for a substring or a regular expression.
+ *
+ * Usage: PatternListIndexBenchmark [listeners] [events]
+ */
+public class PatternListIndexBenchmark {
+
+    public static void main(String[] args) {
+        int numListeners = (args.length > 0 ? Integer.parseInt(args[0]) : 500);
+        int numEvents = (args.length > 1 ? Integer.parseInt(args[1]) : 200000);
+
+        List<PatternList> patterns = new ArrayList<PatternList>();
+        List<Integer> listeners = new ArrayList<Integer>();
+        for (int i = 0; i < numListeners; i++) {
+            PatternList p = new PatternList();
+            switch (i % 10) {
+            case 0: case 1: case 2: case 3: case 4: case 5:
+                p.addLiteralEndsWith("/Metric " + i);
+                p.addLiteralEndsWith("/Estimated Metric " + i);
+                break;
+            case 6: case 7:
+                p.addLiteralStartsWith("/Project " + i + "/");
+                break;
+            case 8:
+                p.addLiteralContains("/Component " + i + "/");
+                break;
+            default:
+                p.addRegexp("^/Project " + i + "/.*/Tag [0-9]+$");
+                break;
+            }
+            patterns.add(p);
+            listeners.add(i);
+        }
+
+        String[] names = new String[1000];
+        for (int i = 0; i < names.length; i++)
+            names[i] = "/Project " + (i % 60) + "/Component " + (i % 17)
+                    + "/Task " + i + "/Metric " + (i % 700);
+
+        PatternListIndex<Integer> index = new PatternListIndex<Integer>(
+                patterns, listeners);
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            int linearMatches = 0;
+            for (int e = 0; e < numEvents; e++) {
+                String name = names[e % names.length];
+                for (PatternList p : patterns)
+                    if (p.matches(name))
+                        linearMatches++;
+            }
+            long linear = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int indexMatches = 0;
+            for (int e = 0; e < numEvents; e++)
+                indexMatches += index.getMatches(names[e % names.length])
+                        .size();
+            long indexed = System.nanoTime() - start;
+
+            System.out.println("Linear scan: "
+                    + (numEvents * 1000000000L / linear) + " events/sec, "
+                    + "indexed: " + (numEvents * 1000000000L / indexed)
+                    + " events/sec (" + linearMatches + "/" + indexMatches
+                    + " matches)");
+        }
+    }
+
+}
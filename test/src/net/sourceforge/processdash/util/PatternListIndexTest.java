@@ -0,0 +1,139 @@
+// Copyright (C) 2026 Tuma Solutions, LLC
+// Process Dashboard - Data Automation Tool for high-maturity processes
+//
+// This program is free software; you can redistribute it and/or
+// modify it under the terms of the GNU General Public License
+// as published by the Free Software Foundation; either version 3
+// of the License, or (at your option) any later version.
+//
+// Additional permissions also apply; see the README-license.txt
+// file in the project root directory for more information.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, see <http://www.gnu.org/licenses/>.
+//
+// The author(s) may be contacted at:
+//     processdash@tuma-solutions.com
+//     processdash-devel@lists.sourceforge.net
+
+package net.sourceforge.processdash.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class PatternListIndexTest extends TestCase {
+
+    public void testLiteralItems() {
+        PatternListIndex<String> index = build( //
+            new PatternList().addLiteralStartsWith("/Project/"), "start",
+            new PatternList().addLiteralEndsWith("/Time"), "end",
+            new PatternList().addLiteralEquals("/Project/Time"), "equals",
+            new PatternList().addLiteralContains("Proj"), "contains",
+            new PatternList().addLiteralStartsWith("/Other"), "other");
+
+        assertEquals(Arrays.asList("start", "end", "equals", "contains"),
+            index.getMatches("/Project/Time"));
+        assertEquals(Arrays.asList("end", "contains", "other"),
+            index.getMatches("/Other Proj/Time"));
+        assertEquals(Arrays.asList("other"), index.getMatches("/Other"));
+        assertEquals(Collections.EMPTY_LIST, index.getMatches(""));
+    }
+
+    public void testOverlappingContainsItems() {
+        // the classic Aho-Corasick example, where matches overlap and one
+        // pattern is a suffix of another
+        PatternListIndex<String> index = build( //
+            new PatternList().addLiteralContains("he"), "he",
+            new PatternList().addLiteralContains("she"), "she",
+            new PatternList().addLiteralContains("his"), "his",
+            new PatternList().addLiteralContains("hers"), "hers");
+        assertEquals(Arrays.asList("he", "she", "hers"),
+            index.getMatches("ushers"));
+        assertEquals(Arrays.asList("his"), index.getMatches("this"));
+        assertEquals(Collections.EMPTY_LIST, index.getMatches("hrs"));
+    }
+
+    public void testSpecialCases() {
+        PatternList dup = new PatternList("Time$", "/Time$");
+        PatternList custom = new PatternList() {
+            public boolean matches(String s) {
+                return s.length() == 3;
+            }
+        };
+        PatternListIndex<String> index = build( //
+            new PatternList(".*"), "always",
+            new PatternList("^/A/[0-9]+$"), "regexp",
+            dup, "dup",
+            custom, "custom",
+            dup, "dup again");
+
+        assertEquals(Arrays.asList("always", "regexp"),
+            index.getMatches("/A/12"));
+        assertEquals(Arrays.asList("always", "dup", "dup again"),
+            index.getMatches("/B/Time"));
+        assertEquals(Arrays.asList("always", "custom"),
+            index.getMatches("abc"));
+        assertEquals(5, index.size());
+    }
+
+    public void testAgreesWithPatternList() {
+        Random r = new Random(42);
+        List<PatternList> patterns = new ArrayList<PatternList>();
+        List<Integer> ids = new ArrayList<Integer>();
+        for (int i = 0; i < 200; i++) {
+            PatternList p = new PatternList();
+            for (int j = r.nextInt(3) + 1; j-- > 0;) {
+                String s = randomString(r, 3);
+                switch (r.nextInt(6)) {
+                case 0: p.addLiteralStartsWith(s); break;
+                case 1: p.addLiteralEndsWith(s); break;
+                case 2: p.addLiteralEquals(s); break;
+                case 3: p.addLiteralContains(s); break;
+                case 4: p.addRegexp("^" + s + "(x|y)?$"); break;
+                default: p.addRegexp(s + "[ab]"); break;
+                }
+            }
+            patterns.add(p);
+            ids.add(i);
+        }
+        PatternListIndex<Integer> index = new PatternListIndex<Integer>(
+                patterns, ids);
+
+        for (int n = 0; n < 5000; n++) {
+            String s = randomString(r, 8);
+            List<Integer> expected = new ArrayList<Integer>();
+            for (int i = 0; i < patterns.size(); i++)
+                if (patterns.get(i).matches(s))
+                    expected.add(i);
+            assertEquals(s, expected, index.getMatches(s));
+        }
+    }
+
+    private String randomString(Random r, int maxLen) {
+        StringBuilder result = new StringBuilder();
+        for (int i = r.nextInt(maxLen + 1); i-- > 0;)
+            result.append("abcxy/".charAt(r.nextInt(6)));
+        return result.toString();
+    }
+
+    private PatternListIndex<String> build(Object... args) {
+        List<PatternList> patterns = new ArrayList<PatternList>();
+        List<String> values = new ArrayList<String>();
+        for (int i = 0; i < args.length; i += 2) {
+            patterns.add((PatternList) args[i]);
+            values.add((String) args[i + 1]);
+        }
+        return new PatternListIndex<String>(patterns, values);
+    }
+
+}